@@ -29,6 +29,7 @@ import org.apache.storm.redis.common.config.JedisClusterConfig;
 import org.apache.storm.redis.common.config.JedisPoolConfig;
 import org.apache.storm.redis.common.container.RedisCommandsContainerBuilder;
 import org.apache.storm.redis.common.container.RedisCommandsInstanceContainer;
+import org.apache.storm.state.AsyncCommittableState;
 import org.apache.storm.state.DefaultStateEncoder;
 import org.apache.storm.state.DefaultStateSerializer;
 import org.apache.storm.state.KeyValueState;
@@ -40,7 +41,7 @@ import redis.clients.jedis.util.SafeEncoder;
 /**
  * A redis based implementation that persists the state in Redis.
  */
-public class RedisKeyValueState<K, V> implements KeyValueState<K, V> {
+public class RedisKeyValueState<K, V> implements KeyValueState<K, V>, AsyncCommittableState {
     public static final int ITERATOR_CHUNK_SIZE = 100;
     public static final NavigableMap<byte[], byte[]> EMPTY_PENDING_COMMIT_MAP = Maps.unmodifiableNavigableMap(
         new TreeMap<byte[], byte[]>(UnsignedBytes.lexicographicalComparator()));
@@ -55,7 +56,7 @@ public class RedisKeyValueState<K, V> implements KeyValueState<K, V> {
 
     private final RedisCommandsInstanceContainer container;
     private ConcurrentNavigableMap<byte[], byte[]> pendingPrepare;
-    private NavigableMap<byte[], byte[]> pendingCommit;
+    private volatile NavigableMap<byte[], byte[]> pendingCommit;
 
     // the key and value of txIds are guaranteed to be converted to UTF-8 encoded String
     private Map<String, String> txIds;
@@ -180,22 +181,26 @@ public class RedisKeyValueState<K, V> implements KeyValueState<K, V> {
     }
 
     @Override
-    public void prepareCommit(long txid) {
+    public Runnable snapshot(long txid) {
         LOG.debug("prepareCommit txid {}", txid);
         validatePrepareTxid(txid);
+        ConcurrentNavigableMap<byte[], byte[]> currentPending = pendingPrepare;
+        pendingPrepare = createPendingPrepareMap();
+        // pendingCommit holds what is in the prepare hash, so the merge needs no round trip to redis on the executor thread
+        if (!pendingCommit.isEmpty()) {
+            LOG.debug("Prepared txn already exists, will merge, txid {}", txid);
+            for (Map.Entry<byte[], byte[]> e : pendingCommit.entrySet()) {
+                currentPending.putIfAbsent(e.getKey(), e.getValue());
+            }
+        }
+        pendingCommit = Maps.unmodifiableNavigableMap(currentPending);
+        return () -> persistPrepared(txid, currentPending);
+    }
+
+    private void persistPrepared(long txid, Map<byte[], byte[]> currentPending) {
         RedisCommands commands = null;
         try {
-            ConcurrentNavigableMap<byte[], byte[]> currentPending = pendingPrepare;
-            pendingPrepare = createPendingPrepareMap();
             commands = container.getInstance();
-            if (commands.exists(prepareNamespace)) {
-                LOG.debug("Prepared txn already exists, will merge", txid);
-                for (Map.Entry<byte[], byte[]> e : pendingCommit.entrySet()) {
-                    if (!currentPending.containsKey(e.getKey())) {
-                        currentPending.put(e.getKey(), e.getValue());
-                    }
-                }
-            }
             if (!currentPending.isEmpty()) {
                 commands.hmset(prepareNamespace, currentPending);
             } else {
@@ -204,7 +209,6 @@ public class RedisKeyValueState<K, V> implements KeyValueState<K, V> {
             txIds.put(PREPARE_TXID_KEY, String.valueOf(txid));
 
             commands.hmset(txidNamespace, txIds);
-            pendingCommit = Maps.unmodifiableNavigableMap(currentPending);
         } finally {
             container.returnInstance(commands);
         }
@@ -0,0 +1,59 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.rocksdb.state;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A durable store for the checkpoints of {@link RocksDbKeyValueState}s, so a state can be restored on another host after its task is
+ * rescheduled.
+ *
+ * <p>A checkpoint is a RocksDB checkpoint directory. Its sst files are immutable and keep their names across checkpoints, so an
+ * implementation should only transfer the ones it does not have yet.
+ */
+public interface CheckpointStore {
+    /**
+     * Called once before the store is used.
+     *
+     * @param topoConf    the storm topology configuration
+     * @param storeConfig the store specific config of {@link RocksDbKeyValueStateProvider.StateConfig#checkpointStoreConfig}
+     */
+    void prepare(Map<String, Object> topoConf, Map<String, Object> storeConfig);
+
+    /**
+     * Saves a checkpoint as the latest one of the namespace, replacing the previous one.
+     *
+     * @param namespace     the state namespace
+     * @param sequence      the RocksDB sequence number of the checkpoint, increases with each write to the state
+     * @param checkpointDir the local checkpoint directory
+     */
+    void upload(String namespace, long sequence, File checkpointDir) throws IOException;
+
+    /**
+     * Returns the sequence number of the latest checkpoint of the namespace.
+     *
+     * @param namespace the state namespace
+     * @return the sequence number or -1 if no checkpoint was saved
+     */
+    long latestSequence(String namespace) throws IOException;
+
+    /**
+     * Copies the latest checkpoint of the namespace into an empty directory.
+     *
+     * @param namespace the state namespace
+     * @param targetDir the directory to restore into
+     */
+    void download(String namespace, File targetDir) throws IOException;
+}
@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.rocksdb.state;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.storm.shade.org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link CheckpointStore} keeping the checkpoints in a directory, typically a mount of a shared file system so that other hosts can
+ * restore them. The store config takes the directory as {@code "dir"}.
+ *
+ * <p>Each namespace has its own directory holding the sst files shared by its checkpoints, the other files of the latest checkpoint
+ * and a {@code LATEST} file naming that checkpoint, which is replaced atomically once the checkpoint is complete.
+ */
+public class LocalDirCheckpointStore implements CheckpointStore {
+    public static final String DIR = "dir";
+    private static final Logger LOG = LoggerFactory.getLogger(LocalDirCheckpointStore.class);
+    private static final String SST_DIR = "sst";
+    private static final String SST_SUFFIX = ".sst";
+    private static final String SST_LIST = "SST_FILES";
+    private static final String LATEST = "LATEST";
+
+    private File root;
+
+    @Override
+    public void prepare(Map<String, Object> topoConf, Map<String, Object> storeConfig) {
+        Object dir = storeConfig == null ? null : storeConfig.get(DIR);
+        if (dir == null) {
+            throw new IllegalArgumentException(LocalDirCheckpointStore.class.getSimpleName() + " requires the '" + DIR + "' config");
+        }
+        this.root = new File(dir.toString());
+    }
+
+    @Override
+    public void upload(String namespace, long sequence, File checkpointDir) throws IOException {
+        File namespaceDir = new File(root, namespace);
+        File sstDir = new File(namespaceDir, SST_DIR);
+        File checkpoint = new File(namespaceDir, Long.toString(sequence));
+        Files.createDirectories(sstDir.toPath());
+        FileUtils.deleteDirectory(checkpoint);
+        Files.createDirectories(checkpoint.toPath());
+
+        List<String> sstFiles = new ArrayList<>();
+        int copied = 0;
+        for (File file : listFiles(checkpointDir)) {
+            if (file.getName().endsWith(SST_SUFFIX)) {
+                File stored = new File(sstDir, file.getName());
+                if (!stored.exists() || stored.length() != file.length()) {
+                    copy(file, stored);
+                    copied++;
+                }
+                sstFiles.add(file.getName());
+            } else {
+                copy(file, new File(checkpoint, file.getName()));
+            }
+        }
+        Files.write(new File(checkpoint, SST_LIST).toPath(), sstFiles, StandardCharsets.UTF_8);
+
+        long previous = latestSequence(namespace);
+        File latestTmp = new File(namespaceDir, LATEST + ".tmp");
+        Files.write(latestTmp.toPath(), Long.toString(sequence).getBytes(StandardCharsets.UTF_8));
+        Files.move(latestTmp.toPath(), new File(namespaceDir, LATEST).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        LOG.debug("Uploaded checkpoint {} of {}, copied {} of {} sst files", sequence, namespace, copied, sstFiles.size());
+
+        if (previous >= 0 && previous != sequence) {
+            FileUtils.deleteDirectory(new File(namespaceDir, Long.toString(previous)));
+        }
+        Set<String> live = new HashSet<>(sstFiles);
+        for (File stored : listFiles(sstDir)) {
+            if (!live.contains(stored.getName())) {
+                FileUtils.deleteQuietly(stored);
+            }
+        }
+    }
+
+    @Override
+    public long latestSequence(String namespace) throws IOException {
+        File latest = new File(new File(root, namespace), LATEST);
+        if (!latest.exists()) {
+            return -1;
+        }
+        return Long.parseLong(new String(Files.readAllBytes(latest.toPath()), StandardCharsets.UTF_8).trim());
+    }
+
+    @Override
+    public void download(String namespace, File targetDir) throws IOException {
+        long sequence = latestSequence(namespace);
+        if (sequence < 0) {
+            throw new IOException("No checkpoint of " + namespace + " in " + root);
+        }
+        File namespaceDir = new File(root, namespace);
+        File checkpoint = new File(namespaceDir, Long.toString(sequence));
+        Files.createDirectories(targetDir.toPath());
+        for (File file : listFiles(checkpoint)) {
+            if (!file.getName().equals(SST_LIST)) {
+                copy(file, new File(targetDir, file.getName()));
+            }
+        }
+        File sstDir = new File(namespaceDir, SST_DIR);
+        for (String sstFile : Files.readAllLines(new File(checkpoint, SST_LIST).toPath(), StandardCharsets.UTF_8)) {
+            if (!sstFile.isEmpty()) {
+                copy(new File(sstDir, sstFile), new File(targetDir, sstFile));
+            }
+        }
+        LOG.info("Restored checkpoint {} of {} into {}", sequence, namespace, targetDir);
+    }
+
+    private static File[] listFiles(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            throw new IOException("Could not list " + dir);
+        }
+        return files;
+    }
+
+    private static void copy(File from, File to) throws IOException {
+        Files.copy(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
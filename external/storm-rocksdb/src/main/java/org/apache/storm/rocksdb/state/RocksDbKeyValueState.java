@@ -0,0 +1,399 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.rocksdb.state;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.apache.storm.shade.com.google.common.primitives.UnsignedBytes;
+import org.apache.storm.shade.org.apache.commons.io.FileUtils;
+import org.apache.storm.state.AsyncCommittableState;
+import org.apache.storm.state.DefaultStateEncoder;
+import org.apache.storm.state.KeyValueState;
+import org.apache.storm.state.Serializer;
+import org.rocksdb.Checkpoint;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.DBOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link KeyValueState} kept in an embedded RocksDB database on the local disk of the worker, so the state is not bounded by the heap
+ * and reads of committed keys do not leave the host.
+ *
+ * <p>The database has a column family for the committed data, one for the prepared but not yet committed updates and the default one
+ * for the prepared and committed txids. Each prepare, commit and rollback is applied as a single write batch. If a {@link
+ * CheckpointStore} is given, a checkpoint of the database is uploaded to it after each of them and restored when the state is opened
+ * on a host that has no newer copy, so the state survives the task being rescheduled.
+ *
+ * <p>Prepares and commits may run off the executor thread, see {@link AsyncCommittableState}.
+ */
+public class RocksDbKeyValueState<K, V> implements KeyValueState<K, V>, AsyncCommittableState {
+    public static final int ITERATOR_CHUNK_SIZE = 100;
+    private static final Logger LOG = LoggerFactory.getLogger(RocksDbKeyValueState.class);
+    private static final NavigableMap<byte[], byte[]> EMPTY_PENDING_COMMIT_MAP = Collections.unmodifiableNavigableMap(
+        new TreeMap<byte[], byte[]>(UnsignedBytes.lexicographicalComparator()));
+    private static final byte[] DATA_COLUMN_FAMILY = "data".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PREPARE_COLUMN_FAMILY = "prepare".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] COMMIT_TXID_KEY = "commit".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PREPARE_TXID_KEY = "prepare".getBytes(StandardCharsets.UTF_8);
+
+    private final String namespace;
+    private final File dbDir;
+    private final CheckpointStore checkpointStore;
+    private final DefaultStateEncoder<K, V> encoder;
+    private final DBOptions dbOptions;
+    private final ColumnFamilyOptions columnFamilyOptions;
+    private final WriteOptions writeOptions;
+
+    private RocksDB db;
+    private ColumnFamilyHandle txidHandle;
+    private ColumnFamilyHandle dataHandle;
+    private ColumnFamilyHandle prepareHandle;
+    private ConcurrentNavigableMap<byte[], byte[]> pendingPrepare;
+    private volatile NavigableMap<byte[], byte[]> pendingCommit;
+    private volatile Long committedTxid;
+    private volatile Long preparedTxid;
+    private long uploadedSequence = -1;
+
+    /**
+     * Opens the state in the given directory, restoring it from the checkpoint store first if the store has a newer checkpoint.
+     *
+     * @param namespace       the state namespace
+     * @param dbDir           the local directory of the database
+     * @param checkpointStore the store to upload checkpoints to, or null to keep the state on the local disk only
+     * @param keySerializer   the serializer of keys
+     * @param valueSerializer the serializer of values
+     */
+    public RocksDbKeyValueState(String namespace, File dbDir, CheckpointStore checkpointStore,
+                                Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        RocksDB.loadLibrary();
+        this.namespace = namespace;
+        this.dbDir = dbDir;
+        this.checkpointStore = checkpointStore;
+        this.encoder = new DefaultStateEncoder<K, V>(keySerializer, valueSerializer);
+        this.dbOptions = new DBOptions().setCreateIfMissing(true).setCreateMissingColumnFamilies(true);
+        this.columnFamilyOptions = new ColumnFamilyOptions();
+        this.writeOptions = new WriteOptions();
+        this.pendingPrepare = createPendingPrepareMap();
+        try {
+            restore();
+            initTxids();
+            initPendingCommit();
+        } catch (RocksDBException | IOException e) {
+            close();
+            throw new RuntimeException("Error opening the RocksDB state " + namespace + " in " + dbDir, e);
+        }
+    }
+
+    private void restore() throws RocksDBException, IOException {
+        long localSequence = -1;
+        if (new File(dbDir, "CURRENT").exists()) {
+            open();
+            localSequence = db.getLatestSequenceNumber();
+        }
+        if (checkpointStore != null) {
+            long storedSequence = checkpointStore.latestSequence(namespace);
+            if (storedSequence > localSequence) {
+                LOG.info("Restoring {} from checkpoint {}, local copy is at {}", namespace, storedSequence, localSequence);
+                closeDb();
+                FileUtils.deleteDirectory(dbDir);
+                checkpointStore.download(namespace, dbDir);
+            }
+            uploadedSequence = storedSequence;
+        }
+        if (db == null) {
+            open();
+        }
+    }
+
+    private void open() throws RocksDBException, IOException {
+        if (!dbDir.exists() && !dbDir.mkdirs()) {
+            throw new IOException("Could not create " + dbDir);
+        }
+        List<ColumnFamilyDescriptor> descriptors = Arrays.asList(
+            new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY, columnFamilyOptions),
+            new ColumnFamilyDescriptor(DATA_COLUMN_FAMILY, columnFamilyOptions),
+            new ColumnFamilyDescriptor(PREPARE_COLUMN_FAMILY, columnFamilyOptions));
+        List<ColumnFamilyHandle> handles = new ArrayList<>(descriptors.size());
+        db = RocksDB.open(dbOptions, dbDir.getAbsolutePath(), descriptors, handles);
+        txidHandle = handles.get(0);
+        dataHandle = handles.get(1);
+        prepareHandle = handles.get(2);
+    }
+
+    private void initTxids() throws RocksDBException {
+        committedTxid = readTxid(COMMIT_TXID_KEY);
+        preparedTxid = readTxid(PREPARE_TXID_KEY);
+        LOG.debug("initTxids, committed {}, prepared {}", committedTxid, preparedTxid);
+    }
+
+    private void initPendingCommit() {
+        NavigableMap<byte[], byte[]> pendingCommitMap = new TreeMap<>(UnsignedBytes.lexicographicalComparator());
+        try (RocksIterator iterator = db.newIterator(prepareHandle)) {
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                pendingCommitMap.put(iterator.key(), iterator.value());
+            }
+        }
+        if (pendingCommitMap.isEmpty()) {
+            LOG.debug("No previously prepared commits.");
+            pendingCommit = EMPTY_PENDING_COMMIT_MAP;
+        } else {
+            LOG.debug("Loaded {} previously prepared entries", pendingCommitMap.size());
+            pendingCommit = Collections.unmodifiableNavigableMap(pendingCommitMap);
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        LOG.debug("put key '{}', value '{}'", key, value);
+        pendingPrepare.put(encoder.encodeKey(key), encoder.encodeValue(value));
+    }
+
+    @Override
+    public V get(K key) {
+        LOG.debug("get key '{}'", key);
+        byte[] rawKey = encoder.encodeKey(key);
+        byte[] rawValue;
+        if (pendingPrepare.containsKey(rawKey)) {
+            rawValue = pendingPrepare.get(rawKey);
+        } else if (pendingCommit.containsKey(rawKey)) {
+            rawValue = pendingCommit.get(rawKey);
+        } else {
+            try {
+                rawValue = db.get(dataHandle, rawKey);
+            } catch (RocksDBException e) {
+                throw new RuntimeException("Error reading key '" + key + "' of " + namespace, e);
+            }
+        }
+        V value = null;
+        if (rawValue != null) {
+            value = encoder.decodeValue(rawValue);
+        }
+        LOG.debug("Value for key '{}' is '{}'", key, value);
+        return value;
+    }
+
+    @Override
+    public V get(K key, V defaultValue) {
+        V val = get(key);
+        return val != null ? val : defaultValue;
+    }
+
+    @Override
+    public V delete(K key) {
+        LOG.debug("delete key '{}'", key);
+        V curr = get(key);
+        pendingPrepare.put(encoder.encodeKey(key), encoder.getTombstoneValue());
+        return curr;
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new RocksDbKeyValueStateIterator<K, V>(db, dataHandle, pendingPrepare.entrySet().iterator(),
+                                                      pendingCommit.entrySet().iterator(), ITERATOR_CHUNK_SIZE,
+                                                      encoder.getKeySerializer(), encoder.getValueSerializer());
+    }
+
+    @Override
+    public Runnable snapshot(long txid) {
+        LOG.debug("prepareCommit txid {}", txid);
+        validatePrepareTxid(txid);
+        ConcurrentNavigableMap<byte[], byte[]> currentPending = pendingPrepare;
+        pendingPrepare = createPendingPrepareMap();
+        // a previously prepared txn is still in the prepare column family, keep its updates that were not overwritten since
+        for (Map.Entry<byte[], byte[]> e : pendingCommit.entrySet()) {
+            currentPending.putIfAbsent(e.getKey(), e.getValue());
+        }
+        pendingCommit = Collections.unmodifiableNavigableMap(currentPending);
+        return () -> persistPrepared(txid, currentPending);
+    }
+
+    private void persistPrepared(long txid, Map<byte[], byte[]> currentPending) {
+        try (WriteBatch batch = new WriteBatch()) {
+            for (Map.Entry<byte[], byte[]> e : currentPending.entrySet()) {
+                batch.put(prepareHandle, e.getKey(), e.getValue());
+            }
+            batch.put(txidHandle, PREPARE_TXID_KEY, encodeTxid(txid));
+            db.write(writeOptions, batch);
+        } catch (RocksDBException e) {
+            throw new RuntimeException("Error preparing txid " + txid + " of " + namespace, e);
+        }
+        preparedTxid = txid;
+        uploadCheckpoint();
+    }
+
+    @Override
+    public void commit(long txid) {
+        LOG.debug("commit txid {}", txid);
+        validateCommitTxid(txid);
+        try (WriteBatch batch = new WriteBatch()) {
+            for (Map.Entry<byte[], byte[]> e : pendingCommit.entrySet()) {
+                putOrDelete(batch, dataHandle, e.getKey(), e.getValue());
+                batch.delete(prepareHandle, e.getKey());
+            }
+            batch.put(txidHandle, COMMIT_TXID_KEY, encodeTxid(txid));
+            db.write(writeOptions, batch);
+        } catch (RocksDBException e) {
+            throw new RuntimeException("Error committing txid " + txid + " of " + namespace, e);
+        }
+        committedTxid = txid;
+        pendingCommit = EMPTY_PENDING_COMMIT_MAP;
+        uploadCheckpoint();
+    }
+
+    @Override
+    public void commit() {
+        if (pendingPrepare.isEmpty()) {
+            LOG.debug("Nothing to save for commit");
+            return;
+        }
+        try (WriteBatch batch = new WriteBatch()) {
+            for (Map.Entry<byte[], byte[]> e : pendingPrepare.entrySet()) {
+                putOrDelete(batch, dataHandle, e.getKey(), e.getValue());
+            }
+            db.write(writeOptions, batch);
+        } catch (RocksDBException e) {
+            throw new RuntimeException("Error committing " + namespace, e);
+        }
+        pendingPrepare = createPendingPrepareMap();
+        uploadCheckpoint();
+    }
+
+    @Override
+    public void rollback() {
+        LOG.debug("rollback");
+        try (WriteBatch batch = new WriteBatch()) {
+            for (byte[] key : pendingCommit.keySet()) {
+                batch.delete(prepareHandle, key);
+            }
+            if (committedTxid != null) {
+                batch.put(txidHandle, PREPARE_TXID_KEY, encodeTxid(committedTxid));
+            } else {
+                batch.delete(txidHandle, PREPARE_TXID_KEY);
+            }
+            db.write(writeOptions, batch);
+        } catch (RocksDBException e) {
+            throw new RuntimeException("Error rolling back " + namespace, e);
+        }
+        preparedTxid = committedTxid;
+        pendingCommit = EMPTY_PENDING_COMMIT_MAP;
+        pendingPrepare = createPendingPrepareMap();
+        uploadCheckpoint();
+    }
+
+    /**
+     * Closes the database. The state must not be used afterwards.
+     */
+    public void close() {
+        closeDb();
+        writeOptions.close();
+        columnFamilyOptions.close();
+        dbOptions.close();
+    }
+
+    private void closeDb() {
+        if (db != null) {
+            txidHandle.close();
+            dataHandle.close();
+            prepareHandle.close();
+            db.close();
+            db = null;
+        }
+    }
+
+    private void uploadCheckpoint() {
+        if (checkpointStore == null) {
+            return;
+        }
+        long sequence = db.getLatestSequenceNumber();
+        if (sequence == uploadedSequence) {
+            return;
+        }
+        File checkpointDir = new File(dbDir.getParentFile(), dbDir.getName() + ".checkpoint");
+        try {
+            FileUtils.deleteDirectory(checkpointDir);
+            try (Checkpoint checkpoint = Checkpoint.create(db)) {
+                checkpoint.createCheckpoint(checkpointDir.getAbsolutePath());
+            }
+            checkpointStore.upload(namespace, sequence, checkpointDir);
+            uploadedSequence = sequence;
+        } catch (RocksDBException | IOException e) {
+            throw new RuntimeException("Error uploading checkpoint " + sequence + " of " + namespace, e);
+        } finally {
+            FileUtils.deleteQuietly(checkpointDir);
+        }
+    }
+
+    private void putOrDelete(WriteBatch batch, ColumnFamilyHandle handle, byte[] key, byte[] value) throws RocksDBException {
+        if (Arrays.equals(encoder.getTombstoneValue(), value)) {
+            batch.delete(handle, key);
+        } else {
+            batch.put(handle, key, value);
+        }
+    }
+
+    /*
+     * Same txid can be prepared again, but the next txid cannot be prepared
+     * when previous one is not committed yet.
+     */
+    private void validatePrepareTxid(long txid) {
+        if (committedTxid != null && txid <= committedTxid) {
+            throw new RuntimeException("Invalid txid '" + txid + "' for prepare. Txid '" + committedTxid
+                                       + "' is already committed");
+        }
+    }
+
+    /*
+     * Same txid can be committed again but the
+     * txid to be committed must be the last prepared one.
+     */
+    private void validateCommitTxid(long txid) {
+        if (committedTxid != null && txid < committedTxid) {
+            throw new RuntimeException("Invalid txid '" + txid + "' txid '" + committedTxid + "' is already committed");
+        }
+        if (preparedTxid != null && txid != preparedTxid) {
+            throw new RuntimeException("Invalid txid '" + txid + "' not same as prepared txid '" + preparedTxid + "'");
+        }
+    }
+
+    private Long readTxid(byte[] key) throws RocksDBException {
+        byte[] value = db.get(txidHandle, key);
+        return value == null ? null : Long.valueOf(new String(value, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] encodeTxid(long txid) {
+        return String.valueOf(txid).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private ConcurrentNavigableMap<byte[], byte[]> createPendingPrepareMap() {
+        return new ConcurrentSkipListMap<>(UnsignedBytes.lexicographicalComparator());
+    }
+}
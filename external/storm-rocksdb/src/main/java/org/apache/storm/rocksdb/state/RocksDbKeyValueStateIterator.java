@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.rocksdb.state;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.apache.storm.state.BaseBinaryStateIterator;
+import org.apache.storm.state.DefaultStateEncoder;
+import org.apache.storm.state.Serializer;
+import org.apache.storm.state.StateEncoder;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksIterator;
+
+/**
+ * An iterator over {@link RocksDbKeyValueState}. The committed data is read in chunks, each with a short lived RocksDB iterator that
+ * seeks past the last key of the previous chunk, so an iteration that is not run to the end does not hold native resources.
+ */
+public class RocksDbKeyValueStateIterator<K, V> extends BaseBinaryStateIterator<K, V> {
+
+    private final RocksDB db;
+    private final ColumnFamilyHandle dataHandle;
+    private final int chunkSize;
+    private final StateEncoder<K, V, byte[], byte[]> encoder;
+
+    private byte[] lastKey;
+    private boolean endOfData;
+
+    /**
+     * Constructor.
+     *
+     * @param db The database of the State
+     * @param dataHandle The column family of the committed data
+     * @param pendingPrepareIterator The iterator of pendingPrepare
+     * @param pendingCommitIterator The iterator of pendingCommit
+     * @param chunkSize The number of entries to read from RocksDB at once
+     * @param keySerializer The serializer of key
+     * @param valueSerializer The serializer of value
+     */
+    public RocksDbKeyValueStateIterator(RocksDB db, ColumnFamilyHandle dataHandle,
+                                        Iterator<Map.Entry<byte[], byte[]>> pendingPrepareIterator,
+                                        Iterator<Map.Entry<byte[], byte[]>> pendingCommitIterator,
+                                        int chunkSize, Serializer<K> keySerializer,
+                                        Serializer<V> valueSerializer) {
+        super(pendingPrepareIterator, pendingCommitIterator);
+        this.db = db;
+        this.dataHandle = dataHandle;
+        this.chunkSize = chunkSize;
+        this.encoder = new DefaultStateEncoder<K, V>(keySerializer, valueSerializer);
+    }
+
+    @Override
+    protected Iterator<Map.Entry<byte[], byte[]>> loadChunkFromStateStorage() {
+        List<Map.Entry<byte[], byte[]>> chunk = new ArrayList<>(chunkSize);
+        try (RocksIterator iterator = db.newIterator(dataHandle)) {
+            if (lastKey == null) {
+                iterator.seekToFirst();
+            } else {
+                iterator.seek(lastKey);
+                if (iterator.isValid() && Arrays.equals(iterator.key(), lastKey)) {
+                    iterator.next();
+                }
+            }
+            for (; iterator.isValid() && chunk.size() < chunkSize; iterator.next()) {
+                chunk.add(new AbstractMap.SimpleImmutableEntry<>(iterator.key(), iterator.value()));
+            }
+        }
+        if (chunk.size() < chunkSize) {
+            endOfData = true;
+        } else {
+            lastKey = chunk.get(chunk.size() - 1).getKey();
+        }
+        return chunk.iterator();
+    }
+
+    @Override
+    protected boolean isEndOfDataFromStorage() {
+        return endOfData;
+    }
+
+    @Override
+    protected K decodeKey(byte[] key) {
+        return encoder.decodeKey(key);
+    }
+
+    @Override
+    protected V decodeValue(byte[] value) {
+        return encoder.decodeValue(value);
+    }
+
+    @Override
+    protected boolean isTombstoneValue(byte[] value) {
+        return Arrays.equals(value, encoder.getTombstoneValue());
+    }
+}
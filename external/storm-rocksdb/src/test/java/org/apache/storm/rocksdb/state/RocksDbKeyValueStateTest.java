@@ -0,0 +1,208 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.rocksdb.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.storm.state.DefaultStateSerializer;
+import org.apache.storm.state.KeyValueState;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RocksDbKeyValueStateTest {
+    private static final String NAMESPACE = "test-state";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File dbDir;
+    private RocksDbKeyValueState<String, Integer> state;
+
+    private static Map<String, Integer> contents(KeyValueState<String, Integer> state) {
+        Map<String, Integer> contents = new HashMap<>();
+        for (Map.Entry<String, Integer> e : state) {
+            contents.put(e.getKey(), e.getValue());
+        }
+        return contents;
+    }
+
+    private static Map<String, Integer> mapOf(Object... keysAndValues) {
+        Map<String, Integer> map = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], (Integer) keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    private static RocksDbKeyValueState<String, Integer> open(File dir, CheckpointStore checkpointStore) {
+        return new RocksDbKeyValueState<>(NAMESPACE, dir, checkpointStore, new DefaultStateSerializer<>(),
+                                          new DefaultStateSerializer<>());
+    }
+
+    private void reopen() {
+        state.close();
+        state = open(dbDir, null);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        dbDir = new File(tmp.newFolder(), NAMESPACE);
+        state = open(dbDir, null);
+    }
+
+    @After
+    public void tearDown() {
+        state.close();
+    }
+
+    @Test
+    public void testPutGetDelete() {
+        state.put("a", 1);
+        state.put("b", 2);
+        assertEquals(Integer.valueOf(1), state.get("a"));
+        assertEquals(Integer.valueOf(2), state.delete("b"));
+        assertNull(state.get("b"));
+        assertEquals(Integer.valueOf(3), state.get("b", 3));
+        assertEquals(mapOf("a", 1), contents(state));
+    }
+
+    @Test
+    public void testCommittedStateSurvivesReopen() {
+        state.put("a", 1);
+        state.put("b", 2);
+        state.prepareCommit(1);
+        state.commit(1);
+        state.delete("b");
+        state.put("c", 3);
+        state.prepareCommit(2);
+        state.commit(2);
+        // updates after the last prepare are not persisted
+        state.put("d", 4);
+        reopen();
+        assertEquals(mapOf("a", 1, "c", 3), contents(state));
+        assertNull(state.get("b"));
+        assertNull(state.get("d"));
+        // the committed txid is persisted too
+        assertThrows(RuntimeException.class, () -> state.prepareCommit(2));
+        state.prepareCommit(3);
+        state.commit(3);
+    }
+
+    @Test
+    public void testRollbackToTheLastCommit() {
+        state.put("a", 1);
+        state.put("b", 1);
+        state.prepareCommit(1);
+        state.commit(1);
+        state.put("a", 2);
+        state.delete("b");
+        state.put("c", 2);
+        state.rollback();
+        assertEquals(mapOf("a", 1, "b", 1), contents(state));
+    }
+
+    @Test
+    public void testRollbackOfPreparedButUncommittedTxn() {
+        state.put("a", 1);
+        state.prepareCommit(1);
+        state.commit(1);
+        state.put("a", 2);
+        state.put("b", 2);
+        state.prepareCommit(2);
+        state.put("a", 3);
+        // txn 2 was prepared but never committed, everything since the commit of txn 1 is undone
+        state.rollback();
+        assertEquals(mapOf("a", 1), contents(state));
+        assertThrows(RuntimeException.class, () -> state.commit(2));
+        reopen();
+        assertEquals(mapOf("a", 1), contents(state));
+        state.prepareCommit(2);
+        state.commit(2);
+    }
+
+    @Test
+    public void testPreparedTxnIsCommittedAfterReopen() {
+        state.put("a", 1);
+        state.prepareCommit(1);
+        state.commit(1);
+        state.put("a", 2);
+        state.put("b", 2);
+        state.prepareCommit(2);
+        // the worker dies between the prepare and the commit, the prepared updates are visible and committed on recovery
+        reopen();
+        assertEquals(Integer.valueOf(2), state.get("a"));
+        assertThrows(RuntimeException.class, () -> state.commit(3));
+        state.commit(2);
+        reopen();
+        assertEquals(mapOf("a", 2, "b", 2), contents(state));
+    }
+
+    @Test
+    public void testPrepareAgainKeepsTheEarlierUpdates() {
+        state.put("a", 1);
+        state.put("b", 1);
+        state.prepareCommit(1);
+        state.put("b", 2);
+        // the prepare of txn 1 is retried
+        state.prepareCommit(1);
+        state.commit(1);
+        reopen();
+        assertEquals(mapOf("a", 1, "b", 2), contents(state));
+    }
+
+    @Test
+    public void testSnapshotIsolatesLaterUpdates() {
+        state.put("a", 1);
+        Runnable persist = state.snapshot(1);
+        // the executor thread keeps updating the state before the snapshot is persisted
+        state.put("a", 2);
+        state.put("b", 2);
+        persist.run();
+        state.commit(1);
+        assertEquals(mapOf("a", 2, "b", 2), contents(state));
+        reopen();
+        assertEquals(mapOf("a", 1), contents(state));
+    }
+
+    @Test
+    public void testRestoreFromCheckpointStore() throws IOException {
+        LocalDirCheckpointStore checkpointStore = new LocalDirCheckpointStore();
+        checkpointStore.prepare(Collections.emptyMap(), Collections.singletonMap(LocalDirCheckpointStore.DIR,
+                                                                                  tmp.newFolder().getAbsolutePath()));
+        state.close();
+        state = open(dbDir, checkpointStore);
+        state.put("a", 1);
+        state.put("b", 1);
+        state.prepareCommit(1);
+        state.commit(1);
+        state.put("b", 2);
+        state.prepareCommit(2);
+        state.close();
+
+        // the task is rescheduled to a host without a local copy
+        state = open(new File(tmp.newFolder(), NAMESPACE), checkpointStore);
+        assertEquals(Integer.valueOf(2), state.get("b"));
+        state.rollback();
+        assertEquals(mapOf("a", 1, "b", 1), contents(state));
+    }
+}
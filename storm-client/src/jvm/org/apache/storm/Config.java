@@ -85,6 +85,13 @@ public class Config extends HashMap<String, Object> {
     @IsBoolean
     @NotNull
     public static final String TOPOLOGY_DISABLE_LOADAWARE_MESSAGING = "topology.disable.loadaware.messaging";
+    /**
+     * The hash used by fields groupings to pick the target task of a tuple. "legacy" maps keys exactly like earlier releases did, "murmur3"
+     * spreads keys with poor {@code hashCode()}s (e.g. sequential numbers) more evenly. Switching changes which task sees a key, so it
+     * must not be changed for a topology that relies on keyed state.
+     */
+    @IsString(acceptedValues = { "legacy", "murmur3" })
+    public static final String TOPOLOGY_FIELDS_GROUPING_HASH = "topology.fields.grouping.hash";
     /**
      * This signifies the load congestion among target tasks in scope. Currently it's only used in LoadAwareShuffleGrouping. When the
      * average load is higher than the higher bound, the executor should choose target tasks in a higher scope, The scopes and their orders
@@ -309,6 +316,13 @@ public class Config extends HashMap<String, Object> {
     @IsInteger
     @IsPositiveNumber
     public static final String TOPOLOGY_STATE_CHECKPOINT_INTERVAL = "topology.state.checkpoint.interval.ms";
+    /**
+     * Persist the checkpoints of {@link org.apache.storm.topology.IStatefulBolt}s on a background thread, so the executor keeps
+     * processing tuples while the state store is written. The checkpoint is acknowledged once the write completes. Only used for
+     * states implementing {@link org.apache.storm.state.AsyncCommittableState}, other states are checkpointed on the executor thread.
+     */
+    @IsBoolean
+    public static final String TOPOLOGY_STATE_CHECKPOINT_ASYNC = "topology.state.checkpoint.async";
     /**
      * A per topology config that specifies the maximum amount of memory a worker can use for that specific topology.
      */
@@ -439,6 +453,12 @@ public class Config extends HashMap<String, Object> {
     @IsInteger
     @IsPositiveNumber(includeZero = true)
     public static final String TOPOLOGY_ACKER_EXECUTORS = "topology.acker.executors";
+    /**
+     * If true, bolts coalesce their ack and fail messages per acker and root id and send them to each acker as one batch tuple whenever
+     * the executor flushes, instead of one tuple per root id. This must be set when the topology is submitted.
+     */
+    @IsBoolean
+    public static final String TOPOLOGY_ACKER_BATCH_ACKS = "topology.acker.batch.acks";
 
     /**
      * How many ackers to put in when launching a new worker until we run out of ackers.
@@ -581,6 +601,38 @@ public class Config extends HashMap<String, Object> {
      */
     @IsPositiveNumber
     public static final String TOPOLOGY_STATS_SAMPLE_RATE = "topology.stats.sample.rate";
+    /**
+     * Also record the sampled execute, process and complete latencies of the tasks in HdrHistogram backed histograms, reported through
+     * the metrics reporters with their percentiles, in addition to the average latency gauges.
+     */
+    @IsBoolean
+    public static final String TOPOLOGY_STATS_LATENCY_HISTOGRAMS = "topology.stats.latency.histograms";
+    /**
+     * Emit Java Flight Recorder events for the tuple hot path of the workers (decoding, executor accept, execute, transfer and
+     * remote flush).  The events only cost anything while a recording is running, e.g. one started through the worker profiling
+     * actions.  Ignored on JVMs without the jdk.jfr API.
+     */
+    @IsBoolean
+    public static final String TOPOLOGY_JFR_EVENTS = "topology.jfr.events";
+    /**
+     * The fraction of the tuples emitted by spouts that start a trace.  A traced tuple carries a small trace context that is
+     * passed on to every tuple anchored to it, and each bolt that executes one of them exports a span with the emit, receive,
+     * dequeue and execute timestamps of that hop.  0 turns tracing off, the tuples are then serialized without any trace context.
+     */
+    @IsPositiveNumber(includeZero = true)
+    public static final String TOPOLOGY_TRACING_SAMPLE_RATE = "topology.tracing.sample.rate";
+    /**
+     * The class that the spans of traced tuples are handed to.  It must implement
+     * {@link org.apache.storm.tracing.ISpanExporter}.
+     */
+    @IsString
+    public static final String TOPOLOGY_TRACING_SPAN_EXPORTER = "topology.tracing.span.exporter";
+    /**
+     * The directory {@link org.apache.storm.tracing.FileSpanExporter} writes its span files to.  Defaults to the artifacts
+     * directory of the worker, where they can be downloaded from the logviewer.
+     */
+    @IsString
+    public static final String TOPOLOGY_TRACING_FILE_EXPORTER_DIR = "topology.tracing.file.exporter.dir";
     /**
      * The time period that builtin metrics data in bucketed into.
      */
@@ -709,6 +761,12 @@ public class Config extends HashMap<String, Object> {
     @IsPositiveNumber
     @IsInteger
     public static final String TOPOLOGY_TRANSFER_BATCH_SIZE = "topology.transfer.batch.size";
+    /**
+     * Whether tuples sent to other workers are serialized straight into pooled netty buffers that travel through the transfer queue to the
+     * socket, and whether received payloads are deserialized from slices of the network buffer instead of being copied into new arrays.
+     */
+    @IsBoolean
+    public static final String TOPOLOGY_TRANSFER_ZERO_COPY = "topology.transfer.zero.copy";
     /**
      * How often a tick tuple from the "__system" component and "__tick" stream should be sent to tasks. Meant to be used as a
      * component-specific configuration.
@@ -722,6 +780,20 @@ public class Config extends HashMap<String, Object> {
     @IsPositiveNumber
     @NotNull
     public static final String TOPOLOGY_PRODUCER_BATCH_SIZE = "topology.producer.batch.size";
+    /**
+     * If true, each producer thread sizes its batches from its own arrival rate and the occupancy of the destination queue: small
+     * batches at low rates to keep latency down, up to {@link #TOPOLOGY_PRODUCER_BATCH_SIZE} at high rates or when the queue is backed
+     * up. A partially filled batch is pushed once its oldest tuple waited
+     * {@link #TOPOLOGY_PRODUCER_BATCH_ADAPTIVE_MAX_DELAY_MICROS}. Has no effect if {@link #TOPOLOGY_PRODUCER_BATCH_SIZE} is 1.
+     */
+    @IsBoolean
+    public static final String TOPOLOGY_PRODUCER_BATCH_ADAPTIVE = "topology.producer.batch.adaptive";
+    /**
+     * The batching delay adaptive producer batching aims for, see {@link #TOPOLOGY_PRODUCER_BATCH_ADAPTIVE}.
+     */
+    @IsInteger
+    @IsPositiveNumber
+    public static final String TOPOLOGY_PRODUCER_BATCH_ADAPTIVE_MAX_DELAY_MICROS = "topology.producer.batch.adaptive.max.delay.micros";
     /**
      * If number of items in task's overflowQ exceeds this, new messages coming from other workers to this task will be dropped This
      * prevents OutOfMemoryException that can occur in rare scenarios in the presence of BackPressure. This affects only inter-worker
@@ -914,6 +986,24 @@ public class Config extends HashMap<String, Object> {
      */
     @IsString
     public static final String TOPOLOGY_BOLT_WAIT_STRATEGY = "topology.bolt.wait.strategy";
+    /**
+     * The number of execute calls a bolt executor keeps in flight at once. Above 1, execute runs on virtual threads (on a pool of that
+     * many platform threads on JVMs without virtual threads), so a single executor can hide the latency of blocking calls. The bolt's
+     * execute must then be thread safe. Emits, acks and fails made from inside execute are applied by the executor thread in tuple
+     * arrival order once the call returns, and emit returns an empty task id list. Tick tuples and other system tuples are executed on
+     * the executor thread once all calls in flight have completed. Usually set per component. Ignored for system components and for
+     * {@link org.apache.storm.task.IAsyncBolt}s.
+     */
+    @IsInteger
+    @IsPositiveNumber
+    public static final String TOPOLOGY_BOLT_EXECUTE_CONCURRENCY = "topology.bolt.execute.concurrency";
+    /**
+     * The maximum number of tuples an {@link org.apache.storm.task.IAsyncBolt} executor has in flight. Once reached, the executor stops
+     * reading its receive queue until a tuple completes.
+     */
+    @IsInteger
+    @IsPositiveNumber
+    public static final String TOPOLOGY_BOLT_ASYNC_MAX_IN_FLIGHT = "topology.bolt.async.max.in.flight";
     /**
      * Configures park time for WaitStrategyPark.  If set to 0, returns immediately (i.e busy wait).
      */
@@ -1494,6 +1584,35 @@ public class Config extends HashMap<String, Object> {
     @IsInteger
     @IsPositiveNumber(includeZero = true)
     public static final String STORM_MESSAGING_NETTY_SERVER_WORKER_THREADS = "storm.messaging.netty.server_worker_threads";
+    /**
+     * Netty based messaging: The IO transport, one of "nio", "epoll" or "auto". "epoll" and "auto" use netty's native epoll transport
+     * (edge-triggered, with TCP_QUICKACK) when it is available on the host and fall back to NIO otherwise; "epoll" also logs a warning
+     * when it has to fall back.
+     */
+    @IsString
+    public static final String STORM_MESSAGING_NETTY_IO_TRANSPORT = "storm.messaging.netty.io.transport";
+    /**
+     * Netty based messaging: SO_BUSY_POLL in microseconds for worker connections when the epoll transport is used. 0 disables busy
+     * polling.
+     */
+    @IsInteger
+    @IsPositiveNumber(includeZero = true)
+    public static final String STORM_MESSAGING_NETTY_EPOLL_BUSY_POLL_MICROS = "storm.messaging.netty.epoll.busy.poll.micros";
+    /**
+     * Netty based messaging: The codec used to compress message batches between workers, one of "none", "lz4" or "zstd". The codec is
+     * negotiated per connection, a client falls back to uncompressed batches if either it or the remote worker cannot load the codec.
+     * Storm does not ship the codec libraries, org.lz4:lz4-java or com.github.luben:zstd-jni has to be put on the worker classpath,
+     * e.g. in extlib or in the topology jar.
+     */
+    @IsString(acceptedValues = { "none", "lz4", "zstd" })
+    public static final String STORM_MESSAGING_NETTY_COMPRESSION_CODEC = "storm.messaging.netty.compression.codec";
+    /**
+     * Netty based messaging: Message batches smaller than this many bytes are sent uncompressed even if a compression codec is
+     * configured.
+     */
+    @IsInteger
+    @IsPositiveNumber(includeZero = true)
+    public static final String STORM_MESSAGING_NETTY_COMPRESSION_MIN_BYTES = "storm.messaging.netty.compression.min.bytes";
     /**
      * If the Netty messaging layer is busy, the Netty client will try to batch message as more as possible up to the size of
      * STORM_NETTY_MESSAGE_BATCH_SIZE bytes.
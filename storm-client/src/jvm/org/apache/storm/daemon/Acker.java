@@ -19,10 +19,9 @@ import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.tuple.Tuple;
 import org.apache.storm.tuple.Values;
-import org.apache.storm.utils.RotatingMap;
+import org.apache.storm.utils.RotatingLongTable;
 import org.apache.storm.utils.Time;
 import org.apache.storm.utils.TupleUtils;
-import org.apache.storm.utils.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,56 +31,50 @@ public class Acker implements IBolt {
     public static final String ACKER_ACK_STREAM_ID = "__ack_ack";
     public static final String ACKER_FAIL_STREAM_ID = "__ack_fail";
     public static final String ACKER_RESET_TIMEOUT_STREAM_ID = "__ack_reset_timeout";
+    public static final String ACKER_ACK_BATCH_STREAM_ID = "__ack_batch";
     public static final int TIMEOUT_BUCKET_NUM = 3;
     private static final Logger LOG = LoggerFactory.getLogger(Acker.class);
     private static final long serialVersionUID = 4430906880683183091L;
     private OutputCollector collector;
-    private RotatingMap<Object, AckObject> pending;
+    private PendingTable pending;
 
     @Override
     public void prepare(Map<String, Object> topoConf, TopologyContext context, OutputCollector collector) {
         this.collector = collector;
-        this.pending = new RotatingMap<>(TIMEOUT_BUCKET_NUM);
+        this.pending = new PendingTable(TIMEOUT_BUCKET_NUM);
     }
 
     @Override
     public void execute(Tuple input) {
         if (TupleUtils.isTick(input)) {
-            Map<Object, AckObject> tmp = pending.rotate();
-            LOG.debug("Number of timeout tuples:{}", tmp.size());
+            int expired = pending.rotate();
+            LOG.debug("Number of timeout tuples:{}", expired);
             return;
         }
 
         boolean resetTimeout = false;
         String streamId = input.getSourceStreamId();
-        Object id = input.getValue(0);
-        AckObject curr = pending.get(id);
+        int slot;
         if (ACKER_INIT_STREAM_ID.equals(streamId)) {
-            if (curr == null) {
-                curr = new AckObject();
-                pending.put(id, curr);
-            }
-            curr.updateAck(input.getLong(1));
-            curr.spoutTask = input.getInteger(2);
+            slot = pending.slotFor(input.getLong(0));
+            pending.updateAck(slot, input.getLong(1));
+            pending.spoutTasks[slot] = input.getInteger(2);
         } else if (ACKER_ACK_STREAM_ID.equals(streamId)) {
-            if (curr == null) {
-                curr = new AckObject();
-                pending.put(id, curr);
-            }
-            curr.updateAck(input.getLong(1));
+            slot = pending.slotFor(input.getLong(0));
+            pending.updateAck(slot, input.getLong(1));
         } else if (ACKER_FAIL_STREAM_ID.equals(streamId)) {
             // For the case that ack_fail message arrives before ack_init
-            if (curr == null) {
-                curr = new AckObject();
-            }
-            curr.failed = true;
-            pending.put(id, curr);
+            slot = pending.slotFor(input.getLong(0));
+            pending.failed[slot] = true;
+            pending.refresh(slot);
         } else if (ACKER_RESET_TIMEOUT_STREAM_ID.equals(streamId)) {
             resetTimeout = true;
-            if (curr == null) {
-                curr = new AckObject();
-            }
-            pending.put(id, curr);
+            slot = pending.slotFor(input.getLong(0));
+            pending.refresh(slot);
+        } else if (ACKER_ACK_BATCH_STREAM_ID.equals(streamId)) {
+            executeBatch(input);
+            collector.ack(input);
+            return;
         } else if (Constants.SYSTEM_FLUSH_STREAM_ID.equals(streamId)) {
             collector.flush();
             return;
@@ -90,14 +83,42 @@ public class Acker implements IBolt {
             return;
         }
 
-        int task = curr.spoutTask;
-        if (task >= 0 && (curr.val == 0 || curr.failed || resetTimeout)) {
-            Values tuple = new Values(id, getTimeDeltaMillis(curr.startTime));
-            if (curr.val == 0) {
-                pending.remove(id);
+        checkComplete(input.getLong(0), slot, resetTimeout);
+        collector.ack(input);
+    }
+
+    /**
+     * Apply a batch of coalesced updates from one executor. Fails go first, so that a tree failed and acked within the same batch is
+     * reported as failed and replayed.
+     */
+    private void executeBatch(Tuple input) {
+        long[] ackIds = (long[]) input.getValue(0);
+        long[] ackVals = (long[]) input.getValue(1);
+        long[] failIds = (long[]) input.getValue(2);
+        for (long id : failIds) {
+            int slot = pending.slotFor(id);
+            pending.failed[slot] = true;
+            pending.refresh(slot);
+            checkComplete(id, slot, false);
+        }
+        for (int i = 0; i < ackIds.length; i++) {
+            int slot = pending.slotFor(ackIds[i]);
+            pending.updateAck(slot, ackVals[i]);
+            checkComplete(ackIds[i], slot, false);
+        }
+    }
+
+    private void checkComplete(long id, int slot, boolean resetTimeout) {
+        int task = pending.spoutTasks[slot];
+        long val = pending.vals[slot];
+        boolean failed = pending.failed[slot];
+        if (task >= 0 && (val == 0 || failed || resetTimeout)) {
+            Values tuple = new Values(id, getTimeDeltaMillis(pending.startTimes[slot]));
+            if (val == 0) {
+                pending.removeAt(slot);
                 collector.emitDirect(task, ACKER_ACK_STREAM_ID, tuple);
-            } else if (curr.failed) {
-                pending.remove(id);
+            } else if (failed) {
+                pending.removeAt(slot);
                 collector.emitDirect(task, ACKER_FAIL_STREAM_ID, tuple);
             } else if (resetTimeout) {
                 collector.emitDirect(task, ACKER_RESET_TIMEOUT_STREAM_ID, tuple);
@@ -105,8 +126,6 @@ public class Acker implements IBolt {
                 throw new IllegalStateException("The checks are inconsistent we reach what should be unreachable code.");
             }
         }
-
-        collector.ack(input);
     }
 
     @Override
@@ -118,15 +137,96 @@ public class Acker implements IBolt {
         return Time.currentTimeMillis() - startTimeMillis;
     }
 
-    private static class AckObject {
-        public long val = 0L;
-        public long startTime = Time.currentTimeMillis();
-        public int spoutTask = -1;
-        public boolean failed = false;
+    /**
+     * Pending tuple trees keyed by root id, with the ack value, start time, spout task and failed flag of each tree kept in parallel arrays
+     * so that tracking a tree allocates nothing.
+     */
+    static class PendingTable extends RotatingLongTable {
+        private static final int EXPECTED_SIZE = 1024;
+
+        long[] vals;
+        long[] startTimes;
+        int[] spoutTasks;
+        boolean[] failed;
+
+        private long[] oldVals;
+        private long[] oldStartTimes;
+        private int[] oldSpoutTasks;
+        private boolean[] oldFailed;
+
+        PendingTable(int numBuckets) {
+            super(numBuckets, EXPECTED_SIZE);
+            allocate(capacity());
+        }
+
+        int slotFor(long rootId) {
+            return slotForInsert(rootId);
+        }
+
+        void refresh(int slot) {
+            touch(slot);
+        }
+
+        void removeAt(int slot) {
+            removeSlot(slot);
+        }
 
         // val xor value
-        public void updateAck(Long value) {
-            val = Utils.bitXor(val, value);
+        void updateAck(int slot, long value) {
+            vals[slot] ^= value;
+        }
+
+        @Override
+        protected void allocate(int capacity) {
+            vals = new long[capacity];
+            startTimes = new long[capacity];
+            spoutTasks = new int[capacity];
+            failed = new boolean[capacity];
+        }
+
+        @Override
+        protected void beginResize() {
+            oldVals = vals;
+            oldStartTimes = startTimes;
+            oldSpoutTasks = spoutTasks;
+            oldFailed = failed;
+        }
+
+        @Override
+        protected void moveFromOld(int oldSlot, int newSlot) {
+            vals[newSlot] = oldVals[oldSlot];
+            startTimes[newSlot] = oldStartTimes[oldSlot];
+            spoutTasks[newSlot] = oldSpoutTasks[oldSlot];
+            failed[newSlot] = oldFailed[oldSlot];
+        }
+
+        @Override
+        protected void endResize() {
+            oldVals = null;
+            oldStartTimes = null;
+            oldSpoutTasks = null;
+            oldFailed = null;
+        }
+
+        @Override
+        protected void initSlot(int slot) {
+            vals[slot] = 0L;
+            startTimes[slot] = Time.currentTimeMillis();
+            spoutTasks[slot] = -1;
+            failed[slot] = false;
+        }
+
+        @Override
+        protected void moveSlot(int from, int to) {
+            vals[to] = vals[from];
+            startTimes[to] = startTimes[from];
+            spoutTasks[to] = spoutTasks[from];
+            failed[to] = failed[from];
+        }
+
+        @Override
+        protected void clearSlot(int slot) {
+            // primitive columns hold no references, initSlot resets them on reuse
         }
     }
 }
@@ -69,7 +69,7 @@ public class GrouperFactory {
                 if (Thrift.isGlobalGrouping(thriftGrouping)) {
                     result = new GlobalGrouper();
                 } else {
-                    result = new FieldsGrouper(outFields, thriftGrouping);
+                    result = new FieldsGrouper(outFields, thriftGrouping, TupleUtils.isMurmur3FieldsGrouping(topoConf));
                 }
                 break;
             case SHUFFLE:
@@ -152,12 +152,22 @@ public class GrouperFactory {
         private Fields outFields;
         private List<List<Integer>> targetTasks;
         private Fields groupFields;
+        private int[] groupFieldIndexes;
+        private boolean murmur3;
         private int numTasks;
 
         public FieldsGrouper(Fields outFields, Grouping thriftGrouping) {
+            this(outFields, thriftGrouping, false);
+        }
+
+        public FieldsGrouper(Fields outFields, Grouping thriftGrouping, boolean murmur3) {
             this.outFields = outFields;
             this.groupFields = new Fields(Thrift.fieldGrouping(thriftGrouping));
-
+            this.groupFieldIndexes = new int[groupFields.size()];
+            for (int i = 0; i < groupFieldIndexes.length; i++) {
+                groupFieldIndexes[i] = outFields.fieldIndex(groupFields.get(i));
+            }
+            this.murmur3 = murmur3;
         }
 
         @Override
@@ -171,7 +181,7 @@ public class GrouperFactory {
 
         @Override
         public List<Integer> chooseTasks(int taskId, List<Object> values) {
-            int targetTaskIndex = TupleUtils.chooseTaskIndex(outFields.select(groupFields, values), numTasks);
+            int targetTaskIndex = TupleUtils.chooseTaskIndex(values, groupFieldIndexes, murmur3, numTasks);
             return targetTasks.get(targetTaskIndex);
         }
 
@@ -266,8 +266,7 @@ public class StormCommon {
         ackerConf.put(Config.TOPOLOGY_TASKS, ackerNum);
         ackerConf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, ObjectReader.getInt(conf.get(Config.TOPOLOGY_MESSAGE_TIMEOUT_SECS)));
 
-        Map<GlobalStreamId, Grouping> inputs = ackerInputs(topology);
-        Bolt acker = Thrift.prepareSerializedBoltDetails(inputs, makeAckerBolt(), outputStreams, ackerNum, ackerConf);
+        Bolt acker = Thrift.prepareSerializedBoltDetails(ackerInputs(topology), makeAckerBolt(), outputStreams, ackerNum, ackerConf);
 
         for (Bolt bolt : topology.get_bolts().values()) {
             ComponentCommon common = bolt.get_common();
@@ -295,6 +294,22 @@ public class StormCommon {
         topology.put_to_bolts(Acker.ACKER_COMPONENT_ID, acker);
     }
 
+    /**
+     * Declare the {@link Acker#ACKER_ACK_BATCH_STREAM_ID} stream on every bolt and subscribe the acker to it, if acks are batched. Every
+     * bolt executor batches its acks, so this has to run after all system components, the acker itself included, have been added.
+     */
+    public static void addAckBatchStreams(Map<String, Object> conf, StormTopology topology) {
+        if (!ObjectReader.getBoolean(conf.get(Config.TOPOLOGY_ACKER_BATCH_ACKS), false)) {
+            return;
+        }
+        ComponentCommon acker = topology.get_bolts().get(Acker.ACKER_COMPONENT_ID).get_common();
+        for (Map.Entry<String, Bolt> entry : topology.get_bolts().entrySet()) {
+            entry.getValue().get_common().put_to_streams(Acker.ACKER_ACK_BATCH_STREAM_ID,
+                                                         Thrift.directOutputFields(Arrays.asList("ack-ids", "ack-vals", "fail-ids")));
+            acker.put_to_inputs(Utils.getGlobalStreamId(entry.getKey(), Acker.ACKER_ACK_BATCH_STREAM_ID), Thrift.prepareDirectGrouping());
+        }
+    }
+
     public static ComponentCommon getComponentCommon(Object component) {
         ComponentCommon common = null;
         if (component instanceof StateSpoutSpec) {
@@ -540,6 +555,7 @@ public class StormCommon {
         }
         addMetricComponents(topoConf, ret);
         addSystemComponents(topoConf, ret);
+        addAckBatchStreams(topoConf, ret);
         addMetricStreams(ret);
         addSystemStreams(ret);
 
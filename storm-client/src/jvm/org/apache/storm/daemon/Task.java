@@ -216,6 +216,16 @@ public class Task {
         }
     }
 
+    public void sendDirect(int outTaskId, String stream, List<Object> values, ExecutorTransfer transfer,
+                           Queue<AddressedTuple> pendingEmits) {
+        Tuple tuple = getTuple(stream, values);
+        List<Integer> tasks = getOutgoingTasks(outTaskId, stream, values);
+        for (int i = 0; i < tasks.size(); i++) {
+            AddressedTuple addressedTuple = new AddressedTuple(tasks.get(i), tuple);
+            transfer.tryTransfer(addressedTuple, pendingEmits);
+        }
+    }
+
     /**
      * Send sampled data to the eventlogger if the global or component level debug flag is set (via nimbus api).
      */
@@ -526,6 +526,7 @@ public class Worker implements Shutdownable, DaemonCommon {
                     transferThread.join();
                     LOG.info("Shut down transfer thread");
                 }
+                workerState.releaseUnsentTransfers();
 
                 workerState.heartbeatTimer.close();
                 workerState.refreshConnectionsTimer.close();
@@ -72,6 +72,7 @@ import org.apache.storm.shade.com.google.common.collect.ImmutableMap;
 import org.apache.storm.shade.com.google.common.collect.Sets;
 import org.apache.storm.task.WorkerTopologyContext;
 import org.apache.storm.task.WorkerUserContext;
+import org.apache.storm.tracing.Tracer;
 import org.apache.storm.tuple.AddressedTuple;
 import org.apache.storm.tuple.Fields;
 import org.apache.storm.utils.ConfigUtils;
@@ -146,6 +147,8 @@ public class WorkerState {
     final StormTimer userTimer = mkHaltingTimer("user-timer");
     final StormTimer backPressureCheckTimer = mkHaltingTimer("backpressure-check-timer");
     private final WorkerTransfer workerTransfer;
+    // null unless topology.tracing.sample.rate is set
+    private final Tracer tracer;
     private final BackPressureTracker bpTracker;
     private final List<IWorkerHook> deserializedWorkerHooks;
     // global variables only used internally in class
@@ -233,6 +236,7 @@ public class WorkerState {
         }
         int maxTaskId = getMaxTaskId(componentToSortedTasks);
         this.workerTransfer = new WorkerTransfer(this, topologyConf, maxTaskId);
+        this.tracer = Tracer.create(topologyConf, topologyId, port);
 
         this.bpTracker = new BackPressureTracker(workerId, taskToExecutorQueue, metricRegistry, taskToComponent);
         this.deserializedWorkerHooks = deserializeWorkerHooks();
@@ -669,6 +673,9 @@ public class WorkerState {
     public void closeResources() {
         LOG.info("Shutting down default resources");
         ((ExecutorService) defaultSharedResources.get(WorkerTopologyContext.SHARED_EXECUTOR)).shutdownNow();
+        if (tracer != null) {
+            tracer.close();
+        }
         LOG.info("Shut down default resources");
     }
 
@@ -725,6 +732,8 @@ public class WorkerState {
         Integer recvQueueSize = ObjectReader.getInt(topologyConf.get(Config.TOPOLOGY_EXECUTOR_RECEIVE_BUFFER_SIZE));
         Integer recvBatchSize = ObjectReader.getInt(topologyConf.get(Config.TOPOLOGY_PRODUCER_BATCH_SIZE));
         Integer overflowLimit = ObjectReader.getInt(topologyConf.get(Config.TOPOLOGY_EXECUTOR_OVERFLOW_LIMIT));
+        int adaptiveBatchDelayMicros = ObjectReader.getBoolean(topologyConf.get(Config.TOPOLOGY_PRODUCER_BATCH_ADAPTIVE), false)
+            ? ObjectReader.getInt(topologyConf.get(Config.TOPOLOGY_PRODUCER_BATCH_ADAPTIVE_MAX_DELAY_MICROS), 500) : 0;
 
         if (recvBatchSize > recvQueueSize / 2) {
             throw new IllegalArgumentException(Config.TOPOLOGY_PRODUCER_BATCH_SIZE + ":" + recvBatchSize
@@ -745,7 +754,8 @@ public class WorkerState {
                 compId = taskToComponent.get(taskId);
             }
             receiveQueueMap.put(executor, new JCQueue("receive-queue" + executor.toString(), "receive-queue",
-                                                      recvQueueSize, overflowLimit, recvBatchSize, backPressureWaitStrategy,
+                                                      recvQueueSize, overflowLimit, recvBatchSize, adaptiveBatchDelayMicros,
+                                                      backPressureWaitStrategy,
                 this.getTopologyId(), compId, taskIds, this.getPort(), metricRegistry));
 
         }
@@ -818,10 +828,22 @@ public class WorkerState {
         workerTransfer.haltTransferThd();
     }
 
+    public void releaseUnsentTransfers() {
+        workerTransfer.releaseUnsent();
+    }
+
     public JCQueue getTransferQueue() {
         return workerTransfer.getTransferQueue();
     }
 
+    /**
+     * Get the tracer of this worker.
+     * @return the tracer, or null if tuples are not traced.
+     */
+    public Tracer getTracer() {
+        return tracer;
+    }
+
     public StormMetricRegistry getMetricRegistry() {
         return metricRegistry;
     }
@@ -25,9 +25,13 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.storm.Config;
 import org.apache.storm.Constants;
+import org.apache.storm.jfr.JfrEvents;
+import org.apache.storm.jfr.RemoteFlushEvent;
 import org.apache.storm.messaging.TaskMessage;
 import org.apache.storm.policy.IWaitStrategy;
 import org.apache.storm.serialization.ITupleSerializer;
+import org.apache.storm.shade.io.netty.buffer.ByteBufAllocator;
+import org.apache.storm.shade.io.netty.buffer.PooledByteBufAllocator;
 import org.apache.storm.tuple.AddressedTuple;
 import org.apache.storm.utils.JCQueue;
 import org.apache.storm.utils.ObjectReader;
@@ -46,6 +50,11 @@ public class WorkerTransfer implements JCQueue.Consumer {
 
     private final IWaitStrategy backPressureWaitStrategy;
 
+    // Non-null when remote tuples are serialized straight into pooled buffers (topology.transfer.zero.copy)
+    private final ByteBufAllocator zeroCopyAllocator;
+
+    private final boolean jfrEvents;
+
     private JCQueue transferQueue; // [remoteTaskId] -> JCQueue. Some entries maybe null (if no emits to those tasksIds from this worker)
 
     private final AtomicBoolean[] remoteBackPressureStatus; // [[remoteTaskId] -> true/false : indicates if remote task is under BP.
@@ -66,6 +75,10 @@ public class WorkerTransfer implements JCQueue.Consumer {
                                                + Config.TOPOLOGY_TRANSFER_BUFFER_SIZE + ":" + xferQueueSz);
         }
 
+        this.zeroCopyAllocator = ObjectReader.getBoolean(topologyConf.get(Config.TOPOLOGY_TRANSFER_ZERO_COPY), false)
+            ? PooledByteBufAllocator.DEFAULT : null;
+        this.jfrEvents = JfrEvents.isEnabled(topologyConf);
+
         this.transferQueue = new JCQueue("worker-transfer-queue", "worker-transfer-queue",
             xferQueueSz, 0, xferBatchSz, backPressureWaitStrategy,
             workerState.getTopologyId(), Constants.SYSTEM_COMPONENT_ID, Collections.singletonList(-1), workerState.getPort(),
@@ -97,6 +110,17 @@ public class WorkerTransfer implements JCQueue.Consumer {
 
     @Override
     public void flush() throws InterruptedException {
+        if (jfrEvents) {
+            RemoteFlushEvent event = new RemoteFlushEvent();
+            event.begin();
+            send();
+            event.commit();
+        } else {
+            send();
+        }
+    }
+
+    private void send() {
         ReentrantReadWriteLock.ReadLock readLock = workerState.endpointSocketLock.readLock();
         try {
             readLock.lock();
@@ -115,10 +139,17 @@ public class WorkerTransfer implements JCQueue.Consumer {
         }
 
         if (!remoteBackPressureStatus[addressedTuple.dest].get()) {
-            TaskMessage tm = new TaskMessage(addressedTuple.getDest(), serializer.serialize(addressedTuple.getTuple()));
+            TaskMessage tm;
+            if (zeroCopyAllocator != null) {
+                tm = new TaskMessage(addressedTuple.getDest(),
+                    serializer.serialize(addressedTuple.getTuple(), zeroCopyAllocator, TaskMessage.FRAME_HEADER_LENGTH));
+            } else {
+                tm = new TaskMessage(addressedTuple.getDest(), serializer.serialize(addressedTuple.getTuple()));
+            }
             if (transferQueue.tryPublish(tm)) {
                 return true;
             }
+            tm.release();
         } else {
             LOG.debug("Noticed Back Pressure in remote task {}", addressedTuple.dest);
         }
@@ -141,4 +172,21 @@ public class WorkerTransfer implements JCQueue.Consumer {
         transferQueue.close();
     }
 
+    /**
+     * Drop the messages that were queued but never sent, releasing their pooled buffers. Only call this once the transfer thread stopped.
+     */
+    public void releaseUnsent() {
+        transferQueue.consume(new JCQueue.Consumer() {
+            @Override
+            public void accept(Object tuple) {
+                ((TaskMessage) tuple).release();
+            }
+
+            @Override
+            public void flush() {
+            }
+        });
+        drainer.clear();
+    }
+
 }
\ No newline at end of file
@@ -63,6 +63,8 @@ import org.apache.storm.generated.SpoutSpec;
 import org.apache.storm.generated.StormTopology;
 import org.apache.storm.grouping.LoadAwareCustomStreamGrouping;
 import org.apache.storm.grouping.LoadMapping;
+import org.apache.storm.jfr.JfrEvents;
+import org.apache.storm.jfr.TupleAcceptEvent;
 import org.apache.storm.metric.api.IMetric;
 import org.apache.storm.metric.api.IMetricsConsumer;
 import org.apache.storm.metrics2.PerReporterGauge;
@@ -75,6 +77,7 @@ import org.apache.storm.shade.org.jctools.queues.MpscChunkedArrayQueue;
 import org.apache.storm.stats.ClientStatsUtil;
 import org.apache.storm.stats.CommonStats;
 import org.apache.storm.task.WorkerTopologyContext;
+import org.apache.storm.tracing.Tracer;
 import org.apache.storm.tuple.AddressedTuple;
 import org.apache.storm.tuple.Fields;
 import org.apache.storm.tuple.TupleImpl;
@@ -120,6 +123,8 @@ public abstract class Executor implements Callable, JCQueue.Consumer {
     protected final Boolean isDebug;
     protected final Boolean hasEventLoggers;
     protected final boolean ackingEnabled;
+    protected final boolean jfrEvents;
+    protected final Tracer tracer;
     protected final MpscChunkedArrayQueue<AddressedTuple> pendingEmits = new MpscChunkedArrayQueue<>(1024, (int) Math.pow(2, 30));
     private final AddressedTuple flushTuple;
     protected ExecutorTransfer executorTransfer;
@@ -177,6 +182,8 @@ public abstract class Executor implements Callable, JCQueue.Consumer {
         this.credentials = credentials;
         this.hasEventLoggers = StormCommon.hasEventLoggers(topoConf);
         this.ackingEnabled = StormCommon.hasAckers(topoConf);
+        this.jfrEvents = JfrEvents.isEnabled(topoConf);
+        this.tracer = workerData.getTracer();
 
         try {
             this.hostname = Utils.hostname();
@@ -288,6 +295,11 @@ public abstract class Executor implements Callable, JCQueue.Consumer {
         if (isDebug) {
             LOG.info("Processing received TUPLE: {} for TASK: {} ", tuple, taskId);
         }
+        TupleAcceptEvent acceptEvent = null;
+        if (jfrEvents) {
+            acceptEvent = new TupleAcceptEvent();
+            acceptEvent.begin();
+        }
 
         try {
             if (taskId != AddressedTuple.BROADCAST_DEST) {
@@ -300,6 +312,9 @@ public abstract class Executor implements Callable, JCQueue.Consumer {
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+        if (acceptEvent != null) {
+            acceptEvent.finish(componentId, taskId, tuple.getSourceComponent(), tuple.getSourceStreamId());
+        }
     }
 
     public void setNeedToRefreshCreds() {
@@ -323,6 +338,13 @@ public abstract class Executor implements Callable, JCQueue.Consumer {
         // NO-OP
     }
 
+    /**
+     * Release what the executor itself holds. Called on shutdown once the executor threads are stopped, before the tasks are cleaned up.
+     */
+    public void cleanup() throws InterruptedException {
+        // NO-OP
+    }
+
     public void metricsTick(Task task, TupleImpl tuple) {
         try {
             Integer interval = tuple.getInteger(0);
@@ -667,6 +689,10 @@ public abstract class Executor implements Callable, JCQueue.Consumer {
         return executorTransfer;
     }
 
+    public Tracer getTracer() {
+        return tracer;
+    }
+
     public IReportError getReportError() {
         return reportError;
     }
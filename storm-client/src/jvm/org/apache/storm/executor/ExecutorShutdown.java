@@ -97,6 +97,7 @@ public class ExecutorShutdown implements Shutdownable, IRunningExecutor {
                     LOG.warn("Thread {} is still alive ({} ms after interruption). Stop waiting for it.", t.getName(), waitMs);
                 }
             }
+            executor.cleanup();
             executor.getStats().cleanupStats();
             for (Task task : taskDatas) {
                 if (task == null) {
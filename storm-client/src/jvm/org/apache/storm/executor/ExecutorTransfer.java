@@ -18,6 +18,8 @@ import java.util.Queue;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 import org.apache.storm.Config;
 import org.apache.storm.daemon.worker.WorkerState;
+import org.apache.storm.jfr.JfrEvents;
+import org.apache.storm.jfr.TupleTransferEvent;
 import org.apache.storm.serialization.KryoTupleSerializer;
 import org.apache.storm.task.WorkerTopologyContext;
 import org.apache.storm.tuple.AddressedTuple;
@@ -35,6 +37,7 @@ public class ExecutorTransfer {
     // one serializer per thread to avoid data corruption
     private final ThreadLocal<KryoTupleSerializer> threadLocalSerializer;
     private final boolean isDebug;
+    private final boolean jfrEvents;
     private int indexingBase = 0;
     private ArrayList<JCQueue> localReceiveQueues; // [taskId-indexingBase] => queue : List of all recvQs local to this worker
     private AtomicReferenceArray<JCQueue> queuesToFlush;
@@ -45,6 +48,7 @@ public class ExecutorTransfer {
         WorkerTopologyContext workerTopologyContext = workerData.getWorkerTopologyContext();
         this.threadLocalSerializer = ThreadLocal.withInitial(() -> new KryoTupleSerializer(topoConf, workerTopologyContext));
         this.isDebug = ObjectReader.getBoolean(topoConf.get(Config.TOPOLOGY_DEBUG), false);
+        this.jfrEvents = JfrEvents.isEnabled(topoConf);
     }
 
     // to be called after all Executor objects in the worker are created and before this object is used
@@ -61,6 +65,9 @@ public class ExecutorTransfer {
             LOG.info("TRANSFERRING tuple {}", addressedTuple);
         }
 
+        if (jfrEvents) {
+            return tryTransferWithEvent(addressedTuple, pendingEmits);
+        }
         JCQueue localQueue = getLocalQueue(addressedTuple);
         if (localQueue != null) {
             return tryTransferLocal(addressedTuple, localQueue, pendingEmits);
@@ -68,6 +75,20 @@ public class ExecutorTransfer {
         return workerData.tryTransferRemote(addressedTuple, pendingEmits, threadLocalSerializer.get());
     }
 
+    private boolean tryTransferWithEvent(AddressedTuple addressedTuple, Queue<AddressedTuple> pendingEmits) {
+        TupleTransferEvent event = new TupleTransferEvent();
+        event.begin();
+        JCQueue localQueue = getLocalQueue(addressedTuple);
+        boolean queued;
+        if (localQueue != null) {
+            queued = tryTransferLocal(addressedTuple, localQueue, pendingEmits);
+        } else {
+            queued = workerData.tryTransferRemote(addressedTuple, pendingEmits, threadLocalSerializer.get());
+        }
+        event.finish(addressedTuple.getDest(), localQueue != null, queued);
+        return queued;
+    }
+
 
     // flushes local and remote messages
     public void flush() throws InterruptedException {
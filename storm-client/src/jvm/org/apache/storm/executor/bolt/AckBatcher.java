@@ -0,0 +1,185 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.executor.bolt;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import org.apache.storm.daemon.Acker;
+import org.apache.storm.daemon.Task;
+import org.apache.storm.executor.ExecutorTransfer;
+import org.apache.storm.tuple.AddressedTuple;
+import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.TupleUtils;
+
+/**
+ * Accumulates the ack and fail updates of a bolt executor per destination acker and sends them as one {@link
+ * Acker#ACKER_ACK_BATCH_STREAM_ID} tuple per acker on {@link #flush()}. Acks for the same root id are coalesced by xor-ing their values,
+ * so a tuple tree touched many times between two flushes costs a single entry.
+ *
+ * <p>The acker for a root id is picked exactly like the fields grouping on the "id" field of the regular acker streams, so batched and
+ * per-tuple updates of the same tree (e.g. the spout's init) meet at the same acker.
+ *
+ * <p>Note: This class is not thread-safe, it must only be used from the executor thread.
+ */
+public class AckBatcher {
+    // Upper bound on the entries of a single batch tuple, so one busy flush interval does not produce a huge message.
+    static final int MAX_BATCH_SIZE = 4096;
+    private static final long[] EMPTY = new long[0];
+
+    private final Task sender;
+    private final ExecutorTransfer transfer;
+    private final Queue<AddressedTuple> pendingEmits;
+    private final AckerBuffer[] buffers;
+    private final boolean murmur3;
+
+    public AckBatcher(Task sender, ExecutorTransfer transfer, Queue<AddressedTuple> pendingEmits, List<Integer> ackerTasks) {
+        this(sender, transfer, pendingEmits, ackerTasks, false);
+    }
+
+    public AckBatcher(Task sender, ExecutorTransfer transfer, Queue<AddressedTuple> pendingEmits, List<Integer> ackerTasks,
+                      boolean murmur3) {
+        this.sender = sender;
+        this.murmur3 = murmur3;
+        this.transfer = transfer;
+        this.pendingEmits = pendingEmits;
+        this.buffers = new AckerBuffer[ackerTasks.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new AckerBuffer(ackerTasks.get(i));
+        }
+    }
+
+    public void ack(long rootId, long ackVal) {
+        AckerBuffer buffer = bufferFor(rootId);
+        buffer.ack(rootId, ackVal);
+        if (buffer.size() >= MAX_BATCH_SIZE) {
+            send(buffer);
+        }
+    }
+
+    public void fail(long rootId) {
+        AckerBuffer buffer = bufferFor(rootId);
+        buffer.fail(rootId);
+        if (buffer.size() >= MAX_BATCH_SIZE) {
+            send(buffer);
+        }
+    }
+
+    /**
+     * Send all accumulated updates to their ackers.
+     */
+    public void flush() {
+        for (AckerBuffer buffer : buffers) {
+            if (buffer.size() > 0) {
+                send(buffer);
+            }
+        }
+    }
+
+    private AckerBuffer bufferFor(long rootId) {
+        return buffers[TupleUtils.chooseTaskIndex(rootId, murmur3, buffers.length)];
+    }
+
+    private void send(AckerBuffer buffer) {
+        Values batch = new Values(buffer.ackIds(), buffer.ackVals(), buffer.failIds());
+        buffer.clear();
+        sender.sendDirect(buffer.ackerTask, Acker.ACKER_ACK_BATCH_STREAM_ID, batch, transfer, pendingEmits);
+    }
+
+    private static class AckerBuffer {
+        private final int ackerTask;
+        private long[] ackIds = new long[16];
+        private long[] ackVals = new long[16];
+        private int numAcks;
+        private long[] failIds = new long[4];
+        private int numFails;
+        // root id -> position in ackIds plus one, 0 marks a free slot
+        private int[] index = new int[32];
+
+        AckerBuffer(int ackerTask) {
+            this.ackerTask = ackerTask;
+        }
+
+        void ack(long rootId, long ackVal) {
+            int mask = index.length - 1;
+            int i = hash(rootId) & mask;
+            while (index[i] != 0) {
+                int pos = index[i] - 1;
+                if (ackIds[pos] == rootId) {
+                    ackVals[pos] ^= ackVal;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            if (numAcks == ackIds.length) {
+                ackIds = Arrays.copyOf(ackIds, numAcks * 2);
+                ackVals = Arrays.copyOf(ackVals, numAcks * 2);
+            }
+            ackIds[numAcks] = rootId;
+            ackVals[numAcks] = ackVal;
+            numAcks++;
+            index[i] = numAcks;
+            if (numAcks * 2 > index.length) {
+                rehash(index.length * 2);
+            }
+        }
+
+        void fail(long rootId) {
+            if (numFails == failIds.length) {
+                failIds = Arrays.copyOf(failIds, numFails * 2);
+            }
+            failIds[numFails++] = rootId;
+        }
+
+        int size() {
+            return numAcks + numFails;
+        }
+
+        long[] ackIds() {
+            return numAcks == 0 ? EMPTY : Arrays.copyOf(ackIds, numAcks);
+        }
+
+        long[] ackVals() {
+            return numAcks == 0 ? EMPTY : Arrays.copyOf(ackVals, numAcks);
+        }
+
+        long[] failIds() {
+            return numFails == 0 ? EMPTY : Arrays.copyOf(failIds, numFails);
+        }
+
+        void clear() {
+            if (numAcks > 0) {
+                Arrays.fill(index, 0);
+            }
+            numAcks = 0;
+            numFails = 0;
+        }
+
+        private void rehash(int capacity) {
+            index = new int[capacity];
+            int mask = capacity - 1;
+            for (int pos = 0; pos < numAcks; pos++) {
+                int i = hash(ackIds[pos]) & mask;
+                while (index[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                index[i] = pos + 1;
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
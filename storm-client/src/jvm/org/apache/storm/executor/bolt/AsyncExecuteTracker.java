@@ -0,0 +1,187 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.executor.bolt;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.storm.task.IAsyncBolt;
+import org.apache.storm.task.IOutputCollector;
+import org.apache.storm.tuple.Tuple;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the in-flight tuples of an {@link IAsyncBolt} executor and marshals everything that happens on other threads, collector calls
+ * and completions, back to the executor thread through a queue that the executor drains in its loop.
+ */
+class AsyncExecuteTracker {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncExecuteTracker.class);
+    private static final long FULL_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final int maxInFlight;
+    private final ConcurrentLinkedQueue<Runnable> fromOtherThreads = new ConcurrentLinkedQueue<>();
+    private final Thread executorThread;
+    private int inFlight = 0; // executor thread only
+
+    /**
+     * Create a tracker. Must be called on the executor thread.
+     */
+    AsyncExecuteTracker(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        this.executorThread = Thread.currentThread();
+    }
+
+    /**
+     * Wrap the collector of a task so that it can be used from any thread.
+     */
+    IOutputCollector marshalling(IOutputCollector delegate) {
+        return new MarshallingCollector(delegate);
+    }
+
+    /**
+     * Start processing a tuple. Blocks while the maximum number of tuples is in flight, running marshalled work as it arrives.
+     * @param collector the task's collector, used to ack or fail the input on completion
+     * @param onComplete run on the executor thread after the input has been acked or failed
+     */
+    void execute(IAsyncBolt bolt, Tuple tuple, IOutputCollector collector, Runnable onComplete) throws InterruptedException {
+        drain();
+        while (inFlight >= maxInFlight) {
+            LockSupport.parkNanos(this, FULL_WAIT_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            drain();
+        }
+        CompletionStage<?> stage = bolt.executeAsync(tuple);
+        inFlight++;
+        if (stage == null) {
+            complete(tuple, null, collector, onComplete);
+        } else {
+            stage.whenComplete((result, error) -> runOnExecutor(() -> complete(tuple, error, collector, onComplete)));
+        }
+    }
+
+    private void complete(Tuple tuple, Throwable error, IOutputCollector collector, Runnable onComplete) {
+        inFlight--;
+        if (error == null) {
+            collector.ack(tuple);
+        } else {
+            LOG.debug("Async processing of {} failed", tuple, error);
+            // whenComplete sees the CompletionException of a dependent stage, report what the bolt actually failed with
+            collector.reportError(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            collector.fail(tuple);
+        }
+        onComplete.run();
+    }
+
+    /**
+     * Run the work handed over by other threads.
+     * @return the number of items run
+     */
+    int drain() {
+        int count = 0;
+        for (Runnable action = fromOtherThreads.poll(); action != null; action = fromOtherThreads.poll()) {
+            action.run();
+            count++;
+        }
+        return count;
+    }
+
+    boolean hasInFlight() {
+        return inFlight > 0;
+    }
+
+    private void runOnExecutor(Runnable action) {
+        if (Thread.currentThread() == executorThread) {
+            action.run();
+        } else {
+            fromOtherThreads.add(action);
+            LockSupport.unpark(executorThread);
+        }
+    }
+
+    private final class MarshallingCollector implements IOutputCollector {
+        private final IOutputCollector delegate;
+
+        MarshallingCollector(IOutputCollector delegate) {
+            this.delegate = delegate;
+        }
+
+        private boolean onExecutor() {
+            return Thread.currentThread() == executorThread;
+        }
+
+        @Override
+        public List<Integer> emit(String streamId, Collection<Tuple> anchors, List<Object> tuple) {
+            if (onExecutor()) {
+                return delegate.emit(streamId, anchors, tuple);
+            }
+            runOnExecutor(() -> delegate.emit(streamId, anchors, tuple));
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void emitDirect(int taskId, String streamId, Collection<Tuple> anchors, List<Object> tuple) {
+            if (onExecutor()) {
+                delegate.emitDirect(taskId, streamId, anchors, tuple);
+            } else {
+                runOnExecutor(() -> delegate.emitDirect(taskId, streamId, anchors, tuple));
+            }
+        }
+
+        @Override
+        public void ack(Tuple input) {
+            if (onExecutor()) {
+                delegate.ack(input);
+            } else {
+                runOnExecutor(() -> delegate.ack(input));
+            }
+        }
+
+        @Override
+        public void fail(Tuple input) {
+            if (onExecutor()) {
+                delegate.fail(input);
+            } else {
+                runOnExecutor(() -> delegate.fail(input));
+            }
+        }
+
+        @Override
+        public void resetTimeout(Tuple input) {
+            if (onExecutor()) {
+                delegate.resetTimeout(input);
+            } else {
+                runOnExecutor(() -> delegate.resetTimeout(input));
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (onExecutor()) {
+                delegate.flush();
+            }
+        }
+
+        @Override
+        public void reportError(Throwable error) {
+            delegate.reportError(error);
+        }
+    }
+}
@@ -21,6 +21,7 @@ import java.util.function.BooleanSupplier;
 import org.apache.storm.Config;
 import org.apache.storm.Constants;
 import org.apache.storm.ICredentialsListener;
+import org.apache.storm.daemon.Acker;
 import org.apache.storm.daemon.StormCommon;
 import org.apache.storm.daemon.Task;
 import org.apache.storm.daemon.metrics.BuiltinMetricsUtil;
@@ -28,6 +29,7 @@ import org.apache.storm.daemon.worker.WorkerState;
 import org.apache.storm.executor.Executor;
 import org.apache.storm.generated.NodeInfo;
 import org.apache.storm.hooks.info.BoltExecuteInfo;
+import org.apache.storm.jfr.TupleExecuteEvent;
 import org.apache.storm.messaging.IConnection;
 import org.apache.storm.metric.api.IMetricsRegistrant;
 import org.apache.storm.policy.IWaitStrategy;
@@ -36,9 +38,13 @@ import org.apache.storm.policy.WaitStrategyPark;
 import org.apache.storm.security.auth.IAutoCredentials;
 import org.apache.storm.stats.BoltExecutorStats;
 import org.apache.storm.stats.ClientStatsUtil;
+import org.apache.storm.task.IAsyncBolt;
 import org.apache.storm.task.IBolt;
+import org.apache.storm.task.IExecutorPollable;
+import org.apache.storm.task.IOutputCollector;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tracing.Span;
 import org.apache.storm.tuple.AddressedTuple;
 import org.apache.storm.tuple.TupleImpl;
 import org.apache.storm.utils.ConfigUtils;
@@ -46,6 +52,7 @@ import org.apache.storm.utils.JCQueue.ExitCondition;
 import org.apache.storm.utils.ObjectReader;
 import org.apache.storm.utils.ReflectionUtils;
 import org.apache.storm.utils.Time;
+import org.apache.storm.utils.TupleUtils;
 import org.apache.storm.utils.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,6 +68,11 @@ public class BoltExecutor extends Executor {
     private final IWaitStrategy backPressureWaitStrategy;  // employed when outbound path is congested
     private final BoltExecutorStats stats;
     private BoltOutputCollectorImpl outputCollector;
+    private AckBatcher ackBatcher;
+    private ExecuteDispatcher executeDispatcher;
+    private AsyncExecuteTracker asyncTracker;
+    private final ArrayList<IOutputCollector> asyncCollectors = new ArrayList<>(); // indexed like idToTask, for IAsyncBolt only
+    private ExecutorCompletions completions;
 
     public BoltExecutor(WorkerState workerData, List<Long> executorId, Map<String, String> credentials) {
         super(workerData, executorId, credentials, ClientStatsUtil.BOLT);
@@ -100,6 +112,19 @@ public class BoltExecutor extends Executor {
         }
 
         LOG.info("Preparing bolt {}:{}", componentId, getTaskIds());
+        if (ackingEnabled && ObjectReader.getBoolean(topoConf.get(Config.TOPOLOGY_ACKER_BATCH_ACKS), false)) {
+            Task sender = idToTask.get(taskIds.get(0) - idToTaskBase);
+            this.ackBatcher = new AckBatcher(sender, executorTransfer, pendingEmits,
+                                             workerTopologyContext.getComponentTasks(Acker.ACKER_COMPONENT_ID),
+                                             TupleUtils.isMurmur3FieldsGrouping(topoConf));
+        }
+        int executeConcurrency = ObjectReader.getInt(topoConf.get(Config.TOPOLOGY_BOLT_EXECUTE_CONCURRENCY), 1);
+        if (isAsyncBolt(idToTask)) {
+            this.asyncTracker = new AsyncExecuteTracker(ObjectReader.getInt(topoConf.get(Config.TOPOLOGY_BOLT_ASYNC_MAX_IN_FLIGHT), 1000));
+        } else if (executeConcurrency > 1 && !Utils.isSystemId(componentId)) {
+            this.executeDispatcher = new ExecuteDispatcher(componentId, executeConcurrency);
+        }
+        List<IExecutorPollable> pollables = new ArrayList<>();
         for (Task taskData : idToTask) {
             if (taskData == null) {
                 //This happens if the min id is too small
@@ -125,14 +150,62 @@ public class BoltExecutor extends Executor {
             }
 
             this.outputCollector = new BoltOutputCollectorImpl(this, taskData, rand, hasEventLoggers, ackingEnabled, isDebug);
-            boltObject.prepare(topoConf, userContext, new OutputCollector(outputCollector));
+            IOutputCollector collector = outputCollector;
+            if (asyncTracker != null) {
+                collector = asyncTracker.marshalling(outputCollector);
+                setAsyncCollector(taskData.getTaskId() - idToTaskBase, collector);
+            } else if (executeDispatcher != null) {
+                collector = executeDispatcher.deferring(outputCollector);
+            }
+            boltObject.prepare(topoConf, userContext, new OutputCollector(collector));
+            if (boltObject instanceof IExecutorPollable) {
+                pollables.add((IExecutorPollable) boltObject);
+            }
         }
+        this.completions = new ExecutorCompletions(executeDispatcher, asyncTracker, pollables, ackBatcher);
         openOrPrepareWasCalled.set(true);
         LOG.info("Prepared bolt {}:{}", componentId, taskIds);
         setupTicks(false);
         setupMetrics();
     }
 
+    private static boolean isAsyncBolt(ArrayList<Task> idToTask) {
+        for (Task taskData : idToTask) {
+            if (taskData != null) {
+                return taskData.getTaskObject() instanceof IAsyncBolt;
+            }
+        }
+        return false;
+    }
+
+    private void setAsyncCollector(int index, IOutputCollector collector) {
+        while (asyncCollectors.size() <= index) {
+            asyncCollectors.add(null);
+        }
+        asyncCollectors.set(index, collector);
+    }
+
+    /**
+     * Get the batcher for ack and fail messages.
+     * @return the batcher, or null if acks are sent one tuple per root id
+     */
+    public AckBatcher getAckBatcher() {
+        return ackBatcher;
+    }
+
+    @Override
+    public void cleanup() throws InterruptedException {
+        if (executeDispatcher != null) {
+            executeDispatcher.shutdown();
+        }
+    }
+
+    // Called by the receive queue after every drained batch of tuples
+    @Override
+    public void flush() {
+        completions.flush();
+    }
+
     @Override
     public Callable<Long> call() throws Exception {
         init(idToTask, idToTaskBase);
@@ -152,6 +225,10 @@ public class BoltExecutor extends Executor {
                     }
                     bpIdleCount = 0;
                     int consumeCount = receiveQueue.consume(BoltExecutor.this, tillNoPendingEmits);
+                    if (consumeCount == 0) {
+                        // completions replay emits, acks and fails, so they count as work
+                        consumeCount = completions.drainIdle();
+                    }
                     if (consumeCount == 0) {
                         if (consumeIdleCounter == 0) {
                             LOG.debug("Invoking consume wait strategy");
@@ -195,11 +272,15 @@ public class BoltExecutor extends Executor {
     public void tupleActionFn(int taskId, TupleImpl tuple) throws Exception {
         String streamId = tuple.getSourceStreamId();
         if (Constants.SYSTEM_FLUSH_STREAM_ID.equals(streamId)) {
+            completions.drain();
             outputCollector.flush();
         } else if (Constants.METRICS_TICK_STREAM_ID.equals(streamId)) {
             metricsTick(idToTask.get(taskId - idToTaskBase), tuple);
         } else {
             IBolt boltObject = (IBolt) idToTask.get(taskId - idToTaskBase).getTaskObject();
+            if (tracer != null && tuple.getTraceContext() != null) {
+                tracer.beginSpan(tuple, componentId, taskId);
+            }
             boolean isSampled = sampler.getAsBoolean();
             boolean isExecuteSampler = executeSampler.getAsBoolean();
             Long now = (isSampled || isExecuteSampler) ? Time.currentTimeMillis() : null;
@@ -209,25 +290,54 @@ public class BoltExecutor extends Executor {
             if (isExecuteSampler) {
                 tuple.setExecuteSampleStartTime(now);
             }
-            boltObject.execute(tuple);
-
-            Long ms = tuple.getExecuteSampleStartTime();
-            long delta = (ms != null) ? Time.deltaMs(ms) : -1;
-            if (isDebug) {
-                LOG.info("Execute done TUPLE {} TASK: {} DELTA: {}", tuple, taskId, delta);
-            }
-            TopologyContext topologyContext = idToTask.get(taskId - idToTaskBase).getUserContext();
-            if (!topologyContext.getHooks().isEmpty()) {
-                // perf critical check to avoid unnecessary allocation
-                new BoltExecuteInfo(tuple, taskId, delta).applyOn(topologyContext);
-            }
-            if (delta >= 0) {
-                Task firstTask = idToTask.get(taskIds.get(0) - idToTaskBase);
-                stats.boltExecuteTuple(tuple.getSourceComponent(), tuple.getSourceStreamId(), delta,
-                        workerData.getUptime().upTime(), firstTask);
-                Task currentTask = idToTask.get(taskId - idToTaskBase);
-                currentTask.getTaskMetrics().boltExecuteTuple(tuple.getSourceComponent(), tuple.getSourceStreamId(), delta);
+            // Typed as Object so that linking the callbacks below does not load the JFR event class on JVMs without jdk.jfr
+            Object executeEvent = jfrEvents ? beginExecuteEvent() : null;
+            if (asyncTracker != null) {
+                asyncTracker.execute((IAsyncBolt) boltObject, tuple, asyncCollectors.get(taskId - idToTaskBase),
+                                     () -> executeDone(taskId, tuple, executeEvent));
+            } else if (executeDispatcher != null && !Utils.isSystemId(tuple.getSourceComponent())) {
+                executeDispatcher.dispatch(boltObject, tuple, () -> executeDone(taskId, tuple, executeEvent));
+            } else {
+                if (executeDispatcher != null) {
+                    // ticks and other system tuples run on the executor thread, after everything that arrived before them
+                    executeDispatcher.completeAll();
+                }
+                boltObject.execute(tuple);
+                executeDone(taskId, tuple, executeEvent);
             }
         }
     }
+
+    private static Object beginExecuteEvent() {
+        TupleExecuteEvent event = new TupleExecuteEvent();
+        event.begin();
+        return event;
+    }
+
+    private void executeDone(int taskId, TupleImpl tuple, Object executeEvent) {
+        if (executeEvent != null) {
+            ((TupleExecuteEvent) executeEvent).finish(componentId, taskId, tuple.getSourceComponent(), tuple.getSourceStreamId());
+        }
+        Span span = tuple.getTraceSpan();
+        if (span != null) {
+            tracer.endSpan(span);
+        }
+        Long ms = tuple.getExecuteSampleStartTime();
+        long delta = (ms != null) ? Time.deltaMs(ms) : -1;
+        if (isDebug) {
+            LOG.info("Execute done TUPLE {} TASK: {} DELTA: {}", tuple, taskId, delta);
+        }
+        TopologyContext topologyContext = idToTask.get(taskId - idToTaskBase).getUserContext();
+        if (!topologyContext.getHooks().isEmpty()) {
+            // perf critical check to avoid unnecessary allocation
+            new BoltExecuteInfo(tuple, taskId, delta).applyOn(topologyContext);
+        }
+        if (delta >= 0) {
+            Task firstTask = idToTask.get(taskIds.get(0) - idToTaskBase);
+            stats.boltExecuteTuple(tuple.getSourceComponent(), tuple.getSourceStreamId(), delta,
+                    workerData.getUptime().upTime(), firstTask);
+            Task currentTask = idToTask.get(taskId - idToTaskBase);
+            currentTask.getTaskMetrics().boltExecuteTuple(tuple.getSourceComponent(), tuple.getSourceStreamId(), delta);
+        }
+    }
 }
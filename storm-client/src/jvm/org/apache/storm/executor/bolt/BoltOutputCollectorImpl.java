@@ -24,6 +24,8 @@ import org.apache.storm.executor.ExecutorTransfer;
 import org.apache.storm.hooks.info.BoltAckInfo;
 import org.apache.storm.hooks.info.BoltFailInfo;
 import org.apache.storm.task.IOutputCollector;
+import org.apache.storm.tracing.TraceContext;
+import org.apache.storm.tracing.Tracer;
 import org.apache.storm.tuple.AddressedTuple;
 import org.apache.storm.tuple.MessageId;
 import org.apache.storm.tuple.Tuple;
@@ -88,6 +90,8 @@ public class BoltOutputCollectorImpl implements IOutputCollector {
             outTasks = task.getOutgoingTasks(streamId, values);
         }
 
+        Tracer tracer = executor.getTracer();
+        TraceContext traceContext = tracer != null ? tracer.childContext(anchors) : null;
         for (int i = 0; i < outTasks.size(); ++i) {
             Integer t = outTasks.get(i);
             MessageId msgId;
@@ -109,6 +113,9 @@ public class BoltOutputCollectorImpl implements IOutputCollector {
             }
             TupleImpl tupleExt = new TupleImpl(
                 executor.getWorkerTopologyContext(), values, executor.getComponentId(), taskId, streamId, msgId);
+            if (traceContext != null) {
+                tupleExt.setTraceContext(traceContext);
+            }
             xsfer.tryTransfer(new AddressedTuple(t, tupleExt), executor.getPendingEmits());
         }
         if (isEventLoggers) {
@@ -124,10 +131,15 @@ public class BoltOutputCollectorImpl implements IOutputCollector {
         }
         long ackValue = ((TupleImpl) input).getAckVal();
         Map<Long, Long> anchorsToIds = input.getMessageId().getAnchorsToIds();
+        AckBatcher ackBatcher = executor.getAckBatcher();
         for (Map.Entry<Long, Long> entry : anchorsToIds.entrySet()) {
-            task.sendUnanchored(Acker.ACKER_ACK_STREAM_ID,
-                                new Values(entry.getKey(), Utils.bitXor(entry.getValue(), ackValue)),
-                                executor.getExecutorTransfer(), executor.getPendingEmits());
+            if (ackBatcher != null) {
+                ackBatcher.ack(entry.getKey(), entry.getValue() ^ ackValue);
+            } else {
+                task.sendUnanchored(Acker.ACKER_ACK_STREAM_ID,
+                                    new Values(entry.getKey(), Utils.bitXor(entry.getValue(), ackValue)),
+                                    executor.getExecutorTransfer(), executor.getPendingEmits());
+            }
         }
         long delta = tupleTimeDelta((TupleImpl) input);
         if (isDebug) {
@@ -150,9 +162,14 @@ public class BoltOutputCollectorImpl implements IOutputCollector {
             return;
         }
         Set<Long> roots = input.getMessageId().getAnchors();
+        AckBatcher ackBatcher = executor.getAckBatcher();
         for (Long root : roots) {
-            task.sendUnanchored(Acker.ACKER_FAIL_STREAM_ID,
-                                new Values(root), executor.getExecutorTransfer(), executor.getPendingEmits());
+            if (ackBatcher != null) {
+                ackBatcher.fail(root);
+            } else {
+                task.sendUnanchored(Acker.ACKER_FAIL_STREAM_ID,
+                                    new Values(root), executor.getExecutorTransfer(), executor.getPendingEmits());
+            }
         }
         long delta = tupleTimeDelta((TupleImpl) input);
         if (isDebug) {
@@ -178,6 +195,10 @@ public class BoltOutputCollectorImpl implements IOutputCollector {
     @Override
     public void flush() {
         try {
+            AckBatcher ackBatcher = executor.getAckBatcher();
+            if (ackBatcher != null) {
+                ackBatcher.flush();
+            }
             xsfer.flush();
         } catch (InterruptedException e) {
             LOG.warn("Bolt thread interrupted during flush()");
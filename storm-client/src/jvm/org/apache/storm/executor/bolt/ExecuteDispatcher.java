@@ -0,0 +1,265 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.executor.bolt;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.storm.Config;
+import org.apache.storm.task.IBolt;
+import org.apache.storm.task.IOutputCollector;
+import org.apache.storm.tuple.Tuple;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the execute calls of a bolt executor concurrently, see {@link Config#TOPOLOGY_BOLT_EXECUTE_CONCURRENCY}.
+ *
+ * <p>Each call runs on a virtual thread when the JVM supports them, and on a daemon thread of a pool sized to the concurrency
+ * otherwise. Calls the bolt makes on its collector from inside execute are recorded instead of performed. The executor thread replays
+ * them in tuple arrival order once the call and all calls dispatched before it have returned, so the collector is still only ever used by
+ * the executor thread. Emits made this way return an empty task id list. System tuples such as ticks are not dispatched, the executor
+ * runs them itself after completing all calls in flight.
+ *
+ * <p>Apart from the recording done on the pool threads, instances are only used by the executor thread.
+ */
+class ExecuteDispatcher {
+    private static final Logger LOG = LoggerFactory.getLogger(ExecuteDispatcher.class);
+    private static final long FULL_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long SHUTDOWN_WAIT_MS = 100;
+    // the call running on the current pool thread, if any
+    private static final ThreadLocal<Invocation> CURRENT = new ThreadLocal<>();
+
+    private final ExecutorService pool;
+    private final int maxInFlight;
+    private final ArrayDeque<Invocation> inFlight;
+
+    ExecuteDispatcher(String componentId, int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new ArrayDeque<>(maxInFlight);
+        this.pool = newPool(componentId, maxInFlight);
+    }
+
+    private static ExecutorService newPool(String componentId, int maxInFlight) {
+        try {
+            ExecutorService virtual = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            LOG.info("Running up to {} execute calls of {} on virtual threads", maxInFlight, componentId);
+            return virtual;
+        } catch (NoSuchMethodException e) {
+            // no virtual threads before Java 21
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.warn("Could not create a virtual thread executor for {}, using platform threads", componentId, e);
+        }
+        LOG.info("Running up to {} execute calls of {} on a thread pool", maxInFlight, componentId);
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(maxInFlight, r -> {
+            Thread t = new Thread(r, componentId + "-execute-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Wrap the collector of a task so that calls from inside a dispatched execute are deferred to the executor thread.
+     */
+    IOutputCollector deferring(IOutputCollector delegate) {
+        return new DeferringCollector(delegate);
+    }
+
+    /**
+     * Start an execute call. Blocks while the executor already has the maximum number of calls in flight, completing calls as they
+     * finish.
+     * @param onComplete run on the executor thread after the recorded collector calls have been replayed
+     */
+    void dispatch(IBolt bolt, Tuple tuple, Runnable onComplete) throws InterruptedException {
+        drainCompleted();
+        while (inFlight.size() >= maxInFlight) {
+            LockSupport.parkNanos(this, FULL_WAIT_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            drainCompleted();
+        }
+        Invocation invocation = new Invocation(bolt, tuple, onComplete, Thread.currentThread());
+        inFlight.add(invocation);
+        pool.execute(invocation);
+    }
+
+    /**
+     * Complete the finished calls at the head of the dispatch order. A call that threw fails the executor the same way it would have
+     * without the dispatcher.
+     * @return the number of calls completed
+     */
+    int drainCompleted() {
+        int count = 0;
+        for (Invocation invocation = inFlight.peek(); invocation != null && invocation.done; invocation = inFlight.peek()) {
+            inFlight.poll();
+            invocation.complete();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Wait for all calls in flight and complete them, e.g. before a tuple that has to run on the executor thread after everything that
+     * arrived before it.
+     */
+    void completeAll() throws InterruptedException {
+        drainCompleted();
+        while (!inFlight.isEmpty()) {
+            LockSupport.parkNanos(this, FULL_WAIT_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            drainCompleted();
+        }
+    }
+
+    boolean hasInFlight() {
+        return !inFlight.isEmpty();
+    }
+
+    /**
+     * Stop the threads running execute calls. Calls still in flight are interrupted and their recorded collector calls dropped.
+     */
+    void shutdown() throws InterruptedException {
+        pool.shutdownNow();
+        if (!pool.awaitTermination(SHUTDOWN_WAIT_MS, TimeUnit.MILLISECONDS)) {
+            LOG.warn("{} execute calls did not finish {} ms after interruption. Stop waiting for them.", inFlight.size(), SHUTDOWN_WAIT_MS);
+        }
+        inFlight.clear();
+    }
+
+    private static final class Invocation implements Runnable {
+        private final IBolt bolt;
+        private final Tuple tuple;
+        private final Runnable onComplete;
+        private final Thread executorThread;
+        private final List<Runnable> actions = new ArrayList<>(2);
+        private Throwable error;
+        private volatile boolean done;
+
+        Invocation(IBolt bolt, Tuple tuple, Runnable onComplete, Thread executorThread) {
+            this.bolt = bolt;
+            this.tuple = tuple;
+            this.onComplete = onComplete;
+            this.executorThread = executorThread;
+        }
+
+        @Override
+        public void run() {
+            CURRENT.set(this);
+            try {
+                bolt.execute(tuple);
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                CURRENT.remove();
+                done = true;
+                LockSupport.unpark(executorThread);
+            }
+        }
+
+        void complete() {
+            if (error instanceof Error) {
+                throw (Error) error;
+            } else if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else if (error != null) {
+                throw new RuntimeException(error);
+            }
+            for (Runnable action : actions) {
+                action.run();
+            }
+            onComplete.run();
+        }
+    }
+
+    private static final class DeferringCollector implements IOutputCollector {
+        private final IOutputCollector delegate;
+
+        DeferringCollector(IOutputCollector delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public List<Integer> emit(String streamId, Collection<Tuple> anchors, List<Object> tuple) {
+            Invocation current = CURRENT.get();
+            if (current == null) {
+                return delegate.emit(streamId, anchors, tuple);
+            }
+            current.actions.add(() -> delegate.emit(streamId, anchors, tuple));
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void emitDirect(int taskId, String streamId, Collection<Tuple> anchors, List<Object> tuple) {
+            Invocation current = CURRENT.get();
+            if (current == null) {
+                delegate.emitDirect(taskId, streamId, anchors, tuple);
+            } else {
+                current.actions.add(() -> delegate.emitDirect(taskId, streamId, anchors, tuple));
+            }
+        }
+
+        @Override
+        public void ack(Tuple input) {
+            Invocation current = CURRENT.get();
+            if (current == null) {
+                delegate.ack(input);
+            } else {
+                current.actions.add(() -> delegate.ack(input));
+            }
+        }
+
+        @Override
+        public void fail(Tuple input) {
+            Invocation current = CURRENT.get();
+            if (current == null) {
+                delegate.fail(input);
+            } else {
+                current.actions.add(() -> delegate.fail(input));
+            }
+        }
+
+        @Override
+        public void resetTimeout(Tuple input) {
+            Invocation current = CURRENT.get();
+            if (current == null) {
+                delegate.resetTimeout(input);
+            } else {
+                current.actions.add(() -> delegate.resetTimeout(input));
+            }
+        }
+
+        @Override
+        public void flush() {
+            // inside a dispatched call the replayed emits are flushed with the executor's own flushes
+            if (CURRENT.get() == null) {
+                delegate.flush();
+            }
+        }
+
+        @Override
+        public void reportError(Throwable error) {
+            delegate.reportError(error);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.executor.bolt;
+
+import java.util.List;
+import org.apache.storm.task.IExecutorPollable;
+
+/**
+ * The work of a bolt executor that finishes on other threads, from an {@link ExecuteDispatcher}, an {@link AsyncExecuteTracker} or
+ * {@link IExecutorPollable} bolts, and is replayed on the executor thread when drained. Not thread safe, only the executor thread uses
+ * it.
+ */
+class ExecutorCompletions {
+    private final ExecuteDispatcher executeDispatcher;
+    private final AsyncExecuteTracker asyncTracker;
+    private final List<IExecutorPollable> pollables;
+    private final AckBatcher ackBatcher;
+
+    /**
+     * Constructor.
+     * @param executeDispatcher the dispatcher of concurrent executes, or null
+     * @param asyncTracker the tracker of IAsyncBolt executes, or null
+     * @param ackBatcher the batcher the replayed acks and fails go to, or null if acks are not batched
+     */
+    ExecutorCompletions(ExecuteDispatcher executeDispatcher, AsyncExecuteTracker asyncTracker, List<IExecutorPollable> pollables,
+                        AckBatcher ackBatcher) {
+        this.executeDispatcher = executeDispatcher;
+        this.asyncTracker = asyncTracker;
+        this.pollables = pollables;
+        this.ackBatcher = ackBatcher;
+    }
+
+    /**
+     * Run the work that finished since the last call.
+     * @return how much there was
+     */
+    int drain() {
+        int count = 0;
+        if (executeDispatcher != null) {
+            count = executeDispatcher.drainCompleted();
+        } else if (asyncTracker != null) {
+            count = asyncTracker.drain();
+        }
+        for (int i = 0; i < pollables.size(); i++) {
+            count += pollables.get(i).pollCompletions();
+        }
+        return count;
+    }
+
+    boolean hasInFlight() {
+        if ((executeDispatcher != null && executeDispatcher.hasInFlight()) || (asyncTracker != null && asyncTracker.hasInFlight())) {
+            return true;
+        }
+        for (int i = 0; i < pollables.size(); i++) {
+            if (pollables.get(i).hasPendingCompletions()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drain and send the batched acks, as the receive queue does after every batch of input.
+     */
+    void flush() {
+        drain();
+        if (ackBatcher != null) {
+            ackBatcher.flush();
+        }
+    }
+
+    /**
+     * Drain while the receive queue is empty. The receive queue only flushes after it drained some input, and flush tuples are off with
+     * the default batch sizes, so the acks replayed here are sent right away instead of waiting for the next input.
+     * @return how much there was
+     */
+    int drainIdle() {
+        if (!hasInFlight()) {
+            return 0;
+        }
+        int count = drain();
+        if (count > 0 && ackBatcher != null) {
+            ackBatcher.flush();
+        }
+        return count;
+    }
+}
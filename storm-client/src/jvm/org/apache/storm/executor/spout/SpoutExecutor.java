@@ -41,7 +41,7 @@ import org.apache.storm.utils.ConfigUtils;
 import org.apache.storm.utils.MutableLong;
 import org.apache.storm.utils.ObjectReader;
 import org.apache.storm.utils.ReflectionUtils;
-import org.apache.storm.utils.RotatingMap;
+import org.apache.storm.utils.RotatingLongMap;
 import org.apache.storm.utils.Time;
 import org.apache.storm.utils.Utils;
 import org.slf4j.Logger;
@@ -62,7 +62,7 @@ public class SpoutExecutor extends Executor {
     private Integer maxSpoutPending;
     private List<ISpout> spouts;
     private List<SpoutOutputCollector> outputCollectors;
-    private RotatingMap<Long, TupleInfo> pending;
+    private RotatingLongMap<TupleInfo> pending;
     private long threadId = 0;
     private final RateCounter skippedMaxSpoutMs;
     private final RateCounter skippedInactiveMs;
@@ -112,9 +112,9 @@ public class SpoutExecutor extends Executor {
                 this.spouts.add((ISpout) task.getTaskObject());
             }
         }
-        this.pending = new RotatingMap<>(2, new RotatingMap.ExpiredCallback<Long, TupleInfo>() {
+        this.pending = new RotatingLongMap<>(2, new RotatingLongMap.ExpiredCallback<TupleInfo>() {
             @Override
-            public void expire(Long key, TupleInfo tupleInfo) {
+            public void expire(long key, TupleInfo tupleInfo) {
                 Long timeDelta = null;
                 if (tupleInfo.getTimestamp() != 0) {
                     timeDelta = Time.deltaMs(tupleInfo.getTimestamp());
@@ -293,15 +293,15 @@ public class SpoutExecutor extends Executor {
         } else if (streamId.equals(Constants.METRICS_TICK_STREAM_ID)) {
             metricsTick(idToTask.get(taskId - idToTaskBase), tuple);
         } else if (streamId.equals(Acker.ACKER_RESET_TIMEOUT_STREAM_ID)) {
-            Long id = (Long) tuple.getValue(0);
+            long id = tuple.getLong(0);
             TupleInfo pendingForId = pending.get(id);
             if (pendingForId != null) {
                 pending.put(id, pendingForId);
             }
         } else {
-            Long id = (Long) tuple.getValue(0);
+            long id = tuple.getLong(0);
             Long timeDeltaMs = (Long) tuple.getValue(1);
-            TupleInfo tupleInfo = pending.remove(id);
+            TupleInfo tupleInfo = pending.removeValue(id);
             if (tupleInfo != null && tupleInfo.getMessageId() != null) {
                 if (taskId != tupleInfo.getTaskId()) {
                     throw new RuntimeException("Fatal error, mismatched task ids: " + taskId + " " + tupleInfo.getTaskId());
@@ -20,12 +20,14 @@ import org.apache.storm.daemon.Task;
 import org.apache.storm.executor.TupleInfo;
 import org.apache.storm.spout.ISpout;
 import org.apache.storm.spout.ISpoutOutputCollector;
+import org.apache.storm.tracing.TraceContext;
+import org.apache.storm.tracing.Tracer;
 import org.apache.storm.tuple.AddressedTuple;
 import org.apache.storm.tuple.MessageId;
 import org.apache.storm.tuple.TupleImpl;
 import org.apache.storm.tuple.Values;
 import org.apache.storm.utils.MutableLong;
-import org.apache.storm.utils.RotatingMap;
+import org.apache.storm.utils.RotatingLongMap;
 import org.apache.storm.utils.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,7 +45,7 @@ public class SpoutOutputCollectorImpl implements ISpoutOutputCollector {
     private final Random random;
     private final Boolean isEventLoggers;
     private final Boolean isDebug;
-    private final RotatingMap<Long, TupleInfo> pending;
+    private final RotatingLongMap<TupleInfo> pending;
     private final long spoutExecutorThdId;
     private TupleInfo globalTupleInfo = new TupleInfo();
     // thread safety: assumes Collector.emit*() calls are externally synchronized (if needed).
@@ -51,7 +53,7 @@ public class SpoutOutputCollectorImpl implements ISpoutOutputCollector {
     @SuppressWarnings("unused")
     public SpoutOutputCollectorImpl(ISpout spout, SpoutExecutor executor, Task taskData,
                                     MutableLong emittedCount, boolean hasAckers, Random random,
-                                    Boolean isEventLoggers, Boolean isDebug, RotatingMap<Long, TupleInfo> pending) {
+                                    Boolean isEventLoggers, Boolean isDebug, RotatingLongMap<TupleInfo> pending) {
         this.executor = executor;
         this.taskData = taskData;
         this.taskId = taskData.getTaskId();
@@ -123,6 +125,9 @@ public class SpoutOutputCollectorImpl implements ISpoutOutputCollector {
 
         final long rootId = needAck ? MessageId.generateId(random) : 0;
 
+        Tracer tracer = executor.getTracer();
+        TraceContext traceContext = tracer != null ? tracer.maybeStartTrace(executor.getComponentId(), this.taskId, stream) : null;
+
         for (int i = 0; i < outTasks.size(); i++) { // perf critical path. don't use iterators.
             Integer t = outTasks.get(i);
             MessageId msgId;
@@ -136,6 +141,9 @@ public class SpoutOutputCollectorImpl implements ISpoutOutputCollector {
 
             final TupleImpl tuple =
                 new TupleImpl(executor.getWorkerTopologyContext(), values, executor.getComponentId(), this.taskId, stream, msgId);
+            if (traceContext != null) {
+                tuple.setTraceContext(traceContext);
+            }
             AddressedTuple adrTuple = new AddressedTuple(t, tuple);
             executor.getExecutorTransfer().tryTransfer(adrTuple, executor.getPendingEmits());
         }
@@ -14,8 +14,10 @@ package org.apache.storm.grouping;
 
 import java.io.Serializable;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -43,6 +45,11 @@ public class PartialKeyGrouping implements CustomStreamGrouping, Serializable {
     private AssignmentCreator assignmentCreator;
     private TargetSelector targetSelector;
 
+    private transient int[] fieldIndexes;
+    private transient List<List<Integer>> singletonTargets;
+    // Per target task index load, used instead of the selector when the default creator and selector are configured
+    private transient long[] targetLoads;
+
     public PartialKeyGrouping() {
         this(null);
     }
@@ -66,23 +73,69 @@ public class PartialKeyGrouping implements CustomStreamGrouping, Serializable {
         this.targetTasks = targetTasks;
         if (this.fields != null) {
             this.outFields = context.getComponentOutputFields(stream);
+            this.fieldIndexes = new int[fields.size()];
+            for (int i = 0; i < fieldIndexes.length; i++) {
+                fieldIndexes[i] = outFields.fieldIndex(fields.get(i));
+            }
+        }
+        this.singletonTargets = new ArrayList<>(targetTasks.size());
+        for (Integer targetTask : targetTasks) {
+            singletonTargets.add(Collections.singletonList(targetTask));
+        }
+        if (assignmentCreator.getClass() == RandomTwoTaskAssignmentCreator.class
+            && targetSelector.getClass() == BalancedTargetSelector.class) {
+            this.targetLoads = new long[targetTasks.size()];
         }
     }
 
     @Override
     public List<Integer> chooseTasks(int taskId, List<Object> values) {
-        List<Integer> boltIds = new ArrayList<>(1);
-        if (values.size() > 0) {
-            final byte[] rawKeyBytes = getKeyBytes(values);
+        if (values.size() == 0) {
+            return new ArrayList<>(1);
+        }
+        if (targetLoads != null) {
+            return singletonTargets.get(chooseTargetIndex(values));
+        }
+        final byte[] rawKeyBytes = getKeyBytes(values);
 
-            final int[] taskAssignmentForKey = assignmentCreator.createAssignment(this.targetTasks, rawKeyBytes);
-            final int selectedTask = targetSelector.chooseTask(taskAssignmentForKey);
+        final int[] taskAssignmentForKey = assignmentCreator.createAssignment(this.targetTasks, rawKeyBytes);
+        final int selectedTask = targetSelector.chooseTask(taskAssignmentForKey);
 
+        int index = targetTasks.indexOf(selectedTask);
+        if (index < 0) {
+            List<Integer> boltIds = new ArrayList<>(1);
             boltIds.add(selectedTask);
+            return boltIds;
         }
-        return boltIds;
+        return singletonTargets.get(index);
     }
 
+    /**
+     * Picks the same target as {@link RandomTwoTaskAssignmentCreator} and {@link BalancedTargetSelector} would, without materializing
+     * the key bytes, the Random, the assignment or the boxed load counters.
+     */
+    private int chooseTargetIndex(List<Object> values) {
+        // Arrays.hashCode of the bytes getKeyBytes returns
+        int keyHash = 1;
+        if (fields == null) {
+            Object key = values.get(0);
+            keyHash = utf8HashCode(key instanceof CharSequence ? (CharSequence) key : key.toString());
+        } else {
+            for (int fieldIndex : fieldIndexes) {
+                int fieldHash = fieldHashCode(values.get(fieldIndex));
+                keyHash = 31 * keyHash + (byte) (fieldHash >>> 24);
+                keyHash = 31 * keyHash + (byte) (fieldHash >>> 16);
+                keyHash = 31 * keyHash + (byte) (fieldHash >>> 8);
+                keyHash = 31 * keyHash + (byte) fieldHash;
+            }
+        }
+        long choices = RandomTwoTaskAssignmentCreator.chooseTwo(keyHash, targetLoads.length);
+        int choice1 = (int) (choices >>> 32);
+        int choice2 = (int) choices;
+        int selected = targetLoads[choice2] < targetLoads[choice1] ? choice2 : choice1;
+        targetLoads[selected]++;
+        return selected;
+    }
 
     /**
      * Extract the key from the input Tuple.
@@ -90,42 +143,75 @@ public class PartialKeyGrouping implements CustomStreamGrouping, Serializable {
     private byte[] getKeyBytes(List<Object> values) {
         byte[] raw;
         if (fields != null) {
-            List<Object> selectedFields = outFields.select(fields, values);
-            ByteBuffer out = ByteBuffer.allocate(selectedFields.size() * 4);
-            for (Object o : selectedFields) {
-                if (o instanceof List) {
-                    out.putInt(Arrays.deepHashCode(((List) o).toArray()));
-                } else if (o instanceof Object[]) {
-                    out.putInt(Arrays.deepHashCode((Object[]) o));
-                } else if (o instanceof byte[]) {
-                    out.putInt(Arrays.hashCode((byte[]) o));
-                } else if (o instanceof short[]) {
-                    out.putInt(Arrays.hashCode((short[]) o));
-                } else if (o instanceof int[]) {
-                    out.putInt(Arrays.hashCode((int[]) o));
-                } else if (o instanceof long[]) {
-                    out.putInt(Arrays.hashCode((long[]) o));
-                } else if (o instanceof char[]) {
-                    out.putInt(Arrays.hashCode((char[]) o));
-                } else if (o instanceof float[]) {
-                    out.putInt(Arrays.hashCode((float[]) o));
-                } else if (o instanceof double[]) {
-                    out.putInt(Arrays.hashCode((double[]) o));
-                } else if (o instanceof boolean[]) {
-                    out.putInt(Arrays.hashCode((boolean[]) o));
-                } else if (o != null) {
-                    out.putInt(o.hashCode());
-                } else {
-                    out.putInt(0);
-                }
+            ByteBuffer out = ByteBuffer.allocate(fieldIndexes.length * 4);
+            for (int fieldIndex : fieldIndexes) {
+                out.putInt(fieldHashCode(values.get(fieldIndex)));
             }
             raw = out.array();
         } else {
-            raw = values.get(0).toString().getBytes(); // assume key is the first field
+            raw = values.get(0).toString().getBytes(StandardCharsets.UTF_8); // assume key is the first field
         }
         return raw;
     }
 
+    /**
+     * Arrays.hashCode of the UTF-8 encoding of a string, without encoding it. Unpaired surrogates count as '?', like String.getBytes.
+     */
+    static int utf8HashCode(CharSequence s) {
+        int hash = 1;
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                hash = 31 * hash + c;
+            } else if (c < 0x800) {
+                hash = 31 * hash + (byte) (0xc0 | c >> 6);
+                hash = 31 * hash + (byte) (0x80 | c & 0x3f);
+            } else if (!Character.isSurrogate(c)) {
+                hash = 31 * hash + (byte) (0xe0 | c >> 12);
+                hash = 31 * hash + (byte) (0x80 | c >> 6 & 0x3f);
+                hash = 31 * hash + (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                hash = 31 * hash + (byte) (0xf0 | codePoint >> 18);
+                hash = 31 * hash + (byte) (0x80 | codePoint >> 12 & 0x3f);
+                hash = 31 * hash + (byte) (0x80 | codePoint >> 6 & 0x3f);
+                hash = 31 * hash + (byte) (0x80 | codePoint & 0x3f);
+            } else {
+                hash = 31 * hash + '?';
+            }
+        }
+        return hash;
+    }
+
+    private static int fieldHashCode(Object o) {
+        if (o instanceof List) {
+            return Arrays.deepHashCode(((List) o).toArray());
+        } else if (o instanceof Object[]) {
+            return Arrays.deepHashCode((Object[]) o);
+        } else if (o instanceof byte[]) {
+            return Arrays.hashCode((byte[]) o);
+        } else if (o instanceof short[]) {
+            return Arrays.hashCode((short[]) o);
+        } else if (o instanceof int[]) {
+            return Arrays.hashCode((int[]) o);
+        } else if (o instanceof long[]) {
+            return Arrays.hashCode((long[]) o);
+        } else if (o instanceof char[]) {
+            return Arrays.hashCode((char[]) o);
+        } else if (o instanceof float[]) {
+            return Arrays.hashCode((float[]) o);
+        } else if (o instanceof double[]) {
+            return Arrays.hashCode((double[]) o);
+        } else if (o instanceof boolean[]) {
+            return Arrays.hashCode((boolean[]) o);
+        } else if (o != null) {
+            return o.hashCode();
+        } else {
+            return 0;
+        }
+    }
+
     /*==================================================
      * Helper Classes
      *==================================================*/
@@ -153,19 +239,53 @@ public class PartialKeyGrouping implements CustomStreamGrouping, Serializable {
      * This implementation of AssignmentCreator chooses two arbitrary tasks.
      */
     public static class RandomTwoTaskAssignmentCreator implements AssignmentCreator {
+        private static final long MULTIPLIER = 0x5DEECE66DL;
+        private static final long ADDEND = 0xBL;
+        private static final long MASK = (1L << 48) - 1;
+
         /**
          * Creates a two task assignment by selecting random tasks.
          */
         @Override
         public int[] createAssignment(List<Integer> tasks, byte[] key) {
             // It is necessary that this produce a deterministic assignment based on the key, so seed the Random from the key
-            final long seedForRandom = Arrays.hashCode(key);
-            final Random random = new Random(seedForRandom);
-            final int choice1 = random.nextInt(tasks.size());
-            int choice2 = random.nextInt(tasks.size());
+            final long choices = chooseTwo(Arrays.hashCode(key), tasks.size());
+            return new int[]{ tasks.get((int) (choices >>> 32)), tasks.get((int) choices) };
+        }
+
+        /**
+         * The first two {@code nextInt(bound)} of a {@code new Random(seed)}, with the second moved to the next index if both are the
+         * same, packed as {@code choice1 << 32 | choice2}. Inlines {@link Random}'s LCG so no instance has to be allocated per key.
+         */
+        static long chooseTwo(long seed, int bound) {
+            long state = (seed ^ MULTIPLIER) & MASK;
+            state = (state * MULTIPLIER + ADDEND) & MASK;
+            int r = (int) (state >>> 17);
+            final int m = bound - 1;
+            final boolean powerOfTwo = (bound & m) == 0;
+            int choice1;
+            if (powerOfTwo) {
+                choice1 = (int) ((bound * (long) r) >> 31);
+            } else {
+                for (int u = r; u - (r = u % bound) + m < 0; u = (int) (state >>> 17)) {
+                    state = (state * MULTIPLIER + ADDEND) & MASK;
+                }
+                choice1 = r;
+            }
+            state = (state * MULTIPLIER + ADDEND) & MASK;
+            r = (int) (state >>> 17);
+            int choice2;
+            if (powerOfTwo) {
+                choice2 = (int) ((bound * (long) r) >> 31);
+            } else {
+                for (int u = r; u - (r = u % bound) + m < 0; u = (int) (state >>> 17)) {
+                    state = (state * MULTIPLIER + ADDEND) & MASK;
+                }
+                choice2 = r;
+            }
             // ensure that choice1 and choice2 are not the same task
-            choice2 = choice1 == choice2 ? (choice2 + 1) % tasks.size() : choice2;
-            return new int[]{ tasks.get(choice1), tasks.get(choice2) };
+            choice2 = choice1 == choice2 ? (choice2 + 1) % bound : choice2;
+            return ((long) choice1 << 32) | (choice2 & 0xFFFFFFFFL);
         }
     }
 
@@ -0,0 +1,60 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.jfr;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.storm.Config;
+import org.apache.storm.utils.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides whether the Java Flight Recorder events in this package should be emitted.  The event classes extend jdk.jfr.Event, so
+ * they must not be touched on a JVM that lacks the jdk.jfr API, every call site checks the flag returned by {@link #isEnabled(Map)}
+ * first.
+ */
+public final class JfrEvents {
+    private static final Logger LOG = LoggerFactory.getLogger(JfrEvents.class);
+    private static final boolean AVAILABLE = detectJfr();
+    private static final AtomicBoolean WARNED = new AtomicBoolean(false);
+
+    private JfrEvents() {
+    }
+
+    private static boolean detectJfr() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Check if JFR events were requested by the config and can be emitted by this JVM.
+     *
+     * @param conf the topology config
+     * @return true if {@link Config#TOPOLOGY_JFR_EVENTS} is set and the jdk.jfr API is available.
+     */
+    public static boolean isEnabled(Map<String, Object> conf) {
+        if (!ObjectReader.getBoolean(conf.get(Config.TOPOLOGY_JFR_EVENTS), false)) {
+            return false;
+        }
+        if (!AVAILABLE && WARNED.compareAndSet(false, true)) {
+            LOG.warn("{} is set, but this JVM does not support the jdk.jfr API. No JFR events will be emitted.",
+                     Config.TOPOLOGY_JFR_EVENTS);
+        }
+        return AVAILABLE;
+    }
+}
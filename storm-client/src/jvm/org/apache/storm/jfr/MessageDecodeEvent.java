@@ -0,0 +1,50 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Decoding the frames read from a netty connection into messages.
+ */
+@Name("org.apache.storm.MessageDecode")
+@Label("Message Decode")
+@Description("Decoding messages read from a netty connection")
+@Category({"Apache Storm", "Transport"})
+@StackTrace(false)
+public class MessageDecodeEvent extends Event {
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Messages")
+    int messages;
+
+    /**
+     * End the event and commit it if it is being recorded.
+     */
+    public void finish(long bytes, int messages) {
+        end();
+        if (shouldCommit()) {
+            this.bytes = bytes;
+            this.messages = messages;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A bolt task executing a tuple.  For async or dispatched bolts the event ends when the execution is reported as done, possibly
+ * on another thread.
+ */
+@Name("org.apache.storm.TupleExecute")
+@Label("Tuple Execute")
+@Description("A bolt task executing a tuple")
+@Category({"Apache Storm", "Executor"})
+@StackTrace(false)
+public class TupleExecuteEvent extends Event {
+    @Label("Component")
+    String componentId;
+
+    @Label("Task")
+    int taskId;
+
+    @Label("Source Component")
+    String sourceComponent;
+
+    @Label("Source Stream")
+    String sourceStream;
+
+    /**
+     * End the event and commit it if it is being recorded.
+     */
+    public void finish(String componentId, int taskId, String sourceComponent, String sourceStream) {
+        end();
+        if (shouldCommit()) {
+            this.componentId = componentId;
+            this.taskId = taskId;
+            this.sourceComponent = sourceComponent;
+            this.sourceStream = sourceStream;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An executor handing an emitted tuple to the receive queue of a local task, or serializing it for the worker transfer queue.
+ */
+@Name("org.apache.storm.TupleTransfer")
+@Label("Tuple Transfer")
+@Description("Moving an emitted tuple to a local receive queue or to the worker transfer queue")
+@Category({"Apache Storm", "Transfer"})
+@StackTrace(false)
+public class TupleTransferEvent extends Event {
+    @Label("Destination Task")
+    int destTaskId;
+
+    @Label("Local")
+    @Description("If the destination task runs in this worker")
+    boolean local;
+
+    @Label("Queued")
+    @Description("False if the queue was full or under back pressure and the tuple was left pending")
+    boolean queued;
+
+    /**
+     * End the event and commit it if it is being recorded.
+     */
+    public void finish(int destTaskId, boolean local, boolean queued) {
+        end();
+        if (shouldCommit()) {
+            this.destTaskId = destTaskId;
+            this.local = local;
+            this.queued = queued;
+            commit();
+        }
+    }
+}
@@ -63,10 +63,18 @@ public class DeserializingConnectionCallback implements IConnectionCallback, IMe
         KryoTupleDeserializer des = this.des.get();
         ArrayList<AddressedTuple> ret = new ArrayList<>(batch.size());
         for (TaskMessage message : batch) {
-            Tuple tuple = des.deserialize(message.message());
-            AddressedTuple addrTuple = new AddressedTuple(message.task(), tuple);
-            updateMetrics(tuple.getSourceTask(), message);
-            ret.add(addrTuple);
+            Tuple tuple;
+            try {
+                if (message.buffer() != null) {
+                    tuple = des.deserialize(message.buffer());
+                } else {
+                    tuple = des.deserialize(message.message());
+                }
+                updateMetrics(tuple.getSourceTask(), message);
+            } finally {
+                message.release();
+            }
+            ret.add(new AddressedTuple(message.task(), tuple));
         }
         cb.transfer(ret);
     }
@@ -100,7 +108,7 @@ public class DeserializingConnectionCallback implements IConnectionCallback, IMe
     protected void updateMetrics(int sourceTaskId, TaskMessage message) {
         if (sizeMetricsEnabled) {
             int dest = message.task();
-            int len = message.message().length;
+            int len = message.length();
             String key = Integer.toString(sourceTaskId) + "-" + Integer.toString(dest);
             byteCounts.computeIfAbsent(key, k -> new AtomicLong(0L)).addAndGet(len);
         }
@@ -13,28 +13,91 @@
 package org.apache.storm.messaging;
 
 import java.nio.ByteBuffer;
+import org.apache.storm.shade.io.netty.buffer.ByteBuf;
 
 public class TaskMessage {
+    /**
+     * Number of bytes a buffer-backed message reserves in front of its payload, so the netty client can write the frame header (short
+     * task, int length) in place instead of copying the payload.
+     */
+    public static final int FRAME_HEADER_LENGTH = 6;
+
     private int task;
     private byte[] message;
+    private ByteBuf buffer;
+    private boolean released;
 
     public TaskMessage(int task, byte[] message) {
         this.task = task;
         this.message = message;
     }
 
+    /**
+     * Create a message whose payload is the readable region of a reference-counted buffer. Ownership of the buffer passes to the message.
+     * Whoever consumes the message last, by writing it to the wire, deserializing it or dropping it, must call {@link #release()}.
+     */
+    public TaskMessage(int task, ByteBuf buffer) {
+        this.task = task;
+        this.buffer = buffer;
+    }
+
     public int task() {
         return task;
     }
 
+    /**
+     * Get the payload as a byte array. For buffer-backed messages the payload is copied out on the first call, the buffer stays owned by
+     * this message until {@link #release()}, so the zero-copy paths should use {@link #buffer()} instead.
+     *
+     * @throws IllegalStateException if the message was released before its payload was ever copied out
+     */
     public byte[] message() {
+        if (message == null && buffer != null) {
+            byte[] copy = new byte[buffer.readableBytes()];
+            buffer.getBytes(buffer.readerIndex(), copy);
+            message = copy;
+        } else if (message == null && released) {
+            throw new IllegalStateException("The payload of a message to task " + task + " was already released");
+        }
         return message;
     }
 
+    /**
+     * Get the buffer backing this message.
+     * @return the payload buffer, or null if this message is backed by a byte array
+     */
+    public ByteBuf buffer() {
+        return buffer;
+    }
+
+    /**
+     * Get the payload length without materializing it.
+     */
+    public int length() {
+        if (buffer != null) {
+            return buffer.readableBytes();
+        }
+        return message == null ? 0 : message.length;
+    }
+
+    /**
+     * Release the backing buffer, if any. Safe to call more than once, and a no-op for messages backed by a byte array. A payload copied
+     * out by {@link #message()} before stays readable.
+     */
+    public void release() {
+        if (buffer != null) {
+            ByteBuf buf = buffer;
+            buffer = null;
+            released = true;
+            buf.release();
+        }
+    }
+
     public ByteBuffer serialize() {
-        ByteBuffer bb = ByteBuffer.allocate(message.length + 2);
+        byte[] payload = message();
+        ByteBuffer bb = ByteBuffer.allocate(payload.length + 2);
         bb.putShort((short) task);
-        bb.put(message);
+        bb.put(payload);
         return bb;
     }
 
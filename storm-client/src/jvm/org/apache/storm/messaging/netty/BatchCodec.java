@@ -0,0 +1,218 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.messaging.netty;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.util.Native;
+import java.nio.ByteBuffer;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.apache.storm.shade.io.netty.buffer.ByteBuf;
+import org.apache.storm.shade.io.netty.buffer.ByteBufAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compresses and decompresses whole message batches. Only the compressing {@link MessageCompression} codecs have one, so uncompressed
+ * connections never reach this code.
+ *
+ * <p>The codec libraries are optional dependencies of storm-client, each codec checks that its library can be loaded on this host.
+ */
+abstract class BatchCodec {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchCodec.class);
+    // Batches are compressed on the netty event loop, so favor speed over ratio.
+    private static final int ZSTD_LEVEL = 1;
+
+    /**
+     * Get the wire id of this codec.
+     */
+    abstract byte id();
+
+    /**
+     * Check whether this codec can be used on this host, the library may be missing or its native part may fail to load.
+     */
+    abstract boolean isAvailable();
+
+    abstract int maxCompressedLength(int length);
+
+    /**
+     * Compress the remaining bytes of src into the remaining space of dst. Positions are not modified.
+     * @return the number of compressed bytes
+     */
+    abstract int compress(ByteBuffer src, ByteBuffer dst);
+
+    /**
+     * Decompress the remaining bytes of src into the remaining space of dst. Positions are not modified.
+     * @return the number of decompressed bytes
+     */
+    abstract int decompress(ByteBuffer src, ByteBuffer dst);
+
+    /**
+     * Compress the readable bytes of src and append them to dst, which must not be a composite buffer. The caller makes sure that
+     * src and dst are both direct or both heap buffers.
+     * @return the number of compressed bytes written
+     */
+    int compress(ByteBuf src, ByteBuf dst) {
+        int maxLength = maxCompressedLength(src.readableBytes());
+        dst.ensureWritable(maxLength);
+        int written = compress(src.nioBuffer(), dst.nioBuffer(dst.writerIndex(), maxLength));
+        dst.writerIndex(dst.writerIndex() + written);
+        return written;
+    }
+
+    /**
+     * Decompress length bytes starting at the reader index of src into a newly allocated buffer, and advance the reader index of src.
+     */
+    ByteBuf decompress(ByteBuf src, int length, int uncompressedLength, ByteBufAllocator alloc) {
+        ByteBuffer in = src.nioBuffer(src.readerIndex(), length);
+        ByteBuf out = in.isDirect() ? alloc.directBuffer(uncompressedLength) : alloc.heapBuffer(uncompressedLength);
+        try {
+            int read = decompress(in, out.nioBuffer(0, uncompressedLength));
+            if (read != uncompressedLength) {
+                throw new IllegalStateException("Expected " + uncompressedLength + " bytes after " + this + " decompression but got "
+                                                + read);
+            }
+            out.writerIndex(uncompressedLength);
+            src.skipBytes(length);
+            return out;
+        } catch (RuntimeException e) {
+            out.release();
+            throw e;
+        }
+    }
+
+    private static void warnUnavailable(String name, Throwable t) {
+        LOG.warn("{} could not be loaded, {} compression is disabled on this host", name, name, t);
+    }
+
+    static final class Lz4Codec extends BatchCodec {
+        @Override
+        byte id() {
+            return MessageCompression.LZ4.id();
+        }
+
+        @Override
+        boolean isAvailable() {
+            return Lz4Holder.AVAILABLE;
+        }
+
+        @Override
+        int maxCompressedLength(int length) {
+            return Lz4Holder.COMPRESSOR.maxCompressedLength(length);
+        }
+
+        @Override
+        int compress(ByteBuffer src, ByteBuffer dst) {
+            return Lz4Holder.COMPRESSOR.compress(src, src.position(), src.remaining(), dst, dst.position(), dst.remaining());
+        }
+
+        @Override
+        int decompress(ByteBuffer src, ByteBuffer dst) {
+            return Lz4Holder.DECOMPRESSOR.decompress(src, src.position(), src.remaining(), dst, dst.position(), dst.remaining());
+        }
+
+        @Override
+        public String toString() {
+            return "lz4";
+        }
+    }
+
+    static final class ZstdCodec extends BatchCodec {
+        @Override
+        byte id() {
+            return MessageCompression.ZSTD.id();
+        }
+
+        @Override
+        boolean isAvailable() {
+            return ZstdHolder.AVAILABLE;
+        }
+
+        @Override
+        int maxCompressedLength(int length) {
+            return (int) Zstd.compressBound(length);
+        }
+
+        @Override
+        int compress(ByteBuffer src, ByteBuffer dst) {
+            long ret;
+            if (src.isDirect() && dst.isDirect()) {
+                ret = Zstd.compressDirectByteBuffer(dst, dst.position(), dst.remaining(), src, src.position(), src.remaining(),
+                                                    ZSTD_LEVEL);
+            } else if (src.hasArray() && dst.hasArray()) {
+                ret = Zstd.compressByteArray(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining(),
+                                             src.array(), src.arrayOffset() + src.position(), src.remaining(), ZSTD_LEVEL);
+            } else {
+                throw new IllegalArgumentException("zstd needs both buffers to be either direct or heap buffers");
+            }
+            return checkZstd(ret);
+        }
+
+        @Override
+        int decompress(ByteBuffer src, ByteBuffer dst) {
+            long ret;
+            if (src.isDirect() && dst.isDirect()) {
+                ret = Zstd.decompressDirectByteBuffer(dst, dst.position(), dst.remaining(), src, src.position(), src.remaining());
+            } else if (src.hasArray() && dst.hasArray()) {
+                ret = Zstd.decompressByteArray(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining(),
+                                               src.array(), src.arrayOffset() + src.position(), src.remaining());
+            } else {
+                throw new IllegalArgumentException("zstd needs both buffers to be either direct or heap buffers");
+            }
+            return checkZstd(ret);
+        }
+
+        private static int checkZstd(long ret) {
+            if (Zstd.isError(ret)) {
+                throw new IllegalStateException("zstd failed: " + Zstd.getErrorName(ret));
+            }
+            return (int) ret;
+        }
+
+        @Override
+        public String toString() {
+            return "zstd";
+        }
+    }
+
+    private static final class Lz4Holder {
+        private static final LZ4Factory FACTORY = load();
+        private static final boolean AVAILABLE = FACTORY != null;
+        private static final LZ4Compressor COMPRESSOR = AVAILABLE ? FACTORY.fastCompressor() : null;
+        private static final LZ4SafeDecompressor DECOMPRESSOR = AVAILABLE ? FACTORY.safeDecompressor() : null;
+
+        private static LZ4Factory load() {
+            try {
+                return LZ4Factory.fastestInstance();
+            } catch (Throwable t) {
+                warnUnavailable("lz4", t);
+                return null;
+            }
+        }
+    }
+
+    private static final class ZstdHolder {
+        private static final boolean AVAILABLE = load();
+
+        private static boolean load() {
+            try {
+                Native.load();
+                return true;
+            } catch (Throwable t) {
+                warnUnavailable("zstd", t);
+                return false;
+            }
+        }
+    }
+}
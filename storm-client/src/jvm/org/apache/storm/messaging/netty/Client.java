@@ -41,6 +41,7 @@ import org.apache.storm.policy.IWaitStrategy;
 import org.apache.storm.policy.IWaitStrategy.WaitSituation;
 import org.apache.storm.policy.WaitStrategyProgressive;
 import org.apache.storm.shade.io.netty.bootstrap.Bootstrap;
+import org.apache.storm.shade.io.netty.buffer.ByteBufAllocator;
 import org.apache.storm.shade.io.netty.buffer.PooledByteBufAllocator;
 import org.apache.storm.shade.io.netty.channel.Channel;
 import org.apache.storm.shade.io.netty.channel.ChannelFuture;
@@ -48,7 +49,6 @@ import org.apache.storm.shade.io.netty.channel.ChannelFutureListener;
 import org.apache.storm.shade.io.netty.channel.ChannelOption;
 import org.apache.storm.shade.io.netty.channel.EventLoopGroup;
 import org.apache.storm.shade.io.netty.channel.WriteBufferWaterMark;
-import org.apache.storm.shade.io.netty.channel.socket.nio.NioSocketChannel;
 import org.apache.storm.shade.io.netty.util.HashedWheelTimer;
 import org.apache.storm.shade.io.netty.util.Timeout;
 import org.apache.storm.shade.io.netty.util.TimerTask;
@@ -120,6 +120,14 @@ public class Client extends ConnectionWithStatus implements ISaslClient {
     // wait strategy when the netty channel is not writable
     private final IWaitStrategy waitStrategy;
     private volatile Map<Integer, Double> serverLoad = null;
+    /**
+     * The batch compression codec requested from the server, and the codec of the one the server accepted for the current channel.
+     * A null codec means batches are sent uncompressed.
+     */
+    private final MessageCompression requestedCompression;
+    private volatile BatchCodec compressionCodec = null;
+    private final int compressionMinBytes;
+    private final CompressedMessageBatch.Stats compressionStats = new CompressedMessageBatch.Stats();
     /**
      * This flag is set to true if and only if a client instance is being closed.
      */
@@ -127,7 +135,7 @@ public class Client extends ConnectionWithStatus implements ISaslClient {
     StormMetricRegistry metricRegistry;
     private Set<Metric> metrics = new HashSet<>();
 
-    Client(Map<String, Object> topoConf, AtomicBoolean[] remoteBpStatus,
+    Client(Map<String, Object> topoConf, AtomicBoolean[] remoteBpStatus, NettyTransport transport,
         EventLoopGroup eventLoopGroup, HashedWheelTimer scheduler, String host,
            int port, StormMetricRegistry metricRegistry) {
         this.topoConf = topoConf;
@@ -150,13 +158,14 @@ public class Client extends ConnectionWithStatus implements ISaslClient {
         // Initiate connection to remote destination
         bootstrap = new Bootstrap()
             .group(this.eventLoopGroup)
-            .channel(NioSocketChannel.class)
+            .channel(transport.socketChannelClass())
             .option(ChannelOption.TCP_NODELAY, true)
             .option(ChannelOption.SO_SNDBUF, bufferSize)
             .option(ChannelOption.SO_KEEPALIVE, true)
             .option(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(lowWatermark, highWatermark))
             .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
             .handler(new StormClientPipelineFactory(this, remoteBpStatus, topoConf));
+        transport.configure(bootstrap, topoConf);
         dstAddress = new InetSocketAddress(host, port);
         dstAddressPrefixedName = prefixedName(dstAddress);
         launchChannelAliveThread();
@@ -170,6 +179,8 @@ public class Client extends ConnectionWithStatus implements ISaslClient {
             waitStrategy = ReflectionUtils.newInstance(clazz);
         }
         waitStrategy.prepare(topoConf, WaitSituation.BACK_PRESSURE_WAIT);
+        requestedCompression = MessageCompression.forClient(MessageCompression.fromConf(topoConf), MessageCompression::isAvailable);
+        compressionMinBytes = ObjectReader.getInt(topoConf.get(Config.STORM_MESSAGING_NETTY_COMPRESSION_MIN_BYTES), 4096);
         this.metricRegistry = metricRegistry;
 
         // it's possible to be passed a null metric registry if users are using their own IContext implementation.
@@ -216,6 +227,28 @@ public class Client extends ConnectionWithStatus implements ISaslClient {
             metricRegistry.gauge("__send-iconnection-lostOnSend-" + host + ":" + port, lostOnSend,
                     Constants.SYSTEM_COMPONENT_ID, (int) Constants.SYSTEM_TASK_ID);
             metrics.add(lostOnSend);
+
+            if (requestedCompression != MessageCompression.NONE) {
+                Gauge<Double> compressionRatio = new Gauge<Double>() {
+                    @Override
+                    public Double getValue() {
+                        return compressionStats.ratio();
+                    }
+                };
+                metricRegistry.gauge("__send-iconnection-compression-ratio-" + host + ":" + port, compressionRatio,
+                        Constants.SYSTEM_COMPONENT_ID, (int) Constants.SYSTEM_TASK_ID);
+                metrics.add(compressionRatio);
+
+                Gauge<Long> compressionTime = new Gauge<Long>() {
+                    @Override
+                    public Long getValue() {
+                        return compressionStats.compressTimeMs();
+                    }
+                };
+                metricRegistry.gauge("__send-iconnection-compression-time-ms-" + host + ":" + port, compressionTime,
+                        Constants.SYSTEM_COMPONENT_ID, (int) Constants.SYSTEM_TASK_ID);
+                metrics.add(compressionTime);
+            }
         }
     }
 
@@ -344,6 +377,7 @@ public class Client extends ConnectionWithStatus implements ISaslClient {
     }
 
     private void writeMessage(Channel channel, MessageBatch batch) throws IOException {
+        boolean written = false;
         try {
             int idleCounter = 0;
             while (!channel.isWritable()) {
@@ -356,8 +390,13 @@ public class Client extends ConnectionWithStatus implements ISaslClient {
                 idleCounter = waitStrategy.idle(idleCounter);
             }
             flushMessages(channel, batch);
+            written = true;
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
+        } finally {
+            if (!written) {
+                batch.release();
+            }
         }
     }
 
@@ -396,7 +435,7 @@ public class Client extends ConnectionWithStatus implements ISaslClient {
         if (msgs != null) {
             while (msgs.hasNext()) {
                 size++;
-                msgs.next();
+                msgs.next().release();
             }
         }
         return size;
@@ -416,7 +455,8 @@ public class Client extends ConnectionWithStatus implements ISaslClient {
         LOG.debug("writing {} messages to channel {}", batch.size(), channel.toString());
         pendingMessages.addAndGet(numMessages);
 
-        ChannelFuture future = channel.writeAndFlush(batch);
+        Object frame = toFrame(batch, compressionCodec, compressionMinBytes, compressionStats, channel.alloc());
+        ChannelFuture future = channel.writeAndFlush(frame);
         future.addListener(new ChannelFutureListener() {
             @Override
             public void operationComplete(ChannelFuture future) throws Exception {
@@ -427,6 +467,7 @@ public class Client extends ConnectionWithStatus implements ISaslClient {
                 } else {
                     LOG.error("failed to send {} messages to {}: {}", numMessages, dstAddressPrefixedName,
                               future.cause());
+                    batch.release();
                     closeChannelAndReconnect(future.channel());
                     messagesLost.getAndAdd(numMessages);
                 }
@@ -510,6 +551,39 @@ public class Client extends ConnectionWithStatus implements ISaslClient {
         this.serverLoad = taskToLoad;
     }
 
+    /**
+     * Turn a batch into the object written to the channel.
+     * @param codec the codec accepted by the server, or null to send the batch uncompressed
+     */
+    static Object toFrame(MessageBatch batch, BatchCodec codec, int compressionMinBytes, CompressedMessageBatch.Stats stats,
+                          ByteBufAllocator alloc) {
+        if (codec != null && batch.encodeLength() >= compressionMinBytes) {
+            return new CompressedMessageBatch(batch, codec, stats);
+        }
+        // Batches carrying pooled payloads go out as a composite buffer, so the payloads are never copied into the frame
+        if (batch.hasBufferMessages()) {
+            return batch.toByteBuf(alloc);
+        }
+        return batch;
+    }
+
+    void setCompression(MessageCompression codec) {
+        if (codec != requestedCompression) {
+            LOG.warn("{} cannot decode {} compressed batches, sending them uncompressed", dstAddressPrefixedName, requestedCompression);
+            codec = MessageCompression.NONE;
+        }
+        this.compressionCodec = codec.codec();
+    }
+
+    /**
+     * Ask the server to accept compressed batches on a channel that is ready for messages.
+     */
+    private void requestCompression(Channel channel) {
+        if (requestedCompression != MessageCompression.NONE) {
+            channel.writeAndFlush(new CompressionNegotiation(requestedCompression), channel.voidPromise());
+        }
+    }
+
     @Override
     public Map<Integer, Load> getLoad(Collection<Integer> tasks) {
         Map<Integer, Double> loadCache = serverLoad;
@@ -533,6 +607,7 @@ public class Client extends ConnectionWithStatus implements ISaslClient {
     @Override
     public void channelReady(Channel channel) {
         saslChannelReady.set(true);
+        requestCompression(channel);
     }
 
     @Override
@@ -599,8 +674,13 @@ public class Client extends ConnectionWithStatus implements ISaslClient {
                         Channel newChannel = future.channel();
 
                         if (future.isSuccess() && connectionEstablished(newChannel)) {
+                            // the codec is negotiated again for every channel
+                            compressionCodec = null;
                             boolean setChannel = channelRef.compareAndSet(null, newChannel);
                             checkState(setChannel);
+                            if (saslChannelReady.get()) {
+                                requestCompression(newChannel);
+                            }
                             LOG.debug("successfully connected to {}, {} [attempt {}]", address.toString(), newChannel.toString(),
                                       connectionAttempt);
                             if (messagesLost.get() > 0) {
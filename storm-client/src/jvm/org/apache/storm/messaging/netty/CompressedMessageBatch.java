@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.messaging.netty;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.storm.shade.io.netty.buffer.ByteBuf;
+
+/**
+ * A {@link MessageBatch} that is compressed as a whole when it is encoded, so the work happens on the netty event loop rather than on
+ * the transfer thread. Batches that do not shrink are written uncompressed.
+ */
+class CompressedMessageBatch implements INettySerializable {
+    static final short IDENTIFIER = (short) -701;
+    static final int HEADER_LENGTH = 11; // IDENTIFIER + codec id + uncompressed length + compressed length
+
+    private final MessageBatch batch;
+    private final BatchCodec codec;
+    private final Stats stats;
+
+    CompressedMessageBatch(MessageBatch batch, BatchCodec codec, Stats stats) {
+        this.batch = batch;
+        this.codec = codec;
+        this.stats = stats;
+    }
+
+    @Override
+    public int encodeLength() {
+        int length = batch.encodeLength();
+        return HEADER_LENGTH + Math.max(length, codec.maxCompressedLength(length));
+    }
+
+    /**
+     * Encoded as -701 ... short(2) codec ... byte(1) uncompressed len ... int(4) compressed len ... int(4) payload ... byte[], where the
+     * payload decompresses to the regular encoding of the batch including its EOB marker.
+     */
+    @Override
+    public void write(ByteBuf dest) {
+        int length = batch.encodeLength();
+        ByteBuf raw = dest.isDirect() ? dest.alloc().directBuffer(length) : dest.alloc().heapBuffer(length);
+        try {
+            batch.write(raw);
+            long start = System.nanoTime();
+            int headerIndex = dest.writerIndex();
+            dest.writerIndex(headerIndex + HEADER_LENGTH);
+            int compressedLength = codec.compress(raw, dest);
+            if (compressedLength < length) {
+                dest.setShort(headerIndex, IDENTIFIER);
+                dest.setByte(headerIndex + 2, codec.id());
+                dest.setInt(headerIndex + 3, length);
+                dest.setInt(headerIndex + 7, compressedLength);
+            } else {
+                // not worth it, send the batch as is
+                dest.writerIndex(headerIndex);
+                dest.writeBytes(raw);
+                compressedLength = length;
+            }
+            stats.update(length, compressedLength, System.nanoTime() - start);
+        } finally {
+            raw.release();
+        }
+    }
+
+    /**
+     * Compression counters of a connection, reported through the client metrics.
+     */
+    static final class Stats {
+        private final AtomicLong uncompressedBytes = new AtomicLong();
+        private final AtomicLong compressedBytes = new AtomicLong();
+        private final AtomicLong compressNanos = new AtomicLong();
+
+        void update(int uncompressed, int compressed, long nanos) {
+            uncompressedBytes.addAndGet(uncompressed);
+            compressedBytes.addAndGet(compressed);
+            compressNanos.addAndGet(nanos);
+        }
+
+        /**
+         * Get the ratio of uncompressed to sent bytes of all batches that went through the codec, or 1.0 if there were none.
+         */
+        double ratio() {
+            long compressed = compressedBytes.get();
+            return compressed == 0 ? 1.0 : (double) uncompressedBytes.get() / compressed;
+        }
+
+        /**
+         * Get the total time spent compressing in milliseconds. Compression runs on the event loop without blocking, so this is CPU time.
+         */
+        long compressTimeMs() {
+            return compressNanos.get() / 1_000_000L;
+        }
+    }
+}
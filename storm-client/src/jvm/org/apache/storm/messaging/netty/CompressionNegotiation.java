@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.messaging.netty;
+
+import java.util.function.Predicate;
+import org.apache.storm.shade.io.netty.buffer.ByteBuf;
+
+/**
+ * Negotiates the batch compression codec of a connection. The client sends the codec it would like to use once the channel is ready,
+ * the server answers with the same codec if it can decode it and with {@link MessageCompression#NONE} otherwise. The client keeps sending
+ * uncompressed batches until the answer arrives.
+ */
+public class CompressionNegotiation implements INettySerializable {
+    public static final short IDENTIFIER = (short) -700;
+    static final int ENCODE_LENGTH = 3; // IDENTIFIER + codec id
+
+    private final MessageCompression codec;
+
+    public CompressionNegotiation(MessageCompression codec) {
+        this.codec = codec;
+    }
+
+    public MessageCompression codec() {
+        return codec;
+    }
+
+    /**
+     * Build the server's answer to this request.
+     */
+    CompressionNegotiation accept() {
+        return accept(MessageCompression::isAvailable);
+    }
+
+    /**
+     * Build the server's answer to this request.
+     * @param isAvailable checks whether a codec can be decoded on this host
+     */
+    CompressionNegotiation accept(Predicate<MessageCompression> isAvailable) {
+        return new CompressionNegotiation(isAvailable.test(codec) ? codec : MessageCompression.NONE);
+    }
+
+    /**
+     * Encoded as -700 ... short(2) codec ... byte(1).
+     */
+    @Override
+    public void write(ByteBuf dest) {
+        dest.writeShort(IDENTIFIER);
+        dest.writeByte(codec.id());
+    }
+
+    @Override
+    public int encodeLength() {
+        return ENCODE_LENGTH;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionNegotiation{codec=" + codec + '}';
+    }
+}
@@ -24,13 +24,13 @@ import org.apache.storm.messaging.IConnectionCallback;
 import org.apache.storm.messaging.IContext;
 import org.apache.storm.metrics2.StormMetricRegistry;
 import org.apache.storm.shade.io.netty.channel.EventLoopGroup;
-import org.apache.storm.shade.io.netty.channel.nio.NioEventLoopGroup;
 import org.apache.storm.shade.io.netty.util.HashedWheelTimer;
 import org.apache.storm.utils.ObjectReader;
 
 public class Context implements IContext {
     private Map<String, Object> topoConf;
     private List<Server> serverConnections;
+    private NettyTransport transport;
     private EventLoopGroup workerEventLoopGroup;
     private HashedWheelTimer clientScheduleService;
     private StormMetricRegistry metricRegistry = null;
@@ -53,7 +53,8 @@ public class Context implements IContext {
         ThreadFactory workerFactory = new NettyRenameThreadFactory("client" + "-worker");
         // 0 means DEFAULT_EVENT_LOOP_THREADS
         // https://github.com/netty/netty/blob/netty-4.1.24.Final/transport/src/main/java/io/netty/channel/MultithreadEventLoopGroup.java#L40
-        this.workerEventLoopGroup = new NioEventLoopGroup(maxWorkers > 0 ? maxWorkers : 0, workerFactory);
+        this.transport = NettyTransport.fromConf(topoConf);
+        this.workerEventLoopGroup = transport.newEventLoopGroup(maxWorkers > 0 ? maxWorkers : 0, workerFactory);
 
         clientScheduleService = new HashedWheelTimer(new NettyRenameThreadFactory("client-schedule-service"));
         this.metricRegistry = metricRegistry;
@@ -64,7 +65,7 @@ public class Context implements IContext {
      */
     @Override
     public synchronized IConnection bind(String stormId, int port, IConnectionCallback cb, Supplier<Object> newConnectionResponse) {
-        Server server = new Server(topoConf, port, cb, newConnectionResponse);
+        Server server = new Server(topoConf, transport, port, cb, newConnectionResponse);
         serverConnections.add(server);
         return server;
     }
@@ -74,7 +75,7 @@ public class Context implements IContext {
      */
     @Override
     public IConnection connect(String stormId, String host, int port, AtomicBoolean[] remoteBpStatus) {
-        return new Client(topoConf, remoteBpStatus, workerEventLoopGroup,
+        return new Client(topoConf, remoteBpStatus, transport, workerEventLoopGroup,
                                         clientScheduleService, host, port, metricRegistry);
     }
 
@@ -15,12 +15,15 @@ package org.apache.storm.messaging.netty;
 import java.util.ArrayList;
 import org.apache.storm.messaging.TaskMessage;
 import org.apache.storm.shade.io.netty.buffer.ByteBuf;
+import org.apache.storm.shade.io.netty.buffer.ByteBufAllocator;
+import org.apache.storm.shade.io.netty.buffer.CompositeByteBuf;
 
 class MessageBatch implements INettySerializable {
 
     private final int bufferSize;
     private final ArrayList<TaskMessage> msgs;
     private int encodedLength;
+    private int numBufferMessages;
 
     MessageBatch(int bufferSize) {
         this.bufferSize = bufferSize;
@@ -35,6 +38,9 @@ class MessageBatch implements INettySerializable {
 
         msgs.add(msg);
         encodedLength += msgEncodeLength(msg);
+        if (msg.buffer() != null) {
+            numBufferMessages++;
+        }
     }
 
     private int msgEncodeLength(TaskMessage taskMsg) {
@@ -42,11 +48,7 @@ class MessageBatch implements INettySerializable {
             return 0;
         }
 
-        int size = 6; //INT + SHORT
-        if (taskMsg.message() != null) {
-            size += taskMsg.message().length;
-        }
-        return size;
+        return TaskMessage.FRAME_HEADER_LENGTH + taskMsg.length();
     }
 
     /**
@@ -73,6 +75,25 @@ class MessageBatch implements INettySerializable {
         return msgs.size();
     }
 
+    /**
+     * Check whether any message in this batch is backed by a pooled buffer.
+     * @return true if {@link #toByteBuf(ByteBufAllocator)} can avoid copying payloads
+     */
+    boolean hasBufferMessages() {
+        return numBufferMessages > 0;
+    }
+
+    /**
+     * Release the buffers of all buffer-backed messages that have not been written yet.
+     */
+    void release() {
+        if (numBufferMessages > 0) {
+            for (TaskMessage msg : msgs) {
+                msg.release();
+            }
+        }
+    }
+
     @Override
     public int encodeLength() {
         return encodedLength;
@@ -92,24 +113,64 @@ class MessageBatch implements INettySerializable {
     }
 
     /**
-     * write a TaskMessage into a buffer.
-     *
-     * <p>Each TaskMessage is encoded as: task ... short(2) len ... int(4) payload ... byte[]     *
+     * Create the encoding of this batch as a composite buffer. Buffer-backed payloads that reserved {@link TaskMessage#FRAME_HEADER_LENGTH}
+     * bytes of headroom get their header written in place and become components of the frame as-is, everything else is copied into
+     * shared header buffers. The payload references are transferred to the returned buffer.
      */
-    private void writeTaskMessage(ByteBuf buf, TaskMessage message) {
-        int payloadLen = 0;
-        if (message.message() != null) {
-            payloadLen = message.message().length;
+    ByteBuf toByteBuf(ByteBufAllocator alloc) {
+        CompositeByteBuf frame = alloc.compositeBuffer(msgs.size() + 1);
+        ByteBuf pending = null;
+        for (TaskMessage msg : msgs) {
+            ByteBuf payload = msg.buffer();
+            if (payload != null && payload.readerIndex() >= TaskMessage.FRAME_HEADER_LENGTH) {
+                if (pending != null) {
+                    frame.addComponent(true, pending);
+                    pending = null;
+                }
+                int headerIndex = payload.readerIndex() - TaskMessage.FRAME_HEADER_LENGTH;
+                payload.setShort(headerIndex, checkedTaskId(msg));
+                payload.setInt(headerIndex + 2, payload.readableBytes());
+                payload.readerIndex(headerIndex);
+                frame.addComponent(true, payload.retain());
+                msg.release();
+            } else {
+                if (pending == null) {
+                    pending = alloc.ioBuffer();
+                }
+                writeTaskMessage(pending, msg);
+            }
+        }
+        if (pending == null) {
+            pending = alloc.ioBuffer(ControlMessage.EOB_MESSAGE.encodeLength());
         }
+        ControlMessage.EOB_MESSAGE.write(pending);
+        frame.addComponent(true, pending);
+        return frame;
+    }
 
+    private static short checkedTaskId(TaskMessage message) {
         int taskId = message.task();
         if (taskId > Short.MAX_VALUE) {
             throw new RuntimeException("Task ID should not exceed " + Short.MAX_VALUE);
         }
+        return (short) taskId;
+    }
+
+    /**
+     * write a TaskMessage into a buffer.
+     *
+     * <p>Each TaskMessage is encoded as: task ... short(2) len ... int(4) payload ... byte[]     *
+     */
+    private void writeTaskMessage(ByteBuf buf, TaskMessage message) {
+        int payloadLen = message.length();
 
-        buf.writeShort((short) taskId);
+        buf.writeShort(checkedTaskId(message));
         buf.writeInt(payloadLen);
-        if (payloadLen > 0) {
+        ByteBuf payload = message.buffer();
+        if (payload != null) {
+            buf.writeBytes(payload, payload.readerIndex(), payloadLen);
+            message.release();
+        } else if (payloadLen > 0) {
             buf.writeBytes(message.message());
         }
     }
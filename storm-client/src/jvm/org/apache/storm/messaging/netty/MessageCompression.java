@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.messaging.netty;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import org.apache.storm.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The codec used to compress message batches sent between workers, see {@link Config#STORM_MESSAGING_NETTY_COMPRESSION_CODEC}.
+ * The codec is negotiated per connection with {@link CompressionNegotiation}, so a client only compresses once the server confirmed
+ * that it can decode the codec.
+ */
+public enum MessageCompression {
+    NONE((byte) 0, null),
+    LZ4((byte) 1, new BatchCodec.Lz4Codec()),
+    ZSTD((byte) 2, new BatchCodec.ZstdCodec());
+
+    private static final Logger LOG = LoggerFactory.getLogger(MessageCompression.class);
+
+    private final byte id;
+    private final BatchCodec codec;
+
+    MessageCompression(byte id, BatchCodec codec) {
+        this.id = id;
+        this.codec = codec;
+    }
+
+    /**
+     * Pick the codec configured in {@link Config#STORM_MESSAGING_NETTY_COMPRESSION_CODEC}.
+     */
+    public static MessageCompression fromConf(Map<String, Object> topoConf) {
+        Object configured = topoConf.get(Config.STORM_MESSAGING_NETTY_COMPRESSION_CODEC);
+        if (configured == null) {
+            return NONE;
+        }
+        try {
+            return valueOf(configured.toString().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + Config.STORM_MESSAGING_NETTY_COMPRESSION_CODEC + ": " + configured, e);
+        }
+    }
+
+    /**
+     * Pick the codec a client requests from servers, which is the configured one unless it cannot be used on this host.
+     * @param configured the configured codec
+     * @param isAvailable checks whether a codec can be used on this host
+     * @return the codec to request, {@link #NONE} if the configured one is not available
+     */
+    static MessageCompression forClient(MessageCompression configured, Predicate<MessageCompression> isAvailable) {
+        if (isAvailable.test(configured)) {
+            return configured;
+        }
+        LOG.warn("{} compression is configured but cannot be used on this host, sending uncompressed batches", configured);
+        return NONE;
+    }
+
+    /**
+     * Look up a codec by its wire id.
+     * @return the codec, or null if the id is unknown
+     */
+    static MessageCompression fromId(byte id) {
+        for (MessageCompression codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    byte id() {
+        return id;
+    }
+
+    /**
+     * Check whether this codec can be used on this host, native codecs may fail to load.
+     */
+    boolean isAvailable() {
+        return codec == null || codec.isAvailable();
+    }
+
+    /**
+     * Get the codec that compresses batches.
+     * @return the codec, or null for {@link #NONE} whose batches are sent as they are
+     */
+    BatchCodec codec() {
+        return codec;
+    }
+}
@@ -14,6 +14,7 @@ package org.apache.storm.messaging.netty;
 
 import java.util.ArrayList;
 import java.util.List;
+import org.apache.storm.jfr.MessageDecodeEvent;
 import org.apache.storm.messaging.TaskMessage;
 import org.apache.storm.serialization.KryoValuesDeserializer;
 import org.apache.storm.shade.io.netty.buffer.ByteBuf;
@@ -26,9 +27,32 @@ public class MessageDecoder extends ByteToMessageDecoder {
 
     private static final Logger LOG = LoggerFactory.getLogger(MessageDecoder.class);
     private final KryoValuesDeserializer deser;
+    private final boolean zeroCopy;
+    private final boolean jfrEvents;
 
     public MessageDecoder(KryoValuesDeserializer deser) {
+        this(deser, false);
+    }
+
+    /**
+     * Create a decoder.
+     * @param deser deserializer for control payloads
+     * @param zeroCopy if true, task messages are handed out as retained slices of the network buffer instead of copied byte arrays
+     */
+    public MessageDecoder(KryoValuesDeserializer deser, boolean zeroCopy) {
+        this(deser, zeroCopy, false);
+    }
+
+    /**
+     * Create a decoder.
+     * @param deser deserializer for control payloads
+     * @param zeroCopy if true, task messages are handed out as retained slices of the network buffer instead of copied byte arrays
+     * @param jfrEvents if true, emit a JFR event for every decode call, see {@link org.apache.storm.jfr.JfrEvents}
+     */
+    public MessageDecoder(KryoValuesDeserializer deser, boolean zeroCopy, boolean jfrEvents) {
         this.deser = deser;
+        this.zeroCopy = zeroCopy;
+        this.jfrEvents = jfrEvents;
     }
 
     /*
@@ -38,9 +62,28 @@ public class MessageDecoder extends ByteToMessageDecoder {
      *  task (>=0) ... short(2)
      *  len ... int(4)
      *  payload ... byte[]     *
+     * See CompressionNegotiation and CompressedMessageBatch for the compression frames.
      */
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf buf, List<Object> out) throws Exception {
+        if (!jfrEvents) {
+            decodeFrames(ctx, buf, out);
+            return;
+        }
+        MessageDecodeEvent event = new MessageDecodeEvent();
+        event.begin();
+        int readerIndex = buf.readerIndex();
+        int outIndex = out.size();
+        decodeFrames(ctx, buf, out);
+        int messages = 0;
+        for (int i = outIndex; i < out.size(); i++) {
+            Object decoded = out.get(i);
+            messages += decoded instanceof List ? ((List<?>) decoded).size() : 1;
+        }
+        event.finish(buf.readerIndex() - readerIndex, messages);
+    }
+
+    private void decodeFrames(ChannelHandlerContext ctx, ByteBuf buf, List<Object> out) throws Exception {
         // Make sure that we have received at least a short 
         long available = buf.readableBytes();
         if (available < 2) {
@@ -127,7 +170,52 @@ public class MessageDecoder extends ByteToMessageDecoder {
                 return;
             }
 
-            // case 4: task Message
+            // case 4: CompressionNegotiation
+            if (code == CompressionNegotiation.IDENTIFIER) {
+                if (buf.readableBytes() < CompressionNegotiation.ENCODE_LENGTH - 2) {
+                    //need more data
+                    buf.resetReaderIndex();
+                    break;
+                }
+                MessageCompression codec = MessageCompression.fromId(buf.readByte());
+                if (!ret.isEmpty()) {
+                    out.add(ret);
+                }
+                out.add(new CompressionNegotiation(codec == null ? MessageCompression.NONE : codec));
+                return;
+            }
+
+            // case 5: compressed batch of task messages
+            if (code == CompressedMessageBatch.IDENTIFIER) {
+                if (buf.readableBytes() < CompressedMessageBatch.HEADER_LENGTH - 2) {
+                    //need more data
+                    buf.resetReaderIndex();
+                    break;
+                }
+                byte codecId = buf.readByte();
+                int uncompressedLength = buf.readInt();
+                int compressedLength = buf.readInt();
+                if (buf.readableBytes() < compressedLength) {
+                    // need more data
+                    buf.resetReaderIndex();
+                    break;
+                }
+                MessageCompression compression = MessageCompression.fromId(codecId);
+                BatchCodec codec = compression == null ? null : compression.codec();
+                if (codec == null || !codec.isAvailable()) {
+                    throw new IllegalStateException("Received a batch compressed with unsupported codec " + codecId);
+                }
+                ByteBuf batch = codec.decompress(buf, compressedLength, uncompressedLength, ctx.alloc());
+                try {
+                    readBatch(batch, ret);
+                } finally {
+                    batch.release();
+                }
+                available = buf.readableBytes();
+                continue;
+            }
+
+            // case 6: task Message
 
             // Make sure that we have received at least an integer (length)
             if (available < 4) {
@@ -142,7 +230,7 @@ public class MessageDecoder extends ByteToMessageDecoder {
             available -= 4;
 
             if (length <= 0) {
-                ret.add(new TaskMessage(code, null));
+                ret.add(new TaskMessage(code, (byte[]) null));
                 break;
             }
 
@@ -154,13 +242,9 @@ public class MessageDecoder extends ByteToMessageDecoder {
             }
             available -= length;
 
-            // There's enough bytes in the buffer. Read it.
-            byte[] bytes = new byte[length];
-            buf.readBytes(bytes);
-
             // Successfully decoded a frame.
             // Return a TaskMessage object
-            ret.add(new TaskMessage(code, bytes));
+            ret.add(readTaskMessage(buf, code, length));
         }
 
         if (!ret.isEmpty()) {
@@ -168,6 +252,34 @@ public class MessageDecoder extends ByteToMessageDecoder {
         }
     }
 
+    /**
+     * Read the task messages of a decompressed batch, which holds complete frames only.
+     */
+    private void readBatch(ByteBuf batch, List<Object> ret) {
+        while (batch.isReadable()) {
+            short code = batch.readShort();
+            if (ControlMessage.mkMessage(code) == ControlMessage.EOB_MESSAGE) {
+                continue;
+            }
+            if (code < 0) {
+                throw new IllegalStateException("Unexpected code " + code + " in a compressed batch");
+            }
+            int length = batch.readInt();
+            ret.add(length <= 0 ? new TaskMessage(code, (byte[]) null) : readTaskMessage(batch, code, length));
+        }
+    }
+
+    private TaskMessage readTaskMessage(ByteBuf buf, short task, int length) {
+        if (zeroCopy) {
+            // The slice keeps the underlying buffer alive until the message is released after deserialization.
+            return new TaskMessage(task, buf.readRetainedSlice(length));
+        }
+        // There's enough bytes in the buffer. Read it.
+        byte[] bytes = new byte[length];
+        buf.readBytes(bytes);
+        return new TaskMessage(task, bytes);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         LOG.error("Exception thrown while decoding messages in channel {}; exception: ", ctx.channel(), cause);
@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.messaging.netty;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import org.apache.storm.Config;
+import org.apache.storm.shade.io.netty.bootstrap.Bootstrap;
+import org.apache.storm.shade.io.netty.bootstrap.ServerBootstrap;
+import org.apache.storm.shade.io.netty.channel.Channel;
+import org.apache.storm.shade.io.netty.channel.EventLoopGroup;
+import org.apache.storm.shade.io.netty.channel.ServerChannel;
+import org.apache.storm.shade.io.netty.channel.epoll.Epoll;
+import org.apache.storm.shade.io.netty.channel.epoll.EpollChannelOption;
+import org.apache.storm.shade.io.netty.channel.epoll.EpollEventLoopGroup;
+import org.apache.storm.shade.io.netty.channel.epoll.EpollMode;
+import org.apache.storm.shade.io.netty.channel.epoll.EpollServerSocketChannel;
+import org.apache.storm.shade.io.netty.channel.epoll.EpollSocketChannel;
+import org.apache.storm.shade.io.netty.channel.nio.NioEventLoopGroup;
+import org.apache.storm.shade.io.netty.channel.socket.nio.NioServerSocketChannel;
+import org.apache.storm.shade.io.netty.channel.socket.nio.NioSocketChannel;
+import org.apache.storm.utils.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The netty IO transport used for worker to worker messaging, see {@link Config#STORM_MESSAGING_NETTY_IO_TRANSPORT}.
+ */
+public enum NettyTransport {
+    NIO {
+        @Override
+        EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new NioEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        Class<? extends Channel> socketChannelClass() {
+            return NioSocketChannel.class;
+        }
+
+        @Override
+        Class<? extends ServerChannel> serverSocketChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+    },
+    EPOLL {
+        @Override
+        EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new EpollEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        Class<? extends Channel> socketChannelClass() {
+            return EpollSocketChannel.class;
+        }
+
+        @Override
+        Class<? extends ServerChannel> serverSocketChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        void configure(Bootstrap bootstrap, Map<String, Object> topoConf) {
+            bootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+                .option(EpollChannelOption.TCP_QUICKACK, true);
+            int busyPollMicros = busyPollMicros(topoConf);
+            if (busyPollMicros > 0) {
+                bootstrap.option(EpollChannelOption.SO_BUSY_POLL, busyPollMicros);
+            }
+        }
+
+        @Override
+        void configureChildren(ServerBootstrap bootstrap, Map<String, Object> topoConf) {
+            bootstrap.childOption(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+                .childOption(EpollChannelOption.TCP_QUICKACK, true);
+            int busyPollMicros = busyPollMicros(topoConf);
+            if (busyPollMicros > 0) {
+                bootstrap.childOption(EpollChannelOption.SO_BUSY_POLL, busyPollMicros);
+            }
+        }
+    };
+
+    private static final Logger LOG = LoggerFactory.getLogger(NettyTransport.class);
+
+    /**
+     * Pick the transport configured in {@link Config#STORM_MESSAGING_NETTY_IO_TRANSPORT}. "auto" and "epoll" use the native epoll
+     * transport when it can be loaded on this host and fall back to NIO otherwise.
+     */
+    public static NettyTransport fromConf(Map<String, Object> topoConf) {
+        Object configured = topoConf.get(Config.STORM_MESSAGING_NETTY_IO_TRANSPORT);
+        String name = configured == null ? "nio" : configured.toString().toLowerCase(Locale.ROOT);
+        switch (name) {
+            case "nio":
+                return NIO;
+            case "auto":
+            case "epoll":
+                if (Epoll.isAvailable()) {
+                    return EPOLL;
+                }
+                if ("epoll".equals(name)) {
+                    LOG.warn("Native epoll transport requested but not available, falling back to NIO", Epoll.unavailabilityCause());
+                }
+                return NIO;
+            default:
+                throw new IllegalArgumentException("Unknown " + Config.STORM_MESSAGING_NETTY_IO_TRANSPORT + ": " + configured);
+        }
+    }
+
+    private static int busyPollMicros(Map<String, Object> topoConf) {
+        return ObjectReader.getInt(topoConf.get(Config.STORM_MESSAGING_NETTY_EPOLL_BUSY_POLL_MICROS), 0);
+    }
+
+    abstract EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory);
+
+    abstract Class<? extends Channel> socketChannelClass();
+
+    abstract Class<? extends ServerChannel> serverSocketChannelClass();
+
+    /**
+     * Apply transport specific options to a client bootstrap.
+     */
+    void configure(Bootstrap bootstrap, Map<String, Object> topoConf) {
+    }
+
+    /**
+     * Apply transport specific options to the accepted channels of a server bootstrap.
+     */
+    void configureChildren(ServerBootstrap bootstrap, Map<String, Object> topoConf) {
+    }
+}
@@ -40,8 +40,6 @@ import org.apache.storm.shade.io.netty.channel.ChannelOption;
 import org.apache.storm.shade.io.netty.channel.EventLoopGroup;
 import org.apache.storm.shade.io.netty.channel.group.ChannelGroup;
 import org.apache.storm.shade.io.netty.channel.group.DefaultChannelGroup;
-import org.apache.storm.shade.io.netty.channel.nio.NioEventLoopGroup;
-import org.apache.storm.shade.io.netty.channel.socket.nio.NioServerSocketChannel;
 import org.apache.storm.shade.io.netty.util.concurrent.GlobalEventExecutor;
 import org.apache.storm.utils.ObjectReader;
 import org.slf4j.Logger;
@@ -70,12 +68,14 @@ class Server extends ConnectionWithStatus implements IStatefulObject, ISaslServe
     /**
      * Starts Netty at the given port.
      * @param topoConf The topology config
+     * @param transport The netty IO transport to accept connections with
      * @param port The port to start Netty at
      * @param cb The callback to deliver incoming messages to
      * @param newConnectionResponse The response to send to clients when they connect. Can be null. If authentication
      *                              is required, the message will be sent after authentication is complete.
      */
-    Server(Map<String, Object> topoConf, int port, IConnectionCallback cb, Supplier<Object> newConnectionResponse) {
+    Server(Map<String, Object> topoConf, NettyTransport transport, int port, IConnectionCallback cb,
+           Supplier<Object> newConnectionResponse) {
         this.topoConf = topoConf;
         this.isNettyAuthRequired = (Boolean) topoConf.get(Config.STORM_MESSAGING_NETTY_AUTHENTICATION);
         this.port = port;
@@ -90,17 +90,18 @@ class Server extends ConnectionWithStatus implements IStatefulObject, ISaslServe
         ThreadFactory bossFactory = new NettyRenameThreadFactory(netty_name() + "-boss");
         ThreadFactory workerFactory = new NettyRenameThreadFactory(netty_name() + "-worker");
 
-        bossEventLoopGroup = new NioEventLoopGroup(1, bossFactory);
+        bossEventLoopGroup = transport.newEventLoopGroup(1, bossFactory);
         // 0 means DEFAULT_EVENT_LOOP_THREADS
         // https://github.com/netty/netty/blob/netty-4.1.24.Final/transport/src/main/java/io/netty/channel/MultithreadEventLoopGroup.java#L40
-        this.workerEventLoopGroup = new NioEventLoopGroup(maxWorkers > 0 ? maxWorkers : 0, workerFactory);
+        this.workerEventLoopGroup = transport.newEventLoopGroup(maxWorkers > 0 ? maxWorkers : 0, workerFactory);
 
-        LOG.info("Create Netty Server " + netty_name() + ", buffer_size: " + bufferSize + ", maxWorkers: " + maxWorkers);
+        LOG.info("Create Netty Server " + netty_name() + ", buffer_size: " + bufferSize + ", maxWorkers: " + maxWorkers
+                 + ", transport: " + transport);
 
         int backlog = ObjectReader.getInt(topoConf.get(Config.STORM_MESSAGING_NETTY_SOCKET_BACKLOG), 500);
         bootstrap = new ServerBootstrap()
             .group(bossEventLoopGroup, workerEventLoopGroup)
-            .channel(NioServerSocketChannel.class)
+            .channel(transport.serverSocketChannelClass())
             .option(ChannelOption.SO_REUSEADDR, true)
             .option(ChannelOption.SO_BACKLOG, backlog)
             .childOption(ChannelOption.TCP_NODELAY, true)
@@ -108,6 +109,7 @@ class Server extends ConnectionWithStatus implements IStatefulObject, ISaslServe
             .childOption(ChannelOption.SO_KEEPALIVE, true)
             .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
             .childHandler(new StormServerPipelineFactory(topoConf, this));
+        transport.configureChildren(bootstrap, topoConf);
 
         // Bind and start to accept incoming connections.
         try {
@@ -142,7 +144,13 @@ class Server extends ConnectionWithStatus implements IStatefulObject, ISaslServe
      * enqueue a received message.
      */
     protected void enqueue(List<TaskMessage> msgs, String from) throws InterruptedException {
-        if (null == msgs || msgs.isEmpty() || closing) {
+        if (null == msgs || msgs.isEmpty()) {
+            return;
+        }
+        if (closing) {
+            for (TaskMessage msg : msgs) {
+                msg.release();
+            }
             return;
         }
         addReceiveCount(from, msgs.size());
@@ -264,6 +272,13 @@ class Server extends ConnectionWithStatus implements IStatefulObject, ISaslServe
 
     @Override
     public void received(Object message, String remote, Channel channel) throws InterruptedException {
+        if (message instanceof CompressionNegotiation) {
+            CompressionNegotiation response = ((CompressionNegotiation) message).accept();
+            LOG.info("Using {} batch compression for connection from {}", response.codec(), remote);
+            channel.writeAndFlush(response, channel.voidPromise());
+            return;
+        }
+
         List<TaskMessage> msgs;
 
         try {
@@ -69,6 +69,8 @@ public class StormClientHandler extends ChannelInboundHandlerAdapter {
                 }
             }
             LOG.debug("Received BackPressure status update : {}", status);
+        } else if (message instanceof CompressionNegotiation) {
+            client.setCompression(((CompressionNegotiation) message).codec());
         } else if (message instanceof List) {
             //This should be the load metrics. 
             //There will usually only be one message, but if there are multiple we only process the latest one.
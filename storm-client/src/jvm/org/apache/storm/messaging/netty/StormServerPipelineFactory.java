@@ -15,11 +15,13 @@ package org.apache.storm.messaging.netty;
 
 import java.util.Map;
 import org.apache.storm.Config;
+import org.apache.storm.jfr.JfrEvents;
 import org.apache.storm.serialization.KryoValuesDeserializer;
 import org.apache.storm.serialization.KryoValuesSerializer;
 import org.apache.storm.shade.io.netty.channel.Channel;
 import org.apache.storm.shade.io.netty.channel.ChannelInitializer;
 import org.apache.storm.shade.io.netty.channel.ChannelPipeline;
+import org.apache.storm.utils.ObjectReader;
 
 class StormServerPipelineFactory extends ChannelInitializer<Channel> {
 
@@ -37,7 +39,9 @@ class StormServerPipelineFactory extends ChannelInitializer<Channel> {
         ChannelPipeline pipeline = ch.pipeline();
 
         // Decoder
-        pipeline.addLast("decoder", new MessageDecoder(new KryoValuesDeserializer(topoConf)));
+        boolean zeroCopy = ObjectReader.getBoolean(topoConf.get(Config.TOPOLOGY_TRANSFER_ZERO_COPY), false);
+        pipeline.addLast("decoder", new MessageDecoder(new KryoValuesDeserializer(topoConf), zeroCopy,
+            JfrEvents.isEnabled(topoConf)));
         // Encoders
         pipeline.addLast("netty-serializable-encoder", NettySerializableMessageEncoder.INSTANCE);
         pipeline.addLast("backpressure-encoder", new BackPressureStatusEncoder(new KryoValuesSerializer(topoConf)));
@@ -14,14 +14,16 @@ package org.apache.storm.metric.internal;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.TimerTask;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Keeps track of approximate counts for the last 10 mins, 3 hours, 1 day, and all time.
+ *
+ * <p>Updates only touch a striped {@link LongAdder}, so concurrent writers do not contend on a single cache line. The buckets are
+ * rotated lazily by whoever reads the counts (the executor heartbeat) instead of by a timer per stat.
  */
 public class CountStat {
-    private final AtomicLong currentBucket;
+    private final LongAdder currentBucket;
     //10 min values
     private final int tmSize;
     private final long[] tmBuckets;
@@ -34,10 +36,11 @@ public class CountStat {
     private final int odSize;
     private final long[] odBuckets;
     private final long[] odTime;
-    private final TimerTask task;
     // All internal state except for the count of the current bucket are
     // protected using a lock on this counter
     private long bucketStart;
+    //the part of currentBucket that has already been rotated out
+    private long consumed;
     //exact variable time, that is added to the current bucket
     private long exactExtra;
     //all time
@@ -78,13 +81,8 @@ public class CountStat {
         exactExtra = 0;
 
         bucketStart = startTime >= 0 ? startTime : System.currentTimeMillis();
-        currentBucket = new AtomicLong(0);
-        if (startTime < 0) {
-            task = new Fresher();
-            MetricStatTimer.timer.scheduleAtFixedRate(task, tmSize, tmSize);
-        } else {
-            task = null;
-        }
+        currentBucket = new LongAdder();
+        consumed = 0;
     }
 
     /**
@@ -93,11 +91,18 @@ public class CountStat {
      * @param count number to count
      */
     public void incBy(long count) {
-        currentBucket.addAndGet(count);
+        currentBucket.add(count);
+    }
+
+    private long drainCurrent() {
+        long total = currentBucket.sum();
+        long value = total - consumed;
+        consumed = total;
+        return value;
     }
 
     synchronized void rotateSched(long now) {
-        long value = currentBucket.getAndSet(0);
+        long value = drainCurrent();
         long timeSpent = now - bucketStart;
         exactExtra += value;
         bucketStart = now;
@@ -140,8 +145,11 @@ public class CountStat {
     }
 
     synchronized Map<String, Long> getTimeCounts(long now) {
+        if (now - bucketStart >= tmSize) {
+            rotateSched(now);
+        }
         Map<String, Long> ret = new HashMap<>();
-        long value = currentBucket.get();
+        long value = currentBucket.sum() - consumed;
         long timeSpent = now - bucketStart;
         ret.put("600", readApproximateTime(value, timeSpent, tmTime, tmBuckets, 600 * 1000));
         ret.put("10800", readApproximateTime(value, timeSpent, thTime, thBuckets, 10800 * 1000));
@@ -167,15 +175,6 @@ public class CountStat {
     }
 
     public void close() {
-        if (task != null) {
-            task.cancel();
-        }
-    }
-
-    private class Fresher extends TimerTask {
-        @Override
-        public void run() {
-            rotateSched(System.currentTimeMillis());
-        }
+        //Nothing to release, rotation is driven by the readers.
     }
 }
@@ -20,18 +20,20 @@ package org.apache.storm.metric.internal;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.TimerTask;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.storm.utils.Utils;
 
 /**
  * Keeps track of approximate latency for the last 10 mins, 3 hours, 1 day, and all time.
+ *
+ * <p>Like {@link CountStat} the current buckets are striped {@link LongAdder}s and rotation happens lazily on read.
  */
 public class LatencyStat {
-    //The current lat and count buckets are protected by a different lock
-    // from the other buckets.  This is to reduce the lock contention
-    // When doing complex calculations.  Never grab the instance object lock
-    // while holding currentLock to avoid deadlocks
-    private final Object currentLock = new byte[0];
+    //The current lat and count buckets are not protected by any lock, recording only
+    // adds to them.  They are never reset, instead the part that was already rotated
+    // out is remembered in consumedLat and consumedCount.
+    private final LongAdder currentLatBucket = new LongAdder();
+    private final LongAdder currentCountBucket = new LongAdder();
     //10 min values
     private final int tmSize;
     private final long[] tmLatBuckets;
@@ -47,12 +49,11 @@ public class LatencyStat {
     private final long[] odLatBuckets;
     private final long[] odCountBuckets;
     private final long[] odTime;
-    private final TimerTask task;
-    private long currentLatBucket;
-    private long currentCountBucket;
     // All internal state except for the current buckets are
     // protected using the Object Lock
     private long bucketStart;
+    private long consumedLat;
+    private long consumedCount;
     //exact variable time, that is added to the current bucket
     private long exactExtraLat;
     private long exactExtraCount;
@@ -100,14 +101,8 @@ public class LatencyStat {
         exactExtraCount = 0;
 
         bucketStart = startTime >= 0 ? startTime : System.currentTimeMillis();
-        currentLatBucket = 0;
-        currentCountBucket = 0;
-        if (startTime < 0) {
-            task = new Fresher();
-            MetricStatTimer.timer.scheduleAtFixedRate(task, tmSize, tmSize);
-        } else {
-            task = null;
-        }
+        consumedLat = 0;
+        consumedCount = 0;
     }
 
     /**
@@ -116,23 +111,18 @@ public class LatencyStat {
      * @param latency what we are recording
      */
     public void record(long latency) {
-        synchronized (currentLock) {
-            currentLatBucket += latency;
-            currentCountBucket++;
-        }
+        //count goes last so a concurrent reader is more likely to see a latency for every count
+        currentLatBucket.add(latency);
+        currentCountBucket.increment();
     }
 
     // This is still used by a unit test.  Removing this method caused a difference
     // in reported values for the test that needs to be debugged before removal.
     synchronized Object getValueAndReset(long now) {
-        long lat;
-        long count;
-        synchronized (currentLock) {
-            lat = currentLatBucket;
-            count = currentCountBucket;
-            currentLatBucket = 0;
-            currentCountBucket = 0;
-        }
+        long count = currentCountBucket.sum() - consumedCount;
+        long lat = currentLatBucket.sum() - consumedLat;
+        consumedCount += count;
+        consumedLat += lat;
 
         @SuppressWarnings("checkstyle:VariableDeclarationUsageDistance")
         long timeSpent = now - bucketStart;
@@ -148,14 +138,10 @@ public class LatencyStat {
     }
 
     synchronized void rotateSched(long now) {
-        long lat;
-        long count;
-        synchronized (currentLock) {
-            lat = currentLatBucket;
-            count = currentCountBucket;
-            currentLatBucket = 0;
-            currentCountBucket = 0;
-        }
+        long count = currentCountBucket.sum() - consumedCount;
+        long lat = currentLatBucket.sum() - consumedLat;
+        consumedCount += count;
+        consumedLat += lat;
 
         exactExtraLat += lat;
         exactExtraCount += count;
@@ -208,13 +194,12 @@ public class LatencyStat {
     }
 
     synchronized Map<String, Double> getTimeLatAvg(long now) {
-        Map<String, Double> ret = new HashMap<>();
-        long lat;
-        long count;
-        synchronized (currentLock) {
-            lat = currentLatBucket;
-            count = currentCountBucket;
+        if (now - bucketStart >= tmSize) {
+            rotateSched(now);
         }
+        Map<String, Double> ret = new HashMap<>();
+        long count = currentCountBucket.sum() - consumedCount;
+        long lat = currentLatBucket.sum() - consumedLat;
         long timeSpent = now - bucketStart;
         ret.put("600", readApproximateLatAvg(lat, count, timeSpent, tmTime, tmLatBuckets, tmCountBuckets, 600 * 1000));
         ret.put("10800", readApproximateLatAvg(lat, count, timeSpent, thTime, thLatBuckets, thCountBuckets, 10800 * 1000));
@@ -240,15 +225,6 @@ public class LatencyStat {
     }
 
     public void close() {
-        if (task != null) {
-            task.cancel();
-        }
-    }
-
-    private class Fresher extends TimerTask {
-        @Override
-        public void run() {
-            rotateSched(System.currentTimeMillis());
-        }
+        //Nothing to release, rotation is driven by the readers.
     }
 }
@@ -35,7 +35,14 @@ public class MultiCountStat<T> {
         this.numBuckets = numBuckets;
     }
 
-    CountStat get(T key) {
+    /**
+     * Get the stat for a key, creating it if needed.  Callers on a hot path can resolve the stat once and keep it, instead of
+     * looking the key up for every update.
+     *
+     * @param key the key to look up
+     * @return the stat for that key
+     */
+    public CountStat get(T key) {
         CountStat c = counts.get(key);
         if (c == null) {
             synchronized (this) {
@@ -33,7 +33,14 @@ public class MultiLatencyStat<T> {
         this.numBuckets = numBuckets;
     }
 
-    LatencyStat get(T key) {
+    /**
+     * Get the stat for a key, creating it if needed.  Callers on a hot path can resolve the stat once and keep it, instead of
+     * looking the key up for every update.
+     *
+     * @param key the key to look up
+     * @return the stat for that key
+     */
+    public LatencyStat get(T key) {
         LatencyStat c = lat.get(key);
         if (c == null) {
             synchronized (this) {
@@ -13,11 +13,12 @@
 package org.apache.storm.metric.internal;
 
 import java.io.Closeable;
-import java.util.TimerTask;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This class is a utility to track the rate of something.
+ *
+ * <p>Arrivals are added to a striped {@link LongAdder}. The buckets are rotated when the rate is reported, not by a timer.
  */
 public class RateTracker implements Closeable {
     private final int bucketSizeMillis;
@@ -26,10 +27,10 @@ public class RateTracker implements Closeable {
     private final long[] bucketTime;
     private final long[] oldBuckets;
 
-    private final AtomicLong bucketStart;
-    private final AtomicLong currentBucket;
-
-    private final TimerTask task;
+    private final LongAdder currentBucket;
+    private long bucketStart;
+    //the part of currentBucket that has already been rotated out
+    private long consumed;
 
     /**
      * Constructor.
@@ -60,14 +61,9 @@ public class RateTracker implements Closeable {
         bucketTime = new long[numBuckets - 1];
         oldBuckets = new long[numBuckets - 1];
 
-        bucketStart = new AtomicLong(startTime >= 0 ? startTime : System.currentTimeMillis());
-        currentBucket = new AtomicLong(0);
-        if (startTime < 0) {
-            task = new Fresher();
-            MetricStatTimer.timer.scheduleAtFixedRate(task, bucketSizeMillis, bucketSizeMillis);
-        } else {
-            task = null;
-        }
+        bucketStart = startTime >= 0 ? startTime : System.currentTimeMillis();
+        currentBucket = new LongAdder();
+        consumed = 0;
     }
 
     /**
@@ -76,7 +72,7 @@ public class RateTracker implements Closeable {
      * @param count number of arrivals
      */
     public void notify(long count) {
-        currentBucket.addAndGet(count);
+        currentBucket.add(count);
     }
 
     /**
@@ -88,8 +84,11 @@ public class RateTracker implements Closeable {
     }
 
     synchronized double reportRate(long currentTime) {
-        long duration = Math.max(1L, currentTime - bucketStart.get());
-        long events = currentBucket.get();
+        if (currentTime - bucketStart >= bucketSizeMillis) {
+            rotateBuckets(currentTime);
+        }
+        long duration = Math.max(1L, currentTime - bucketStart);
+        long events = currentBucket.sum() - consumed;
         for (int i = 0; i < oldBuckets.length; i++) {
             events += oldBuckets[i];
             duration += bucketTime[i];
@@ -100,9 +99,7 @@ public class RateTracker implements Closeable {
 
     @Override
     public void close() {
-        if (task != null) {
-            task.cancel();
-        }
+        //Nothing to release, rotation is driven by reportRate.
     }
 
     /**
@@ -110,8 +107,8 @@ public class RateTracker implements Closeable {
      *
      * @param numToEclipse the number of rotations to perform.
      */
-    final void forceRotate(int numToEclipse, long interval) {
-        long time = bucketStart.get();
+    final synchronized void forceRotate(int numToEclipse, long interval) {
+        long time = bucketStart;
         for (int i = 0; i < numToEclipse; i++) {
             time += interval;
             rotateBuckets(time);
@@ -119,8 +116,11 @@ public class RateTracker implements Closeable {
     }
 
     private synchronized void rotateBuckets(long time) {
-        long timeSpent = time - bucketStart.getAndSet(time);
-        long currentVal = currentBucket.getAndSet(0);
+        long timeSpent = time - bucketStart;
+        bucketStart = time;
+        long total = currentBucket.sum();
+        long currentVal = total - consumed;
+        consumed = total;
         for (int i = 0; i < oldBuckets.length; i++) {
             long tmpTime = bucketTime[i];
             bucketTime[i] = timeSpent;
@@ -131,11 +131,4 @@ public class RateTracker implements Closeable {
             currentVal = cnt;
         }
     }
-
-    private class Fresher extends TimerTask {
-        @Override
-        public void run() {
-            rotateBuckets(System.currentTimeMillis());
-        }
-    }
 }
@@ -0,0 +1,164 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.metrics2;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+import org.apache.storm.utils.Time;
+
+/**
+ * A {@link Reservoir} backed by an HdrHistogram {@link Recorder}. Unlike the sampling reservoirs it keeps every recorded value, at the
+ * configured precision, so the tail percentiles are not lost, and recording is wait free.
+ *
+ * <p>A snapshot covers the values recorded over roughly the last window: every snapshot moves the values recorded since the previous
+ * one into a bucket, and the buckets older than the window are dropped. Negative values are recorded as 0.
+ */
+public class HdrHistogramReservoir implements Reservoir {
+    public static final int DEFAULT_SIGNIFICANT_DIGITS = 2;
+    public static final long DEFAULT_WINDOW_MS = TimeUnit.MINUTES.toMillis(1);
+    private final Recorder recorder;
+    private final int significantDigits;
+    private final long windowMs;
+    private final Deque<Bucket> buckets = new ArrayDeque<>();
+    private Histogram recycled;
+
+    public HdrHistogramReservoir() {
+        this(DEFAULT_SIGNIFICANT_DIGITS, DEFAULT_WINDOW_MS);
+    }
+
+    /**
+     * Creates a reservoir whose range grows with the recorded values.
+     *
+     * @param significantDigits the number of significant decimal digits the values are kept with, between 0 and 5
+     * @param windowMs          how long the values are included in the snapshots
+     */
+    public HdrHistogramReservoir(int significantDigits, long windowMs) {
+        this.recorder = new Recorder(significantDigits);
+        this.significantDigits = significantDigits;
+        this.windowMs = windowMs;
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(long value) {
+        recorder.recordValue(Math.max(0, value));
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        long now = Time.currentTimeMillis();
+        Histogram interval = recorder.getIntervalHistogram(recycled);
+        recycled = null;
+        if (interval.getTotalCount() > 0) {
+            buckets.addLast(new Bucket(now, interval));
+        } else {
+            recycled = interval;
+        }
+        while (!buckets.isEmpty() && buckets.peekFirst().timestamp < now - windowMs) {
+            recycled = buckets.pollFirst().histogram;
+        }
+        Histogram window = new Histogram(significantDigits);
+        for (Bucket bucket : buckets) {
+            window.add(bucket.histogram);
+        }
+        return new HdrSnapshot(window);
+    }
+
+    private static final class Bucket {
+        private final long timestamp;
+        private final Histogram histogram;
+
+        Bucket(long timestamp, Histogram histogram) {
+            this.timestamp = timestamp;
+            this.histogram = histogram;
+        }
+    }
+
+    private static final class HdrSnapshot extends Snapshot {
+        private final Histogram histogram;
+
+        HdrSnapshot(Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+                throw new IllegalArgumentException(quantile + " is not in [0..1]");
+            }
+            return histogram.getValueAtPercentile(quantile * 100.0);
+        }
+
+        /**
+         * Returns one value per distinct recorded value, the histogram does not keep the individual values.
+         */
+        @Override
+        public long[] getValues() {
+            List<Long> values = new ArrayList<>();
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                values.add(histogram.highestEquivalentValue(value.getValueIteratedTo()));
+            }
+            return values.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, histogram.getTotalCount());
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getMaxValue();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getMinValue();
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getStdDeviation();
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricFilter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.Reservoir;
 import com.codahale.metrics.Timer;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
@@ -180,6 +181,14 @@ public class StormMetricRegistry implements MetricRegistryProvider {
         return histogram;
     }
 
+    public Histogram histogram(String name, String topologyId, String componentId, Integer taskId, Integer workerPort, String streamId,
+                               Reservoir reservoir) {
+        MetricNames metricNames = workerMetricName(name, topologyId, componentId, streamId, taskId, workerPort);
+        Histogram histogram = registerHistogram(metricNames, new Histogram(reservoir), taskId, componentId, streamId);
+        saveMetricTaskIdMapping(taskId, metricNames, histogram, taskIdHistograms);
+        return histogram;
+    }
+
     public void metricSet(String prefix, MetricSet set, TopologyContext context) {
         // Instead of registering the metrics as a set, register them individually.
         // This allows fetching the individual metrics by type (getTaskGauges())
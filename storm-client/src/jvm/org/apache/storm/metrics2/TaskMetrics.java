@@ -13,11 +13,14 @@
 package org.apache.storm.metrics2;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import org.apache.storm.Config;
 import org.apache.storm.task.WorkerTopologyContext;
 import org.apache.storm.utils.ConfigUtils;
+import org.apache.storm.utils.ObjectReader;
 import org.apache.storm.utils.Utils;
 
 public class TaskMetrics {
@@ -30,9 +33,15 @@ public class TaskMetrics {
     private static final String METRIC_NAME_COMPLETE_LATENCY = "__complete-latency";
     private static final String METRIC_NAME_EXECUTE_LATENCY = "__execute-latency";
     private static final String METRIC_NAME_CAPACITY = "__capacity";
+    private static final String HISTOGRAM_SUFFIX = "-histogram";
 
     private final ConcurrentMap<String, RateCounter> rateCounters = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, RollingAverageGauge> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    // per stream metrics, so the metric names are only built the first time a stream is seen. Like the executor stats they are only
+    // updated for sampled tuples
+    private final ConcurrentMap<String, StreamMetrics> outputStreams = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, StreamMetrics>> inputStreams = new ConcurrentHashMap<>();
 
     private final String topologyId;
     private final String componentId;
@@ -40,6 +49,7 @@ public class TaskMetrics {
     private final Integer workerPort;
     private final StormMetricRegistry metricRegistry;
     private final int samplingRate;
+    private final boolean latencyHistograms;
 
 
     public TaskMetrics(WorkerTopologyContext context, String componentId, Integer taskid,
@@ -50,6 +60,7 @@ public class TaskMetrics {
         this.taskId = taskid;
         this.workerPort = context.getThisWorkerPort();
         this.samplingRate = ConfigUtils.samplingRate(topoConf);
+        this.latencyHistograms = ObjectReader.getBoolean(topoConf.get(Config.TOPOLOGY_STATS_LATENCY_HISTOGRAMS), false);
     }
 
     public void setCapacity(double capacity) {
@@ -60,63 +71,135 @@ public class TaskMetrics {
     }
 
     public void spoutAckedTuple(String streamId, long latencyMs) {
-        String metricName = METRIC_NAME_ACKED + "-" + streamId;
-        RateCounter rc = this.getRateCounter(metricName, streamId);
+        StreamMetrics metrics = getOutputStreamMetrics(streamId);
+        RateCounter rc = metrics.acked;
+        if (rc == null) {
+            rc = this.getRateCounter(METRIC_NAME_ACKED + "-" + metrics.key, streamId);
+            metrics.acked = rc;
+        }
         rc.inc(this.samplingRate);
 
-        metricName = METRIC_NAME_COMPLETE_LATENCY + "-" + streamId;
-        RollingAverageGauge gauge = this.getRollingAverageGauge(metricName, streamId);
+        RollingAverageGauge gauge = metrics.latency;
+        if (gauge == null) {
+            gauge = this.getRollingAverageGauge(METRIC_NAME_COMPLETE_LATENCY + "-" + metrics.key, streamId);
+            metrics.latency = gauge;
+        }
         gauge.addValue(latencyMs);
+        if (latencyHistograms) {
+            Histogram histogram = metrics.latencyHistogram;
+            if (histogram == null) {
+                histogram = this.getHistogram(METRIC_NAME_COMPLETE_LATENCY + HISTOGRAM_SUFFIX + "-" + metrics.key, streamId);
+                metrics.latencyHistogram = histogram;
+            }
+            histogram.update(latencyMs);
+        }
     }
 
     public void boltAckedTuple(String sourceComponentId, String sourceStreamId, long latencyMs) {
-        String key = sourceComponentId + ":" + sourceStreamId;
-        String metricName = METRIC_NAME_ACKED + "-" + key;
-        RateCounter rc = this.getRateCounter(metricName, sourceStreamId);
+        StreamMetrics metrics = getInputStreamMetrics(sourceComponentId, sourceStreamId);
+        RateCounter rc = metrics.acked;
+        if (rc == null) {
+            rc = this.getRateCounter(METRIC_NAME_ACKED + "-" + metrics.key, sourceStreamId);
+            metrics.acked = rc;
+        }
         rc.inc(this.samplingRate);
 
-        metricName = METRIC_NAME_PROCESS_LATENCY + "-" + key;
-        RollingAverageGauge gauge = this.getRollingAverageGauge(metricName, sourceStreamId);
+        RollingAverageGauge gauge = metrics.latency;
+        if (gauge == null) {
+            gauge = this.getRollingAverageGauge(METRIC_NAME_PROCESS_LATENCY + "-" + metrics.key, sourceStreamId);
+            metrics.latency = gauge;
+        }
         gauge.addValue(latencyMs);
+        if (latencyHistograms) {
+            Histogram histogram = metrics.latencyHistogram;
+            if (histogram == null) {
+                histogram = this.getHistogram(METRIC_NAME_PROCESS_LATENCY + HISTOGRAM_SUFFIX + "-" + metrics.key, sourceStreamId);
+                metrics.latencyHistogram = histogram;
+            }
+            histogram.update(latencyMs);
+        }
     }
 
     public void spoutFailedTuple(String streamId) {
-        String key = streamId;
-        String metricName = METRIC_NAME_FAILED + "-" + key;
-        RateCounter rc = this.getRateCounter(metricName, streamId);
-        rc.inc(this.samplingRate);
+        failedTuple(getOutputStreamMetrics(streamId));
     }
 
     public void boltFailedTuple(String sourceComponentId, String sourceStreamId) {
-        String key = sourceComponentId + ":" + sourceStreamId;
-        String metricName = METRIC_NAME_FAILED + "-" + key;
-        RateCounter rc = this.getRateCounter(metricName, sourceStreamId);
+        failedTuple(getInputStreamMetrics(sourceComponentId, sourceStreamId));
+    }
+
+    private void failedTuple(StreamMetrics metrics) {
+        RateCounter rc = metrics.failed;
+        if (rc == null) {
+            rc = this.getRateCounter(METRIC_NAME_FAILED + "-" + metrics.key, metrics.streamId);
+            metrics.failed = rc;
+        }
         rc.inc(this.samplingRate);
     }
 
     public void emittedTuple(String streamId) {
-        String key = streamId;
-        String metricName = METRIC_NAME_EMITTED + "-" + key;
-        RateCounter rc = this.getRateCounter(metricName, streamId);
+        StreamMetrics metrics = getOutputStreamMetrics(streamId);
+        RateCounter rc = metrics.emitted;
+        if (rc == null) {
+            rc = this.getRateCounter(METRIC_NAME_EMITTED + "-" + metrics.key, streamId);
+            metrics.emitted = rc;
+        }
         rc.inc(this.samplingRate);
     }
 
     public void transferredTuples(String streamId, int amount) {
-        String key = streamId;
-        String metricName = METRIC_NAME_TRANSFERRED + "-" + key;
-        RateCounter rc = this.getRateCounter(metricName, streamId);
+        StreamMetrics metrics = getOutputStreamMetrics(streamId);
+        RateCounter rc = metrics.transferred;
+        if (rc == null) {
+            rc = this.getRateCounter(METRIC_NAME_TRANSFERRED + "-" + metrics.key, streamId);
+            metrics.transferred = rc;
+        }
         rc.inc(amount * this.samplingRate);
     }
 
     public void boltExecuteTuple(String sourceComponentId, String sourceStreamId, long latencyMs) {
-        String key = sourceComponentId + ":" + sourceStreamId;
-        String metricName = METRIC_NAME_EXECUTED + "-" + key;
-        RateCounter rc = this.getRateCounter(metricName, sourceStreamId);
+        StreamMetrics metrics = getInputStreamMetrics(sourceComponentId, sourceStreamId);
+        RateCounter rc = metrics.executed;
+        if (rc == null) {
+            rc = this.getRateCounter(METRIC_NAME_EXECUTED + "-" + metrics.key, sourceStreamId);
+            metrics.executed = rc;
+        }
         rc.inc(this.samplingRate);
 
-        metricName = METRIC_NAME_EXECUTE_LATENCY + "-" + key;
-        RollingAverageGauge gauge = this.getRollingAverageGauge(metricName, sourceStreamId);
+        RollingAverageGauge gauge = metrics.executeLatency;
+        if (gauge == null) {
+            gauge = this.getRollingAverageGauge(METRIC_NAME_EXECUTE_LATENCY + "-" + metrics.key, sourceStreamId);
+            metrics.executeLatency = gauge;
+        }
         gauge.addValue(latencyMs);
+        if (latencyHistograms) {
+            Histogram histogram = metrics.executeLatencyHistogram;
+            if (histogram == null) {
+                histogram = this.getHistogram(METRIC_NAME_EXECUTE_LATENCY + HISTOGRAM_SUFFIX + "-" + metrics.key, sourceStreamId);
+                metrics.executeLatencyHistogram = histogram;
+            }
+            histogram.update(latencyMs);
+        }
+    }
+
+    private StreamMetrics getOutputStreamMetrics(String streamId) {
+        StreamMetrics metrics = this.outputStreams.get(streamId);
+        if (metrics == null) {
+            metrics = this.outputStreams.computeIfAbsent(streamId, s -> new StreamMetrics(s, s));
+        }
+        return metrics;
+    }
+
+    private StreamMetrics getInputStreamMetrics(String sourceComponentId, String sourceStreamId) {
+        ConcurrentMap<String, StreamMetrics> byStream = this.inputStreams.get(sourceComponentId);
+        if (byStream == null) {
+            byStream = this.inputStreams.computeIfAbsent(sourceComponentId, c -> new ConcurrentHashMap<>());
+        }
+        StreamMetrics metrics = byStream.get(sourceStreamId);
+        if (metrics == null) {
+            metrics = byStream.computeIfAbsent(sourceStreamId, s -> new StreamMetrics(sourceComponentId + ":" + s, s));
+        }
+        return metrics;
     }
 
     private RateCounter getRateCounter(String metricName, String streamId) {
@@ -149,4 +232,43 @@ public class TaskMetrics {
         }
         return gauge;
     }
+
+    private Histogram getHistogram(String metricName, String streamId) {
+        Histogram histogram = this.histograms.get(metricName);
+        if (histogram == null) {
+            synchronized (this) {
+                histogram = this.histograms.get(metricName);
+                if (histogram == null) {
+                    histogram = metricRegistry.histogram(metricName, this.topologyId, this.componentId,
+                            this.taskId, this.workerPort, streamId, new HdrHistogramReservoir());
+                    this.histograms.put(metricName, histogram);
+                }
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * The metrics of a single stream.  Each one is looked up by name the first time it is updated and kept here afterwards.
+     */
+    private static final class StreamMetrics {
+        // streamId for output streams, sourceComponentId:sourceStreamId for input streams
+        private final String key;
+        private final String streamId;
+        private volatile RateCounter acked;
+        private volatile RateCounter failed;
+        private volatile RateCounter emitted;
+        private volatile RateCounter transferred;
+        private volatile RateCounter executed;
+        // complete latency for output streams, process latency for input streams
+        private volatile RollingAverageGauge latency;
+        private volatile RollingAverageGauge executeLatency;
+        private volatile Histogram latencyHistogram;
+        private volatile Histogram executeLatencyHistogram;
+
+        StreamMetrics(String key, String streamId) {
+            this.key = key;
+            this.streamId = streamId;
+        }
+    }
 }
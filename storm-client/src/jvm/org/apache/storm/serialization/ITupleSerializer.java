@@ -12,10 +12,30 @@
 
 package org.apache.storm.serialization;
 
+import org.apache.storm.shade.io.netty.buffer.ByteBuf;
+import org.apache.storm.shade.io.netty.buffer.ByteBufAllocator;
 import org.apache.storm.tuple.Tuple;
 
 
 public interface ITupleSerializer {
     byte[] serialize(Tuple tuple);
+
+    /**
+     * Serialize a tuple into a buffer obtained from the given allocator. The returned buffer keeps
+     * {@code headroom} writable bytes in front of its reader index, so a frame header can later be written in place.
+     *
+     * @param tuple the tuple to serialize
+     * @param alloc the allocator to take the buffer from
+     * @param headroom the number of bytes to reserve in front of the payload
+     * @return a buffer whose readable bytes are the serialized tuple; the caller owns the reference
+     */
+    default ByteBuf serialize(Tuple tuple, ByteBufAllocator alloc, int headroom) {
+        byte[] ser = serialize(tuple);
+        ByteBuf buf = alloc.ioBuffer(headroom + ser.length);
+        buf.writerIndex(headroom);
+        buf.readerIndex(headroom);
+        buf.writeBytes(ser);
+        return buf;
+    }
     //    long crc32(Tuple tuple);
 }
@@ -12,38 +12,79 @@
 
 package org.apache.storm.serialization;
 
+import com.esotericsoftware.kryo.io.ByteBufferInput;
 import com.esotericsoftware.kryo.io.Input;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import org.apache.storm.shade.io.netty.buffer.ByteBuf;
 import org.apache.storm.task.GeneralTopologyContext;
+import org.apache.storm.tracing.TraceContext;
+import org.apache.storm.tracing.Tracer;
 import org.apache.storm.tuple.MessageId;
 import org.apache.storm.tuple.TupleImpl;
+import org.apache.storm.utils.Time;
 
 public class KryoTupleDeserializer implements ITupleDeserializer {
     private GeneralTopologyContext context;
     private KryoValuesDeserializer kryo;
     private SerializationFactory.IdDictionary ids;
     private Input kryoInput;
+    private ByteBufferInput kryoBufferInput;
+    private final boolean tracing;
 
     public KryoTupleDeserializer(final Map<String, Object> conf, final GeneralTopologyContext context) {
+        this(conf, context, Tracer.isEnabled(conf));
+    }
+
+    /**
+     * Create a deserializer.
+     * @param conf the topology config
+     * @param context the topology context
+     * @param tracing if the tuples were serialized with their trace context
+     */
+    public KryoTupleDeserializer(final Map<String, Object> conf, final GeneralTopologyContext context, boolean tracing) {
         kryo = new KryoValuesDeserializer(conf);
         this.context = context;
         ids = new SerializationFactory.IdDictionary(context.getRawTopology());
         kryoInput = new Input(1);
+        kryoBufferInput = new ByteBufferInput();
+        this.tracing = tracing;
     }
 
     @Override
     public TupleImpl deserialize(byte[] ser) {
+        kryoInput.setBuffer(ser);
+        return deserializeFrom(kryoInput);
+    }
+
+    /**
+     * Deserialize a tuple from the readable bytes of a buffer without copying them. The buffer's indexes and reference count are left
+     * untouched.
+     */
+    public TupleImpl deserialize(ByteBuf buf) {
+        if (buf.hasArray()) {
+            kryoInput.setBuffer(buf.array(), buf.arrayOffset() + buf.readerIndex(), buf.readableBytes());
+            return deserializeFrom(kryoInput);
+        }
+        kryoBufferInput.setBuffer(buf.nioBuffer(buf.readerIndex(), buf.readableBytes()));
+        return deserializeFrom(kryoBufferInput);
+    }
+
+    private TupleImpl deserializeFrom(Input input) {
         try {
-            kryoInput.setBuffer(ser);
-            int taskId = kryoInput.readInt(true);
-            int streamId = kryoInput.readInt(true);
+            int taskId = input.readInt(true);
+            int streamId = input.readInt(true);
             String componentName = context.getComponentId(taskId);
             String streamName = ids.getStreamName(componentName, streamId);
-            MessageId id = MessageId.deserialize(kryoInput);
-            List<Object> values = kryo.deserializeFrom(kryoInput);
-            return new TupleImpl(context, values, componentName, taskId, streamName, id);
+            MessageId id = MessageId.deserialize(input);
+            TraceContext traceContext = tracing ? TraceContext.deserialize(input, Time.currentTimeMillis()) : null;
+            List<Object> values = kryo.deserializeFrom(input);
+            TupleImpl tuple = new TupleImpl(context, values, componentName, taskId, streamName, id);
+            if (traceContext != null) {
+                tuple.setTraceContext(traceContext);
+            }
+            return tuple;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -15,30 +15,69 @@ package org.apache.storm.serialization;
 import com.esotericsoftware.kryo.io.Output;
 import java.io.IOException;
 import java.util.Map;
+import org.apache.storm.shade.io.netty.buffer.ByteBuf;
+import org.apache.storm.shade.io.netty.buffer.ByteBufAllocator;
 import org.apache.storm.task.GeneralTopologyContext;
+import org.apache.storm.tracing.TraceContext;
+import org.apache.storm.tracing.Tracer;
 import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.TupleImpl;
 
 public class KryoTupleSerializer implements ITupleSerializer {
     private KryoValuesSerializer kryo;
     private SerializationFactory.IdDictionary ids;
     private Output kryoOut;
+    // the trace context is only part of the format when tracing is on, see Tracer
+    private final boolean tracing;
 
     public KryoTupleSerializer(final Map<String, Object> conf, final GeneralTopologyContext context) {
+        this(conf, context, Tracer.isEnabled(conf));
+    }
+
+    /**
+     * Create a serializer.
+     * @param conf the topology config
+     * @param context the topology context
+     * @param tracing if the trace context of the tuples is written, this must match the deserializer
+     */
+    public KryoTupleSerializer(final Map<String, Object> conf, final GeneralTopologyContext context, boolean tracing) {
         kryo = new KryoValuesSerializer(conf);
         kryoOut = new Output(2000, 2000000000);
         ids = new SerializationFactory.IdDictionary(context.getRawTopology());
+        this.tracing = tracing;
     }
 
     @Override
     public byte[] serialize(Tuple tuple) {
-        try {
+        serializeToOutput(tuple);
+        return kryoOut.toBytes();
+    }
 
+    /**
+     * Serialize into a pooled buffer sized exactly for the tuple. The reusable kryo output is the only scratch space, so no per-tuple
+     * byte array is allocated.
+     */
+    @Override
+    public ByteBuf serialize(Tuple tuple, ByteBufAllocator alloc, int headroom) {
+        serializeToOutput(tuple);
+        int length = kryoOut.position();
+        ByteBuf buf = alloc.ioBuffer(headroom + length);
+        buf.writerIndex(headroom);
+        buf.readerIndex(headroom);
+        buf.writeBytes(kryoOut.getBuffer(), 0, length);
+        return buf;
+    }
+
+    private void serializeToOutput(Tuple tuple) {
+        try {
             kryoOut.reset();
             kryoOut.writeInt(tuple.getSourceTask(), true);
             kryoOut.writeInt(ids.getStreamId(tuple.getSourceComponent(), tuple.getSourceStreamId()), true);
             tuple.getMessageId().serialize(kryoOut);
+            if (tracing) {
+                TraceContext.serialize(tuple instanceof TupleImpl ? ((TupleImpl) tuple).getTraceContext() : null, kryoOut);
+            }
             kryo.serializeInto(tuple.getValues(), kryoOut);
-            return kryoOut.toBytes();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -118,6 +118,9 @@ public class SerializationFactory {
 
         kryoFactory.postDecorate(k, conf);
 
+        // used by the __ack_batch stream, registered last so the ids of all the registrations above stay the same
+        k.register(long[].class);
+
         return k;
     }
 
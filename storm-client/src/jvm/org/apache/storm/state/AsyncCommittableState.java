@@ -0,0 +1,38 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.state;
+
+import org.apache.storm.Config;
+
+/**
+ * A {@link State} whose checkpoints can be persisted off the executor thread, used when {@link Config#TOPOLOGY_STATE_CHECKPOINT_ASYNC}
+ * is set.
+ *
+ * <p>Implementations must allow the task returned by {@link #snapshot(long)}, and {@link #commit(long)}, to run on another thread while
+ * the executor thread keeps reading and updating the state. The framework never runs two of them at the same time, and does not call
+ * {@link #snapshot(long)} or {@link #rollback()} while one is running.
+ */
+public interface AsyncCommittableState extends State {
+    /**
+     * Capture the updates to prepare for commit, on the executor thread. Updates made after this call belong to the next transaction.
+     *
+     * @param txid the transaction id
+     * @return the task that persists the captured updates, the remainder of {@link #prepareCommit(long)}
+     */
+    Runnable snapshot(long txid);
+
+    @Override
+    default void prepareCommit(long txid) {
+        snapshot(txid).run();
+    }
+}
@@ -45,8 +45,9 @@ public class DefaultStateSerializer<T> implements Serializer<T> {
             Kryo obj = new Kryo();
             obj.setRegistrationRequired(false);
             if (context != null && topoConf != null) {
-                KryoTupleSerializer ser = new KryoTupleSerializer(topoConf, context);
-                KryoTupleDeserializer deser = new KryoTupleDeserializer(topoConf, context);
+                // saved state must stay readable if tracing is turned on or off, so it never holds trace contexts
+                KryoTupleSerializer ser = new KryoTupleSerializer(topoConf, context, false);
+                KryoTupleDeserializer deser = new KryoTupleDeserializer(topoConf, context, false);
                 obj.register(TupleImpl.class, new TupleSerializer(ser, deser));
             }
             if (!registrations.isEmpty()) {
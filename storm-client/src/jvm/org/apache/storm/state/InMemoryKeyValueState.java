@@ -20,17 +20,25 @@ import org.slf4j.LoggerFactory;
 
 /**
  * An in-memory implementation of the {@link State}.
+ *
+ * <p>Checkpoints do not copy the state. Instead the value a key had at the last commit is recorded the first time the key changes after
+ * it, and the value it had at the last prepare the first time it changes after that, so prepare and commit only cost the keys changed
+ * since the previous checkpoint and rollback restores just those keys.
  */
 public class InMemoryKeyValueState<K, V> implements KeyValueState<K, V> {
     private static final Logger LOG = LoggerFactory.getLogger(InMemoryKeyValueState.class);
-    private static final long DEFAULT_TXID = -1;
-    private TxIdState<K, V> commitedState;
-    private TxIdState<K, V> preparedState;
-    private Map<K, V> state = new ConcurrentHashMap<>();
+    // Marks a key that had no mapping, since the maps below do not take null values
+    private static final Object ABSENT = new Object();
+    private final Map<K, V> state = new ConcurrentHashMap<>();
+    // Value at the last commit of the keys changed between that commit and the pending prepare (or now, if nothing is prepared)
+    private Map<K, Object> committedValues = new ConcurrentHashMap<>();
+    // Value at the pending prepare of the keys changed since that prepare
+    private Map<K, Object> preparedValues = new ConcurrentHashMap<>();
+    private Long preparedTxid;
 
     @Override
     public void put(K key, V value) {
-        state.put(key, value);
+        recordChange(key, state.put(key, value));
     }
 
     @Override
@@ -46,7 +54,9 @@ public class InMemoryKeyValueState<K, V> implements KeyValueState<K, V> {
 
     @Override
     public V delete(K key) {
-        return state.remove(key);
+        V value = state.remove(key);
+        recordChange(key, value);
+        return value;
     }
 
     @Override
@@ -56,64 +66,74 @@ public class InMemoryKeyValueState<K, V> implements KeyValueState<K, V> {
 
     @Override
     public void commit() {
-        commitedState = new TxIdState<>(DEFAULT_TXID, new ConcurrentHashMap<>(state));
+        committedValues = new ConcurrentHashMap<>();
+        preparedValues = new ConcurrentHashMap<>();
     }
 
     @Override
     public void commit(long txid) {
         LOG.debug("commit, txid {}", txid);
-        if (preparedState != null && txid == preparedState.txid) {
-            commitedState = preparedState;
-            preparedState = null;
+        if (preparedTxid != null && txid == preparedTxid) {
+            // the prepared values become the committed ones, so only the changes since the prepare are left to undo
+            committedValues = preparedValues;
+            preparedValues = new ConcurrentHashMap<>();
+            preparedTxid = null;
         } else {
             throw new RuntimeException("Invalid prepared state for commit, "
-                    + "preparedState " + preparedState + " txid " + txid);
+                    + "preparedTxid " + preparedTxid + " txid " + txid);
         }
     }
 
     @Override
     public void prepareCommit(long txid) {
         LOG.debug("prepare commit, txid {}", txid);
-        if (preparedState != null && txid > preparedState.txid) {
+        if (preparedTxid != null && txid > preparedTxid) {
             throw new RuntimeException("Cannot prepare a new txn while there is a pending txn");
         }
-        preparedState = new TxIdState<>(txid, new ConcurrentHashMap<K, V>(state));
+        // preparing again moves the prepare point to now, keys first changed after the old prepare still had their committed value then
+        for (Map.Entry<K, Object> e : preparedValues.entrySet()) {
+            committedValues.putIfAbsent(e.getKey(), e.getValue());
+        }
+        preparedValues = new ConcurrentHashMap<>();
+        preparedTxid = txid;
     }
 
     @Override
     public void rollback() {
-        preparedState = null;
-        if (commitedState != null) {
-            state = commitedState.state;
+        restore(preparedValues);
+        restore(committedValues);
+        preparedValues = new ConcurrentHashMap<>();
+        committedValues = new ConcurrentHashMap<>();
+        preparedTxid = null;
+    }
+
+    private void recordChange(K key, V previous) {
+        Object value = previous != null ? previous : ABSENT;
+        if (preparedTxid != null) {
+            preparedValues.putIfAbsent(key, value);
         } else {
-            state = new ConcurrentHashMap<>();
+            committedValues.putIfAbsent(key, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void restore(Map<K, Object> values) {
+        for (Map.Entry<K, Object> e : values.entrySet()) {
+            if (e.getValue() == ABSENT) {
+                state.remove(e.getKey());
+            } else {
+                state.put(e.getKey(), (V) e.getValue());
+            }
         }
     }
 
     @Override
     public String toString() {
         return "InMemoryKeyValueState{"
-                + "commitedState=" + commitedState
-                + ", preparedState=" + preparedState
+                + "committedValues=" + committedValues
+                + ", preparedValues=" + preparedValues
+                + ", preparedTxid=" + preparedTxid
                 + ", state=" + state
                 + '}';
     }
-
-    private static class TxIdState<K, V> {
-        private long txid;
-        private Map<K, V> state;
-
-        TxIdState(long txid, Map<K, V> state) {
-            this.txid = txid;
-            this.state = state;
-        }
-
-        @Override
-        public String toString() {
-            return "TxIdState{"
-                    + "txid=" + txid
-                    + ", state=" + state
-                    + '}';
-        }
-    }
 }
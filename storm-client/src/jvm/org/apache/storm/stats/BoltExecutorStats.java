@@ -16,20 +16,32 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.storm.daemon.Task;
 import org.apache.storm.generated.BoltStats;
 import org.apache.storm.generated.ExecutorSpecificStats;
 import org.apache.storm.generated.ExecutorStats;
+import org.apache.storm.metric.internal.CountStat;
+import org.apache.storm.metric.internal.LatencyStat;
 import org.apache.storm.metric.internal.MultiCountStat;
 import org.apache.storm.metric.internal.MultiLatencyStat;
 import org.apache.storm.shade.com.google.common.collect.Lists;
+import org.apache.storm.utils.Time;
 
 @SuppressWarnings("unchecked")
 public class BoltExecutorStats extends CommonStats {
+    // capacity looks at all of the execute stats, so it is only recomputed this often
+    private static final long CAPACITY_UPDATE_INTERVAL_MS = 1000;
+
     MultiCountStat executedStats;
     MultiLatencyStat processLatencyStats;
     MultiLatencyStat executeLatencyStats;
+    // component -> stream -> stats, so the [component, stream] keys are only built once per input. Only sampled tuples are counted,
+    // so the two lookups are paid for one tuple in 1 / topology.stats.sample.rate
+    private final ConcurrentMap<String, ConcurrentMap<String, InputStats>> inputStats = new ConcurrentHashMap<>();
+    private volatile long lastCapacityUpdateMs = -CAPACITY_UPDATE_INTERVAL_MS;
 
     public BoltExecutorStats(int rate, int numStatBuckets) {
         super(rate, numStatBuckets);
@@ -60,14 +72,18 @@ public class BoltExecutorStats extends CommonStats {
 
     public void boltExecuteTuple(String component, String stream, long latencyMs, long workerUptimeSecs,
                                  Task firstExecutorTask) {
-        List key = Lists.newArrayList(component, stream);
-        this.getExecuted().incBy(key, this.rate);
-        this.getExecuteLatencies().record(key, latencyMs);
+        InputStats stats = getInputStats(component, stream);
+        stats.executed().incBy(this.rate);
+        stats.executeLatency().record(latencyMs);
 
         // Calculate capacity:  This is really for the whole executor, but we will use the executor's first task
         // for reporting the metric.
-        double capacity = calculateCapacity(workerUptimeSecs);
-        firstExecutorTask.getTaskMetrics().setCapacity(capacity);
+        long now = Time.currentTimeMillis();
+        if (now - lastCapacityUpdateMs >= CAPACITY_UPDATE_INTERVAL_MS) {
+            lastCapacityUpdateMs = now;
+            double capacity = calculateCapacity(workerUptimeSecs);
+            firstExecutorTask.getTaskMetrics().setCapacity(capacity);
+        }
     }
 
     private double calculateCapacity(long workerUptimeSecs) {
@@ -108,14 +124,25 @@ public class BoltExecutorStats extends CommonStats {
     }
 
     public void boltAckedTuple(String component, String stream, long latencyMs) {
-        List key = Lists.newArrayList(component, stream);
-        this.getAcked().incBy(key, this.rate);
-        this.getProcessLatencies().record(key, latencyMs);
+        InputStats stats = getInputStats(component, stream);
+        stats.acked().incBy(this.rate);
+        stats.processLatency().record(latencyMs);
     }
 
     public void boltFailedTuple(String component, String stream) {
-        List key = Lists.newArrayList(component, stream);
-        this.getFailed().incBy(key, this.rate);
+        getInputStats(component, stream).failed().incBy(this.rate);
+    }
+
+    private InputStats getInputStats(String component, String stream) {
+        ConcurrentMap<String, InputStats> byStream = inputStats.get(component);
+        if (byStream == null) {
+            byStream = inputStats.computeIfAbsent(component, c -> new ConcurrentHashMap<>());
+        }
+        InputStats stats = byStream.get(stream);
+        if (stats == null) {
+            stats = byStream.computeIfAbsent(stream, s -> new InputStats(Lists.newArrayList(component, s)));
+        }
+        return stats;
     }
 
     @Override
@@ -137,4 +164,66 @@ public class BoltExecutorStats extends CommonStats {
 
         return ret;
     }
+
+    /**
+     * The stats of a single input stream.  Each stat is resolved from its MultiCountStat/MultiLatencyStat the first time it is
+     * updated, so only the stats that were actually used are rendered.
+     */
+    private final class InputStats {
+        private final List<String> key;
+        private volatile CountStat acked;
+        private volatile CountStat failed;
+        private volatile CountStat executed;
+        private volatile LatencyStat processLatency;
+        private volatile LatencyStat executeLatency;
+
+        InputStats(List<String> key) {
+            this.key = key;
+        }
+
+        CountStat acked() {
+            CountStat stat = acked;
+            if (stat == null) {
+                stat = getAcked().get(key);
+                acked = stat;
+            }
+            return stat;
+        }
+
+        CountStat failed() {
+            CountStat stat = failed;
+            if (stat == null) {
+                stat = getFailed().get(key);
+                failed = stat;
+            }
+            return stat;
+        }
+
+        CountStat executed() {
+            CountStat stat = executed;
+            if (stat == null) {
+                stat = executedStats.get(key);
+                executed = stat;
+            }
+            return stat;
+        }
+
+        LatencyStat processLatency() {
+            LatencyStat stat = processLatency;
+            if (stat == null) {
+                stat = processLatencyStats.get(key);
+                processLatency = stat;
+            }
+            return stat;
+        }
+
+        LatencyStat executeLatency() {
+            LatencyStat stat = executeLatency;
+            if (stat == null) {
+                stat = executeLatencyStats.get(key);
+                executeLatency = stat;
+            }
+            return stat;
+        }
+    }
 }
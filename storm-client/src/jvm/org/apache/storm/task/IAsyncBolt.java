@@ -0,0 +1,44 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.task;
+
+import java.util.concurrent.CompletionStage;
+import org.apache.storm.Config;
+import org.apache.storm.tuple.Tuple;
+
+/**
+ * A bolt that processes tuples without blocking the executor, typically by calling the async API of an external client.
+ *
+ * <p>The executor calls {@link #executeAsync(Tuple)} instead of {@link #execute(Tuple)} and acks the input once the returned stage
+ * completes normally, or reports the error and fails the input if the stage completes exceptionally, so the bolt must not ack or fail
+ * inputs itself. Up to {@link Config#TOPOLOGY_BOLT_ASYNC_MAX_IN_FLIGHT} tuples may be in flight per executor; once that many are pending,
+ * the executor stops taking tuples from its receive queue, which eventually applies backpressure upstream.
+ *
+ * <p>{@link #execute(Tuple)} is never called by the executor. A bolt that is only run by Storm may throw UnsupportedOperationException
+ * from it, one that is also driven by other callers has to decide itself whether to wait for the stage there.
+ *
+ * <p>The collector may be used from any thread, such as the callback threads of a client. Calls from other threads are handed to the
+ * executor thread and performed there in the order they were made, and emits made that way return an empty task id list. Emits for an
+ * input must happen before its stage completes to be anchored in time.
+ *
+ * <p>When defining bolts in Java, implement this together with IRichBolt, or extend BaseRichBolt.
+ */
+public interface IAsyncBolt extends IBolt {
+    /**
+     * Start processing a single tuple of input.
+     *
+     * @param input The input tuple to be processed.
+     * @return a stage that completes once processing of the input is done, or null if it is already done
+     */
+    CompletionStage<?> executeAsync(Tuple input);
+}
@@ -0,0 +1,32 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.task;
+
+/**
+ * Implemented by bolts that do part of their work on threads of their own and need the executor thread to finish it, for example to
+ * use the collector. The executor calls {@link #pollCompletions()} on its thread after every batch of input, and keeps calling it while
+ * its receive queue is empty as long as {@link #hasPendingCompletions()} returns true.
+ */
+public interface IExecutorPollable {
+    /**
+     * Run the work handed back to the executor thread since the last call.
+     *
+     * @return the number of items run, 0 if there were none
+     */
+    int pollCompletions();
+
+    /**
+     * Whether work is in progress on other threads that will hand something back to {@link #pollCompletions()}.
+     */
+    boolean hasPendingCompletions();
+}
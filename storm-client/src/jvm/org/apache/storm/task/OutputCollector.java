@@ -21,6 +21,11 @@ import org.apache.storm.utils.Utils;
 /**
  * This output collector exposes the API for emitting tuples from an IRichBolt. This is the core API for emitting tuples. For a simpler API,
  * and a more restricted form of stream processing, see IBasicBolt and BasicOutputCollector.
+ *
+ * <p>The task ids returned by emit are only known when the tuple is emitted right away. With {@link
+ * org.apache.storm.Config#TOPOLOGY_BOLT_EXECUTE_CONCURRENCY} above 1, the emits made inside execute are applied by the executor thread
+ * after execute returns, and return an empty list. The same holds for emits an {@link IAsyncBolt} makes from threads other than the
+ * executor thread.
  */
 public class OutputCollector implements IOutputCollector {
     private IOutputCollector delegate;
@@ -0,0 +1,50 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.topology;
+
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.windowing.PaneAggregator;
+import org.apache.storm.windowing.TupleWindow;
+
+/**
+ * A windowed bolt that only needs an aggregate of the tuples in the window. When the window length and the sliding interval are both
+ * counts (of processing time windows) or both durations, the windows are computed incrementally from the aggregates of their panes.
+ * Otherwise the aggregate is computed from the tuples in the window on every activation. Either way the tuples are acked once they have
+ * left the last window they are part of. Tuples emitted from {@link #executeAggregate(Object, Long, Long)} are not anchored to the input
+ * tuples, so a failure downstream does not replay the window and the aggregate output is delivered at most once. With panes only what
+ * is needed to ack the tuples is kept until then, not their values.
+ *
+ * @param <A> the type of the aggregate
+ */
+public interface IAggregateWindowedBolt<A> extends IWindowedBolt, PaneAggregator<Tuple, A> {
+    /**
+     * Process the aggregate of a window and optionally emit new tuples based on it.
+     *
+     * @param aggregate      the aggregate of the tuples in the window
+     * @param startTimestamp the (exclusive) start of a time based window, may be null
+     * @param endTimestamp   the (inclusive) end of a time based window, may be null
+     */
+    void executeAggregate(A aggregate, Long startTimestamp, Long endTimestamp);
+
+    /**
+     * Aggregates the tuples in the window and passes the result to {@link #executeAggregate(Object, Long, Long)}.
+     */
+    @Override
+    default void execute(TupleWindow inputWindow) {
+        A aggregate = init();
+        for (Tuple tuple : inputWindow.get()) {
+            aggregate = accumulate(aggregate, tuple);
+        }
+        executeAggregate(aggregate, inputWindow.getStartTimestamp(), inputWindow.getEndTimestamp());
+    }
+}
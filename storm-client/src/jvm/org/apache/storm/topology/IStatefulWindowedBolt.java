@@ -36,4 +36,15 @@ public interface IStatefulWindowedBolt<T extends State> extends IStatefulCompone
     default long maxEventsInMemory() {
         return 1_000_000L; // default
     }
+
+    /**
+     * If the window partitions evicted from memory should be kept in files on the local disk of the worker and loaded back from there,
+     * rather than from the state backend. They are still saved in the state on checkpoints. This is meaningful only if the windows are
+     * persisted.
+     *
+     * @return true if the evicted window partitions should be spilled to disk
+     */
+    default boolean isSpillingToDisk() {
+        return false;
+    }
 }
@@ -14,6 +14,7 @@ package org.apache.storm.topology;
 
 import static org.apache.storm.windowing.persistence.WindowState.WindowPartition;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
@@ -26,6 +27,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import org.apache.storm.Config;
+import org.apache.storm.state.DefaultStateSerializer;
 import org.apache.storm.state.KeyValueState;
 import org.apache.storm.state.State;
 import org.apache.storm.state.StateFactory;
@@ -33,9 +35,11 @@ import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.base.BaseWindowedBolt;
 import org.apache.storm.tuple.Tuple;
+import org.apache.storm.utils.ConfigUtils;
 import org.apache.storm.windowing.DefaultEvictionContext;
 import org.apache.storm.windowing.EventImpl;
 import org.apache.storm.windowing.WindowLifecycleListener;
+import org.apache.storm.windowing.persistence.WindowPartitionSpill;
 import org.apache.storm.windowing.persistence.WindowState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -81,7 +85,8 @@ public class PersistentWindowedBoltExecutor<T extends State> extends WindowedBol
         outputCollector = collector;
         this.windowSystemState = windowSystemState;
         state = new WindowState<>(windowState, partitionState, windowSystemState, this::getState,
-                                  statefulWindowedBolt.maxEventsInMemory());
+                                  statefulWindowedBolt.maxEventsInMemory(), getSpill(topoConf, context));
+        state.registerMetrics(context);
         doPrepare(topoConf, context, new NoAckOutputCollector(collector), state, true);
         restoreWindowSystemState();
     }
@@ -139,6 +144,12 @@ public class PersistentWindowedBoltExecutor<T extends State> extends WindowedBol
         outputCollector.ack(input);
     }
 
+    @Override
+    public void cleanup() {
+        super.cleanup();
+        state.close();
+    }
+
     @Override
     public void initState(T state) {
         if (stateInitialized) {
@@ -215,6 +226,17 @@ public class PersistentWindowedBoltExecutor<T extends State> extends WindowedBol
         };
     }
 
+    private WindowPartitionSpill<Tuple> getSpill(Map<String, Object> topoConf, TopologyContext context) {
+        if (!statefulWindowedBolt.isSpillingToDisk()) {
+            return null;
+        }
+        String taskDir = context.getThisComponentId() + "-" + context.getThisTaskId();
+        File dir = new File(new File(new File(ConfigUtils.absoluteStormLocalDir(topoConf), "window-spill"), context.getStormId()), taskDir);
+        LOG.info("Spilling window partitions to {}", dir);
+        return new WindowPartitionSpill<>(dir, new DefaultStateSerializer<>(topoConf, context),
+                                          WindowPartitionSpill.DEFAULT_SEGMENT_BYTES);
+    }
+
     private KeyValueState<Long, WindowPartition<Tuple>> getWindowState(Map<String, Object> topoConf, TopologyContext context) {
         String namespace = context.getThisComponentId() + "-" + context.getThisTaskId() + "-window";
         return (KeyValueState<Long, WindowPartition<Tuple>>) StateFactory.getState(namespace, topoConf, context);
@@ -24,27 +24,43 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.storm.Config;
 import org.apache.storm.spout.CheckpointSpout;
+import org.apache.storm.state.AsyncCommittableState;
 import org.apache.storm.state.State;
 import org.apache.storm.state.StateFactory;
+import org.apache.storm.task.IExecutorPollable;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.tuple.Tuple;
 import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.ObjectReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Wraps a {@link IStatefulBolt} and manages the state of the bolt.
+ *
+ * <p>With {@link Config#TOPOLOGY_STATE_CHECKPOINT_ASYNC} and an {@link AsyncCommittableState}, prepare and commit are written to the
+ * state store on a background thread while the bolt keeps executing tuples. The checkpoint tuple is forwarded and acked once the write
+ * completes, so the checkpoint spout only moves on after the state is durable.
  */
-public class StatefulBoltExecutor<T extends State> extends BaseStatefulBoltExecutor {
+public class StatefulBoltExecutor<T extends State> extends BaseStatefulBoltExecutor implements IExecutorPollable {
     private static final Logger LOG = LoggerFactory.getLogger(StatefulBoltExecutor.class);
+    private static final long CHECKPOINT_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
     private final IStatefulBolt<T> bolt;
     private State state;
     private boolean boltInitialized = false;
     private List<Tuple> pendingTuples = new ArrayList<>();
     private List<Tuple> preparedTuples = new ArrayList<>();
     private AckTrackingOutputCollector collector;
+    private ExecutorService checkpointExecutor; // only set for async checkpoints
+    private final Queue<Runnable> checkpointCompletions = new ConcurrentLinkedQueue<>();
+    private boolean checkpointInFlight = false;
 
     public StatefulBoltExecutor(IStatefulBolt<T> bolt) {
         this.bolt = bolt;
@@ -63,10 +79,22 @@ public class StatefulBoltExecutor<T extends State> extends BaseStatefulBoltExecu
         this.collector = new AckTrackingOutputCollector(collector);
         bolt.prepare(topoConf, context, this.collector);
         this.state = state;
+        if (state instanceof AsyncCommittableState
+            && ObjectReader.getBoolean(topoConf.get(Config.TOPOLOGY_STATE_CHECKPOINT_ASYNC), false)) {
+            String threadName = context.getThisComponentId() + "-" + context.getThisTaskId() + "-checkpoint";
+            this.checkpointExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
     }
 
     @Override
     public void cleanup() {
+        if (checkpointExecutor != null) {
+            checkpointExecutor.shutdownNow();
+        }
         bolt.cleanup();
     }
 
@@ -85,9 +113,16 @@ public class StatefulBoltExecutor<T extends State> extends BaseStatefulBoltExecu
     @Override
     protected void handleCheckpoint(Tuple checkpointTuple, Action action, long txid) {
         LOG.debug("handleCheckPoint with tuple {}, action {}, txid {}", checkpointTuple, action, txid);
+        awaitCheckpoint();
         if (action == PREPARE) {
             if (boltInitialized) {
                 bolt.prePrepare(txid);
+                if (checkpointExecutor != null) {
+                    Runnable persist = ((AsyncCommittableState) state).snapshot(txid);
+                    preparedTuples.addAll(collector.ackedTuples());
+                    runInBackground(persist, checkpointTuple, action, txid, () -> { });
+                    return;
+                }
                 state.prepareCommit(txid);
                 preparedTuples.addAll(collector.ackedTuples());
             } else {
@@ -101,6 +136,10 @@ public class StatefulBoltExecutor<T extends State> extends BaseStatefulBoltExecu
             }
         } else if (action == COMMIT) {
             bolt.preCommit(txid);
+            if (checkpointExecutor != null) {
+                runInBackground(() -> state.commit(txid), checkpointTuple, action, txid, () -> ack(preparedTuples));
+                return;
+            }
             state.commit(txid);
             ack(preparedTuples);
         } else if (action == ROLLBACK) {
@@ -127,10 +166,70 @@ public class StatefulBoltExecutor<T extends State> extends BaseStatefulBoltExecu
                           checkpointTuple, action, txid);
             }
         }
+        forwardCheckpoint(checkpointTuple, action, txid);
+    }
+
+    private void forwardCheckpoint(Tuple checkpointTuple, Action action, long txid) {
         collector.emit(CheckpointSpout.CHECKPOINT_STREAM_ID, checkpointTuple, new Values(txid, action));
         collector.delegate.ack(checkpointTuple);
     }
 
+    /*
+     * Runs the state store write on the checkpoint thread and finishes the checkpoint on the executor thread
+     * once it is done. A failed write fails the checkpoint tuple, like it does when the write runs on the executor thread,
+     * so the checkpoint spout rolls back or retries the transaction.
+     */
+    private void runInBackground(Runnable write, Tuple checkpointTuple, Action action, long txid, Runnable onSuccess) {
+        checkpointInFlight = true;
+        checkpointExecutor.execute(() -> {
+            Throwable error = null;
+            try {
+                write.run();
+            } catch (Throwable t) {
+                error = t;
+            }
+            final Throwable writeError = error;
+            checkpointCompletions.add(() -> {
+                checkpointInFlight = false;
+                if (writeError != null) {
+                    LOG.error("Checkpoint {} of txid {} failed", action, txid, writeError);
+                    collector.fail(checkpointTuple);
+                    collector.reportError(writeError);
+                    return;
+                }
+                onSuccess.run();
+                forwardCheckpoint(checkpointTuple, action, txid);
+            });
+        });
+    }
+
+    // The next checkpoint action is only handled after the previous one is done
+    private void awaitCheckpoint() {
+        while (checkpointInFlight) {
+            if (pollCompletions() == 0) {
+                LockSupport.parkNanos(this, CHECKPOINT_WAIT_NANOS);
+                if (Thread.interrupted()) {
+                    throw new RuntimeException(new InterruptedException("Interrupted while waiting for the checkpoint"));
+                }
+            }
+        }
+    }
+
+    @Override
+    public int pollCompletions() {
+        int count = 0;
+        for (Runnable completion = checkpointCompletions.poll(); completion != null; completion = checkpointCompletions.poll()) {
+            completion.run();
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public boolean hasPendingCompletions() {
+        return checkpointInFlight;
+    }
+
     @Override
     protected void handleTuple(Tuple input) {
         if (boltInitialized) {
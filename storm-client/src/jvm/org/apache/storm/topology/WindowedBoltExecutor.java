@@ -24,7 +24,6 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import org.apache.storm.Config;
@@ -35,11 +34,13 @@ import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.tuple.Fields;
 import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.TupleImpl;
 import org.apache.storm.tuple.Values;
 import org.apache.storm.windowing.CountEvictionPolicy;
 import org.apache.storm.windowing.CountTriggerPolicy;
 import org.apache.storm.windowing.Event;
 import org.apache.storm.windowing.EvictionPolicy;
+import org.apache.storm.windowing.PaneWindowManager;
 import org.apache.storm.windowing.StatefulWindowManager;
 import org.apache.storm.windowing.TimeEvictionPolicy;
 import org.apache.storm.windowing.TimeTriggerPolicy;
@@ -48,6 +49,7 @@ import org.apache.storm.windowing.TriggerPolicy;
 import org.apache.storm.windowing.TupleWindowImpl;
 import org.apache.storm.windowing.TupleWindowIterImpl;
 import org.apache.storm.windowing.WaterMarkEventGenerator;
+import org.apache.storm.windowing.WindowEventBuffer;
 import org.apache.storm.windowing.WatermarkCountEvictionPolicy;
 import org.apache.storm.windowing.WatermarkCountTriggerPolicy;
 import org.apache.storm.windowing.WatermarkTimeEvictionPolicy;
@@ -65,6 +67,7 @@ public class WindowedBoltExecutor implements IRichBolt {
     private static final Logger LOG = LoggerFactory.getLogger(WindowedBoltExecutor.class);
     private static final int DEFAULT_WATERMARK_EVENT_INTERVAL_MS = 1000; // 1s
     private static final int DEFAULT_MAX_LAG_MS = 0; // no lag
+    private static final int PANE_TRIGGER_INTERVAL_MS = 100;
     private final IWindowedBolt bolt;
     // package level for unit tests
     transient WaterMarkEventGenerator<Tuple> waterMarkEventGenerator;
@@ -149,10 +152,6 @@ public class WindowedBoltExecutor implements IRichBolt {
     private WindowManager<Tuple> initWindowManager(WindowLifecycleListener<Tuple> lifecycleListener, Map<String, Object> topoConf,
                                                    TopologyContext context, Collection<Event<Tuple>> queue, boolean stateful) {
 
-        WindowManager<Tuple> manager = stateful
-                ? new StatefulWindowManager<>(lifecycleListener, queue)
-                : new WindowManager<>(lifecycleListener, queue);
-
         Count windowLengthCount = null;
         Duration slidingIntervalDuration = null;
         Count slidingIntervalCount = null;
@@ -174,6 +173,21 @@ public class WindowedBoltExecutor implements IRichBolt {
             // default is a sliding window of count 1
             slidingIntervalCount = new Count(1);
         }
+        WindowManager<Tuple> manager;
+        if (!stateful && bolt instanceof IAggregateWindowedBolt
+            && isPaneAggregatable(windowLengthCount, windowLengthDuration, slidingIntervalCount, slidingIntervalDuration)) {
+            @SuppressWarnings("unchecked")
+            IAggregateWindowedBolt<Object> aggregator = (IAggregateWindowedBolt<Object>) bolt;
+            manager = windowLengthCount != null
+                ? new PaneWindowManager<>(lifecycleListener, aggregator, true, windowLengthCount.value, slidingIntervalCount.value,
+                                          WindowedBoltExecutor::ackHandle)
+                : new PaneWindowManager<>(lifecycleListener, aggregator, false, windowLengthDuration.value, slidingIntervalDuration.value,
+                                          WindowedBoltExecutor::ackHandle);
+        } else if (stateful) {
+            manager = new StatefulWindowManager<>(lifecycleListener, queue);
+        } else {
+            manager = new WindowManager<>(lifecycleListener, queue);
+        }
         // tuple ts
         if (timestampExtractor != null) {
             // late tuple stream
@@ -207,10 +221,15 @@ public class WindowedBoltExecutor implements IRichBolt {
         // validate
         validate(topoConf, windowLengthCount, windowLengthDuration,
                  slidingIntervalCount, slidingIntervalDuration);
-        evictionPolicy = getEvictionPolicy(windowLengthCount, windowLengthDuration);
-        triggerPolicy = getTriggerPolicy(slidingIntervalCount, slidingIntervalDuration,
-                                         manager, evictionPolicy);
-        manager.setEvictionPolicy(evictionPolicy);
+        if (manager instanceof PaneWindowManager) {
+            // the pane window manager evicts whole panes itself
+            triggerPolicy = getPaneTriggerPolicy(windowLengthDuration, slidingIntervalDuration, manager);
+        } else {
+            evictionPolicy = getEvictionPolicy(windowLengthCount, windowLengthDuration);
+            triggerPolicy = getTriggerPolicy(slidingIntervalCount, slidingIntervalDuration,
+                                             manager, evictionPolicy);
+            manager.setEvictionPolicy(evictionPolicy);
+        }
         manager.setTriggerPolicy(triggerPolicy);
         return manager;
     }
@@ -241,8 +260,10 @@ public class WindowedBoltExecutor implements IRichBolt {
             LOG.debug("Starting waterMarkEventGenerator");
             waterMarkEventGenerator.start();
         }
-        LOG.debug("Starting trigger policy");
-        triggerPolicy.start();
+        if (triggerPolicy != null) {
+            LOG.debug("Starting trigger policy");
+            triggerPolicy.start();
+        }
     }
 
     private boolean isTupleTs() {
@@ -266,6 +287,41 @@ public class WindowedBoltExecutor implements IRichBolt {
         }
     }
 
+    /*
+     * Panes need the window length and the sliding interval in the same unit. Count based windows are only supported in processing
+     * time since event time count windows are defined by the watermarks rather than by the arrival order.
+     */
+    private boolean isPaneAggregatable(Count windowLengthCount, Duration windowLengthDuration,
+                                       Count slidingIntervalCount, Duration slidingIntervalDuration) {
+        if (windowLengthCount != null && slidingIntervalCount != null) {
+            return !isTupleTs();
+        }
+        return windowLengthDuration != null && slidingIntervalDuration != null;
+    }
+
+    /*
+     * The pane window manager only keeps the tuples to ack them once they are evicted, the values are in the pane aggregates
+     * by then. The ack hooks see the tuples without their values.
+     */
+    private static Tuple ackHandle(Tuple tuple) {
+        return tuple instanceof TupleImpl ? ((TupleImpl) tuple).withoutValues() : tuple;
+    }
+
+    /*
+     * The pane window manager activates count based windows as the tuples arrive and event time windows on watermarks, so only
+     * processing time windows need a timer. It checks for windows that ended every PANE_TRIGGER_INTERVAL_MS (or sliding interval if
+     * shorter) since the windows are aligned to the sliding interval rather than to the start of the timer.
+     */
+    private TriggerPolicy<Tuple, ?> getPaneTriggerPolicy(Duration windowLengthDuration, Duration slidingIntervalDuration,
+                                                         WindowManager<Tuple> manager) {
+        if (slidingIntervalDuration == null || isTupleTs()) {
+            return null;
+        }
+        // the timer sets the reference time of an eviction policy on every tick, the manager does not consult it
+        return new TimeTriggerPolicy<>(Math.min(slidingIntervalDuration.value, PANE_TRIGGER_INTERVAL_MS), manager,
+                                       new TimeEvictionPolicy<>(windowLengthDuration.value));
+    }
+
     private EvictionPolicy<Tuple, ?> getEvictionPolicy(Count windowLengthCount, Duration windowLengthDuration) {
         if (windowLengthCount != null) {
             if (isTupleTs()) {
@@ -284,7 +340,7 @@ public class WindowedBoltExecutor implements IRichBolt {
 
     @Override
     public void prepare(Map<String, Object> topoConf, TopologyContext context, OutputCollector collector) {
-        doPrepare(topoConf, context, collector, new ConcurrentLinkedQueue<>(), false);
+        doPrepare(topoConf, context, collector, new WindowEventBuffer<>(), false);
     }
 
     // NOTE: the queue has to be thread safe.
@@ -364,6 +420,15 @@ public class WindowedBoltExecutor implements IRichBolt {
                 boltExecute(tuples, newTuples, expiredTuples, timestamp);
             }
 
+            @Override
+            @SuppressWarnings("unchecked")
+            public void onAggregateActivation(Object aggregate, Long startTimestamp, Long endTimestamp) {
+                // the tuples are acked once their pane is evicted, the emits are not anchored to them: a failure downstream is not
+                // replayed, and the tuples of the window are acked regardless, so the aggregates are processed at most once
+                windowedOutputCollector.setContext(Collections.emptyList());
+                ((IAggregateWindowedBolt<Object>) bolt).executeAggregate(aggregate, startTimestamp, endTimestamp);
+            }
+
         };
     }
 
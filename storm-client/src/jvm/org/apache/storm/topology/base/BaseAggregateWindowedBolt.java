@@ -2,21 +2,17 @@
  * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
  * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
  * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
- * <p/>
+ *
  * http://www.apache.org/licenses/LICENSE-2.0
- * <p/>
+ *
  * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
  * and limitations under the License.
  */
 
-package org.apache.storm.metric.internal;
+package org.apache.storm.topology.base;
 
-import java.util.Timer;
+import org.apache.storm.topology.IAggregateWindowedBolt;
 
-/**
- * Just holds a singleton metric/stat timer for use by metric/stat calculations.
- */
-class MetricStatTimer {
-    static Timer timer = new Timer("metric/stat timer", true);
+public abstract class BaseAggregateWindowedBolt<A> extends BaseWindowedBolt implements IAggregateWindowedBolt<A> {
 }
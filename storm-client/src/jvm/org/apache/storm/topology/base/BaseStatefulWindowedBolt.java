@@ -24,6 +24,9 @@ public abstract class BaseStatefulWindowedBolt<T extends State> extends BaseWind
     // max number of window events in memory
     private long maxEventsInMemory;
 
+    // if the evicted window partitions should be spilled to the local disk
+    private boolean spillingToDisk;
+
     /**
      * {@inheritDoc}
      */
@@ -173,6 +176,16 @@ public abstract class BaseStatefulWindowedBolt<T extends State> extends BaseWind
         return this;
     }
 
+    /**
+     * If set, the window partitions evicted from memory are kept in files on the local disk of the worker and loaded back from there
+     * instead of from the backend state, which still gets them on checkpoints. This is meaningful only if {@link #withPersistence()} is
+     * also set.
+     */
+    public BaseStatefulWindowedBolt<T> withSpillToDisk() {
+        spillingToDisk = true;
+        return this;
+    }
+
     @Override
     public boolean isPersistent() {
         return persistent;
@@ -183,6 +196,11 @@ public abstract class BaseStatefulWindowedBolt<T extends State> extends BaseWind
         return maxEventsInMemory > 0 ? maxEventsInMemory : IStatefulWindowedBolt.super.maxEventsInMemory();
     }
 
+    @Override
+    public boolean isSpillingToDisk() {
+        return spillingToDisk;
+    }
+
     @Override
     public void preCommit(long txid) {
         // NOOP
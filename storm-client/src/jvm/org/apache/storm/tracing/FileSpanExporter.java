@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.tracing;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.storm.Config;
+import org.apache.storm.shade.net.minidev.json.JSONValue;
+import org.apache.storm.utils.ConfigUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends the spans of a worker to a local file, one JSON object per line.  The file is spans-&lt;port&gt;.json in
+ * {@link Config#TOPOLOGY_TRACING_FILE_EXPORTER_DIR}, or worker-spans.json in the artifacts directory of the worker if that is not
+ * set.  Meant for testing and for looking at a few traces, every span is written out synchronously.
+ */
+public class FileSpanExporter implements ISpanExporter {
+    public static final String ARTIFACTS_FILE_NAME = "worker-spans.json";
+    private static final Logger LOG = LoggerFactory.getLogger(FileSpanExporter.class);
+
+    private String topologyId;
+    private int workerPort;
+    private File file;
+    private Writer writer;
+
+    @Override
+    public void prepare(Map<String, Object> topoConf, String topologyId, int workerPort) {
+        this.topologyId = topologyId;
+        this.workerPort = workerPort;
+        String dir = (String) topoConf.get(Config.TOPOLOGY_TRACING_FILE_EXPORTER_DIR);
+        if (dir == null) {
+            file = new File(ConfigUtils.workerArtifactsRoot(topoConf, topologyId, workerPort), ARTIFACTS_FILE_NAME);
+        } else {
+            file = new File(dir, "spans-" + workerPort + ".json");
+        }
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            writer = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open span file " + file, e);
+        }
+        LOG.info("Writing spans to {}", file);
+    }
+
+    @Override
+    public synchronized void export(Span span) {
+        if (writer == null) {
+            return;
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("traceId", Long.toHexString(span.getTraceId()));
+        json.put("spanId", Long.toHexString(span.getSpanId()));
+        if (!span.isRoot()) {
+            json.put("parentSpanId", Long.toHexString(span.getParentSpanId()));
+        }
+        json.put("topologyId", topologyId);
+        json.put("workerPort", workerPort);
+        json.put("component", span.getComponentId());
+        json.put("task", span.getTaskId());
+        json.put("stream", span.getStreamId());
+        if (!span.isRoot()) {
+            json.put("sourceComponent", span.getSourceComponent());
+            json.put("sourceTask", span.getSourceTask());
+        }
+        json.put("emitMs", span.getEmitTimeMs());
+        json.put("receiveMs", span.getReceiveTimeMs());
+        json.put("dequeueMs", span.getDequeueTimeMs());
+        json.put("executeEndMs", span.getExecuteEndTimeMs());
+        try {
+            writer.write(JSONValue.toJSONString(json));
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to span file " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LOG.warn("Could not close span file {}", file, e);
+            }
+            writer = null;
+        }
+    }
+}
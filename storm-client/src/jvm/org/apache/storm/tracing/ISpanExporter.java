@@ -0,0 +1,35 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.tracing;
+
+import java.util.Map;
+
+/**
+ * Receives the spans of the traced tuples of a worker, see {@link org.apache.storm.Config#TOPOLOGY_TRACING_SAMPLE_RATE}.  There is
+ * one exporter per worker and it is called from the executor threads, so implementations must be thread safe and should not block
+ * for long.
+ */
+public interface ISpanExporter {
+    /**
+     * Called once before any span is exported.
+     *
+     * @param topoConf the topology config
+     * @param topologyId the id of the topology
+     * @param workerPort the port of the worker
+     */
+    void prepare(Map<String, Object> topoConf, String topologyId, int workerPort);
+
+    void export(Span span);
+
+    void close();
+}
@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.tracing;
+
+/**
+ * One hop of a traced tuple: a task executing it, or a spout emitting the tuple that started the trace.  The timestamps are
+ * wall clock milliseconds, so the ones taken on different hosts are only as good as their clocks are in sync.
+ *
+ * <ul>
+ *     <li>emit to receive: the worker transfer queue and the network, 0 for tuples sent inside a worker</li>
+ *     <li>receive to dequeue: the receive queue of the executor</li>
+ *     <li>dequeue to execute end: the user code, including the wait of an async bolt or an execute dispatcher</li>
+ * </ul>
+ */
+public class Span {
+    private final long traceId;
+    private final long spanId;
+    private final long parentSpanId;
+    private final String componentId;
+    private final int taskId;
+    private final String sourceComponent;
+    private final int sourceTask;
+    private final String streamId;
+    private final long emitTimeMs;
+    private final long receiveTimeMs;
+    private final long dequeueTimeMs;
+    private volatile long executeEndTimeMs;
+
+    Span(long traceId, long spanId, long parentSpanId, String componentId, int taskId, String sourceComponent, int sourceTask,
+         String streamId, long emitTimeMs, long receiveTimeMs, long dequeueTimeMs) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.componentId = componentId;
+        this.taskId = taskId;
+        this.sourceComponent = sourceComponent;
+        this.sourceTask = sourceTask;
+        this.streamId = streamId;
+        this.emitTimeMs = emitTimeMs;
+        this.receiveTimeMs = receiveTimeMs;
+        this.dequeueTimeMs = dequeueTimeMs;
+        this.executeEndTimeMs = dequeueTimeMs;
+    }
+
+    public long getTraceId() {
+        return traceId;
+    }
+
+    public long getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * Get the id of the span the tuple was emitted in.
+     * @return the parent span id, 0 for the span of the spout that started the trace.
+     */
+    public long getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public boolean isRoot() {
+        return parentSpanId == 0;
+    }
+
+    public String getComponentId() {
+        return componentId;
+    }
+
+    public int getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * Get the component that emitted the tuple.
+     * @return the source component, null for a root span.
+     */
+    public String getSourceComponent() {
+        return sourceComponent;
+    }
+
+    public int getSourceTask() {
+        return sourceTask;
+    }
+
+    /**
+     * Get the stream of the tuple.
+     * @return the stream the tuple was received on, or for a root span the stream the spout emitted it on.
+     */
+    public String getStreamId() {
+        return streamId;
+    }
+
+    public long getEmitTimeMs() {
+        return emitTimeMs;
+    }
+
+    public long getReceiveTimeMs() {
+        return receiveTimeMs;
+    }
+
+    public long getDequeueTimeMs() {
+        return dequeueTimeMs;
+    }
+
+    public long getExecuteEndTimeMs() {
+        return executeEndTimeMs;
+    }
+
+    void setExecuteEndTimeMs(long executeEndTimeMs) {
+        this.executeEndTimeMs = executeEndTimeMs;
+    }
+
+    @Override
+    public String toString() {
+        return "Span{" + Long.toHexString(traceId) + ":" + Long.toHexString(spanId) + " parent " + Long.toHexString(parentSpanId)
+               + " " + componentId + ":" + taskId + " <- " + sourceComponent + ":" + sourceTask + " " + streamId
+               + " emit " + emitTimeMs + " receive " + receiveTimeMs + " dequeue " + dequeueTimeMs
+               + " execute end " + executeEndTimeMs + "}";
+    }
+}
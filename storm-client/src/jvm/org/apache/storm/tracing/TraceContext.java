@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.tracing;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * The trace context a traced tuple carries from the task that emitted it to the task that executes it.  Only the trace id, the id
+ * of the span the tuple was emitted in and the emit time go over the wire.  The receive time is filled in by the worker that
+ * deserializes the tuple, for tuples transferred inside a worker it is the emit time.
+ */
+public final class TraceContext {
+    private final long traceId;
+    private final long parentSpanId;
+    private final long emitTimeMs;
+    private final long receiveTimeMs;
+
+    public TraceContext(long traceId, long parentSpanId, long emitTimeMs) {
+        this(traceId, parentSpanId, emitTimeMs, emitTimeMs);
+    }
+
+    private TraceContext(long traceId, long parentSpanId, long emitTimeMs, long receiveTimeMs) {
+        this.traceId = traceId;
+        this.parentSpanId = parentSpanId;
+        this.emitTimeMs = emitTimeMs;
+        this.receiveTimeMs = receiveTimeMs;
+    }
+
+    /**
+     * Read a trace context written by {@link #serialize(TraceContext, Output)}.
+     *
+     * @param in the input to read from
+     * @param receiveTimeMs the time the tuple was received
+     * @return the context or null if the tuple is not traced
+     */
+    public static TraceContext deserialize(Input in, long receiveTimeMs) {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return new TraceContext(in.readLong(), in.readLong(), in.readLong(), receiveTimeMs);
+    }
+
+    /**
+     * Write a trace context, or the absence of one.
+     *
+     * @param context the context, null if the tuple is not traced
+     * @param out the output to write to
+     */
+    public static void serialize(TraceContext context, Output out) {
+        out.writeBoolean(context != null);
+        if (context != null) {
+            out.writeLong(context.traceId);
+            out.writeLong(context.parentSpanId);
+            out.writeLong(context.emitTimeMs);
+        }
+    }
+
+    public long getTraceId() {
+        return traceId;
+    }
+
+    public long getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public long getEmitTimeMs() {
+        return emitTimeMs;
+    }
+
+    public long getReceiveTimeMs() {
+        return receiveTimeMs;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toHexString(traceId) + ":" + Long.toHexString(parentSpanId);
+    }
+}
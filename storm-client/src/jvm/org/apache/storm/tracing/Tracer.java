@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.tracing;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.storm.Config;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.TupleImpl;
+import org.apache.storm.utils.ObjectReader;
+import org.apache.storm.utils.ReflectionUtils;
+import org.apache.storm.utils.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Starts, propagates and finishes the traces of a worker.  There is only a tracer when
+ * {@link Config#TOPOLOGY_TRACING_SAMPLE_RATE} is above 0.
+ *
+ * <p>A spout emit starts a trace with the sample rate and exports a root span for it.  A bolt task that executes a traced tuple
+ * opens a span when it takes the tuple from its receive queue and exports it when the execute is done.  Tuples emitted while
+ * anchored to a traced tuple carry the trace on, with that span as their parent.
+ */
+public class Tracer {
+    private static final Logger LOG = LoggerFactory.getLogger(Tracer.class);
+
+    private final double sampleRate;
+    private final ISpanExporter exporter;
+
+    Tracer(double sampleRate, ISpanExporter exporter) {
+        this.sampleRate = sampleRate;
+        this.exporter = exporter;
+    }
+
+    /**
+     * Check if tuples are traced, and thus serialized with a trace context.
+     *
+     * @param topoConf the topology config
+     * @return true if the tracing sample rate is above 0
+     */
+    public static boolean isEnabled(Map<String, Object> topoConf) {
+        return ObjectReader.getDouble(topoConf.get(Config.TOPOLOGY_TRACING_SAMPLE_RATE), 0.0) > 0;
+    }
+
+    /**
+     * Create the tracer of a worker.
+     *
+     * @param topoConf the topology config
+     * @param topologyId the id of the topology
+     * @param workerPort the port of the worker
+     * @return the tracer, or null if tracing is off
+     */
+    public static Tracer create(Map<String, Object> topoConf, String topologyId, int workerPort) {
+        if (!isEnabled(topoConf)) {
+            return null;
+        }
+        double sampleRate = Math.min(1.0, ObjectReader.getDouble(topoConf.get(Config.TOPOLOGY_TRACING_SAMPLE_RATE)));
+        String exporterClass = ObjectReader.getString(topoConf.get(Config.TOPOLOGY_TRACING_SPAN_EXPORTER),
+                                                      FileSpanExporter.class.getName());
+        ISpanExporter exporter = ReflectionUtils.newInstance(exporterClass);
+        exporter.prepare(topoConf, topologyId, workerPort);
+        LOG.info("Tracing {} of the spout tuples, exporting spans to {}", sampleRate, exporterClass);
+        return new Tracer(sampleRate, exporter);
+    }
+
+    private static long newId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    /**
+     * Called for every spout emit, starts a trace for a sample of them.
+     *
+     * @return the context to put on the emitted tuples, or null if the emit is not traced
+     */
+    public TraceContext maybeStartTrace(String componentId, int taskId, String streamId) {
+        if (ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return null;
+        }
+        long now = Time.currentTimeMillis();
+        Span root = new Span(newId(), newId(), 0, componentId, taskId, null, -1, streamId, now, now, now);
+        export(root);
+        return new TraceContext(root.getTraceId(), root.getSpanId(), now);
+    }
+
+    /**
+     * Get the context for a tuple emitted by a bolt.
+     *
+     * @param anchors the anchors of the emitted tuple
+     * @return the context of the first traced anchor, or null if none of them is traced
+     */
+    public TraceContext childContext(Collection<Tuple> anchors) {
+        if (anchors == null) {
+            return null;
+        }
+        for (Tuple anchor : anchors) {
+            Span span = ((TupleImpl) anchor).getTraceSpan();
+            if (span != null) {
+                return new TraceContext(span.getTraceId(), span.getSpanId(), Time.currentTimeMillis());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Open the span of a bolt task about to execute a traced tuple, and attach it to the tuple.
+     *
+     * @param tuple the tuple, it must have a trace context
+     * @param componentId the component of the bolt
+     * @param taskId the task executing the tuple
+     */
+    public void beginSpan(TupleImpl tuple, String componentId, int taskId) {
+        TraceContext context = tuple.getTraceContext();
+        tuple.setTraceSpan(new Span(context.getTraceId(), newId(), context.getParentSpanId(), componentId, taskId,
+                                    tuple.getSourceComponent(), tuple.getSourceTask(), tuple.getSourceStreamId(),
+                                    context.getEmitTimeMs(), context.getReceiveTimeMs(), Time.currentTimeMillis()));
+    }
+
+    /**
+     * Finish the span of a traced tuple once its execute is done and export it.
+     *
+     * @param span the span from {@link #beginSpan(TupleImpl, String, int)}
+     */
+    public void endSpan(Span span) {
+        span.setExecuteEndTimeMs(Time.currentTimeMillis());
+        export(span);
+    }
+
+    private void export(Span span) {
+        try {
+            exporter.export(span);
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to export {}", span, e);
+        }
+    }
+
+    public void close() {
+        exporter.close();
+    }
+}
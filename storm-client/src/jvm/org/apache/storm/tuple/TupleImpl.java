@@ -16,6 +16,8 @@ import java.util.Collections;
 import java.util.List;
 import org.apache.storm.generated.GlobalStreamId;
 import org.apache.storm.task.GeneralTopologyContext;
+import org.apache.storm.tracing.Span;
+import org.apache.storm.tracing.TraceContext;
 
 public class TupleImpl implements Tuple {
     private final String srcComponent;
@@ -27,6 +29,8 @@ public class TupleImpl implements Tuple {
     private Long processSampleStartTime;
     private Long executeSampleStartTime;
     private long outAckVal = 0;
+    private TraceContext traceContext;
+    private Span traceSpan;
 
     public TupleImpl(Tuple t) {
         this.values = t.getValues();
@@ -40,6 +44,8 @@ public class TupleImpl implements Tuple {
             this.processSampleStartTime = ti.processSampleStartTime;
             this.executeSampleStartTime = ti.executeSampleStartTime;
             this.outAckVal = ti.outAckVal;
+            this.traceContext = ti.traceContext;
+            this.traceSpan = ti.traceSpan;
         } catch (ClassCastException e) {
             // ignore ... if t is not a TupleImpl type .. faster than checking and then casting
         }
@@ -83,6 +89,30 @@ public class TupleImpl implements Tuple {
         executeSampleStartTime = ms;
     }
 
+    /**
+     * Get the trace context of this tuple.
+     * @return the context, or null if the tuple is not traced.
+     */
+    public TraceContext getTraceContext() {
+        return traceContext;
+    }
+
+    public void setTraceContext(TraceContext traceContext) {
+        this.traceContext = traceContext;
+    }
+
+    /**
+     * Get the span of the task executing this tuple.
+     * @return the span, or null if the tuple is not traced or not being executed.
+     */
+    public Span getTraceSpan() {
+        return traceSpan;
+    }
+
+    public void setTraceSpan(Span traceSpan) {
+        this.traceSpan = traceSpan;
+    }
+
     public void updateAckVal(long val) {
         outAckVal = outAckVal ^ val;
     }
@@ -91,6 +121,17 @@ public class TupleImpl implements Tuple {
         return outAckVal;
     }
 
+    /**
+     * Get a copy of this tuple without its values, which can still be acked or failed. Holding on to it until the tuple is acked keeps
+     * the message id and the ack value but not the payload.
+     * @return the copy
+     */
+    public TupleImpl withoutValues() {
+        TupleImpl copy = new TupleImpl(this);
+        copy.values = Collections.emptyList();
+        return copy;
+    }
+
     @Override
     public int size() {
         return values.size();
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package org.apache.storm.utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Picks the batch size of one producer thread of a {@link JCQueue} from its arrival rate and the occupancy of the queue. Not thread
+ * safe, each producer thread has its own.
+ */
+class AdaptiveBatchSizer {
+    private static final double RATE_SMOOTHING = 0.25;
+    private static final double BACKED_UP_QUEUE_LOAD = 0.5;
+
+    enum FlushCause {
+        FULL, TIMEOUT, EXPLICIT
+    }
+
+    private final int maxBatchSz;
+    private final long maxDelayNanos;
+    private final DoubleSupplier queueLoad;
+    private final List<JCQueueMetrics> metrics;
+    private final LongSupplier clock;
+    private final long producerId;
+    private int batchSz = 1;
+    private long lastArrivalNanos;
+    private long batchStartNanos;
+    private long windowStartNanos;
+    private long windowArrivals;
+    private double arrivalsPerNano = -1;
+    private final long[] flushes = new long[FlushCause.values().length];
+
+    /**
+     * Constructor, to be called on the producer thread.
+     * @param queueLoad the fraction of the queue capacity in use
+     * @param metrics the metrics the batch size and the flush counts are reported to
+     * @param clock the time source, in nanoseconds
+     */
+    AdaptiveBatchSizer(int maxBatchSz, long maxDelayNanos, DoubleSupplier queueLoad, List<JCQueueMetrics> metrics, LongSupplier clock) {
+        this.maxBatchSz = maxBatchSz;
+        this.maxDelayNanos = maxDelayNanos;
+        this.queueLoad = queueLoad;
+        this.metrics = metrics;
+        this.clock = clock;
+        this.producerId = Thread.currentThread().getId();
+        this.windowStartNanos = clock.getAsLong();
+    }
+
+    int batchSize() {
+        return batchSz;
+    }
+
+    /**
+     * Record an arrival.
+     * @param pending the number of elements already waiting in the batch
+     * @return true if the waiting elements are overdue and should be pushed before adding the new one
+     */
+    boolean arrival(int pending) {
+        long now = clock.getAsLong();
+        lastArrivalNanos = now;
+        windowArrivals++;
+        boolean overdue = pending > 0 && now - batchStartNanos >= maxDelayNanos;
+        if (pending == 0 || overdue) {
+            batchStartNanos = now;
+        }
+        return overdue;
+    }
+
+    /**
+     * Record that the batch is about to be pushed, and re-evaluate the batch size once every delay period.
+     * @return the batch size to use from now on
+     */
+    int flushed(FlushCause cause) {
+        flushes[cause.ordinal()]++;
+        long elapsed = lastArrivalNanos - windowStartNanos;
+        if (elapsed >= maxDelayNanos) {
+            double sample = (double) windowArrivals / elapsed;
+            arrivalsPerNano = arrivalsPerNano < 0 ? sample : arrivalsPerNano + RATE_SMOOTHING * (sample - arrivalsPerNano);
+            windowStartNanos = lastArrivalNanos;
+            windowArrivals = 0;
+            if (queueLoad.getAsDouble() >= BACKED_UP_QUEUE_LOAD) {
+                // the consumer is behind, larger batches add no latency but reduce contention on the queue
+                batchSz = maxBatchSz;
+            } else {
+                batchSz = (int) Math.max(1, Math.min(maxBatchSz, arrivalsPerNano * maxDelayNanos));
+            }
+            for (JCQueueMetrics jcQueueMetric : metrics) {
+                jcQueueMetric.notifyProducerBatching(producerId, batchSz, flushes[FlushCause.FULL.ordinal()],
+                    flushes[FlushCause.TIMEOUT.ordinal()], flushes[FlushCause.EXPLICIT.ordinal()]);
+            }
+            Arrays.fill(flushes, 0);
+        }
+        return batchSz;
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.storm.utils;
 import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.apache.storm.metrics2.StormMetricRegistry;
 import org.apache.storm.policy.IWaitStrategy;
 import org.apache.storm.shade.org.jctools.queues.MessagePassingQueue;
@@ -39,6 +40,7 @@ public class JCQueue implements Closeable {
     private final MpscUnboundedArrayQueue<Object> overflowQ;
     private final int overflowLimit; // ensures... overflowCount <= overflowLimit. if set to 0, disables overflow limiting.
     private final int producerBatchSz;
+    private final long adaptiveBatchDelayNanos; // 0 unless batch sizes adapt to the arrival rate
     private final DirectInserter directInserter = new DirectInserter(this);
     private final ThreadLocal<BatchInserter> thdLocalBatcher = new ThreadLocal<BatchInserter>(); // ensure 1 instance per producer thd.
     private final IWaitStrategy backPressureWaitStrategy;
@@ -47,19 +49,35 @@ public class JCQueue implements Closeable {
     public JCQueue(String queueName, String metricNamePrefix, int size, int overflowLimit, int producerBatchSz,
                    IWaitStrategy backPressureWaitStrategy, String topologyId, String componentId, List<Integer> taskIds,
                    int port, StormMetricRegistry metricRegistry) {
+        this(queueName, metricNamePrefix, size, overflowLimit, producerBatchSz, 0, backPressureWaitStrategy, topologyId, componentId,
+            taskIds, port, metricRegistry);
+    }
+
+    /**
+     * Create a queue whose producer batches adapt to the arrival rate.
+     * @param producerBatchSz the largest batch a producer thread will build
+     * @param adaptiveBatchDelayMicros if positive, each producer thread sizes its batches so that filling one takes about this long at
+     *     its current arrival rate, and pushes a partial batch once its oldest element has waited this long. Batches go to the maximum
+     *     size while the queue is backed up anyway. If 0, producers always batch up to producerBatchSz.
+     */
+    public JCQueue(String queueName, String metricNamePrefix, int size, int overflowLimit, int producerBatchSz,
+                   int adaptiveBatchDelayMicros, IWaitStrategy backPressureWaitStrategy, String topologyId, String componentId,
+                   List<Integer> taskIds, int port, StormMetricRegistry metricRegistry) {
         this.queueName = queueName;
         this.overflowLimit = overflowLimit;
         this.recvQueue = new MpscArrayQueue<>(size);
         this.overflowQ = new MpscUnboundedArrayQueue<>(size);
 
-        for (Integer taskId : taskIds) {
-            this.jcqMetrics.add(new JCQueueMetrics(metricNamePrefix, topologyId, componentId, taskId, port,
-                    metricRegistry, recvQueue, overflowQ));
-        }
-
         //The batch size can be no larger than half the full recvQueue size, to avoid contention issues.
         this.producerBatchSz = Math.max(1, Math.min(producerBatchSz, size / 2));
+        this.adaptiveBatchDelayNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, adaptiveBatchDelayMicros));
         this.backPressureWaitStrategy = backPressureWaitStrategy;
+
+        boolean adaptive = this.producerBatchSz > 1 && adaptiveBatchDelayNanos > 0;
+        for (Integer taskId : taskIds) {
+            this.jcqMetrics.add(new JCQueueMetrics(metricNamePrefix, topologyId, componentId, taskId, port,
+                    metricRegistry, recvQueue, overflowQ, adaptive));
+        }
     }
 
     public String getQueueName() {
@@ -162,7 +180,10 @@ public class JCQueue implements Closeable {
         if (producerBatchSz > 1) {
             inserter = thdLocalBatcher.get();
             if (inserter == null) {
-                BatchInserter b = new BatchInserter(this, producerBatchSz);
+                AdaptiveBatchSizer sizer = adaptiveBatchDelayNanos > 0
+                    ? new AdaptiveBatchSizer(producerBatchSz, adaptiveBatchDelayNanos, this::getQueueLoad, jcqMetrics, System::nanoTime)
+                    : null;
+                BatchInserter b = new BatchInserter(this, producerBatchSz, sizer);
                 inserter = b;
                 thdLocalBatcher.set(b);
             }
@@ -324,13 +345,15 @@ public class JCQueue implements Closeable {
 
     /* Not thread safe. Have one instance per producer thread or synchronize externally */
     private static class BatchInserter implements Inserter {
-        private final int batchSz;
+        private final AdaptiveBatchSizer sizer; // null if the batch size is fixed
+        private int batchSz;
         private JCQueue queue;
         private ArrayList<Object> currentBatch;
 
-        BatchInserter(JCQueue queue, int batchSz) {
+        BatchInserter(JCQueue queue, int batchSz, AdaptiveBatchSizer sizer) {
             this.queue = queue;
-            this.batchSz = batchSz;
+            this.sizer = sizer;
+            this.batchSz = sizer == null ? batchSz : sizer.batchSize();
             this.currentBatch = new ArrayList<>(batchSz + 1);
         }
 
@@ -339,9 +362,12 @@ public class JCQueue implements Closeable {
          */
         @Override
         public void publish(Object obj) throws InterruptedException {
+            if (sizer != null && sizer.arrival(currentBatch.size())) {
+                flush(AdaptiveBatchSizer.FlushCause.TIMEOUT);
+            }
             currentBatch.add(obj);
             if (currentBatch.size() >= batchSz) {
-                flush();
+                flush(AdaptiveBatchSizer.FlushCause.FULL);
             }
         }
 
@@ -350,8 +376,11 @@ public class JCQueue implements Closeable {
          */
         @Override
         public boolean tryPublish(Object obj) {
+            if (sizer != null && sizer.arrival(currentBatch.size())) {
+                tryFlush(AdaptiveBatchSizer.FlushCause.TIMEOUT);
+            }
             if (currentBatch.size() >= batchSz) {
-                if (!tryFlush()) {
+                if (!tryFlush(AdaptiveBatchSizer.FlushCause.FULL)) {
                     return false;
                 }
             }
@@ -365,9 +394,16 @@ public class JCQueue implements Closeable {
          */
         @Override
         public void flush() throws InterruptedException {
+            flush(AdaptiveBatchSizer.FlushCause.EXPLICIT);
+        }
+
+        private void flush(AdaptiveBatchSizer.FlushCause cause) throws InterruptedException {
             if (currentBatch.isEmpty()) {
                 return;
             }
+            if (sizer != null) {
+                batchSz = sizer.flushed(cause);
+            }
             int publishCount = queue.tryPublishInternal(currentBatch);
             int retryCount = 0;
             while (publishCount == 0) { // retry till at least 1 element is drained
@@ -393,9 +429,16 @@ public class JCQueue implements Closeable {
          */
         @Override
         public boolean tryFlush() {
+            return tryFlush(AdaptiveBatchSizer.FlushCause.EXPLICIT);
+        }
+
+        private boolean tryFlush(AdaptiveBatchSizer.FlushCause cause) {
             if (currentBatch.isEmpty()) {
                 return true;
             }
+            if (sizer != null) {
+                batchSz = sizer.flushed(cause);
+            }
             int publishCount = queue.tryPublishInternal(currentBatch);
             if (publishCount == 0) {
                 for (JCQueueMetrics jcQueueMetric : queue.jcqMetrics) {
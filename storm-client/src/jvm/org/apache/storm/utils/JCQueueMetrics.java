@@ -20,6 +20,8 @@ package org.apache.storm.utils;
 
 import com.codahale.metrics.Gauge;
 import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.storm.metric.internal.RateTracker;
 import org.apache.storm.metrics2.StormMetricRegistry;
@@ -31,10 +33,26 @@ public class JCQueueMetrics implements Closeable {
     private final RateTracker arrivalsTracker = new RateTracker(10000, 10);
     private final RateTracker insertFailuresTracker = new RateTracker(10000, 10);
     private final AtomicLong droppedMessages = new AtomicLong(0);
+    // adaptive producer batching, see AdaptiveBatchSizer. The latest batch size of each producer thread, by thread id
+    private final Map<Long, Integer> producerBatchSizes = new ConcurrentHashMap<>();
+    private final AtomicLong fullFlushes = new AtomicLong(0);
+    private final AtomicLong timeoutFlushes = new AtomicLong(0);
+    private final AtomicLong explicitFlushes = new AtomicLong(0);
 
     public JCQueueMetrics(String metricNamePrefix, String topologyId, String componentId, int taskId, int port,
                           StormMetricRegistry metricRegistry, MpscArrayQueue<Object> receiveQ,
                           MpscUnboundedArrayQueue<Object> overflowQ) {
+        this(metricNamePrefix, topologyId, componentId, taskId, port, metricRegistry, receiveQ, overflowQ, false);
+    }
+
+    /**
+     * Constructor.
+     * @param adaptiveBatching whether to also register the mean and the largest batch size of the producer threads, and the counts of
+     *     batches pushed because they were full, because their oldest element waited too long, or because of an explicit flush
+     */
+    public JCQueueMetrics(String metricNamePrefix, String topologyId, String componentId, int taskId, int port,
+                          StormMetricRegistry metricRegistry, MpscArrayQueue<Object> receiveQ,
+                          MpscUnboundedArrayQueue<Object> overflowQ, boolean adaptiveBatching) {
 
         Gauge<Integer> cap = new Gauge<Integer>() {
             @Override
@@ -103,6 +121,49 @@ public class JCQueueMetrics implements Closeable {
         metricRegistry.gauge(metricNamePrefix + "-insert_failures", insertFailures, topologyId, componentId, taskId, port);
         metricRegistry.gauge(metricNamePrefix + "-dropped_messages", dropped, topologyId, componentId, taskId, port);
         metricRegistry.gauge(metricNamePrefix + "-overflow", overflow, topologyId, componentId, taskId, port);
+
+        if (adaptiveBatching) {
+            Gauge<Double> batchSize = new Gauge<Double>() {
+                @Override
+                public Double getValue() {
+                    return producerBatchSizes.values().stream().mapToInt(Integer::intValue).average().orElse(1.0);
+                }
+            };
+
+            Gauge<Integer> batchSizeMax = new Gauge<Integer>() {
+                @Override
+                public Integer getValue() {
+                    return producerBatchSizes.values().stream().mapToInt(Integer::intValue).max().orElse(1);
+                }
+            };
+
+            Gauge<Long> flushesFull = new Gauge<Long>() {
+                @Override
+                public Long getValue() {
+                    return fullFlushes.get();
+                }
+            };
+
+            Gauge<Long> flushesTimeout = new Gauge<Long>() {
+                @Override
+                public Long getValue() {
+                    return timeoutFlushes.get();
+                }
+            };
+
+            Gauge<Long> flushesExplicit = new Gauge<Long>() {
+                @Override
+                public Long getValue() {
+                    return explicitFlushes.get();
+                }
+            };
+
+            metricRegistry.gauge(metricNamePrefix + "-producer_batch_size", batchSize, topologyId, componentId, taskId, port);
+            metricRegistry.gauge(metricNamePrefix + "-producer_batch_size_max", batchSizeMax, topologyId, componentId, taskId, port);
+            metricRegistry.gauge(metricNamePrefix + "-flushes_full", flushesFull, topologyId, componentId, taskId, port);
+            metricRegistry.gauge(metricNamePrefix + "-flushes_timeout", flushesTimeout, topologyId, componentId, taskId, port);
+            metricRegistry.gauge(metricNamePrefix + "-flushes_explicit", flushesExplicit, topologyId, componentId, taskId, port);
+        }
     }
 
     public void notifyArrivals(long counts) {
@@ -117,6 +178,18 @@ public class JCQueueMetrics implements Closeable {
         droppedMessages.incrementAndGet();
     }
 
+    /**
+     * Report the batch size a producer thread settled on, along with the batches it pushed since its last report, by cause. The
+     * producers of a queue are worker threads that live as long as the worker, so their entries are never removed.
+     * @param producerId the id of the producer thread
+     */
+    public void notifyProducerBatching(long producerId, int batchSize, long full, long timeout, long explicit) {
+        producerBatchSizes.put(producerId, batchSize);
+        fullFlushes.addAndGet(full);
+        timeoutFlushes.addAndGet(timeout);
+        explicitFlushes.addAndGet(explicit);
+    }
+
     @Override
     public void close() {
         arrivalsTracker.close();
@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.utils;
+
+import java.util.Arrays;
+
+/**
+ * A {@link RotatingMap} replacement for primitive long keys. Keys are never boxed and lookups probe a single open-addressing table
+ * regardless of the number of buckets.
+ *
+ * <p>Note: This class is not thread-safe.
+ */
+public class RotatingLongMap<V> extends RotatingLongTable {
+    private static final int DEFAULT_EXPECTED_SIZE = 1024;
+
+    private final ExpiredCallback<V> callback;
+    private Object[] values;
+    private Object[] oldValues;
+    // entries expired by the current rotation, handed to the callback once the sweep is done
+    private long[] expiredKeys = new long[16];
+    private Object[] expiredValues = new Object[16];
+    private int numExpired;
+
+    public RotatingLongMap(int numBuckets, int expectedSize, ExpiredCallback<V> callback) {
+        super(numBuckets, expectedSize);
+        this.callback = callback;
+        allocate(capacity());
+    }
+
+    public RotatingLongMap(int numBuckets, ExpiredCallback<V> callback) {
+        this(numBuckets, DEFAULT_EXPECTED_SIZE, callback);
+    }
+
+    public RotatingLongMap(int numBuckets) {
+        this(numBuckets, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = slotOf(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /**
+     * Associate a value with a key and move the key to the newest bucket.
+     */
+    public void put(long key, V value) {
+        int slot = slotForInsert(key);
+        values[slot] = value;
+        touch(slot);
+    }
+
+    /**
+     * Remove a key.
+     * @return the value it was mapped to, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V removeValue(long key) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return null;
+        }
+        V value = (V) values[slot];
+        removeSlot(slot);
+        return value;
+    }
+
+    /**
+     * Expire the oldest bucket. The callback runs after the sweep, so it may safely put new entries, e.g. when a spout re-emits from
+     * fail().
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int rotate() {
+        int expired = super.rotate();
+        if (numExpired > 0) {
+            int count = numExpired;
+            numExpired = 0;
+            for (int i = 0; i < count; i++) {
+                V value = (V) expiredValues[i];
+                expiredValues[i] = null;
+                callback.expire(expiredKeys[i], value);
+            }
+        }
+        return expired;
+    }
+
+    @Override
+    protected void expire(int slot) {
+        if (callback != null) {
+            if (numExpired == expiredKeys.length) {
+                expiredKeys = Arrays.copyOf(expiredKeys, numExpired * 2);
+                expiredValues = Arrays.copyOf(expiredValues, numExpired * 2);
+            }
+            expiredKeys[numExpired] = keyAt(slot);
+            expiredValues[numExpired] = values[slot];
+            numExpired++;
+        }
+    }
+
+    @Override
+    protected void allocate(int capacity) {
+        values = new Object[capacity];
+    }
+
+    @Override
+    protected void beginResize() {
+        oldValues = values;
+    }
+
+    @Override
+    protected void moveFromOld(int oldSlot, int newSlot) {
+        values[newSlot] = oldValues[oldSlot];
+    }
+
+    @Override
+    protected void endResize() {
+        oldValues = null;
+    }
+
+    @Override
+    protected void initSlot(int slot) {
+        values[slot] = null;
+    }
+
+    @Override
+    protected void moveSlot(int from, int to) {
+        values[to] = values[from];
+    }
+
+    @Override
+    protected void clearSlot(int slot) {
+        values[slot] = null;
+    }
+
+    public interface ExpiredCallback<V> {
+        void expire(long key, V val);
+    }
+}
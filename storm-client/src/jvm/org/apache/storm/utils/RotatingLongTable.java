@@ -0,0 +1,252 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.utils;
+
+/**
+ * Base class for rotating timeout tables keyed by primitive longs. It has the same expiration semantics as {@link RotatingMap}: an entry
+ * that was inserted or {@link #touch(int) touched} expires on the numBuckets-th call to {@link #rotate()} after that, but it is stored in a
+ * single open-addressing table instead of a list of hash maps, so lookups probe one array and no key is ever boxed.
+ *
+ * <p>Subclasses keep their values in parallel arrays indexed by slot (struct-of-arrays) and are told when a slot is initialized, moved,
+ * cleared or reallocated. Instead of physical buckets every slot records the rotation epoch it was last touched in; {@link #rotate()} bumps
+ * the epoch and sweeps out the slots that fell out of the window.
+ *
+ * <p>Note: This class is not thread-safe.
+ */
+public abstract class RotatingLongTable {
+    private static final int MIN_CAPACITY = 16;
+    // Linear probing degrades quickly above half full, and the sweep in rotate() relies on at least one free slot.
+    private static final int MAX_LOAD_DIVISOR = 2;
+    private static final int FREE = 0;
+
+    private final int numBuckets;
+    private long[] keys;
+    private int[] epochs;
+    private int mask;
+    private int size;
+    private int currentEpoch = 1;
+
+    protected RotatingLongTable(int numBuckets, int expectedSize) {
+        if (numBuckets < 2) {
+            throw new IllegalArgumentException("numBuckets must be >= 2");
+        }
+        this.numBuckets = numBuckets;
+        int capacity = MIN_CAPACITY;
+        while (capacity / MAX_LOAD_DIVISOR < expectedSize) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        epochs = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Allocate value columns for the given number of slots. Called once from the constructor of the subclass and again on every resize,
+     * after {@link #beginResize()}.
+     */
+    protected abstract void allocate(int capacity);
+
+    /**
+     * Keep the current value columns aside so that {@link #moveFromOld(int, int)} can copy from them into freshly allocated ones.
+     */
+    protected abstract void beginResize();
+
+    /**
+     * Copy the values of an entry from the columns kept by {@link #beginResize()} into the current ones.
+     */
+    protected abstract void moveFromOld(int oldSlot, int newSlot);
+
+    /**
+     * Drop the columns kept by {@link #beginResize()}.
+     */
+    protected abstract void endResize();
+
+    /**
+     * Initialize the values of a newly inserted entry.
+     */
+    protected abstract void initSlot(int slot);
+
+    /**
+     * Move the values of an entry to another slot of the same columns. The source slot is cleared afterwards.
+     */
+    protected abstract void moveSlot(int from, int to);
+
+    /**
+     * Drop any references held by a slot that is being freed.
+     */
+    protected abstract void clearSlot(int slot);
+
+    /**
+     * Called for every entry that times out in {@link #rotate()}, before it is removed.
+     */
+    protected void expire(int slot) {
+    }
+
+    protected final int capacity() {
+        return keys.length;
+    }
+
+    protected final long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(long key) {
+        return slotOf(key) >= 0;
+    }
+
+    /**
+     * Remove an entry.
+     * @return true if the key was present
+     */
+    public boolean remove(long key) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return false;
+        }
+        removeSlot(slot);
+        return true;
+    }
+
+    /**
+     * Advance the window by one bucket, expiring all entries that have not been touched in the last numBuckets rotations.
+     * @return the number of expired entries
+     */
+    public int rotate() {
+        currentEpoch++;
+        int expiredEpoch = currentEpoch - numBuckets;
+        if (size == 0) {
+            return 0;
+        }
+        // Start right after a free slot, so no probe chain wraps around the starting point while entries are shifted back.
+        int start = 0;
+        while (epochs[start] != FREE) {
+            start = (start + 1) & mask;
+        }
+        int expired = 0;
+        int i = (start + 1) & mask;
+        int remaining = mask;
+        while (remaining > 0) {
+            int epoch = epochs[i];
+            if (epoch != FREE && epoch <= expiredEpoch) {
+                expire(i);
+                removeSlot(i);
+                expired++;
+                // an entry from later in the chain may have been shifted into i, so look at it again
+                continue;
+            }
+            i = (i + 1) & mask;
+            remaining--;
+        }
+        return expired;
+    }
+
+    /**
+     * Find the slot holding a key.
+     * @return the slot, or -1 if the key is not present
+     */
+    protected final int slotOf(long key) {
+        int i = indexFor(key);
+        while (epochs[i] != FREE) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Find the slot holding a key, inserting and {@link #initSlot(int) initializing} a new entry in the current bucket if it is absent.
+     * Existing entries keep their bucket, like a {@link RotatingMap#get(Object)} hit.
+     */
+    protected final int slotForInsert(long key) {
+        int i = indexFor(key);
+        while (epochs[i] != FREE) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        if ((size + 1) > keys.length / MAX_LOAD_DIVISOR) {
+            grow();
+            return slotForInsert(key);
+        }
+        keys[i] = key;
+        epochs[i] = currentEpoch;
+        size++;
+        initSlot(i);
+        return i;
+    }
+
+    /**
+     * Move an entry to the current bucket, like re-putting it into a {@link RotatingMap}.
+     */
+    protected final void touch(int slot) {
+        epochs[slot] = currentEpoch;
+    }
+
+    /**
+     * Remove the entry in a slot, shifting back the entries that follow it in its probe chain.
+     */
+    protected final void removeSlot(int slot) {
+        int hole = slot;
+        int i = (slot + 1) & mask;
+        while (epochs[i] != FREE) {
+            int home = indexFor(keys[i]);
+            // the entry at i may fill the hole only if the hole lies within its probe chain [home, i)
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                epochs[hole] = epochs[i];
+                moveSlot(i, hole);
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        epochs[hole] = FREE;
+        clearSlot(hole);
+        size--;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldEpochs = epochs;
+        int capacity = oldKeys.length << 1;
+        keys = new long[capacity];
+        epochs = new int[capacity];
+        mask = capacity - 1;
+        beginResize();
+        allocate(capacity);
+        for (int old = 0; old < oldKeys.length; old++) {
+            if (oldEpochs[old] != FREE) {
+                int i = indexFor(oldKeys[old]);
+                while (epochs[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[old];
+                epochs[i] = oldEpochs[old];
+                moveFromOld(old, i);
+            }
+        }
+        endResize();
+    }
+
+    // package-private for tests that need keys colliding at a given slot
+    int indexFor(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -1,4 +1,3 @@
-
 /**
  * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
  * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
@@ -13,71 +12,172 @@
 
 package org.apache.storm.utils;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.stream.Stream;
+import java.util.NoSuchElementException;
 import org.apache.storm.generated.NodeInfo;
 import org.apache.storm.messaging.IConnection;
 import org.apache.storm.messaging.TaskMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Groups the messages drained from the worker transfer queue by destination worker and hands them to the connections.
+ *
+ * <p>The routing is kept as an array indexed by task id that points at one preallocated buffer per destination. It is rebuilt only when
+ * the worker publishes new task to node or node to connection maps, so a flush does not allocate once the buffers have grown to the
+ * usual batch size. Not thread safe, the transfer thread is the only user.
+ */
 public class TransferDrainer {
 
     private static final Logger LOG = LoggerFactory.getLogger(TransferDrainer.class);
-    private final Map<Integer, ArrayList<TaskMessage>> bundles = new HashMap<>();
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int NO_DESTINATION = -1;
+
+    private TaskMessage[] pending = new TaskMessage[INITIAL_CAPACITY];
+    private int numPending = 0;
+
+    // routing state, derived from the maps seen by the last send
+    private Map<Integer, NodeInfo> routedTaskToNode;
+    private Map<NodeInfo, IConnection> routedConnections;
+    private int[] taskToDestination = new int[0];
+    private Destination[] destinations = new Destination[0];
 
-    // Cache the msgs grouped by destination node
+    // Cache the msgs until the next send
     public void add(TaskMessage taskMsg) {
-        int destId = taskMsg.task();
-        ArrayList<TaskMessage> msgs = bundles.get(destId);
-        if (msgs == null) {
-            msgs = new ArrayList<>();
-            bundles.put(destId, msgs);
+        if (numPending == pending.length) {
+            pending = Arrays.copyOf(pending, pending.length * 2);
         }
-        msgs.add(taskMsg);
+        pending[numPending++] = taskMsg;
     }
 
     public void send(Map<Integer, NodeInfo> taskToNode, Map<NodeInfo, IConnection> connections) {
-        HashMap<NodeInfo, Stream<TaskMessage>> bundleMapByDestination = groupBundleByDestination(taskToNode);
-
-        for (Map.Entry<NodeInfo, Stream<TaskMessage>> entry : bundleMapByDestination.entrySet()) {
-            NodeInfo node = entry.getKey();
-            IConnection conn = connections.get(node);
-            if (conn != null) {
-                Iterator<TaskMessage> iter = entry.getValue().iterator();
-                if (iter.hasNext()) {
-                    conn.send(iter);
-                }
+        if (taskToNode != routedTaskToNode || connections != routedConnections) {
+            route(taskToNode, connections);
+        }
+
+        int unrouted = 0;
+        for (int i = 0; i < numPending; i++) {
+            TaskMessage msg = pending[i];
+            pending[i] = null;
+            int task = msg.task();
+            int dest = task >= 0 && task < taskToDestination.length ? taskToDestination[task] : NO_DESTINATION;
+            if (dest == NO_DESTINATION) {
+                unrouted++;
+                msg.release();
             } else {
-                LOG.warn("Connection not available for hostPort {}", node);
+                destinations[dest].add(msg);
             }
         }
-    }
-
-    private HashMap<NodeInfo, Stream<TaskMessage>> groupBundleByDestination(Map<Integer, NodeInfo> taskToNode) {
-        HashMap<NodeInfo, Stream<TaskMessage>> result = new HashMap<>();
+        numPending = 0;
+        if (unrouted > 0) {
+            LOG.warn("No remote destination available for {} messages", unrouted);
+        }
 
-        for (Entry<Integer, ArrayList<TaskMessage>> entry : bundles.entrySet()) {
-            if (entry.getValue().isEmpty()) {
+        for (Destination destination : destinations) {
+            if (destination.size == 0) {
                 continue;
             }
-            NodeInfo node = taskToNode.get(entry.getKey());
-            if (node != null) {
-                result.merge(node, entry.getValue().stream(), Stream::concat);
+            if (destination.connection != null) {
+                destination.connection.send(destination);
             } else {
-                LOG.warn("No remote destination available for task {}", entry.getKey());
+                LOG.warn("Connection not available for hostPort {}", destination.node);
             }
+            destination.clear();
+        }
+    }
+
+    private void route(Map<Integer, NodeInfo> taskToNode, Map<NodeInfo, IConnection> connections) {
+        int maxTask = -1;
+        for (Integer task : taskToNode.keySet()) {
+            maxTask = Math.max(maxTask, task);
+        }
+        int[] newTaskToDestination = new int[maxTask + 1];
+        Arrays.fill(newTaskToDestination, NO_DESTINATION);
+
+        Map<NodeInfo, Integer> nodeToDestination = new HashMap<>();
+        for (Map.Entry<Integer, NodeInfo> entry : taskToNode.entrySet()) {
+            Integer dest = nodeToDestination.get(entry.getValue());
+            if (dest == null) {
+                dest = nodeToDestination.size();
+                nodeToDestination.put(entry.getValue(), dest);
+            }
+            if (entry.getKey() >= 0) {
+                newTaskToDestination[entry.getKey()] = dest;
+            }
+        }
+
+        Destination[] newDestinations = new Destination[nodeToDestination.size()];
+        for (Map.Entry<NodeInfo, Integer> entry : nodeToDestination.entrySet()) {
+            newDestinations[entry.getValue()] = new Destination(entry.getKey(), connections.get(entry.getKey()));
         }
-        return result;
+
+        taskToDestination = newTaskToDestination;
+        destinations = newDestinations;
+        routedTaskToNode = taskToNode;
+        routedConnections = connections;
     }
 
     public void clear() {
-        for (ArrayList<TaskMessage> taskMessages : bundles.values()) {
-            taskMessages.clear();
+        for (int i = 0; i < numPending; i++) {
+            pending[i].release();
+            pending[i] = null;
+        }
+        numPending = 0;
+        for (Destination destination : destinations) {
+            destination.clear();
+        }
+    }
+
+    /**
+     * The messages bound for one remote worker. Doubles as the iterator handed to the connection, which nulls out slots as it goes.
+     */
+    private static final class Destination implements Iterator<TaskMessage> {
+        private final NodeInfo node;
+        private final IConnection connection;
+        private TaskMessage[] msgs = new TaskMessage[INITIAL_CAPACITY];
+        private int size = 0;
+        private int cursor = 0;
+
+        Destination(NodeInfo node, IConnection connection) {
+            this.node = node;
+            this.connection = connection;
+        }
+
+        void add(TaskMessage msg) {
+            if (size == msgs.length) {
+                msgs = Arrays.copyOf(msgs, msgs.length * 2);
+            }
+            msgs[size++] = msg;
+        }
+
+        /**
+         * Reset for the next send, releasing whatever the connection did not consume.
+         */
+        void clear() {
+            for (int i = cursor; i < size; i++) {
+                msgs[i].release();
+                msgs[i] = null;
+            }
+            size = 0;
+            cursor = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        @Override
+        public TaskMessage next() {
+            if (cursor >= size) {
+                throw new NoSuchElementException();
+            }
+            TaskMessage msg = msgs[cursor];
+            msgs[cursor++] = null;
+            return msg;
         }
     }
 }
@@ -23,6 +23,7 @@ import org.slf4j.LoggerFactory;
 
 public final class TupleUtils {
     private static final Logger LOG = LoggerFactory.getLogger(TupleUtils.class);
+    private static final int MURMUR3_SEED = 0;
 
     private TupleUtils() {
         // No instantiation
@@ -46,6 +47,91 @@ public final class TupleUtils {
         }
     }
 
+    /**
+     * Same as {@link #chooseTaskIndex(List, int)} on the values at {@code fieldIndexes}, without building the list of selected values.
+     *
+     * @param values       all values of the tuple
+     * @param fieldIndexes the positions of the grouping fields in {@code values}
+     * @param murmur3      hash with murmur3 instead of the legacy {@link Arrays#deepHashCode(Object[])} mapping
+     * @param numTasks     the number of target tasks
+     */
+    public static int chooseTaskIndex(List<Object> values, int[] fieldIndexes, boolean murmur3, int numTasks) {
+        int hash;
+        if (murmur3) {
+            hash = MURMUR3_SEED;
+            for (int fieldIndex : fieldIndexes) {
+                hash = murmur3Mix(hash, elementHashCode(values.get(fieldIndex)));
+            }
+            hash = murmur3Finish(hash, fieldIndexes.length);
+        } else {
+            hash = 1;
+            for (int fieldIndex : fieldIndexes) {
+                hash = 31 * hash + elementHashCode(values.get(fieldIndex));
+            }
+        }
+        return Math.floorMod(hash, numTasks);
+    }
+
+    /**
+     * Same as {@link #chooseTaskIndex(List, int[], boolean, int)} for a tuple with a single long grouping field.
+     */
+    public static int chooseTaskIndex(long key, boolean murmur3, int numTasks) {
+        int hash = murmur3 ? murmur3Finish(murmur3Mix(MURMUR3_SEED, Long.hashCode(key)), 1) : 31 + Long.hashCode(key);
+        return Math.floorMod(hash, numTasks);
+    }
+
+    /**
+     * Whether fields groupings of the topology hash with murmur3, see {@link Config#TOPOLOGY_FIELDS_GROUPING_HASH}.
+     */
+    public static boolean isMurmur3FieldsGrouping(Map<String, Object> topoConf) {
+        return "murmur3".equals(ObjectReader.getString(topoConf.get(Config.TOPOLOGY_FIELDS_GROUPING_HASH), "legacy"));
+    }
+
+    // The per element hash of Arrays.deepHashCode
+    private static int elementHashCode(Object element) {
+        if (element == null) {
+            return 0;
+        } else if (element instanceof Object[]) {
+            return Arrays.deepHashCode((Object[]) element);
+        } else if (element instanceof byte[]) {
+            return Arrays.hashCode((byte[]) element);
+        } else if (element instanceof short[]) {
+            return Arrays.hashCode((short[]) element);
+        } else if (element instanceof int[]) {
+            return Arrays.hashCode((int[]) element);
+        } else if (element instanceof long[]) {
+            return Arrays.hashCode((long[]) element);
+        } else if (element instanceof char[]) {
+            return Arrays.hashCode((char[]) element);
+        } else if (element instanceof float[]) {
+            return Arrays.hashCode((float[]) element);
+        } else if (element instanceof double[]) {
+            return Arrays.hashCode((double[]) element);
+        } else if (element instanceof boolean[]) {
+            return Arrays.hashCode((boolean[]) element);
+        }
+        return element.hashCode();
+    }
+
+    // One 4 byte block of MurmurHash3 x86_32
+    private static int murmur3Mix(int hash, int block) {
+        block *= 0xcc9e2d51;
+        block = Integer.rotateLeft(block, 15);
+        block *= 0x1b873593;
+        hash ^= block;
+        hash = Integer.rotateLeft(hash, 13);
+        return hash * 5 + 0xe6546b64;
+    }
+
+    private static int murmur3Finish(int hash, int blocks) {
+        hash ^= blocks * 4;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+
     public static Map<String, Object> putTickFrequencyIntoComponentConfig(Map<String, Object> conf, int tickFreqSecs) {
         if (conf == null) {
             conf = new Config();
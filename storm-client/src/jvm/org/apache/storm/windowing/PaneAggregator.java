@@ -0,0 +1,44 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.windowing;
+
+/**
+ * Builds the aggregate of a window out of partial aggregates, see {@link PaneWindowManager}.
+ *
+ * @param <T> the type of event in the window
+ * @param <A> the type of the aggregate
+ */
+public interface PaneAggregator<T, A> {
+    /**
+     * Returns a new, empty aggregate.
+     */
+    A init();
+
+    /**
+     * Adds an event to an aggregate.
+     *
+     * @param aggregate the aggregate, may be modified and returned
+     * @param event     the event
+     * @return the aggregate including the event
+     */
+    A accumulate(A aggregate, T event);
+
+    /**
+     * Combines two aggregates.
+     *
+     * @param first  the first aggregate, may be modified and returned
+     * @param second the second aggregate, must not be modified
+     * @return the aggregate of both
+     */
+    A merge(A first, A second);
+}
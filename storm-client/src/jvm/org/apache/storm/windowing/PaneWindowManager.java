@@ -0,0 +1,216 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.windowing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link WindowManager} that keeps partial aggregates instead of events. The windows are split into panes, slices as long as the
+ * greatest common divisor of the window length and the sliding interval, each event is accumulated into the aggregate of its pane, and
+ * on activation the aggregates of the panes of the window are merged and handed to
+ * {@link WindowLifecycleListener#onAggregateActivation(Object, Long, Long)}. An activation costs O(length / pane) merges instead of
+ * O(length) events. Like with {@link WindowManager}, the events are released with {@link WindowLifecycleListener#onExpiry(List)} once
+ * they are evicted, that is once their pane is not part of any window still to be activated. Until then only what the expiry needs is
+ * kept, see {@link #PaneWindowManager(WindowLifecycleListener, PaneAggregator, boolean, long, long, UnaryOperator)}.
+ *
+ * <p>Count based windows activate every sliding interval events, like {@link CountTriggerPolicy}. Time based windows cover
+ * (end - length, end] where end is a multiple of the sliding interval, and activate once the watermark, or the processing time when
+ * {@link #onTrigger()} is called periodically, passes their end.
+ *
+ * @param <T> the type of event in the window
+ * @param <A> the type of the aggregate
+ */
+public class PaneWindowManager<T, A> extends WindowManager<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(PaneWindowManager.class);
+    private final PaneAggregator<T, A> aggregator;
+    private final boolean countBased;
+    private final long windowLength;
+    private final long slidingInterval;
+    private final long paneLength;
+    private final TreeMap<Long, A> panes = new TreeMap<>();
+    // what is left of the events of each pane once accumulated, kept until the pane is evicted
+    private final TreeMap<Long, List<T>> paneEvents = new TreeMap<>();
+    private final UnaryOperator<T> retainForExpiry;
+    private final ReentrantLock paneLock = new ReentrantLock();
+    private long eventCount;
+    private long nextWindowEnd = Long.MIN_VALUE;
+
+    /**
+     * Constructs a {@link PaneWindowManager}.
+     *
+     * @param lifecycleListener the {@link WindowLifecycleListener}
+     * @param aggregator        builds the aggregates
+     * @param countBased        whether length and sliding interval are event counts rather than millis
+     * @param windowLength      the window length
+     * @param slidingInterval   the sliding interval
+     */
+    public PaneWindowManager(WindowLifecycleListener<T> lifecycleListener, PaneAggregator<T, A> aggregator, boolean countBased,
+                             long windowLength, long slidingInterval) {
+        this(lifecycleListener, aggregator, countBased, windowLength, slidingInterval, UnaryOperator.identity());
+    }
+
+    /**
+     * Constructs a {@link PaneWindowManager} that keeps a reduced form of the events until they expire, so the memory held for a window
+     * is a partial aggregate per pane plus whatever the expiry needs per event, for example only the ids to ack.
+     *
+     * @param lifecycleListener the {@link WindowLifecycleListener}
+     * @param aggregator        builds the aggregates
+     * @param countBased        whether length and sliding interval are event counts rather than millis
+     * @param windowLength      the window length
+     * @param slidingInterval   the sliding interval
+     * @param retainForExpiry   reduces an accumulated event to what is passed to {@link WindowLifecycleListener#onExpiry(List)}
+     */
+    public PaneWindowManager(WindowLifecycleListener<T> lifecycleListener, PaneAggregator<T, A> aggregator, boolean countBased,
+                             long windowLength, long slidingInterval, UnaryOperator<T> retainForExpiry) {
+        super(lifecycleListener);
+        if (windowLength <= 0 || slidingInterval <= 0) {
+            throw new IllegalArgumentException("Window length " + windowLength + " and sliding interval " + slidingInterval
+                                               + " must be positive");
+        }
+        this.aggregator = aggregator;
+        this.countBased = countBased;
+        this.windowLength = windowLength;
+        this.slidingInterval = slidingInterval;
+        this.paneLength = gcd(windowLength, slidingInterval);
+        this.retainForExpiry = retainForExpiry;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    @Override
+    public void add(Event<T> windowEvent) {
+        if (windowEvent.isWatermark()) {
+            LOG.debug("Got watermark event with ts {}", windowEvent.getTimestamp());
+            advanceTo(windowEvent.getTimestamp());
+            return;
+        }
+        A windowAggregate = null;
+        List<T> expired = Collections.emptyList();
+        paneLock.lock();
+        try {
+            long pane = countBased ? eventCount / paneLength : Math.floorDiv(windowEvent.getTimestamp() - 1, paneLength);
+            A aggregate = panes.get(pane);
+            panes.put(pane, aggregator.accumulate(aggregate != null ? aggregate : aggregator.init(), windowEvent.get()));
+            paneEvents.computeIfAbsent(pane, p -> new ArrayList<>()).add(retainForExpiry.apply(windowEvent.get()));
+            if (countBased && ++eventCount % slidingInterval == 0) {
+                windowAggregate = aggregatePanes(eventCount - windowLength, eventCount);
+                expired = new ArrayList<>();
+                evictPanesBefore(Math.floorDiv(eventCount + slidingInterval - windowLength, paneLength), expired);
+            }
+        } finally {
+            paneLock.unlock();
+        }
+        if (windowAggregate != null) {
+            windowLifecycleListener.onAggregateActivation(windowAggregate, null, null);
+        }
+        if (!expired.isEmpty()) {
+            windowLifecycleListener.onExpiry(expired);
+        }
+    }
+
+    /**
+     * Activates the time based windows that ended by now, when called periodically for processing time windows.
+     */
+    @Override
+    public boolean onTrigger() {
+        // do not close the current millisecond since events might still arrive in it
+        return !countBased && advanceTo(System.currentTimeMillis() - 1);
+    }
+
+    private boolean advanceTo(long watermark) {
+        List<A> aggregates = new ArrayList<>();
+        List<Long> windowEnds = new ArrayList<>();
+        List<T> expired = new ArrayList<>();
+        paneLock.lock();
+        try {
+            while (!panes.isEmpty()) {
+                // skip the windows that have no panes left
+                nextWindowEnd = Math.max(nextWindowEnd, firstWindowEnd(panes.firstKey()));
+                if (nextWindowEnd > watermark) {
+                    break;
+                }
+                A aggregate = aggregatePanes(nextWindowEnd - windowLength, nextWindowEnd);
+                if (aggregate != null) {
+                    aggregates.add(aggregate);
+                    windowEnds.add(nextWindowEnd);
+                }
+                nextWindowEnd += slidingInterval;
+                evictPanesBefore(Math.floorDiv(nextWindowEnd - windowLength, paneLength), expired);
+            }
+        } finally {
+            paneLock.unlock();
+        }
+        for (int i = 0; i < aggregates.size(); i++) {
+            long end = windowEnds.get(i);
+            LOG.debug("invoking windowLifecycleListener onAggregateActivation, window end {}", end);
+            windowLifecycleListener.onAggregateActivation(aggregates.get(i), end - windowLength, end);
+        }
+        if (!expired.isEmpty()) {
+            windowLifecycleListener.onExpiry(expired);
+        }
+        return !aggregates.isEmpty();
+    }
+
+    // Drops the panes before the given one, which no window still to be activated covers, and collects their events
+    private void evictPanesBefore(long pane, List<T> expired) {
+        panes.headMap(pane).clear();
+        SortedMap<Long, List<T>> evicted = paneEvents.headMap(pane);
+        for (List<T> events : evicted.values()) {
+            expired.addAll(events);
+        }
+        evicted.clear();
+    }
+
+    // The end of the first window the pane is part of, the multiple of the sliding interval at or after the end of the pane
+    private long firstWindowEnd(long pane) {
+        return -Math.floorDiv(-(pane + 1) * paneLength, slidingInterval) * slidingInterval;
+    }
+
+    // Merges the panes covering [start, end) events or (start, end] millis, null if there are none
+    private A aggregatePanes(long start, long end) {
+        SortedMap<Long, A> window = panes.subMap(Math.floorDiv(start, paneLength), Math.floorDiv(end, paneLength));
+        if (window.isEmpty()) {
+            return null;
+        }
+        A aggregate = aggregator.init();
+        for (A pane : window.values()) {
+            aggregate = aggregator.merge(aggregate, pane);
+        }
+        return aggregate;
+    }
+
+    @Override
+    public String toString() {
+        return "PaneWindowManager{"
+                + "countBased=" + countBased
+                + ", windowLength=" + windowLength
+                + ", slidingInterval=" + slidingInterval
+                + ", paneLength=" + paneLength
+                + '}';
+    }
+}
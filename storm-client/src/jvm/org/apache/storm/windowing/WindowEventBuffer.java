@@ -0,0 +1,310 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.windowing;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A thread safe collection of window events in insertion order, used by the {@link WindowManager} by default.
+ *
+ * <p>The events are stored in fixed size chunks that keep the minimum and maximum timestamp of their events, so the timestamp queries
+ * of the watermark based trigger policies only look at the events of the chunks that straddle the bounds of the query and skip or count
+ * the other chunks as a whole. A chunk is released as soon as its last event is removed, wherever it is in the buffer. Like a
+ * {@link java.util.concurrent.ConcurrentLinkedQueue}, the iterators are weakly consistent and support {@link Iterator#remove()}.
+ *
+ * @param <T> the type of event in the window
+ */
+public class WindowEventBuffer<T> extends AbstractCollection<Event<T>> {
+    static final int CHUNK_SIZE = 256;
+    private Chunk<T> head;
+    private Chunk<T> tail;
+    private int size;
+
+    public WindowEventBuffer() {
+        head = tail = new Chunk<>();
+    }
+
+    @Override
+    public synchronized boolean add(Event<T> event) {
+        if (tail.end == CHUNK_SIZE) {
+            Chunk<T> full = tail;
+            Chunk<T> chunk = new Chunk<>();
+            chunk.prev = full;
+            full.next = chunk;
+            tail = chunk;
+            unlinkIfEmpty(full);
+        }
+        tail.append(event);
+        size++;
+        return true;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    // for tests
+    synchronized int numChunks() {
+        int count = 0;
+        for (Chunk<T> chunk = head; chunk != null; chunk = chunk.next) {
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public Iterator<Event<T>> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * Returns the earliest event ts between the startTs and endTs, see {@link WindowManager#getEarliestEventTs(long, long)}.
+     *
+     * @param startTs the start ts (exclusive)
+     * @param endTs   the end ts (inclusive)
+     * @return the earliest event ts between startTs and endTs, or Long.MAX_VALUE if there is none
+     */
+    public synchronized long getEarliestEventTs(long startTs, long endTs) {
+        long minTs = Long.MAX_VALUE;
+        for (Chunk<T> chunk = head; chunk != null; chunk = chunk.next) {
+            if (chunk.live == 0) {
+                continue;
+            }
+            chunk.refreshBounds();
+            if (chunk.maxTs <= startTs || chunk.minTs > endTs || chunk.minTs >= minTs) {
+                continue;
+            }
+            if (chunk.minTs > startTs) {
+                minTs = chunk.minTs;
+                continue;
+            }
+            for (int i = chunk.start; i < chunk.end; i++) {
+                Event<T> event = chunk.events[i];
+                if (event != null && event.getTimestamp() > startTs && event.getTimestamp() <= endTs) {
+                    minTs = Math.min(minTs, event.getTimestamp());
+                }
+            }
+        }
+        return minTs;
+    }
+
+    /**
+     * Returns the number of events having timestamp less than or equal to the reference time, see
+     * {@link WindowManager#getEventCount(long)}.
+     *
+     * @param referenceTime the reference timestamp in millis
+     * @return the count of events with timestamp less than or equal to referenceTime
+     */
+    public synchronized int getEventCount(long referenceTime) {
+        int count = 0;
+        for (Chunk<T> chunk = head; chunk != null; chunk = chunk.next) {
+            if (chunk.live == 0) {
+                continue;
+            }
+            chunk.refreshBounds();
+            if (chunk.maxTs <= referenceTime) {
+                count += chunk.live;
+            } else if (chunk.minTs <= referenceTime) {
+                for (int i = chunk.start; i < chunk.end; i++) {
+                    Event<T> event = chunk.events[i];
+                    if (event != null && event.getTimestamp() <= referenceTime) {
+                        ++count;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the event ts falling between startTs (exclusive) and endTs (inclusive) at each sliding interval counts, see
+     * {@link WindowManager#getSlidingCountTimestamps(long, long, int)}.
+     *
+     * @param startTs      the start timestamp (exclusive)
+     * @param endTs        the end timestamp (inclusive)
+     * @param slidingCount the sliding interval count
+     * @return the list of event ts
+     */
+    public synchronized List<Long> getSlidingCountTimestamps(long startTs, long endTs, int slidingCount) {
+        List<Long> timestamps = new ArrayList<>();
+        if (endTs > startTs) {
+            int count = 0;
+            long ts = Long.MIN_VALUE;
+            for (Chunk<T> chunk = head; chunk != null; chunk = chunk.next) {
+                if (chunk.live == 0) {
+                    continue;
+                }
+                chunk.refreshBounds();
+                if (chunk.maxTs <= startTs || chunk.minTs > endTs) {
+                    continue;
+                }
+                // the whole chunk is in range and does not complete a sliding interval
+                if (chunk.minTs > startTs && chunk.maxTs <= endTs && count % slidingCount + chunk.live < slidingCount) {
+                    count += chunk.live;
+                    ts = Math.max(ts, chunk.maxTs);
+                    continue;
+                }
+                for (int i = chunk.start; i < chunk.end; i++) {
+                    Event<T> event = chunk.events[i];
+                    if (event != null && event.getTimestamp() > startTs && event.getTimestamp() <= endTs) {
+                        ts = Math.max(ts, event.getTimestamp());
+                        if (++count % slidingCount == 0) {
+                            timestamps.add(ts);
+                        }
+                    }
+                }
+            }
+        }
+        return timestamps;
+    }
+
+    private synchronized void remove(Chunk<T> chunk, int index, Event<T> event) {
+        // the event may have been removed through another iterator
+        if (chunk.events[index] != event) {
+            return;
+        }
+        chunk.events[index] = null;
+        chunk.live--;
+        chunk.stale = true;
+        size--;
+        while (chunk.start < chunk.end && chunk.events[chunk.start] == null) {
+            chunk.start++;
+        }
+        unlinkIfEmpty(chunk);
+    }
+
+    // Drops a chunk whose events were all removed, wherever it is in the buffer. The tail is kept, it is where add appends.
+    private void unlinkIfEmpty(Chunk<T> chunk) {
+        if (chunk.live > 0 || chunk == tail) {
+            return;
+        }
+        Chunk<T> next = chunk.next;
+        if (chunk == head) {
+            head = next;
+        } else {
+            chunk.prev.next = next;
+        }
+        next.prev = chunk.prev;
+    }
+
+    private static final class Chunk<T> {
+        @SuppressWarnings("unchecked")
+        private final Event<T>[] events = (Event<T>[]) new Event[CHUNK_SIZE];
+        private int start;
+        private int end;
+        private int live;
+        private long minTs = Long.MAX_VALUE;
+        private long maxTs = Long.MIN_VALUE;
+        // whether minTs and maxTs may be looser than the bounds of the remaining events
+        private boolean stale;
+        // Only ever moves forward, past unlinked chunks. The iterators can still follow it from a chunk that is no longer in the buffer.
+        private volatile Chunk<T> next;
+        // guarded by the buffer lock, only used to unlink chunks
+        private Chunk<T> prev;
+
+        void append(Event<T> event) {
+            events[end++] = event;
+            live++;
+            minTs = Math.min(minTs, event.getTimestamp());
+            maxTs = Math.max(maxTs, event.getTimestamp());
+        }
+
+        void refreshBounds() {
+            if (stale) {
+                minTs = Long.MAX_VALUE;
+                maxTs = Long.MIN_VALUE;
+                for (int i = start; i < end; i++) {
+                    if (events[i] != null) {
+                        minTs = Math.min(minTs, events[i].getTimestamp());
+                        maxTs = Math.max(maxTs, events[i].getTimestamp());
+                    }
+                }
+                stale = false;
+            }
+        }
+    }
+
+    private final class Itr implements Iterator<Event<T>> {
+        private Chunk<T> chunk;
+        private int index;
+        private Event<T> next;
+        private Chunk<T> nextChunk;
+        private int nextIndex;
+        private Event<T> last;
+        private Chunk<T> lastChunk;
+        private int lastIndex;
+
+        Itr() {
+            synchronized (WindowEventBuffer.this) {
+                chunk = head;
+                index = head.start;
+                advance();
+            }
+        }
+
+        // finds the next event after the current position, must be called holding the buffer lock
+        private void advance() {
+            next = null;
+            while (true) {
+                while (index < chunk.end) {
+                    Event<T> event = chunk.events[index];
+                    if (event != null) {
+                        next = event;
+                        nextChunk = chunk;
+                        nextIndex = index++;
+                        return;
+                    }
+                    index++;
+                }
+                if (chunk.next == null) {
+                    return;
+                }
+                chunk = chunk.next;
+                index = chunk.start;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Event<T> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            lastChunk = nextChunk;
+            lastIndex = nextIndex;
+            synchronized (WindowEventBuffer.this) {
+                advance();
+            }
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            WindowEventBuffer.this.remove(lastChunk, lastIndex, last);
+            last = null;
+        }
+    }
+}
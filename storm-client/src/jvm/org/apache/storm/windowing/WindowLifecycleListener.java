@@ -54,4 +54,15 @@ public interface WindowLifecycleListener<T> {
                               Long referenceTime) {
         throw new UnsupportedOperationException("Not implemented");
     }
+
+    /**
+     * Called on activation of the window when the {@link PaneWindowManager} tracks the window as an aggregate instead of its events.
+     *
+     * @param aggregate      the aggregate of the events in the window
+     * @param startTimestamp the (exclusive) start of a time based window, null for count based windows
+     * @param endTimestamp   the (inclusive) end of a time based window, null for count based windows
+     */
+    default void onAggregateActivation(Object aggregate, Long startTimestamp, Long endTimestamp) {
+        // only listeners of a PaneWindowManager get aggregates
+    }
 }
@@ -24,7 +24,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import org.apache.storm.shade.com.google.common.collect.ImmutableMap;
@@ -59,7 +58,7 @@ public class WindowManager<T> implements TriggerHandler {
     protected TriggerPolicy<T, ?> triggerPolicy;
 
     public WindowManager(WindowLifecycleListener<T> lifecycleListener) {
-        this(lifecycleListener, new ConcurrentLinkedQueue<>());
+        this(lifecycleListener, new WindowEventBuffer<>());
     }
 
     /**
@@ -67,7 +66,8 @@ public class WindowManager<T> implements TriggerHandler {
      *
      * @param lifecycleListener the {@link WindowLifecycleListener}
      * @param queue             a collection where the events in the window can be enqueued. <br/>
-     *                          <b>Note:</b> This collection has to be thread safe.
+     *                          <b>Note:</b> This collection has to be thread safe. A {@link WindowEventBuffer} answers the timestamp
+     *                          queries of the watermark trigger policies without scanning all the events.
      */
     public WindowManager(WindowLifecycleListener<T> lifecycleListener, Collection<Event<T>> queue) {
         windowLifecycleListener = lifecycleListener;
@@ -232,6 +232,9 @@ public class WindowManager<T> implements TriggerHandler {
      * @return the earliest event ts between startTs and endTs
      */
     public long getEarliestEventTs(long startTs, long endTs) {
+        if (queue instanceof WindowEventBuffer) {
+            return ((WindowEventBuffer<T>) queue).getEarliestEventTs(startTs, endTs);
+        }
         long minTs = Long.MAX_VALUE;
         for (Event<T> event : queue) {
             if (event.getTimestamp() > startTs && event.getTimestamp() <= endTs) {
@@ -248,6 +251,9 @@ public class WindowManager<T> implements TriggerHandler {
      * @return the count of events with timestamp less than or equal to referenceTime
      */
     public int getEventCount(long referenceTime) {
+        if (queue instanceof WindowEventBuffer) {
+            return ((WindowEventBuffer<T>) queue).getEventCount(referenceTime);
+        }
         int count = 0;
         for (Event<T> event : queue) {
             if (event.getTimestamp() <= referenceTime) {
@@ -267,6 +273,9 @@ public class WindowManager<T> implements TriggerHandler {
      * @return the list of event ts
      */
     public List<Long> getSlidingCountTimestamps(long startTs, long endTs, int slidingCount) {
+        if (queue instanceof WindowEventBuffer) {
+            return ((WindowEventBuffer<T>) queue).getSlidingCountTimestamps(startTs, endTs, slidingCount);
+        }
         List<Long> timestamps = new ArrayList<>();
         if (endTs > startTs) {
             int count = 0;
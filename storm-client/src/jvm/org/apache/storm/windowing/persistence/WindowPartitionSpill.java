@@ -0,0 +1,351 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.windowing.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import org.apache.storm.shade.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.storm.shade.org.apache.commons.io.FileUtils;
+import org.apache.storm.state.Serializer;
+import org.apache.storm.windowing.persistence.WindowState.WindowPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the window partitions evicted from the {@link WindowState} cache in segment files on the local disk, so they are loaded back
+ * from there instead of from the state backend.
+ *
+ * <p>The partitions are appended to the active segment file. Once a segment is full it is memory mapped for reads and a new one is
+ * started; it is deleted when none of its partitions are live anymore. A partition is either in the cache or in the spill, so it is
+ * removed from the spill when it is loaded back with {@link #take(long)}. The next partition of a window scan can be read and
+ * de-serialized ahead on a background thread with {@link #prefetch(long)}. The spill does not survive a restart, the state backend still
+ * holds everything that was checkpointed.
+ *
+ * @param <T> the type of event in the window
+ */
+public class WindowPartitionSpill<T> {
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final Logger LOG = LoggerFactory.getLogger(WindowPartitionSpill.class);
+    private final File dir;
+    private final Serializer<WindowPartition<T>> serializer;
+    private final long segmentBytes;
+    private final Map<Long, Location> index = new HashMap<>();
+    private final Map<Integer, Segment> segments = new HashMap<>();
+    private final Map<Long, Future<Loaded<T>>> prefetched = new HashMap<>();
+    private final ExecutorService prefetcher;
+    private Segment active;
+    private int nextSegmentId;
+    private long diskBytes;
+
+    /**
+     * Creates a {@link WindowPartitionSpill}, deleting whatever a previous run left in the directory.
+     *
+     * @param dir          the directory for the segment files
+     * @param serializer   the serializer of the partitions, used from the prefetch thread as well so it has to be thread safe
+     * @param segmentBytes the size of a segment file after which a new one is started
+     */
+    public WindowPartitionSpill(File dir, Serializer<WindowPartition<T>> serializer, long segmentBytes) {
+        this.dir = dir;
+        this.serializer = serializer;
+        this.segmentBytes = segmentBytes;
+        try {
+            FileUtils.deleteDirectory(dir);
+            FileUtils.forceMkdir(dir);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot create window partition spill directory " + dir, e);
+        }
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+            .setNameFormat("window-partition-prefetch-%d")
+            .setDaemon(true)
+            .build();
+        this.prefetcher = Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    /**
+     * Writes a partition to the spill, replacing the previous copy if any.
+     */
+    public void put(WindowPartition<T> partition) {
+        byte[] bytes = serializer.serialize(partition);
+        synchronized (this) {
+            cancelPrefetch(partition.getId());
+            if (active == null || (active.size > 0 && active.size + bytes.length > segmentBytes)) {
+                roll();
+            }
+            Location location = new Location(active, active.size, bytes.length);
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                long position = active.size;
+                while (buffer.hasRemaining()) {
+                    position += active.channel.write(buffer, position);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot spill window partition " + partition.getId() + " to " + active.file, e);
+            }
+            active.size += bytes.length;
+            active.liveBytes += bytes.length;
+            diskBytes += bytes.length;
+            Location previous = index.put(partition.getId(), location);
+            if (previous != null) {
+                release(previous);
+            }
+        }
+    }
+
+    /**
+     * Removes a partition from the spill and returns it.
+     *
+     * @param pid the partition id
+     * @return the partition, or null if it is not in the spill
+     */
+    public WindowPartition<T> take(long pid) {
+        Future<Loaded<T>> future;
+        synchronized (this) {
+            future = prefetched.remove(pid);
+        }
+        Loaded<T> loaded = future != null ? await(future) : null;
+        byte[] bytes = null;
+        synchronized (this) {
+            Location location = index.remove(pid);
+            if (location == null) {
+                return null;
+            }
+            if (loaded == null || loaded.location != location) {
+                bytes = read(location);
+            }
+            release(location);
+        }
+        return bytes != null ? serializer.deserialize(bytes) : loaded.partition;
+    }
+
+    /**
+     * Returns a copy of a partition, leaving it in the spill.
+     *
+     * @param pid the partition id
+     * @return the partition, or null if it is not in the spill
+     */
+    public WindowPartition<T> read(long pid) {
+        byte[] bytes;
+        synchronized (this) {
+            Location location = index.get(pid);
+            if (location == null) {
+                return null;
+            }
+            bytes = read(location);
+        }
+        return serializer.deserialize(bytes);
+    }
+
+    /**
+     * Starts loading a partition in the background, if it is in the spill, so a following {@link #take(long)} does not wait for the
+     * disk.
+     */
+    public synchronized void prefetch(long pid) {
+        if (index.containsKey(pid) && !prefetched.containsKey(pid)) {
+            prefetched.put(pid, prefetcher.submit(() -> {
+                Location location;
+                byte[] bytes;
+                synchronized (this) {
+                    location = index.get(pid);
+                    if (location == null) {
+                        return null;
+                    }
+                    bytes = read(location);
+                }
+                return new Loaded<>(location, serializer.deserialize(bytes));
+            }));
+        }
+    }
+
+    /**
+     * Removes a partition from the spill.
+     */
+    public synchronized void remove(long pid) {
+        cancelPrefetch(pid);
+        Location location = index.remove(pid);
+        if (location != null) {
+            release(location);
+        }
+    }
+
+    public synchronized boolean contains(long pid) {
+        return index.containsKey(pid);
+    }
+
+    /**
+     * Returns the number of bytes in the segment files, including the space of the partitions that are no longer live.
+     */
+    public synchronized long getDiskBytes() {
+        return diskBytes;
+    }
+
+    /**
+     * Removes all the partitions and deletes the segment files.
+     */
+    public synchronized void clear() {
+        for (Future<Loaded<T>> future : prefetched.values()) {
+            future.cancel(false);
+        }
+        prefetched.clear();
+        index.clear();
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            delete(segment);
+        }
+        active = null;
+    }
+
+    /**
+     * Clears the spill and stops the prefetch thread.
+     */
+    public void close() {
+        clear();
+        prefetcher.shutdownNow();
+        FileUtils.deleteQuietly(dir);
+    }
+
+    private void cancelPrefetch(long pid) {
+        Future<Loaded<T>> future = prefetched.remove(pid);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    private Loaded<T> await(Future<Loaded<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            LOG.warn("Prefetching window partition failed, reading it again", e.getCause());
+            return null;
+        }
+    }
+
+    private void roll() {
+        if (active != null) {
+            active.sealed = true;
+            if (active.liveBytes == 0) {
+                delete(active);
+            }
+        }
+        File file = new File(dir, "segment-" + nextSegmentId);
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                                   StandardOpenOption.READ, StandardOpenOption.WRITE);
+            active = new Segment(nextSegmentId++, file, channel);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot create window partition spill segment " + file, e);
+        }
+        segments.put(active.id, active);
+        LOG.debug("Started window partition spill segment {}", file);
+    }
+
+    private byte[] read(Location location) {
+        Segment segment = location.segment;
+        byte[] bytes = new byte[location.length];
+        try {
+            if (segment.sealed) {
+                if (segment.mapped == null) {
+                    segment.mapped = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+                }
+                ByteBuffer buffer = segment.mapped.duplicate();
+                buffer.position((int) location.offset);
+                buffer.get(bytes);
+            } else {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                long position = location.offset;
+                while (buffer.hasRemaining()) {
+                    int read = segment.channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of file");
+                    }
+                    position += read;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read window partition spill segment " + segment.file, e);
+        }
+        return bytes;
+    }
+
+    private void release(Location location) {
+        Segment segment = location.segment;
+        segment.liveBytes -= location.length;
+        if (segment.sealed && segment.liveBytes == 0) {
+            delete(segment);
+        }
+    }
+
+    private void delete(Segment segment) {
+        LOG.debug("Deleting window partition spill segment {}", segment.file);
+        segments.remove(segment.id);
+        diskBytes -= segment.size;
+        segment.mapped = null;
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            LOG.warn("Cannot close window partition spill segment {}", segment.file, e);
+        }
+        FileUtils.deleteQuietly(segment.file);
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final File file;
+        private final FileChannel channel;
+        private long size;
+        private long liveBytes;
+        private boolean sealed;
+        private MappedByteBuffer mapped;
+
+        Segment(int id, File file, FileChannel channel) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+        }
+    }
+
+    private static final class Location {
+        private final Segment segment;
+        private final long offset;
+        private final int length;
+
+        Location(Segment segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static final class Loaded<T> {
+        private final Location location;
+        private final WindowPartition<T> partition;
+
+        Loaded(Location location, WindowPartition<T> partition) {
+            this.location = location;
+            this.partition = partition;
+        }
+    }
+}
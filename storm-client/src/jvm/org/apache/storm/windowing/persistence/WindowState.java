@@ -12,6 +12,9 @@
 
 package org.apache.storm.windowing.persistence;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
 import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -20,17 +23,20 @@ import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 import org.apache.storm.shade.com.google.common.collect.ImmutableMap;
 import org.apache.storm.state.KeyValueState;
+import org.apache.storm.task.IMetricsContext;
 import org.apache.storm.windowing.Event;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,12 +63,32 @@ public class WindowState<T> extends AbstractCollection<Event<T>> {
     private volatile WindowPartitionCache<Long, WindowPartition<T>> cache;
     private Supplier<Map<String, Optional<?>>> windowSystemStateSupplier;
     private Set<Long> iteratorPins = new HashSet<>();
+    // spilled partitions that were modified since the last flush
+    private final Set<Long> spilledModified = ConcurrentHashMap.newKeySet();
+    private final WindowPartitionSpill<T> spill;
+    private Meter cacheHits = new Meter();
+    private Meter cacheMisses = new Meter();
+    private Timer partitionLoads = new Timer();
 
     public WindowState(KeyValueState<Long, WindowPartition<T>> windowPartitionsState,
                        KeyValueState<String, Deque<Long>> partitionIdsState,
                        KeyValueState<String, Optional<?>> windowSystemState,
                        Supplier<Map<String, Optional<?>>> windowSystemStateSupplier,
                        long maxEventsInMemory) {
+        this(windowPartitionsState, partitionIdsState, windowSystemState, windowSystemStateSupplier, maxEventsInMemory, null);
+    }
+
+    /**
+     * Creates a {@link WindowState} that keeps the partitions evicted from memory in a {@link WindowPartitionSpill} rather than in the
+     * window partitions state. The spilled partitions are put in the state on {@link #prepareCommit(long)}.
+     */
+    public WindowState(KeyValueState<Long, WindowPartition<T>> windowPartitionsState,
+                       KeyValueState<String, Deque<Long>> partitionIdsState,
+                       KeyValueState<String, Optional<?>> windowSystemState,
+                       Supplier<Map<String, Optional<?>>> windowSystemStateSupplier,
+                       long maxEventsInMemory,
+                       WindowPartitionSpill<T> spill) {
+        this.spill = spill;
         this.windowPartitionsState = windowPartitionsState;
         this.partitionIdsState = partitionIdsState;
         this.windowSystemState = windowSystemState;
@@ -85,16 +111,17 @@ public class WindowState<T> extends AbstractCollection<Event<T>> {
     public Iterator<Event<T>> iterator() {
 
         return new Iterator<Event<T>>() {
-            private Iterator<Long> ids = getIds();
+            private List<Long> ids = getIds();
+            private int nextId;
             private Iterator<Event<T>> current = Collections.emptyIterator();
             private Iterator<Event<T>> removeFrom;
             private WindowPartition<T> curPartition;
 
-            private Iterator<Long> getIds() {
+            private List<Long> getIds() {
                 try {
                     partitionIdsLock.lock();
                     LOG.debug("Iterator partitionIds: {}", partitionIds);
-                    return new ArrayList<>(partitionIds).iterator();
+                    return new ArrayList<>(partitionIds);
                 } finally {
                     partitionIdsLock.unlock();
                 }
@@ -112,11 +139,14 @@ public class WindowState<T> extends AbstractCollection<Event<T>> {
             @Override
             public boolean hasNext() {
                 boolean curHasNext = current.hasNext();
-                while (!curHasNext && ids.hasNext()) {
+                while (!curHasNext && nextId < ids.size()) {
                     if (curPartition != null) {
                         unpin(curPartition.getId());
                     }
-                    curPartition = getPinnedPartition(ids.next());
+                    curPartition = getPinnedPartition(ids.get(nextId++));
+                    if (nextId < ids.size()) {
+                        prefetch(ids.get(nextId));
+                    }
                     if (curPartition != null) {
                         iteratorPins.add(curPartition.getId());
                         current = curPartition.iterator();
@@ -161,6 +191,29 @@ public class WindowState<T> extends AbstractCollection<Event<T>> {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Registers the partition cache hit and miss rates, the partition load latency and the size of the spill if any.
+     *
+     * @param metricsContext the context to register the metrics with
+     */
+    public void registerMetrics(IMetricsContext metricsContext) {
+        cacheHits = metricsContext.registerMeter("windowPartitionCacheHits");
+        cacheMisses = metricsContext.registerMeter("windowPartitionCacheMisses");
+        partitionLoads = metricsContext.registerTimer("windowPartitionLoadLatency");
+        if (spill != null) {
+            metricsContext.registerGauge("windowPartitionSpillBytes", (Gauge<Long>) spill::getDiskBytes);
+        }
+    }
+
+    /**
+     * Releases the local resources, the spill files if any.
+     */
+    public void close() {
+        if (spill != null) {
+            spill.close();
+        }
+    }
+
     /**
      * Prepares the {@link WindowState} for commit.
      *
@@ -195,6 +248,11 @@ public class WindowState<T> extends AbstractCollection<Event<T>> {
         windowSystemState.rollback();
         // re-init cache and partitions
         if (reInit) {
+            // the spilled partitions may be ahead of the rolled back state
+            if (spill != null) {
+                spill.clear();
+                spilledModified.clear();
+            }
             init();
         }
     }
@@ -234,6 +292,11 @@ public class WindowState<T> extends AbstractCollection<Event<T>> {
                                 deletePartition(pid);
                                 windowPartitionsState.delete(pid);
                             }
+                        } else if (spill != null) {
+                            if (p.isModified()) {
+                                spilledModified.add(pid);
+                            }
+                            spill.put(p);
                         } else if (p.isModified()) {
                             windowPartitionsState.put(pid, p);
                         } else {
@@ -247,9 +310,18 @@ public class WindowState<T> extends AbstractCollection<Event<T>> {
                 @Override
                 public WindowPartition<T> load(Long id) {
                     LOG.debug("Load partition: {}", id);
-                    // load from state
-                    try {
+                    try (Timer.Context ignored = partitionLoads.time()) {
                         windowPartitionsLock.lock(id);
+                        if (spill != null) {
+                            WindowPartition<T> partition = spill.take(id);
+                            if (partition != null) {
+                                if (spilledModified.remove(id)) {
+                                    partition.setModified();
+                                }
+                                return partition;
+                            }
+                        }
+                        // load from state
                         return windowPartitionsState.get(id, new WindowPartition<>(id));
                     } finally {
                         windowPartitionsLock.unlock(id);
@@ -267,6 +339,10 @@ public class WindowState<T> extends AbstractCollection<Event<T>> {
         } finally {
             partitionIdsLock.unlock();
         }
+        if (spill != null) {
+            spill.remove(pid);
+            spilledModified.remove(pid);
+        }
     }
 
     private long getNextPartitionId() {
@@ -281,9 +357,20 @@ public class WindowState<T> extends AbstractCollection<Event<T>> {
     }
 
     private WindowPartition<T> getPinnedPartition(long id) {
+        if (cache.asMap().containsKey(id)) {
+            cacheHits.mark();
+        } else {
+            cacheMisses.mark();
+        }
         return cache.pinAndGet(id);
     }
 
+    private void prefetch(long id) {
+        if (spill != null && !cache.asMap().containsKey(id)) {
+            spill.prefetch(id);
+        }
+    }
+
     private void flush() {
         LOG.debug("Flushing modified partitions");
         cache.asMap().forEach((pid, p) -> {
@@ -310,6 +397,21 @@ public class WindowState<T> extends AbstractCollection<Event<T>> {
                 cache.invalidate(pidToInvalidate);
             }
         });
+        Iterator<Long> it = spilledModified.iterator();
+        while (it.hasNext()) {
+            long pid = it.next();
+            try {
+                windowPartitionsLock.lock(pid);
+                WindowPartition<T> p = spill.read(pid);
+                if (p != null) {
+                    LOG.debug("Updating spilled partition {}", pid);
+                    windowPartitionsState.put(pid, p);
+                }
+                it.remove();
+            } finally {
+                windowPartitionsLock.unlock(pid);
+            }
+        }
         Map<String, Optional<?>> state = windowSystemStateSupplier.get();
         for (Map.Entry<String, Optional<?>> entry : state.entrySet()) {
             windowSystemState.put(entry.getKey(), entry.getValue());
@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.daemon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.apache.storm.utils.RotatingMap;
+import org.junit.Test;
+
+public class AckerPendingTableTest {
+
+    /**
+     * What the acker used to keep per tree in a {@link RotatingMap}.
+     */
+    private static class Tree {
+        long val;
+        int spoutTask = -1;
+        boolean failed;
+    }
+
+    private static void assertSameTree(Tree expected, Acker.PendingTable table, long rootId) {
+        int slot = table.slotFor(rootId);
+        assertEquals(expected.val, table.vals[slot]);
+        assertEquals(expected.spoutTask, table.spoutTasks[slot]);
+        assertEquals(expected.failed, table.failed[slot]);
+    }
+
+    @Test
+    public void testNewTreeIsInitialized() {
+        Acker.PendingTable table = new Acker.PendingTable(Acker.TIMEOUT_BUCKET_NUM);
+        int slot = table.slotFor(42L);
+        assertEquals(0L, table.vals[slot]);
+        assertEquals(-1, table.spoutTasks[slot]);
+        assertFalse(table.failed[slot]);
+        assertTrue(table.startTimes[slot] > 0);
+        assertEquals(slot, table.slotFor(42L));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void testRefreshDelaysTimeout() {
+        Acker.PendingTable table = new Acker.PendingTable(Acker.TIMEOUT_BUCKET_NUM);
+        table.slotFor(1L);
+        table.slotFor(2L);
+        table.rotate();
+        table.rotate();
+        table.refresh(table.slotFor(2L));
+        // a plain lookup keeps the bucket, only refresh moves a tree to the newest one
+        table.slotFor(1L);
+        assertEquals(1, table.rotate());
+        assertFalse(table.containsKey(1L));
+        assertTrue(table.containsKey(2L));
+        table.rotate();
+        assertEquals(1, table.rotate());
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void testColumnsFollowEntriesThroughResizeAndRemoval() {
+        Acker.PendingTable table = new Acker.PendingTable(Acker.TIMEOUT_BUCKET_NUM);
+        int trees = 5000;
+        for (long id = 0; id < trees; id++) {
+            int slot = table.slotFor(id);
+            table.updateAck(slot, id * 31 + 7);
+            table.spoutTasks[slot] = (int) (id % 13);
+            table.failed[slot] = id % 3 == 0;
+        }
+        assertEquals(trees, table.size());
+        // removing every other tree shifts the survivors back inside their probe chains
+        for (long id = 0; id < trees; id += 2) {
+            table.removeAt(table.slotFor(id));
+        }
+        assertEquals(trees / 2, table.size());
+        for (long id = 1; id < trees; id += 2) {
+            assertTrue(table.containsKey(id));
+            int slot = table.slotFor(id);
+            assertEquals(id * 31 + 7, table.vals[slot]);
+            assertEquals((int) (id % 13), table.spoutTasks[slot]);
+            assertEquals(id % 3 == 0, table.failed[slot]);
+        }
+    }
+
+    @Test
+    public void testMatchesRotatingMap() {
+        Random random = new Random(7);
+        RotatingMap<Long, Tree> expected = new RotatingMap<>(Acker.TIMEOUT_BUCKET_NUM);
+        Acker.PendingTable actual = new Acker.PendingTable(Acker.TIMEOUT_BUCKET_NUM);
+        for (int op = 0; op < 100_000; op++) {
+            long rootId = random.nextInt(2048) - 1024;
+            int choice = random.nextInt(100);
+            if (choice < 98) {
+                // mirror the acker: every update creates the tree if needed, init and fail also move it to the newest bucket
+                Tree tree = expected.get(rootId);
+                if (tree == null) {
+                    tree = new Tree();
+                    expected.put(rootId, tree);
+                }
+                int slot = actual.slotFor(rootId);
+                long ackVal = random.nextLong();
+                tree.val ^= ackVal;
+                actual.updateAck(slot, ackVal);
+                if (choice < 30) {
+                    tree.spoutTask = choice;
+                    actual.spoutTasks[slot] = choice;
+                    expected.put(rootId, tree);
+                    actual.refresh(slot);
+                } else if (choice < 35) {
+                    tree.failed = true;
+                    actual.failed[slot] = true;
+                    expected.put(rootId, tree);
+                    actual.refresh(slot);
+                } else if (choice < 60) {
+                    expected.remove(rootId);
+                    actual.removeAt(slot);
+                }
+            } else {
+                assertEquals(expected.rotate().size(), actual.rotate());
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+        for (long rootId = -1024; rootId < 1024; rootId++) {
+            Tree tree = expected.get(rootId);
+            assertEquals(tree != null, actual.containsKey(rootId));
+            if (tree != null) {
+                assertSameTree(tree, actual, rootId);
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.daemon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.storm.task.IOutputCollector;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.tuple.Tuple;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class AckerTest {
+    private static final int SPOUT_TASK = 4;
+
+    /**
+     * Records what the acker reported to the spouts, as "stream root-id" entries, and the input tuples it acked.
+     */
+    private static class RecordingCollector implements IOutputCollector {
+        final List<String> reported = new ArrayList<>();
+        final List<Tuple> acked = new ArrayList<>();
+
+        @Override
+        public List<Integer> emit(String streamId, Collection<Tuple> anchors, List<Object> tuple) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void emitDirect(int taskId, String streamId, Collection<Tuple> anchors, List<Object> tuple) {
+            assertEquals(SPOUT_TASK, taskId);
+            reported.add(streamId + " " + tuple.get(0));
+        }
+
+        @Override
+        public void ack(Tuple input) {
+            acked.add(input);
+        }
+
+        @Override
+        public void fail(Tuple input) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void resetTimeout(Tuple input) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void reportError(Throwable error) {
+        }
+    }
+
+    private static Acker acker(RecordingCollector collector) {
+        Acker acker = new Acker();
+        acker.prepare(Collections.emptyMap(), null, new OutputCollector(collector));
+        return acker;
+    }
+
+    private static Tuple tuple(String streamId, Object... values) {
+        Tuple tuple = Mockito.mock(Tuple.class);
+        Mockito.when(tuple.getSourceStreamId()).thenReturn(streamId);
+        for (int i = 0; i < values.length; i++) {
+            Mockito.when(tuple.getValue(i)).thenReturn(values[i]);
+            if (values[i] instanceof Long) {
+                Mockito.when(tuple.getLong(i)).thenReturn((Long) values[i]);
+            } else if (values[i] instanceof Integer) {
+                Mockito.when(tuple.getInteger(i)).thenReturn((Integer) values[i]);
+            }
+        }
+        return tuple;
+    }
+
+    private static Tuple init(long rootId, long val) {
+        return tuple(Acker.ACKER_INIT_STREAM_ID, rootId, val, SPOUT_TASK);
+    }
+
+    private static Tuple batch(long[] ackIds, long[] ackVals, long[] failIds) {
+        return tuple(Acker.ACKER_ACK_BATCH_STREAM_ID, ackIds, ackVals, failIds);
+    }
+
+    @Test
+    public void testBatchCompletesTrees() {
+        RecordingCollector collector = new RecordingCollector();
+        Acker acker = acker(collector);
+        acker.execute(init(1L, 0b0110));
+        acker.execute(init(2L, 0b0011));
+        acker.execute(init(3L, 0b1000));
+        Tuple batch = batch(new long[]{ 1L, 2L }, new long[]{ 0b0110, 0b0001 }, new long[]{ 3L });
+        acker.execute(batch);
+        assertEquals(Arrays.asList("__ack_fail 3", "__ack_ack 1"), collector.reported);
+        assertEquals(Collections.singletonList(batch), collector.acked);
+
+        // the rest of tree 2 completes it, tree 1 and 3 are gone
+        acker.execute(batch(new long[]{ 2L, 1L }, new long[]{ 0b0010, 0b0001 }, new long[0]));
+        assertEquals(Arrays.asList("__ack_fail 3", "__ack_ack 1", "__ack_ack 2"), collector.reported);
+    }
+
+    @Test
+    public void testBatchBeforeInit() {
+        RecordingCollector collector = new RecordingCollector();
+        Acker acker = acker(collector);
+        acker.execute(batch(new long[]{ 1L }, new long[]{ 0b0101 }, new long[]{ 2L }));
+        assertTrue(collector.reported.isEmpty());
+        acker.execute(init(1L, 0b0101));
+        acker.execute(init(2L, 0b0001));
+        assertEquals(Arrays.asList("__ack_ack 1", "__ack_fail 2"), collector.reported);
+    }
+
+    @Test
+    public void testFailInBatchWinsOverAck() {
+        RecordingCollector collector = new RecordingCollector();
+        Acker acker = acker(collector);
+        acker.execute(init(1L, 0b0101));
+        // the tree was acked to completion and failed between two flushes, it has to be replayed
+        acker.execute(batch(new long[]{ 1L }, new long[]{ 0b0101 }, new long[]{ 1L }));
+        assertEquals(Collections.singletonList("__ack_fail 1"), collector.reported);
+    }
+
+    @Test
+    public void testBatchesMatchSingleTuples() {
+        Random random = new Random(17);
+        for (int round = 0; round < 50; round++) {
+            // each tree is a set of random edge ids, init carries their xor and every edge is acked once, failed trees miss an ack
+            List<Tuple> singles = new ArrayList<>();
+            List<long[]> updates = new ArrayList<>();
+            List<Tuple> inits = new ArrayList<>();
+            for (long rootId = 0; rootId < 100; rootId++) {
+                int numEdges = 1 + random.nextInt(5);
+                boolean failed = random.nextInt(4) == 0;
+                long initVal = 0;
+                for (int edge = 0; edge < numEdges; edge++) {
+                    long edgeId = random.nextLong();
+                    initVal ^= edgeId;
+                    if (!failed || edge > 0) {
+                        updates.add(new long[]{ rootId, edgeId });
+                    }
+                }
+                if (failed) {
+                    updates.add(new long[]{ rootId });
+                }
+                inits.add(init(rootId, initVal));
+            }
+            Collections.shuffle(updates, random);
+
+            RecordingCollector single = new RecordingCollector();
+            Acker singleAcker = acker(single);
+            RecordingCollector batched = new RecordingCollector();
+            Acker batchedAcker = acker(batched);
+            Map<Long, Long> ackVals = new LinkedHashMap<>();
+            List<Long> failIds = new ArrayList<>();
+            int nextInit = 0;
+            for (int i = 0; i < updates.size(); i++) {
+                long[] update = updates.get(i);
+                if (update.length == 2) {
+                    singleAcker.execute(tuple(Acker.ACKER_ACK_STREAM_ID, update[0], update[1]));
+                    ackVals.merge(update[0], update[1], (a, b) -> a ^ b);
+                } else {
+                    singleAcker.execute(tuple(Acker.ACKER_FAIL_STREAM_ID, update[0]));
+                    failIds.add(update[0]);
+                }
+                if (random.nextInt(8) == 0 || i == updates.size() - 1) {
+                    batchedAcker.execute(batch(ackVals.keySet().stream().mapToLong(Long::longValue).toArray(),
+                                               ackVals.values().stream().mapToLong(Long::longValue).toArray(),
+                                               failIds.stream().mapToLong(Long::longValue).toArray()));
+                    ackVals.clear();
+                    failIds.clear();
+                }
+                // the spout inits arrive interleaved with the updates of the bolts
+                while (nextInit < inits.size() && random.nextInt(3) == 0) {
+                    singleAcker.execute(inits.get(nextInit));
+                    batchedAcker.execute(inits.get(nextInit));
+                    nextInit++;
+                }
+            }
+            for (; nextInit < inits.size(); nextInit++) {
+                singleAcker.execute(inits.get(nextInit));
+                batchedAcker.execute(inits.get(nextInit));
+            }
+            assertEquals(100, single.reported.size());
+            List<String> expected = new ArrayList<>(single.reported);
+            List<String> actual = new ArrayList<>(batched.reported);
+            Collections.sort(expected);
+            Collections.sort(actual);
+            assertEquals(expected, actual);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.daemon;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.apache.storm.generated.Grouping;
+import org.apache.storm.shade.com.google.common.hash.Hasher;
+import org.apache.storm.shade.com.google.common.hash.Hashing;
+import org.apache.storm.tuple.Fields;
+import org.junit.Test;
+
+public class FieldsGrouperTest {
+    private static final Fields OUT_FIELDS = new Fields("a", "b", "c", "d");
+    private static final List<String> GROUP_FIELDS = Arrays.asList("d", "b");
+
+    private static List<Integer> targetTasks(int numTasks) {
+        List<Integer> tasks = new ArrayList<>(numTasks);
+        for (int i = 0; i < numTasks; i++) {
+            tasks.add(100 + i);
+        }
+        return tasks;
+    }
+
+    private static Object randomValue(Random random) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return null;
+            case 1:
+                return random.nextInt();
+            case 2:
+                return "key-" + random.nextInt(1000);
+            case 3:
+                return new int[]{ random.nextInt() };
+            case 4:
+                return new Object[]{ random.nextLong(), new byte[]{ 1, 2 } };
+            default:
+                return random.nextLong();
+        }
+    }
+
+    private static List<Object> randomTuple(Random random) {
+        List<Object> values = new ArrayList<>(OUT_FIELDS.size());
+        for (int i = 0; i < OUT_FIELDS.size(); i++) {
+            values.add(randomValue(random));
+        }
+        return values;
+    }
+
+    @Test
+    public void testLegacyMatchesSelectedValuesHash() {
+        Random random = new Random(3);
+        for (int numTasks = 1; numTasks <= 64; numTasks++) {
+            List<Integer> tasks = targetTasks(numTasks);
+            GrouperFactory.FieldsGrouper grouper = new GrouperFactory.FieldsGrouper(OUT_FIELDS, Grouping.fields(GROUP_FIELDS));
+            grouper.prepare(null, null, tasks);
+            for (int round = 0; round < 500; round++) {
+                List<Object> values = randomTuple(random);
+                // what the grouper did before it hashed the values in place
+                Object[] selected = OUT_FIELDS.select(new Fields(GROUP_FIELDS), values).toArray();
+                int expected = tasks.get(Math.floorMod(Arrays.deepHashCode(selected), numTasks));
+                assertEquals(Collections.singletonList(expected), grouper.chooseTasks(0, values));
+            }
+        }
+    }
+
+    @Test
+    public void testMurmur3MatchesReference() {
+        Random random = new Random(5);
+        for (int numTasks = 1; numTasks <= 64; numTasks++) {
+            List<Integer> tasks = targetTasks(numTasks);
+            GrouperFactory.FieldsGrouper grouper = new GrouperFactory.FieldsGrouper(OUT_FIELDS, Grouping.fields(GROUP_FIELDS), true);
+            grouper.prepare(null, null, tasks);
+            for (int round = 0; round < 500; round++) {
+                List<Object> values = randomTuple(random);
+                Hasher hasher = Hashing.murmur3_32_fixed(0).newHasher();
+                for (Object value : OUT_FIELDS.select(new Fields(GROUP_FIELDS), values)) {
+                    hasher.putInt(Arrays.deepHashCode(new Object[]{ value }) - 31);
+                }
+                int expected = tasks.get(Math.floorMod(hasher.hash().asInt(), numTasks));
+                assertEquals(Collections.singletonList(expected), grouper.chooseTasks(0, values));
+            }
+        }
+    }
+}
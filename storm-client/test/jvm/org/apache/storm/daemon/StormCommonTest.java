@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.daemon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.storm.Config;
+import org.apache.storm.Constants;
+import org.apache.storm.generated.Bolt;
+import org.apache.storm.generated.ComponentCommon;
+import org.apache.storm.generated.GlobalStreamId;
+import org.apache.storm.generated.StormTopology;
+import org.apache.storm.metric.LoggingMetricsConsumer;
+import org.apache.storm.testing.TestWordCounter;
+import org.apache.storm.testing.TestWordSpout;
+import org.apache.storm.topology.TopologyBuilder;
+import org.junit.Test;
+
+public class StormCommonTest {
+
+    private static Map<String, Object> conf(boolean batchAcks) {
+        Config conf = new Config();
+        conf.put(Config.TOPOLOGY_WORKERS, 1);
+        conf.put(Config.TOPOLOGY_ACKER_EXECUTORS, 2);
+        conf.put(Config.TOPOLOGY_EVENTLOGGER_EXECUTORS, 1);
+        conf.put(Config.TOPOLOGY_MESSAGE_TIMEOUT_SECS, 30);
+        conf.put(Config.TOPOLOGY_ACKER_BATCH_ACKS, batchAcks);
+        conf.registerMetricsConsumer(LoggingMetricsConsumer.class, 1);
+        return conf;
+    }
+
+    private static StormTopology userTopology() {
+        TopologyBuilder builder = new TopologyBuilder();
+        builder.setSpout("words", new TestWordSpout());
+        builder.setBolt("count", new TestWordCounter()).shuffleGrouping("words");
+        return builder.createTopology();
+    }
+
+    @Test
+    public void testAckBatchStreamOfEveryBolt() throws Exception {
+        StormTopology topology = StormCommon.systemTopology(conf(true), userTopology());
+        Map<String, Bolt> bolts = topology.get_bolts();
+        // the system components are added after the acker, and their executors batch their acks as well
+        assertTrue(bolts.containsKey(StormCommon.EVENTLOGGER_COMPONENT_ID));
+        assertTrue(bolts.containsKey(Constants.SYSTEM_COMPONENT_ID));
+        assertTrue(bolts.containsKey(Constants.METRICS_COMPONENT_ID_PREFIX + LoggingMetricsConsumer.class.getName()));
+        ComponentCommon acker = bolts.get(Acker.ACKER_COMPONENT_ID).get_common();
+        for (Map.Entry<String, Bolt> entry : bolts.entrySet()) {
+            assertTrue(entry.getKey(), entry.getValue().get_common().get_streams().get(Acker.ACKER_ACK_BATCH_STREAM_ID).is_direct());
+            GlobalStreamId batchStream = new GlobalStreamId(entry.getKey(), Acker.ACKER_ACK_BATCH_STREAM_ID);
+            assertTrue(entry.getKey(), acker.get_inputs().get(batchStream).is_set_direct());
+        }
+        for (Map.Entry<String, Object> entry : StormCommon.allComponents(topology).entrySet()) {
+            if (!bolts.containsKey(entry.getKey())) {
+                assertFalse(StormCommon.getComponentCommon(entry.getValue()).get_streams().containsKey(Acker.ACKER_ACK_BATCH_STREAM_ID));
+            }
+        }
+    }
+
+    @Test
+    public void testNoAckBatchStreamByDefault() throws Exception {
+        StormTopology topology = StormCommon.systemTopology(conf(false), userTopology());
+        Map<String, Object> inputs = new HashMap<>();
+        for (Map.Entry<String, Object> entry : StormCommon.allComponents(topology).entrySet()) {
+            ComponentCommon common = StormCommon.getComponentCommon(entry.getValue());
+            assertFalse(entry.getKey(), common.get_streams().containsKey(Acker.ACKER_ACK_BATCH_STREAM_ID));
+            for (GlobalStreamId input : common.get_inputs().keySet()) {
+                inputs.put(input.get_streamId(), entry.getKey());
+            }
+        }
+        assertFalse(inputs.containsKey(Acker.ACKER_ACK_BATCH_STREAM_ID));
+        assertEquals(Acker.ACKER_COMPONENT_ID, inputs.get(Acker.ACKER_ACK_STREAM_ID));
+    }
+}
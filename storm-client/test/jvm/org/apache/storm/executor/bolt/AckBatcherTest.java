@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.executor.bolt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import org.apache.storm.daemon.Acker;
+import org.apache.storm.daemon.GrouperFactory;
+import org.apache.storm.daemon.Task;
+import org.apache.storm.executor.ExecutorTransfer;
+import org.apache.storm.generated.Grouping;
+import org.apache.storm.tuple.AddressedTuple;
+import org.apache.storm.tuple.Fields;
+import org.apache.storm.utils.TupleUtils;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class AckBatcherTest {
+    private static final List<Integer> ACKER_TASKS = Arrays.asList(11, 12, 13);
+
+    /**
+     * The batch tuples an {@link AckBatcher} sent, with the acker task each went to.
+     */
+    private static class Sent {
+        final List<Integer> ackerTasks = new ArrayList<>();
+        final List<List<Object>> batches = new ArrayList<>();
+    }
+
+    private static AckBatcher batcher(Sent sent, boolean murmur3) {
+        Task sender = Mockito.mock(Task.class);
+        ExecutorTransfer transfer = Mockito.mock(ExecutorTransfer.class);
+        Queue<AddressedTuple> pendingEmits = new ArrayDeque<>();
+        Mockito.doAnswer(invocation -> {
+            assertEquals(Acker.ACKER_ACK_BATCH_STREAM_ID, invocation.getArgument(1));
+            sent.ackerTasks.add(invocation.getArgument(0));
+            sent.batches.add(invocation.getArgument(2));
+            return null;
+        }).when(sender).sendDirect(Mockito.anyInt(), Mockito.anyString(), Mockito.any(), Mockito.same(transfer),
+                                   Mockito.same(pendingEmits));
+        return new AckBatcher(sender, transfer, pendingEmits, ACKER_TASKS, murmur3);
+    }
+
+    @Test
+    public void testCoalescesAcksPerRootId() {
+        Sent sent = new Sent();
+        AckBatcher batcher = batcher(sent, false);
+        batcher.ack(5L, 0b0011);
+        batcher.ack(5L, 0b0110);
+        batcher.ack(5L, 0b1000);
+        batcher.fail(5L);
+        batcher.fail(5L);
+        assertTrue(sent.batches.isEmpty());
+        batcher.flush();
+        assertEquals(1, sent.batches.size());
+        List<Object> batch = sent.batches.get(0);
+        assertArrayEquals(new long[]{ 5L }, (long[]) batch.get(0));
+        assertArrayEquals(new long[]{ 0b1101 }, (long[]) batch.get(1));
+        // fails are not coalesced, the acker handles a repeated fail of a tree like a single one
+        assertArrayEquals(new long[]{ 5L, 5L }, (long[]) batch.get(2));
+
+        // the buffers are empty after a flush
+        batcher.flush();
+        assertEquals(1, sent.batches.size());
+    }
+
+    @Test
+    public void testPicksTheAckerOfTheFieldsGrouping() {
+        for (boolean murmur3 : new boolean[]{ false, true }) {
+            Sent sent = new Sent();
+            AckBatcher batcher = batcher(sent, murmur3);
+            // the spout sends __ack_init with a fields grouping on "id", the batch has to end up at the same acker
+            GrouperFactory.FieldsGrouper grouper = new GrouperFactory.FieldsGrouper(new Fields("id", "init-val", "spout-task"),
+                                                                                    Grouping.fields(Collections.singletonList("id")),
+                                                                                    murmur3);
+            grouper.prepare(null, null, ACKER_TASKS);
+            Random random = new Random(7);
+            Map<Long, Integer> expectedAcker = new HashMap<>();
+            for (int i = 0; i < 1000; i++) {
+                long rootId = random.nextLong();
+                expectedAcker.put(rootId, grouper.chooseTasks(0, Arrays.asList(rootId, 1L, 1)).get(0));
+                batcher.ack(rootId, 1L);
+            }
+            batcher.flush();
+            assertEquals(ACKER_TASKS.size(), sent.batches.size());
+            int numAcks = 0;
+            for (int i = 0; i < sent.batches.size(); i++) {
+                for (long rootId : (long[]) sent.batches.get(i).get(0)) {
+                    assertEquals((int) expectedAcker.get(rootId), (int) sent.ackerTasks.get(i));
+                    numAcks++;
+                }
+            }
+            assertEquals(expectedAcker.size(), numAcks);
+        }
+    }
+
+    @Test
+    public void testMatchesAPlainMapAcrossRehashes() {
+        Sent sent = new Sent();
+        AckBatcher batcher = batcher(sent, false);
+        Random random = new Random(3);
+        Map<Long, Long> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            long rootId = random.nextInt(1500);
+            long ackVal = random.nextLong();
+            expected.merge(rootId, ackVal, (a, b) -> a ^ b);
+            batcher.ack(rootId, ackVal);
+        }
+        batcher.flush();
+        Map<Long, Long> actual = new HashMap<>();
+        for (List<Object> batch : sent.batches) {
+            long[] ackIds = (long[]) batch.get(0);
+            long[] ackVals = (long[]) batch.get(1);
+            assertEquals(ackIds.length, ackVals.length);
+            assertEquals(0, ((long[]) batch.get(2)).length);
+            for (int i = 0; i < ackIds.length; i++) {
+                // every root id is in a batch once
+                assertNull(actual.put(ackIds[i], ackVals[i]));
+            }
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testSendsAFullBatchRightAway() {
+        Sent sent = new Sent();
+        AckBatcher batcher = batcher(sent, false);
+        List<Long> rootIds = new ArrayList<>();
+        for (long rootId = 0; rootIds.size() < AckBatcher.MAX_BATCH_SIZE; rootId++) {
+            // only the root ids of one acker, so that its buffer fills up
+            if (TupleUtils.chooseTaskIndex(rootId, false, ACKER_TASKS.size()) == 0) {
+                rootIds.add(rootId);
+            }
+        }
+        for (int i = 0; i < rootIds.size() - 1; i++) {
+            batcher.ack(rootIds.get(i), 1L);
+        }
+        assertTrue(sent.batches.isEmpty());
+        batcher.fail(rootIds.get(rootIds.size() - 1));
+        assertEquals(1, sent.batches.size());
+        assertEquals(ACKER_TASKS.get(0), sent.ackerTasks.get(0));
+        assertEquals(AckBatcher.MAX_BATCH_SIZE - 1, ((long[]) sent.batches.get(0).get(0)).length);
+        assertEquals(1, ((long[]) sent.batches.get(0).get(2)).length);
+
+        // the next updates of that acker start a new batch
+        batcher.ack(rootIds.get(0), 1L);
+        batcher.flush();
+        assertEquals(2, sent.batches.size());
+        assertArrayEquals(new long[]{ rootIds.get(0) }, (long[]) sent.batches.get(1).get(0));
+    }
+}
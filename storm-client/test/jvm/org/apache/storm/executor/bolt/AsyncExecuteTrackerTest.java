@@ -0,0 +1,172 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.executor.bolt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.storm.task.IAsyncBolt;
+import org.apache.storm.task.IOutputCollector;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+public class AsyncExecuteTrackerTest {
+
+    /**
+     * Hands out a future per input that the test completes, from whatever thread it likes.
+     */
+    private static class FutureBolt implements IAsyncBolt {
+        final Map<Tuple, CompletableFuture<Void>> futures = new ConcurrentHashMap<>();
+
+        @Override
+        public void prepare(Map<String, Object> topoConf, TopologyContext context, OutputCollector collector) {
+        }
+
+        @Override
+        public CompletionStage<?> executeAsync(Tuple input) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            futures.put(input, future);
+            // a dependent stage, as a client callback chain would return
+            return future.thenApply(v -> v);
+        }
+
+        @Override
+        public void execute(Tuple input) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void cleanup() {
+        }
+    }
+
+    private static void runOnOtherThread(Runnable action) throws InterruptedException {
+        Thread thread = new Thread(action);
+        thread.start();
+        thread.join();
+    }
+
+    @Test
+    public void testCompletionAcksOnExecutorThread() throws InterruptedException {
+        AsyncExecuteTracker tracker = new AsyncExecuteTracker(10);
+        IOutputCollector collector = Mockito.mock(IOutputCollector.class);
+        FutureBolt bolt = new FutureBolt();
+        Tuple tuple = Mockito.mock(Tuple.class);
+        List<Thread> completedOn = new ArrayList<>();
+        tracker.execute(bolt, tuple, collector, () -> completedOn.add(Thread.currentThread()));
+        assertTrue(tracker.hasInFlight());
+
+        runOnOtherThread(() -> bolt.futures.get(tuple).complete(null));
+        Mockito.verifyNoInteractions(collector);
+        assertEquals(1, tracker.drain());
+        Mockito.verify(collector).ack(tuple);
+        assertEquals(Collections.singletonList(Thread.currentThread()), completedOn);
+        assertFalse(tracker.hasInFlight());
+    }
+
+    @Test
+    public void testNullStageCompletesImmediately() throws InterruptedException {
+        AsyncExecuteTracker tracker = new AsyncExecuteTracker(10);
+        IOutputCollector collector = Mockito.mock(IOutputCollector.class);
+        IAsyncBolt bolt = Mockito.mock(IAsyncBolt.class);
+        Tuple tuple = Mockito.mock(Tuple.class);
+        tracker.execute(bolt, tuple, collector, () -> { });
+        Mockito.verify(collector).ack(tuple);
+        assertFalse(tracker.hasInFlight());
+    }
+
+    @Test
+    public void testFailedStageReportsErrorAndFails() throws InterruptedException {
+        AsyncExecuteTracker tracker = new AsyncExecuteTracker(10);
+        IOutputCollector collector = Mockito.mock(IOutputCollector.class);
+        FutureBolt bolt = new FutureBolt();
+        Tuple tuple = Mockito.mock(Tuple.class);
+        tracker.execute(bolt, tuple, collector, () -> { });
+        IllegalStateException error = new IllegalStateException("request failed");
+        runOnOtherThread(() -> bolt.futures.get(tuple).completeExceptionally(error));
+        tracker.drain();
+        // the error is unwrapped from the CompletionException of the dependent stage
+        Mockito.verify(collector).reportError(error);
+        Mockito.verify(collector).fail(tuple);
+        Mockito.verify(collector, Mockito.never()).ack(tuple);
+    }
+
+    @Test
+    public void testCollectorCallsFromOtherThreadsKeepTheirOrder() throws InterruptedException {
+        AsyncExecuteTracker tracker = new AsyncExecuteTracker(10);
+        IOutputCollector delegate = Mockito.mock(IOutputCollector.class);
+        IOutputCollector collector = tracker.marshalling(delegate);
+        Tuple anchor = Mockito.mock(Tuple.class);
+        List<List<Integer>> emitResults = new ArrayList<>();
+        runOnOtherThread(() -> {
+            emitResults.add(collector.emit("default", Collections.singletonList(anchor), Collections.singletonList(1)));
+            collector.emitDirect(3, "direct", null, Collections.singletonList(2));
+            collector.resetTimeout(anchor);
+        });
+        Mockito.verifyNoInteractions(delegate);
+        assertTrue(emitResults.get(0).isEmpty());
+        assertEquals(3, tracker.drain());
+        InOrder inOrder = Mockito.inOrder(delegate);
+        inOrder.verify(delegate).emit("default", Collections.singletonList(anchor), Collections.singletonList(1));
+        inOrder.verify(delegate).emitDirect(3, "direct", null, Collections.singletonList(2));
+        inOrder.verify(delegate).resetTimeout(anchor);
+    }
+
+    @Test
+    public void testEmitOnExecutorThreadReturnsTaskIds() {
+        AsyncExecuteTracker tracker = new AsyncExecuteTracker(10);
+        IOutputCollector delegate = Mockito.mock(IOutputCollector.class);
+        Mockito.when(delegate.emit(Mockito.anyString(), Mockito.any(), Mockito.any())).thenReturn(Collections.singletonList(5));
+        IOutputCollector collector = tracker.marshalling(delegate);
+        assertEquals(Collections.singletonList(5), collector.emit("default", null, Collections.singletonList(1)));
+    }
+
+    @Test
+    public void testBlocksAtMaxInFlight() throws InterruptedException {
+        AsyncExecuteTracker tracker = new AsyncExecuteTracker(2);
+        IOutputCollector collector = Mockito.mock(IOutputCollector.class);
+        FutureBolt bolt = new FutureBolt();
+        Tuple first = Mockito.mock(Tuple.class);
+        Tuple second = Mockito.mock(Tuple.class);
+        Tuple third = Mockito.mock(Tuple.class);
+        tracker.execute(bolt, first, collector, () -> { });
+        tracker.execute(bolt, second, collector, () -> { });
+        Thread completer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            bolt.futures.get(first).complete(null);
+        });
+        completer.start();
+        // returns only once the first tuple has completed and was acked on this thread
+        tracker.execute(bolt, third, collector, () -> { });
+        completer.join();
+        Mockito.verify(collector).ack(first);
+        assertFalse(bolt.futures.get(second).isDone());
+        assertTrue(bolt.futures.containsKey(third));
+    }
+}
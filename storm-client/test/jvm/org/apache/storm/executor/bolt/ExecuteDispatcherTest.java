@@ -0,0 +1,230 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.executor.bolt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.storm.task.IBolt;
+import org.apache.storm.task.IOutputCollector;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ExecuteDispatcherTest {
+    private final ExecuteDispatcher dispatcher = new ExecuteDispatcher("test", 4);
+
+    @After
+    public void tearDown() throws InterruptedException {
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Records the collector calls that reach it, with the thread they were made on.
+     */
+    private static class RecordingCollector implements IOutputCollector {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        final List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+
+        private void record(String call) {
+            calls.add(call);
+            threads.add(Thread.currentThread());
+        }
+
+        @Override
+        public List<Integer> emit(String streamId, Collection<Tuple> anchors, List<Object> tuple) {
+            record("emit " + tuple.get(0));
+            return Arrays.asList(1, 2);
+        }
+
+        @Override
+        public void emitDirect(int taskId, String streamId, Collection<Tuple> anchors, List<Object> tuple) {
+            record("emitDirect " + tuple.get(0));
+        }
+
+        @Override
+        public void ack(Tuple input) {
+            record("ack " + input.getInteger(0));
+        }
+
+        @Override
+        public void fail(Tuple input) {
+            record("fail " + input.getInteger(0));
+        }
+
+        @Override
+        public void resetTimeout(Tuple input) {
+            record("resetTimeout " + input.getInteger(0));
+        }
+
+        @Override
+        public void flush() {
+            record("flush");
+        }
+
+        @Override
+        public void reportError(Throwable error) {
+            record("reportError");
+        }
+    }
+
+    /**
+     * Emits and acks each tuple, finishing the calls in the reverse of their arrival order once released.
+     */
+    private static class ReversingBolt implements IBolt {
+        final Map<Integer, CountDownLatch> releases = new ConcurrentHashMap<>();
+        final List<List<Integer>> emitResults = Collections.synchronizedList(new ArrayList<>());
+        OutputCollector collector;
+
+        @Override
+        public void prepare(Map<String, Object> topoConf, TopologyContext context, OutputCollector collector) {
+            this.collector = collector;
+        }
+
+        @Override
+        public void execute(Tuple input) {
+            int value = input.getInteger(0);
+            try {
+                releases.computeIfAbsent(value, v -> new CountDownLatch(1)).await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            emitResults.add(collector.emit(input, Collections.singletonList(value)));
+            collector.ack(input);
+        }
+
+        void release(int value) {
+            releases.computeIfAbsent(value, v -> new CountDownLatch(1)).countDown();
+        }
+
+        @Override
+        public void cleanup() {
+        }
+    }
+
+    private static Tuple tuple(int value) {
+        Tuple tuple = Mockito.mock(Tuple.class);
+        Mockito.when(tuple.getInteger(0)).thenReturn(value);
+        return tuple;
+    }
+
+    @Test
+    public void testReplaysInArrivalOrderOnExecutorThread() throws InterruptedException {
+        RecordingCollector delegate = new RecordingCollector();
+        ReversingBolt bolt = new ReversingBolt();
+        bolt.prepare(null, null, new OutputCollector(dispatcher.deferring(delegate)));
+        List<Integer> completed = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            int value = i;
+            dispatcher.dispatch(bolt, tuple(i), () -> completed.add(value));
+        }
+        for (int i = 3; i >= 1; i--) {
+            bolt.release(i);
+        }
+        // the later calls are done, but nothing may be replayed before the first one completes
+        Thread.sleep(50);
+        assertEquals(0, dispatcher.drainCompleted());
+        assertTrue(delegate.calls.isEmpty());
+        bolt.release(0);
+        dispatcher.completeAll();
+        assertFalse(dispatcher.hasInFlight());
+        assertEquals(Arrays.asList(0, 1, 2, 3), completed);
+        assertEquals(Arrays.asList("emit 0", "ack 0", "emit 1", "ack 1", "emit 2", "ack 2", "emit 3", "ack 3"), delegate.calls);
+        for (Thread thread : delegate.threads) {
+            assertSame(Thread.currentThread(), thread);
+        }
+        // the task ids are not known yet when a deferred emit returns
+        for (List<Integer> emitResult : bolt.emitResults) {
+            assertTrue(emitResult.isEmpty());
+        }
+    }
+
+    @Test
+    public void testCallsOnExecutorThreadAreNotDeferred() {
+        RecordingCollector delegate = new RecordingCollector();
+        IOutputCollector collector = dispatcher.deferring(delegate);
+        assertEquals(Arrays.asList(1, 2), collector.emit("default", null, Collections.singletonList(7)));
+        collector.ack(tuple(7));
+        collector.flush();
+        assertEquals(Arrays.asList("emit 7", "ack 7", "flush"), delegate.calls);
+    }
+
+    @Test
+    public void testCompleteAllWaitsForCallsInFlight() throws InterruptedException {
+        RecordingCollector delegate = new RecordingCollector();
+        ReversingBolt bolt = new ReversingBolt();
+        bolt.prepare(null, null, new OutputCollector(dispatcher.deferring(delegate)));
+        dispatcher.dispatch(bolt, tuple(0), () -> { });
+        dispatcher.dispatch(bolt, tuple(1), () -> { });
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                return;
+            }
+            bolt.release(1);
+            bolt.release(0);
+        });
+        releaser.start();
+        dispatcher.completeAll();
+        releaser.join();
+        assertFalse(dispatcher.hasInFlight());
+        assertEquals(4, delegate.calls.size());
+    }
+
+    @Test
+    public void testFailedCallFailsOnCompletion() throws InterruptedException {
+        IBolt bolt = Mockito.mock(IBolt.class);
+        RuntimeException error = new RuntimeException("execute failed");
+        Mockito.doThrow(error).when(bolt).execute(Mockito.any());
+        dispatcher.dispatch(bolt, tuple(0), () -> { });
+        RuntimeException thrown = assertThrows(RuntimeException.class, dispatcher::completeAll);
+        assertSame(error, thrown);
+    }
+
+    @Test
+    public void testShutdownInterruptsCallsInFlight() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        IBolt bolt = Mockito.mock(IBolt.class);
+        Mockito.doAnswer(invocation -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        }).when(bolt).execute(Mockito.any());
+        dispatcher.dispatch(bolt, tuple(0), () -> { });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.shutdown();
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertFalse(dispatcher.hasInFlight());
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.executor.bolt;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import org.apache.storm.task.IAsyncBolt;
+import org.apache.storm.task.IBolt;
+import org.apache.storm.task.IExecutorPollable;
+import org.apache.storm.task.IOutputCollector;
+import org.apache.storm.tuple.Tuple;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+public class ExecutorCompletionsTest {
+
+    private static void runOnOtherThread(Runnable action) throws InterruptedException {
+        Thread thread = new Thread(action);
+        thread.start();
+        thread.join();
+    }
+
+    @Test
+    public void testIdleDrainFlushesAsyncAcks() throws InterruptedException {
+        AsyncExecuteTracker tracker = new AsyncExecuteTracker(10);
+        AckBatcher ackBatcher = Mockito.mock(AckBatcher.class);
+        ExecutorCompletions completions = new ExecutorCompletions(null, tracker, Collections.emptyList(), ackBatcher);
+        IOutputCollector collector = Mockito.mock(IOutputCollector.class);
+        IAsyncBolt bolt = Mockito.mock(IAsyncBolt.class);
+        Tuple tuple = Mockito.mock(Tuple.class);
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Mockito.when(bolt.executeAsync(tuple)).thenAnswer(invocation -> future);
+        tracker.execute(bolt, tuple, collector, () -> { });
+
+        // the receive queue is empty and the request is still running
+        assertEquals(0, completions.drainIdle());
+        Mockito.verifyNoInteractions(ackBatcher);
+
+        runOnOtherThread(() -> future.complete(null));
+        // no more input arrives, the ack must not wait for it in the batcher
+        assertEquals(1, completions.drainIdle());
+        InOrder inOrder = Mockito.inOrder(collector, ackBatcher);
+        inOrder.verify(collector).ack(tuple);
+        inOrder.verify(ackBatcher).flush();
+
+        assertEquals(0, completions.drainIdle());
+        Mockito.verifyNoMoreInteractions(ackBatcher);
+    }
+
+    @Test
+    public void testIdleDrainFlushesDispatchedAcks() throws InterruptedException {
+        ExecuteDispatcher dispatcher = new ExecuteDispatcher("test", 2);
+        try {
+            AckBatcher ackBatcher = Mockito.mock(AckBatcher.class);
+            ExecutorCompletions completions = new ExecutorCompletions(dispatcher, null, Collections.emptyList(), ackBatcher);
+            IOutputCollector delegate = Mockito.mock(IOutputCollector.class);
+            IOutputCollector collector = dispatcher.deferring(delegate);
+            IBolt bolt = Mockito.mock(IBolt.class);
+            Mockito.doAnswer(invocation -> {
+                collector.ack(invocation.getArgument(0));
+                return null;
+            }).when(bolt).execute(Mockito.any());
+            Tuple tuple = Mockito.mock(Tuple.class);
+            dispatcher.dispatch(bolt, tuple, () -> { });
+
+            // the execute finishes on a pool thread while the receive queue stays empty
+            int drained = 0;
+            while (drained == 0) {
+                drained = completions.drainIdle();
+                Thread.yield();
+            }
+            assertEquals(1, drained);
+            InOrder inOrder = Mockito.inOrder(delegate, ackBatcher);
+            inOrder.verify(delegate).ack(tuple);
+            inOrder.verify(ackBatcher).flush();
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testIdleDrainOfPollables() {
+        IExecutorPollable pollable = Mockito.mock(IExecutorPollable.class);
+        AckBatcher ackBatcher = Mockito.mock(AckBatcher.class);
+        ExecutorCompletions completions = new ExecutorCompletions(null, null, Collections.singletonList(pollable), ackBatcher);
+
+        // nothing pending, the pollable is not polled
+        assertEquals(0, completions.drainIdle());
+        Mockito.verify(pollable, Mockito.never()).pollCompletions();
+
+        Mockito.when(pollable.hasPendingCompletions()).thenReturn(true);
+        Mockito.when(pollable.pollCompletions()).thenReturn(0, 2);
+        assertEquals(0, completions.drainIdle());
+        Mockito.verifyNoInteractions(ackBatcher);
+        assertEquals(2, completions.drainIdle());
+        Mockito.verify(ackBatcher).flush();
+    }
+
+    @Test
+    public void testFlushDrainsBeforeSendingAcks() {
+        IExecutorPollable pollable = Mockito.mock(IExecutorPollable.class);
+        AckBatcher ackBatcher = Mockito.mock(AckBatcher.class);
+        ExecutorCompletions completions = new ExecutorCompletions(null, null, Collections.singletonList(pollable), ackBatcher);
+        completions.flush();
+        InOrder inOrder = Mockito.inOrder(pollable, ackBatcher);
+        inOrder.verify(pollable).pollCompletions();
+        inOrder.verify(ackBatcher).flush();
+    }
+
+    @Test
+    public void testWithoutAckBatching() {
+        IExecutorPollable pollable = Mockito.mock(IExecutorPollable.class);
+        Mockito.when(pollable.hasPendingCompletions()).thenReturn(true);
+        Mockito.when(pollable.pollCompletions()).thenReturn(3);
+        ExecutorCompletions completions = new ExecutorCompletions(null, null, Collections.singletonList(pollable), null);
+        assertEquals(3, completions.drainIdle());
+        completions.flush();
+        Mockito.verify(pollable, Mockito.times(2)).pollCompletions();
+    }
+}
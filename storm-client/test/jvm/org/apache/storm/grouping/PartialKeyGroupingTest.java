@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.grouping;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.apache.storm.generated.GlobalStreamId;
+import org.apache.storm.task.WorkerTopologyContext;
+import org.apache.storm.tuple.Fields;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class PartialKeyGroupingTest {
+    private static final int[] BOUNDS = {
+        1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 16, 17, 31, 32, 33, 100, 1000, 1 << 20, (1 << 30) + 1, Integer.MAX_VALUE
+    };
+
+    /**
+     * The assignment creator as it was before {@link PartialKeyGrouping.RandomTwoTaskAssignmentCreator} inlined the {@link Random}.
+     */
+    private static class RandomAssignmentCreator implements PartialKeyGrouping.AssignmentCreator {
+        @Override
+        public int[] createAssignment(List<Integer> tasks, byte[] key) {
+            final Random random = new Random(Arrays.hashCode(key));
+            final int choice1 = random.nextInt(tasks.size());
+            int choice2 = random.nextInt(tasks.size());
+            choice2 = choice1 == choice2 ? (choice2 + 1) % tasks.size() : choice2;
+            return new int[]{ tasks.get(choice1), tasks.get(choice2) };
+        }
+    }
+
+    private static PartialKeyGrouping prepared(PartialKeyGrouping grouping, Fields outFields, List<Integer> tasks) {
+        GlobalStreamId stream = new GlobalStreamId("spout", "default");
+        WorkerTopologyContext context = Mockito.mock(WorkerTopologyContext.class);
+        Mockito.when(context.getComponentOutputFields(stream)).thenReturn(outFields);
+        grouping.prepare(context, stream, tasks);
+        return grouping;
+    }
+
+    @Test
+    public void testChooseTwoMatchesRandom() {
+        Random seeds = new Random(11);
+        for (int round = 0; round < 20_000; round++) {
+            long seed = round < 1000 ? round - 500 : seeds.nextInt();
+            for (int bound : BOUNDS) {
+                Random random = new Random(seed);
+                int choice1 = random.nextInt(bound);
+                int choice2 = random.nextInt(bound);
+                choice2 = choice1 == choice2 ? (choice2 + 1) % bound : choice2;
+                long choices = PartialKeyGrouping.RandomTwoTaskAssignmentCreator.chooseTwo(seed, bound);
+                assertEquals(choice1, (int) (choices >>> 32));
+                assertEquals(choice2, (int) choices);
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultGroupingMatchesRandomAssignment() {
+        Fields outFields = new Fields("key", "count", "other");
+        Random random = new Random(13);
+        for (int numTasks = 1; numTasks <= 40; numTasks++) {
+            List<Integer> tasks = new ArrayList<>();
+            for (int i = 0; i < numTasks; i++) {
+                tasks.add(7 + 3 * i);
+            }
+            PartialKeyGrouping actual = prepared(new PartialKeyGrouping(new Fields("other", "key")), outFields, tasks);
+            PartialKeyGrouping expected = prepared(new PartialKeyGrouping(new Fields("other", "key"), new RandomAssignmentCreator()),
+                                                   outFields, tasks);
+            for (int round = 0; round < 2000; round++) {
+                Object key = random.nextBoolean() ? "word-" + random.nextInt(200) : new int[]{ random.nextInt(50) };
+                Object other = random.nextInt(4) == 0 ? null : random.nextLong() % 10;
+                List<Object> values = Arrays.asList(key, round, other);
+                // the balanced selector keeps state, so the two have to agree on every single choice to stay in step
+                assertEquals(expected.chooseTasks(0, values), actual.chooseTasks(0, values));
+            }
+        }
+    }
+
+    @Test
+    public void testUtf8HashCodeMatchesEncodedBytes() {
+        char[] interesting = { 'a', 0, 0x7f, 0x80, 0xe9, 0x7ff, 0x800, 0x4e2d, 0xffff, 0xd800, 0xdbff, 0xdc00, 0xdfff };
+        Random random = new Random(17);
+        for (int round = 0; round < 100_000; round++) {
+            StringBuilder key = new StringBuilder();
+            int length = random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                // unpaired surrogates included, String.getBytes replaces them
+                key.append(random.nextInt(3) == 0 ? (char) random.nextInt(1 << 16) : interesting[random.nextInt(interesting.length)]);
+            }
+            String s = key.toString();
+            assertEquals(s, Arrays.hashCode(s.getBytes(StandardCharsets.UTF_8)), PartialKeyGrouping.utf8HashCode(s));
+        }
+    }
+
+    @Test
+    public void testFirstValueKeyMatchesRandomAssignment() {
+        Random random = new Random(19);
+        for (int numTasks = 1; numTasks <= 40; numTasks++) {
+            List<Integer> tasks = new ArrayList<>();
+            for (int i = 0; i < numTasks; i++) {
+                tasks.add(5 + 2 * i);
+            }
+            PartialKeyGrouping actual = prepared(new PartialKeyGrouping(), null, tasks);
+            PartialKeyGrouping expected = prepared(new PartialKeyGrouping(null, new RandomAssignmentCreator()), null, tasks);
+            for (int round = 0; round < 2000; round++) {
+                Object key = random.nextBoolean() ? "w\u00f6rd-" + random.nextInt(200) : random.nextInt(300);
+                List<Object> values = Arrays.asList(key, round);
+                assertEquals(expected.chooseTasks(0, values), actual.chooseTasks(0, values));
+            }
+        }
+    }
+}
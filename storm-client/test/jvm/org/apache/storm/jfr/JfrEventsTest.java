@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.storm.Config;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JfrEventsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private List<RecordedEvent> stopAndRead(Recording recording) throws IOException {
+        recording.stop();
+        File file = tmp.newFile("events.jfr");
+        recording.dump(file.toPath());
+        List<RecordedEvent> events = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+            if (event.getEventType().getName().startsWith("org.apache.storm.")) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    @Test
+    public void testEnabledOnlyWhenConfigured() {
+        assertFalse(JfrEvents.isEnabled(Collections.emptyMap()));
+        Map<String, Object> conf = new HashMap<>();
+        conf.put(Config.TOPOLOGY_JFR_EVENTS, false);
+        assertFalse(JfrEvents.isEnabled(conf));
+        // the tests run on a JVM with the jdk.jfr API, as the event classes need it to compile
+        conf.put(Config.TOPOLOGY_JFR_EVENTS, true);
+        assertTrue(JfrEvents.isEnabled(conf));
+    }
+
+    @Test
+    public void testFinishedEventsAreRecorded() throws IOException {
+        try (Recording recording = new Recording()) {
+            recording.enable("org.apache.storm.TupleExecute").withThreshold(Duration.ZERO);
+            recording.enable("org.apache.storm.MessageDecode").withThreshold(Duration.ZERO);
+            recording.start();
+
+            TupleExecuteEvent execute = new TupleExecuteEvent();
+            execute.begin();
+            execute.finish("bolt", 3, "spout", "default");
+            MessageDecodeEvent decode = new MessageDecodeEvent();
+            decode.begin();
+            decode.finish(1024, 7);
+
+            List<RecordedEvent> events = stopAndRead(recording);
+            assertEquals(2, events.size());
+            RecordedEvent recordedExecute = events.get(0);
+            assertEquals("org.apache.storm.TupleExecute", recordedExecute.getEventType().getName());
+            assertEquals("bolt", recordedExecute.getString("componentId"));
+            assertEquals(3, recordedExecute.getInt("taskId"));
+            assertEquals("spout", recordedExecute.getString("sourceComponent"));
+            assertEquals("default", recordedExecute.getString("sourceStream"));
+            // stack traces are off to keep the events cheap
+            assertNull(recordedExecute.getStackTrace());
+            RecordedEvent recordedDecode = events.get(1);
+            assertEquals("org.apache.storm.MessageDecode", recordedDecode.getEventType().getName());
+            assertEquals(1024, recordedDecode.getLong("bytes"));
+            assertEquals(7, recordedDecode.getInt("messages"));
+        }
+    }
+
+    @Test
+    public void testEventsOfDisabledTypesAreDropped() throws IOException {
+        try (Recording recording = new Recording()) {
+            recording.enable("org.apache.storm.TupleAccept").withThreshold(Duration.ZERO);
+            recording.disable("org.apache.storm.TupleExecute");
+            recording.start();
+
+            TupleExecuteEvent execute = new TupleExecuteEvent();
+            execute.begin();
+            execute.finish("bolt", 3, "spout", "default");
+            TupleAcceptEvent accept = new TupleAcceptEvent();
+            accept.begin();
+            accept.finish("bolt", -1, "spout", "default");
+
+            List<RecordedEvent> events = stopAndRead(recording);
+            assertEquals(1, events.size());
+            assertEquals("org.apache.storm.TupleAccept", events.get(0).getEventType().getName());
+            assertEquals(-1, events.get(0).getInt("taskId"));
+        }
+    }
+}
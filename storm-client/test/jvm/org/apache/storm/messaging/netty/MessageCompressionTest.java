@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.messaging.netty;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.storm.messaging.TaskMessage;
+import org.apache.storm.shade.io.netty.buffer.ByteBuf;
+import org.apache.storm.shade.io.netty.buffer.ByteBufAllocator;
+import org.apache.storm.shade.io.netty.buffer.UnpooledByteBufAllocator;
+import org.apache.storm.shade.io.netty.channel.ChannelHandlerContext;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class MessageCompressionTest {
+    private static final ByteBufAllocator ALLOC = UnpooledByteBufAllocator.DEFAULT;
+
+    private static MessageBatch batch(int numMessages, int payloadLength) {
+        Random random = new Random(numMessages);
+        MessageBatch batch = new MessageBatch(Integer.MAX_VALUE);
+        for (int i = 0; i < numMessages; i++) {
+            byte[] payload = new byte[payloadLength];
+            // compressible, but not trivially so
+            for (int j = 0; j < payloadLength; j++) {
+                payload[j] = (byte) ('a' + random.nextInt(4));
+            }
+            batch.add(new TaskMessage(i % 100, payload));
+        }
+        return batch;
+    }
+
+    private static List<Object> decode(ByteBuf buf) throws Exception {
+        ChannelHandlerContext ctx = Mockito.mock(ChannelHandlerContext.class);
+        Mockito.when(ctx.alloc()).thenReturn(ALLOC);
+        List<Object> out = new ArrayList<>();
+        new MessageDecoder(null).decode(ctx, buf, out);
+        return out;
+    }
+
+    @Test
+    public void testServerRefusesCodecItCannotLoad() throws Exception {
+        CompressionNegotiation request = new CompressionNegotiation(MessageCompression.ZSTD);
+        CompressionNegotiation response = request.accept((codec) -> codec != MessageCompression.ZSTD);
+        assertSame(MessageCompression.NONE, response.codec());
+
+        // the answer survives the wire
+        ByteBuf buf = ALLOC.heapBuffer();
+        response.write(buf);
+        List<Object> decoded = decode(buf);
+        assertEquals(1, decoded.size());
+        assertSame(MessageCompression.NONE, ((CompressionNegotiation) decoded.get(0)).codec());
+
+        // and the client keeps sending plain batches
+        MessageBatch batch = batch(100, 100);
+        Object frame = Client.toFrame(batch, response.codec().codec(), 0, new CompressedMessageBatch.Stats(), ALLOC);
+        assertSame(batch, frame);
+    }
+
+    @Test
+    public void testServerAcceptsCodecItCanLoad() {
+        CompressionNegotiation request = new CompressionNegotiation(MessageCompression.LZ4);
+        assertSame(MessageCompression.LZ4, request.accept((codec) -> true).codec());
+        assertSame(MessageCompression.NONE, new CompressionNegotiation(MessageCompression.NONE).accept((codec) -> true).codec());
+    }
+
+    @Test
+    public void testClientFallsBackToNoneWhenCodecIsUnavailableLocally() {
+        assertSame(MessageCompression.NONE,
+                   MessageCompression.forClient(MessageCompression.ZSTD, (codec) -> codec != MessageCompression.ZSTD));
+        assertSame(MessageCompression.LZ4,
+                   MessageCompression.forClient(MessageCompression.LZ4, (codec) -> codec != MessageCompression.ZSTD));
+        assertSame(MessageCompression.NONE, MessageCompression.forClient(MessageCompression.NONE, (codec) -> true));
+    }
+
+    @Test
+    public void testNoneHasNoCodec() {
+        assertEquals(null, MessageCompression.NONE.codec());
+        assertTrue(MessageCompression.NONE.isAvailable());
+    }
+
+    @Test
+    public void testSmallBatchesAreNotCompressed() {
+        MessageBatch batch = batch(1, 10);
+        Object frame = Client.toFrame(batch, MessageCompression.LZ4.codec(), 4096, new CompressedMessageBatch.Stats(), ALLOC);
+        assertSame(batch, frame);
+    }
+
+    @Test
+    public void testLz4RoundTrip() throws Exception {
+        MessageBatch batch = batch(200, 300);
+        CompressedMessageBatch.Stats stats = new CompressedMessageBatch.Stats();
+        Object frame = Client.toFrame(batch, MessageCompression.LZ4.codec(), 0, stats, ALLOC);
+        assertTrue(frame instanceof CompressedMessageBatch);
+
+        ByteBuf buf = ALLOC.heapBuffer();
+        ((CompressedMessageBatch) frame).write(buf);
+        assertEquals(CompressedMessageBatch.IDENTIFIER, buf.getShort(0));
+        assertTrue(buf.readableBytes() < batch.encodeLength());
+        assertTrue(stats.ratio() > 1.0);
+
+        List<Object> decoded = decode(buf);
+        assertEquals(1, decoded.size());
+        @SuppressWarnings("unchecked")
+        List<TaskMessage> messages = (List<TaskMessage>) decoded.get(0);
+        MessageBatch expected = batch(200, 300);
+        ByteBuf expectedBuf = ALLOC.heapBuffer();
+        expected.write(expectedBuf);
+        List<TaskMessage> expectedMessages = new ArrayList<>();
+        for (Object o : decode(expectedBuf)) {
+            for (Object m : (List<?>) o) {
+                expectedMessages.add((TaskMessage) m);
+            }
+        }
+        assertEquals(expectedMessages.size(), messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            assertEquals(expectedMessages.get(i).task(), messages.get(i).task());
+            assertArrayEquals(expectedMessages.get(i).message(), messages.get(i).message());
+        }
+    }
+}
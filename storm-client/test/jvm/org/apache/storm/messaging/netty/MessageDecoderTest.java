@@ -0,0 +1,194 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.messaging.netty;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.storm.messaging.TaskMessage;
+import org.apache.storm.shade.io.netty.buffer.ByteBuf;
+import org.apache.storm.shade.io.netty.buffer.ByteBufAllocator;
+import org.apache.storm.shade.io.netty.buffer.UnpooledByteBufAllocator;
+import org.apache.storm.shade.io.netty.channel.ChannelHandlerContext;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class MessageDecoderTest {
+    private static final ByteBufAllocator ALLOC = UnpooledByteBufAllocator.DEFAULT;
+
+    private static byte[] payload(int i) {
+        return ("payload-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuf encode(int numMessages) {
+        MessageBatch batch = new MessageBatch(Integer.MAX_VALUE);
+        for (int i = 0; i < numMessages; i++) {
+            batch.add(new TaskMessage(i, payload(i)));
+        }
+        ByteBuf buf = ALLOC.heapBuffer();
+        batch.write(buf);
+        return buf;
+    }
+
+    private static List<TaskMessage> decode(boolean zeroCopy, ByteBuf buf) throws Exception {
+        ChannelHandlerContext ctx = Mockito.mock(ChannelHandlerContext.class);
+        Mockito.when(ctx.alloc()).thenReturn(ALLOC);
+        List<Object> out = new ArrayList<>();
+        new MessageDecoder(null, zeroCopy).decode(ctx, buf, out);
+        List<TaskMessage> ret = new ArrayList<>();
+        for (Object o : out) {
+            for (Object m : (List<?>) o) {
+                ret.add((TaskMessage) m);
+            }
+        }
+        return ret;
+    }
+
+    @Test
+    public void testZeroCopyHandsOutRetainedSlices() throws Exception {
+        ByteBuf buf = encode(3);
+        List<TaskMessage> messages = decode(true, buf);
+        assertEquals(3, messages.size());
+        // every message keeps the network buffer alive
+        assertEquals(4, buf.refCnt());
+        for (int i = 0; i < messages.size(); i++) {
+            TaskMessage msg = messages.get(i);
+            assertEquals(i, msg.task());
+            assertNotNull(msg.buffer());
+            assertEquals(payload(i).length, msg.length());
+            assertArrayEquals(payload(i), msg.message());
+            msg.release();
+        }
+        assertEquals(1, buf.refCnt());
+        buf.release();
+    }
+
+    @Test
+    public void testCopyingDecoderDoesNotRetain() throws Exception {
+        ByteBuf buf = encode(3);
+        List<TaskMessage> messages = decode(false, buf);
+        assertEquals(3, messages.size());
+        assertEquals(1, buf.refCnt());
+        for (int i = 0; i < messages.size(); i++) {
+            assertNull(messages.get(i).buffer());
+            assertArrayEquals(payload(i), messages.get(i).message());
+        }
+        buf.release();
+    }
+
+    @Test
+    public void testZeroCopyWaitsForPartialFrames() throws Exception {
+        ByteBuf whole = encode(2);
+        int split = whole.readableBytes() - 3;
+        ByteBuf buf = ALLOC.heapBuffer();
+        buf.writeBytes(whole, 0, split);
+
+        // the first message is complete, the second one is not
+        List<TaskMessage> first = decode(true, buf);
+        assertEquals(1, first.size());
+        assertArrayEquals(payload(0), first.get(0).message());
+        int readerIndex = buf.readerIndex();
+
+        buf.writeBytes(whole, split, whole.readableBytes() - split);
+        assertEquals(readerIndex, buf.readerIndex());
+        List<TaskMessage> second = decode(true, buf);
+        assertEquals(1, second.size());
+        assertEquals(1, second.get(0).task());
+        assertArrayEquals(payload(1), second.get(0).message());
+
+        first.get(0).release();
+        second.get(0).release();
+        assertEquals(1, buf.refCnt());
+        buf.release();
+        whole.release();
+    }
+
+    @Test
+    public void testZeroCopyEmptyPayload() throws Exception {
+        ByteBuf buf = ALLOC.heapBuffer();
+        buf.writeShort(7);
+        buf.writeInt(0);
+        List<TaskMessage> messages = decode(true, buf);
+        assertEquals(1, messages.size());
+        assertEquals(7, messages.get(0).task());
+        assertEquals(0, messages.get(0).length());
+        assertNull(messages.get(0).buffer());
+        buf.release();
+    }
+
+    @Test
+    public void testMessageDoesNotReleaseTheBuffer() {
+        ByteBuf payload = ALLOC.heapBuffer();
+        payload.writeBytes(payload(1));
+        TaskMessage msg = new TaskMessage(1, payload);
+
+        byte[] copy = msg.message();
+        assertArrayEquals(payload(1), copy);
+        assertEquals(1, payload.refCnt());
+        assertSame(copy, msg.message());
+
+        msg.release();
+        assertEquals(0, payload.refCnt());
+        // the copied payload stays readable, releasing again is a no-op
+        assertSame(copy, msg.message());
+        msg.release();
+    }
+
+    @Test
+    public void testMessageAfterReleaseFails() {
+        ByteBuf payload = ALLOC.heapBuffer();
+        payload.writeBytes(payload(1));
+        TaskMessage msg = new TaskMessage(1, payload);
+        msg.release();
+        assertEquals(0, payload.refCnt());
+        assertThrows(IllegalStateException.class, msg::message);
+    }
+
+    @Test
+    public void testBufferMessagesAreWrittenInPlace() throws Exception {
+        MessageBatch batch = new MessageBatch(Integer.MAX_VALUE);
+        List<ByteBuf> payloads = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ByteBuf payload = ALLOC.heapBuffer();
+            // leave room for the frame header like the zero-copy serializer does
+            payload.writerIndex(TaskMessage.FRAME_HEADER_LENGTH);
+            payload.readerIndex(TaskMessage.FRAME_HEADER_LENGTH);
+            payload.writeBytes(payload(i));
+            payloads.add(payload);
+            batch.add(new TaskMessage(i, payload));
+        }
+        // and one without headroom, which is copied
+        batch.add(new TaskMessage(3, payload(3)));
+        assertTrue(batch.hasBufferMessages());
+
+        ByteBuf frame = batch.toByteBuf(ALLOC);
+        List<TaskMessage> messages = decode(false, frame);
+        assertEquals(4, messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            assertEquals(i, messages.get(i).task());
+            assertArrayEquals(payload(i), messages.get(i).message());
+        }
+        frame.release();
+        for (ByteBuf payload : payloads) {
+            assertEquals(0, payload.refCnt());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.messaging.netty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.storm.Config;
+import org.apache.storm.shade.io.netty.channel.epoll.Epoll;
+import org.junit.Test;
+
+public class NettyTransportTest {
+
+    private static NettyTransport fromConf(Object transport) {
+        Map<String, Object> conf = new HashMap<>();
+        conf.put(Config.STORM_MESSAGING_NETTY_IO_TRANSPORT, transport);
+        return NettyTransport.fromConf(conf);
+    }
+
+    @Test
+    public void testNio() {
+        assertEquals(NettyTransport.NIO, NettyTransport.fromConf(Collections.emptyMap()));
+        assertEquals(NettyTransport.NIO, fromConf("nio"));
+        assertEquals(NettyTransport.NIO, fromConf("NIO"));
+    }
+
+    @Test
+    public void testEpollFallsBackToNioWhenUnavailable() {
+        NettyTransport expected = Epoll.isAvailable() ? NettyTransport.EPOLL : NettyTransport.NIO;
+        assertEquals(expected, fromConf("auto"));
+        assertEquals(expected, fromConf("epoll"));
+        assertEquals(expected, fromConf("Epoll"));
+    }
+
+    @Test
+    public void testUnknownTransportIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> fromConf("kqueue"));
+        assertThrows(IllegalArgumentException.class, () -> fromConf(""));
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.metric.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import org.junit.Test;
+
+public class CountStatTest {
+    // one bucket per minute of the 10 minute window
+    private static final int NUM_BUCKETS = 11;
+    private static final long MINUTE_MS = 60_000;
+
+    @Test
+    public void testRotationOnRead() {
+        CountStat stat = new CountStat(NUM_BUCKETS, 0);
+        stat.incBy(5);
+        Map<String, Long> counts = stat.getTimeCounts(1_000);
+        assertEquals(5L, (long) counts.get("600"));
+        assertEquals(5L, (long) counts.get(":all-time"));
+
+        // the first read after a bucket length rotates, the count moves to the buckets and is neither lost nor counted twice
+        assertEquals(5L, (long) stat.getTimeCounts(MINUTE_MS).get("600"));
+        counts = stat.getTimeCounts(MINUTE_MS);
+        assertEquals(5L, (long) counts.get("600"));
+        assertEquals(5L, (long) counts.get(":all-time"));
+
+        stat.incBy(3);
+        assertEquals(8L, (long) stat.getTimeCounts(MINUTE_MS + MINUTE_MS / 2).get("600"));
+        for (long now = 2 * MINUTE_MS; now <= 5 * MINUTE_MS; now += MINUTE_MS) {
+            assertEquals(8L, (long) stat.getTimeCounts(now).get("600"));
+        }
+
+        // read once a minute until both counts are older than 10 minutes
+        for (long now = 6 * MINUTE_MS; now <= 13 * MINUTE_MS; now += MINUTE_MS) {
+            counts = stat.getTimeCounts(now);
+        }
+        assertEquals(0L, (long) counts.get("600"));
+        assertEquals(8L, (long) counts.get("10800"));
+        assertEquals(8L, (long) counts.get("86400"));
+        assertEquals(8L, (long) counts.get(":all-time"));
+    }
+
+    @Test
+    public void testConcurrentUpdatesAreNotLost() throws InterruptedException {
+        CountStat stat = new CountStat(NUM_BUCKETS, 0);
+        Thread[] writers = new Thread[4];
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    stat.incBy(1);
+                }
+            });
+            writers[i].start();
+        }
+        // rotations while the counters are updated
+        for (long now = MINUTE_MS; now <= 20 * MINUTE_MS; now += MINUTE_MS) {
+            stat.getTimeCounts(now);
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(40_000L, (long) stat.getTimeCounts(21 * MINUTE_MS).get(":all-time"));
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.metric.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import org.junit.Test;
+
+public class LatencyStatTest {
+    // one bucket per minute of the 10 minute window
+    private static final int NUM_BUCKETS = 11;
+    private static final long MINUTE_MS = 60_000;
+
+    @Test
+    public void testRotationOnRead() {
+        LatencyStat stat = new LatencyStat(NUM_BUCKETS, 0);
+        stat.record(10);
+        stat.record(30);
+        Map<String, Double> avgs = stat.getTimeLatAvg(1_000);
+        assertEquals(20.0, avgs.get("600"), 0.001);
+        assertEquals(20.0, avgs.get(":all-time"), 0.001);
+
+        // the first read after a bucket length rotates, the latencies move to the buckets and are neither lost nor counted twice
+        assertEquals(20.0, stat.getTimeLatAvg(MINUTE_MS).get("600"), 0.001);
+        avgs = stat.getTimeLatAvg(MINUTE_MS);
+        assertEquals(20.0, avgs.get("600"), 0.001);
+        assertEquals(20.0, avgs.get(":all-time"), 0.001);
+
+        stat.record(50);
+        assertEquals(30.0, stat.getTimeLatAvg(MINUTE_MS + MINUTE_MS / 2).get("600"), 0.001);
+        for (long now = 2 * MINUTE_MS; now <= 5 * MINUTE_MS; now += MINUTE_MS) {
+            assertEquals(30.0, stat.getTimeLatAvg(now).get("600"), 0.001);
+        }
+
+        // read once a minute until all the latencies are older than 10 minutes
+        for (long now = 6 * MINUTE_MS; now <= 13 * MINUTE_MS; now += MINUTE_MS) {
+            avgs = stat.getTimeLatAvg(now);
+        }
+        assertEquals(0.0, avgs.get("600"), 0.001);
+        assertEquals(30.0, avgs.get("10800"), 0.001);
+        assertEquals(30.0, avgs.get("86400"), 0.001);
+        assertEquals(30.0, avgs.get(":all-time"), 0.001);
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.metrics2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import com.codahale.metrics.Snapshot;
+import org.apache.storm.utils.Time;
+import org.junit.Test;
+
+public class HdrHistogramReservoirTest {
+    private static final long WINDOW_MS = 10_000;
+
+    @Test
+    public void testSnapshotValues() {
+        try (Time.SimulatedTime t = new Time.SimulatedTime()) {
+            HdrHistogramReservoir reservoir = new HdrHistogramReservoir(3, WINDOW_MS);
+            for (int i = 1; i <= 1000; i++) {
+                reservoir.update(i);
+            }
+            Snapshot snapshot = reservoir.getSnapshot();
+            assertEquals(1000, snapshot.size());
+            assertEquals(1, snapshot.getMin());
+            assertEquals(1000, snapshot.getMax());
+            assertEquals(500.5, snapshot.getMean(), 0.5);
+            assertEquals(288.7, snapshot.getStdDev(), 0.5);
+            assertEquals(500, snapshot.getMedian(), 1);
+            assertEquals(990, snapshot.get99thPercentile(), 1);
+            assertEquals(999, snapshot.get999thPercentile(), 1);
+            assertEquals(1000, snapshot.getValues().length);
+            assertThrows(IllegalArgumentException.class, () -> snapshot.getValue(1.5));
+        }
+    }
+
+    @Test
+    public void testPrecisionAndNegativeValues() {
+        try (Time.SimulatedTime t = new Time.SimulatedTime()) {
+            HdrHistogramReservoir reservoir = new HdrHistogramReservoir(2, WINDOW_MS);
+            reservoir.update(-5);
+            reservoir.update(1_000_000);
+            reservoir.update(1_000_000);
+            Snapshot snapshot = reservoir.getSnapshot();
+            assertEquals(3, snapshot.size());
+            assertEquals(0, snapshot.getMin());
+            // kept with two significant digits, the value reported is the highest equivalent one
+            assertEquals(1_000_000, snapshot.getMax(), 10_000);
+            long[] values = snapshot.getValues();
+            assertEquals(2, values.length);
+            assertEquals(0, values[0]);
+            assertEquals(snapshot.getMax(), values[1]);
+        }
+    }
+
+    @Test
+    public void testEmptySnapshot() {
+        try (Time.SimulatedTime t = new Time.SimulatedTime()) {
+            Snapshot snapshot = new HdrHistogramReservoir(2, WINDOW_MS).getSnapshot();
+            assertEquals(0, snapshot.size());
+            assertEquals(0, snapshot.getMin());
+            assertEquals(0, snapshot.getMax());
+            assertEquals(0, snapshot.getMean(), 0);
+            assertEquals(0, snapshot.getStdDev(), 0);
+            assertArrayEquals(new long[0], snapshot.getValues());
+        }
+    }
+
+    @Test
+    public void testReadsDoNotResetWithinTheWindow() {
+        try (Time.SimulatedTime t = new Time.SimulatedTime()) {
+            HdrHistogramReservoir reservoir = new HdrHistogramReservoir(2, WINDOW_MS);
+            reservoir.update(10);
+            assertEquals(1, reservoir.getSnapshot().size());
+            Time.advanceTime(WINDOW_MS / 2);
+            reservoir.update(20);
+            // the value read before is still part of the window, size() reads a snapshot too
+            assertEquals(2, reservoir.size());
+            Snapshot snapshot = reservoir.getSnapshot();
+            assertEquals(2, snapshot.size());
+            assertEquals(10, snapshot.getMin());
+            assertEquals(20, snapshot.getMax());
+        }
+    }
+
+    @Test
+    public void testValuesOlderThanTheWindowAreDropped() {
+        try (Time.SimulatedTime t = new Time.SimulatedTime()) {
+            HdrHistogramReservoir reservoir = new HdrHistogramReservoir(2, WINDOW_MS);
+            reservoir.update(10);
+            reservoir.getSnapshot();
+            Time.advanceTime(WINDOW_MS / 2);
+            reservoir.update(20);
+            reservoir.getSnapshot();
+
+            Time.advanceTime(WINDOW_MS / 2 + 1);
+            reservoir.update(30);
+            Snapshot snapshot = reservoir.getSnapshot();
+            assertEquals(2, snapshot.size());
+            assertEquals(20, snapshot.getMin());
+            assertEquals(30, snapshot.getMax());
+
+            Time.advanceTime(WINDOW_MS + 1);
+            assertEquals(0, reservoir.getSnapshot().size());
+            // the dropped buckets are reused for the values recorded later
+            reservoir.update(40);
+            snapshot = reservoir.getSnapshot();
+            assertEquals(1, snapshot.size());
+            assertEquals(40, snapshot.getMin());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+import java.util.Map;
+import org.apache.storm.task.GeneralTopologyContext;
+import org.apache.storm.testing.TestWordSpout;
+import org.apache.storm.topology.TopologyBuilder;
+import org.apache.storm.tracing.TraceContext;
+import org.apache.storm.tuple.MessageId;
+import org.apache.storm.tuple.TupleImpl;
+import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.Time;
+import org.apache.storm.utils.Utils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class KryoTupleSerializerTest {
+    private static final int SPOUT_TASK = 3;
+
+    private Map<String, Object> conf;
+    private GeneralTopologyContext context;
+
+    @Before
+    public void setUp() {
+        conf = Utils.readDefaultConfig();
+        TopologyBuilder builder = new TopologyBuilder();
+        builder.setSpout("spout", new TestWordSpout());
+        context = Mockito.mock(GeneralTopologyContext.class);
+        Mockito.when(context.getRawTopology()).thenReturn(builder.createTopology());
+        Mockito.when(context.getComponentId(SPOUT_TASK)).thenReturn("spout");
+    }
+
+    private TupleImpl tuple(String word, TraceContext traceContext) {
+        TupleImpl tuple = new TupleImpl(context, new Values(word), "spout", SPOUT_TASK, Utils.DEFAULT_STREAM_ID,
+                                        MessageId.makeRootId(7, 11));
+        tuple.setTraceContext(traceContext);
+        return tuple;
+    }
+
+    private TupleImpl roundTrip(TupleImpl tuple, boolean tracing) {
+        KryoTupleSerializer serializer = new KryoTupleSerializer(conf, context, tracing);
+        KryoTupleDeserializer deserializer = new KryoTupleDeserializer(conf, context, tracing);
+        TupleImpl read = deserializer.deserialize(serializer.serialize(tuple));
+        assertEquals(tuple.getSourceComponent(), read.getSourceComponent());
+        assertEquals(tuple.getSourceTask(), read.getSourceTask());
+        assertEquals(tuple.getSourceStreamId(), read.getSourceStreamId());
+        assertEquals(tuple.getMessageId(), read.getMessageId());
+        assertEquals(tuple.getValues(), read.getValues());
+        return read;
+    }
+
+    @Test
+    public void testTraceContextRoundTrip() {
+        try (Time.SimulatedTime t = new Time.SimulatedTime()) {
+            Time.advanceTime(100);
+            TupleImpl read = roundTrip(tuple("apple", new TraceContext(-5L, 42L, 60)), true);
+            TraceContext traceContext = read.getTraceContext();
+            assertEquals(-5L, traceContext.getTraceId());
+            assertEquals(42L, traceContext.getParentSpanId());
+            assertEquals(60, traceContext.getEmitTimeMs());
+            // the receive time is taken when the tuple is deserialized
+            assertEquals(100, traceContext.getReceiveTimeMs());
+        }
+    }
+
+    @Test
+    public void testUntracedTupleWithTracingOn() {
+        TupleImpl read = roundTrip(tuple("apple", null), true);
+        assertNull(read.getTraceContext());
+    }
+
+    @Test
+    public void testTraceContextIsNotWrittenWithTracingOff() {
+        TupleImpl tuple = tuple("apple", new TraceContext(-5L, 42L, 60));
+        TupleImpl read = roundTrip(tuple, false);
+        assertNull(read.getTraceContext());
+        // the format without tracing is unchanged, the context takes a flag byte and three longs
+        KryoTupleSerializer untraced = new KryoTupleSerializer(conf, context, false);
+        KryoTupleSerializer traced = new KryoTupleSerializer(conf, context, true);
+        assertEquals(untraced.serialize(tuple).length + 1 + 3 * Long.BYTES, traced.serialize(tuple).length);
+        assertEquals(untraced.serialize(tuple).length + 1, traced.serialize(tuple("apple", null)).length);
+    }
+
+    @Test
+    public void testMixedTuplesOnOneDeserializer() {
+        KryoTupleSerializer serializer = new KryoTupleSerializer(conf, context, true);
+        KryoTupleDeserializer deserializer = new KryoTupleDeserializer(conf, context, true);
+        byte[] traced = serializer.serialize(tuple("apple", new TraceContext(1L, 2L, 3)));
+        byte[] untraced = serializer.serialize(tuple("pear", null));
+        // the deserializer reuses its input, nothing of the previous tuple may leak into the next one
+        TupleImpl first = deserializer.deserialize(traced);
+        TupleImpl second = deserializer.deserialize(untraced);
+        TupleImpl third = deserializer.deserialize(traced);
+        assertEquals(1L, first.getTraceContext().getTraceId());
+        assertEquals(Collections.singletonList("pear"), second.getValues());
+        assertNull(second.getTraceContext());
+        assertEquals(2L, third.getTraceContext().getParentSpanId());
+        assertEquals(Collections.singletonList("apple"), third.getValues());
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.serialization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.esotericsoftware.kryo.Kryo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.storm.Config;
+import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.Utils;
+import org.junit.Test;
+
+public class SerializationFactoryTest {
+
+    private static Map<String, Object> conf() {
+        Map<String, Object> conf = Utils.readDefaultConfig();
+        conf.put(Config.TOPOLOGY_KRYO_REGISTER, Collections.singletonList(TreeMap.class.getName()));
+        return conf;
+    }
+
+    @Test
+    public void testLongArrayIsRegisteredLast() {
+        Kryo kryo = SerializationFactory.getKryo(conf());
+        int longArrayId = kryo.getRegistration(long[].class).getId();
+        assertEquals(kryo.getNextRegistrationId() - 1, longArrayId);
+        // the built-in and the user registrations keep the ids they had before long[] was added
+        for (Class<?> klass : Arrays.asList(byte[].class, ArrayList.class, HashMap.class, Values.class, TreeMap.class)) {
+            assertTrue(klass.getName(), kryo.getRegistration(klass).getId() < longArrayId);
+        }
+    }
+
+    @Test
+    public void testLongArrayRoundTrip() {
+        Map<String, Object> conf = conf();
+        KryoValuesSerializer serializer = new KryoValuesSerializer(conf);
+        KryoValuesDeserializer deserializer = new KryoValuesDeserializer(conf);
+        long[] ackIds = { 1L, -7L, Long.MAX_VALUE };
+        List<Object> values = deserializer.deserialize(serializer.serialize(new Values(ackIds, new long[0])));
+        assertArrayEquals(ackIds, (long[]) values.get(0));
+        assertArrayEquals(new long[0], (long[]) values.get(1));
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class InMemoryKeyValueStateTest {
+
+    private static Map<String, Integer> contents(KeyValueState<String, Integer> state) {
+        Map<String, Integer> contents = new HashMap<>();
+        for (Map.Entry<String, Integer> e : state) {
+            contents.put(e.getKey(), e.getValue());
+        }
+        return contents;
+    }
+
+    private static Map<String, Integer> mapOf(Object... keysAndValues) {
+        Map<String, Integer> map = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], (Integer) keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    /**
+     * The state as it was kept before the undo log, a full copy of the map on every prepare.
+     */
+    private static class SnapshotState {
+        Map<String, Integer> state = new HashMap<>();
+        Map<String, Integer> committed = new HashMap<>();
+        Map<String, Integer> prepared;
+        Long preparedTxid;
+
+        void prepareCommit(long txid) {
+            if (preparedTxid != null && txid > preparedTxid) {
+                throw new RuntimeException("Cannot prepare a new txn while there is a pending txn");
+            }
+            prepared = new HashMap<>(state);
+            preparedTxid = txid;
+        }
+
+        void commit(long txid) {
+            if (preparedTxid == null || txid != preparedTxid) {
+                throw new RuntimeException("Invalid prepared state for commit");
+            }
+            committed = prepared;
+            prepared = null;
+            preparedTxid = null;
+        }
+
+        void rollback() {
+            state = new HashMap<>(committed);
+            prepared = null;
+            preparedTxid = null;
+        }
+    }
+
+    @Test
+    public void testRollbackRemovesKeysThatWereAbsent() {
+        InMemoryKeyValueState<String, Integer> state = new InMemoryKeyValueState<>();
+        state.put("a", 1);
+        state.prepareCommit(1);
+        state.commit(1);
+        state.put("b", 2);
+        // a key deleted that never existed, and one put and deleted again, must stay absent
+        assertNull(state.delete("c"));
+        state.put("d", 4);
+        state.delete("d");
+        state.delete("a");
+        state.rollback();
+        assertEquals(mapOf("a", 1), contents(state));
+    }
+
+    @Test
+    public void testRollbackWithoutCommitEmptiesTheState() {
+        InMemoryKeyValueState<String, Integer> state = new InMemoryKeyValueState<>();
+        state.put("a", 1);
+        state.prepareCommit(1);
+        state.put("a", 2);
+        state.rollback();
+        assertEquals(mapOf(), contents(state));
+    }
+
+    @Test
+    public void testRollbackOfPreparedButUncommittedTxn() {
+        InMemoryKeyValueState<String, Integer> state = new InMemoryKeyValueState<>();
+        state.put("a", 1);
+        state.put("b", 1);
+        state.prepareCommit(1);
+        state.commit(1);
+        state.put("a", 2);
+        state.put("c", 2);
+        state.prepareCommit(2);
+        state.put("b", 3);
+        state.put("a", 3);
+        state.delete("c");
+        // txn 2 was prepared but never committed, everything since the commit of txn 1 is undone
+        state.rollback();
+        assertEquals(mapOf("a", 1, "b", 1), contents(state));
+        assertThrows(RuntimeException.class, () -> state.commit(2));
+    }
+
+    @Test
+    public void testCommitMovesTheRollbackPointToThePrepare() {
+        InMemoryKeyValueState<String, Integer> state = new InMemoryKeyValueState<>();
+        state.put("a", 1);
+        state.prepareCommit(1);
+        state.put("a", 2);
+        state.put("b", 2);
+        state.commit(1);
+        state.put("b", 3);
+        state.rollback();
+        // the changes after the prepare of txn 1 are not part of it
+        assertEquals(mapOf("a", 1), contents(state));
+    }
+
+    @Test
+    public void testPrepareAgainFoldsIntoTheCommittedValues() {
+        InMemoryKeyValueState<String, Integer> state = new InMemoryKeyValueState<>();
+        state.put("a", 1);
+        state.put("b", 1);
+        state.prepareCommit(1);
+        state.commit(1);
+        state.put("a", 2);
+        state.prepareCommit(2);
+        state.put("b", 2);
+        state.put("a", 3);
+        // the prepare of txn 2 is retried, the new prepare point includes b=2 and a=3
+        state.prepareCommit(2);
+        state.put("b", 4);
+        state.commit(2);
+        state.rollback();
+        assertEquals(mapOf("a", 3, "b", 2), contents(state));
+
+        // and a rollback before the commit still goes back to txn 1
+        state.prepareCommit(3);
+        state.commit(3);
+        state.put("a", 5);
+        state.prepareCommit(4);
+        state.put("a", 6);
+        state.prepareCommit(4);
+        state.put("a", 7);
+        state.rollback();
+        assertEquals(mapOf("a", 3, "b", 2), contents(state));
+    }
+
+    @Test
+    public void testPrepareOfANewTxnWhilePendingFails() {
+        InMemoryKeyValueState<String, Integer> state = new InMemoryKeyValueState<>();
+        state.prepareCommit(1);
+        assertThrows(RuntimeException.class, () -> state.prepareCommit(2));
+        assertThrows(RuntimeException.class, () -> state.commit(2));
+        state.commit(1);
+    }
+
+    @Test
+    public void testMatchesFullSnapshots() {
+        Random random = new Random(23);
+        for (int round = 0; round < 200; round++) {
+            InMemoryKeyValueState<String, Integer> state = new InMemoryKeyValueState<>();
+            SnapshotState expected = new SnapshotState();
+            long txid = 0;
+            for (int op = 0; op < 300; op++) {
+                String key = "k" + random.nextInt(8);
+                int choice = random.nextInt(20);
+                if (choice < 8) {
+                    int value = random.nextInt(100);
+                    state.put(key, value);
+                    expected.state.put(key, value);
+                } else if (choice < 12) {
+                    assertEquals(expected.state.remove(key), state.delete(key));
+                } else if (choice < 15) {
+                    // a new txn, or the pending one prepared again
+                    long prepareTxid = expected.preparedTxid != null && random.nextBoolean() ? expected.preparedTxid : ++txid;
+                    boolean fails = expected.preparedTxid != null && prepareTxid > expected.preparedTxid;
+                    if (fails) {
+                        assertThrows(RuntimeException.class, () -> state.prepareCommit(prepareTxid));
+                    } else {
+                        expected.prepareCommit(prepareTxid);
+                        state.prepareCommit(prepareTxid);
+                    }
+                } else if (choice < 18) {
+                    if (expected.preparedTxid != null) {
+                        state.commit(expected.preparedTxid);
+                        expected.commit(expected.preparedTxid);
+                    } else {
+                        assertThrows(RuntimeException.class, () -> state.commit(0));
+                    }
+                } else {
+                    state.rollback();
+                    expected.rollback();
+                }
+                assertEquals("round " + round + " op " + op, expected.state, contents(state));
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.topology;
+
+import static org.apache.storm.spout.CheckPointState.Action.COMMIT;
+import static org.apache.storm.spout.CheckPointState.Action.INITSTATE;
+import static org.apache.storm.spout.CheckPointState.Action.PREPARE;
+import static org.apache.storm.spout.CheckpointSpout.CHECKPOINT_FIELD_ACTION;
+import static org.apache.storm.spout.CheckpointSpout.CHECKPOINT_FIELD_TXID;
+import static org.apache.storm.spout.CheckpointSpout.CHECKPOINT_STREAM_ID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import org.apache.storm.Config;
+import org.apache.storm.generated.GlobalStreamId;
+import org.apache.storm.generated.Grouping;
+import org.apache.storm.spout.CheckPointState;
+import org.apache.storm.state.AsyncCommittableState;
+import org.apache.storm.state.KeyValueState;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+public class StatefulBoltExecutorTest {
+
+    /**
+     * Records the threads the checkpoint steps run on, the persist of a prepare blocks until released.
+     */
+    private static class RecordingState implements AsyncCommittableState {
+        final CountDownLatch persistReleased = new CountDownLatch(1);
+        volatile Thread snapshotThread;
+        volatile Thread persistThread;
+        volatile Thread commitThread;
+        volatile RuntimeException persistError;
+
+        @Override
+        public Runnable snapshot(long txid) {
+            snapshotThread = Thread.currentThread();
+            return () -> {
+                try {
+                    persistReleased.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                persistThread = Thread.currentThread();
+                if (persistError != null) {
+                    throw persistError;
+                }
+            };
+        }
+
+        @Override
+        public void commit(long txid) {
+            commitThread = Thread.currentThread();
+        }
+
+        @Override
+        public void commit() {
+        }
+
+        @Override
+        public void rollback() {
+        }
+    }
+
+    private final RecordingState state = new RecordingState();
+    private IStatefulBolt<KeyValueState<String, Integer>> bolt;
+    private OutputCollector collector;
+    private OutputCollector boltCollector;
+    private StatefulBoltExecutor<KeyValueState<String, Integer>> executor;
+
+    private static Tuple checkpointTuple(CheckPointState.Action action, long txid) {
+        Tuple tuple = Mockito.mock(Tuple.class);
+        Mockito.when(tuple.getSourceStreamId()).thenReturn(CHECKPOINT_STREAM_ID);
+        Mockito.when(tuple.getValueByField(CHECKPOINT_FIELD_ACTION)).thenReturn(action);
+        Mockito.when(tuple.getLongByField(CHECKPOINT_FIELD_TXID)).thenReturn(txid);
+        return tuple;
+    }
+
+    private void drainCompletions() {
+        while (executor.hasPendingCompletions()) {
+            executor.pollCompletions();
+            Thread.yield();
+        }
+    }
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        TopologyContext context = Mockito.mock(TopologyContext.class);
+        Mockito.when(context.getThisComponentId()).thenReturn("bolt");
+        Mockito.when(context.getThisTaskId()).thenReturn(1);
+        Map<GlobalStreamId, Grouping> sources = new HashMap<>();
+        sources.put(new GlobalStreamId("checkpoint-spout", CHECKPOINT_STREAM_ID), Mockito.mock(Grouping.class));
+        Mockito.when(context.getThisSources()).thenReturn(sources);
+        Mockito.when(context.getComponentTasks("checkpoint-spout")).thenReturn(Collections.singletonList(0));
+        Map<String, Object> topoConf = new HashMap<>();
+        topoConf.put(Config.TOPOLOGY_STATE_CHECKPOINT_ASYNC, true);
+
+        bolt = Mockito.mock(IStatefulBolt.class);
+        collector = Mockito.mock(OutputCollector.class);
+        executor = new StatefulBoltExecutor<>(bolt);
+        executor.prepare(topoConf, context, collector, state);
+        ArgumentCaptor<OutputCollector> captor = ArgumentCaptor.forClass(OutputCollector.class);
+        Mockito.verify(bolt).prepare(Mockito.eq(topoConf), Mockito.eq(context), captor.capture());
+        boltCollector = captor.getValue();
+
+        Tuple init = checkpointTuple(INITSTATE, 0);
+        executor.execute(init);
+        Mockito.verify(collector).ack(init);
+    }
+
+    @After
+    public void tearDown() {
+        executor.cleanup();
+    }
+
+    @Test
+    public void testPrepareIsPersistedOffTheExecutorThread() {
+        Tuple input = Mockito.mock(Tuple.class);
+        Mockito.doAnswer(invocation -> {
+            boltCollector.ack(invocation.getArgument(0));
+            return null;
+        }).when(bolt).execute(input);
+        executor.execute(input);
+        // the ack is held back until the state with the update is committed
+        Mockito.verify(collector, Mockito.never()).ack(input);
+
+        Tuple prepare = checkpointTuple(PREPARE, 1);
+        executor.execute(prepare);
+        assertEquals(Thread.currentThread(), state.snapshotThread);
+        assertTrue(executor.hasPendingCompletions());
+        // the bolt keeps executing while the prepare is written
+        Tuple other = Mockito.mock(Tuple.class);
+        executor.execute(other);
+        Mockito.verify(bolt).execute(other);
+        assertEquals(0, executor.pollCompletions());
+        Mockito.verify(collector, Mockito.never()).ack(prepare);
+
+        state.persistReleased.countDown();
+        drainCompletions();
+        assertNotEquals(Thread.currentThread(), state.persistThread);
+        assertTrue(state.persistThread.getName().endsWith("-checkpoint"));
+        Mockito.verify(collector).ack(prepare);
+        Mockito.verify(collector, Mockito.never()).ack(input);
+
+        Tuple commit = checkpointTuple(COMMIT, 1);
+        executor.execute(commit);
+        drainCompletions();
+        assertEquals(state.persistThread, state.commitThread);
+        InOrder inOrder = Mockito.inOrder(collector);
+        inOrder.verify(collector).ack(input);
+        inOrder.verify(collector).ack(commit);
+    }
+
+    @Test
+    public void testNextCheckpointWaitsForThePreviousOne() {
+        Tuple prepare = checkpointTuple(PREPARE, 1);
+        executor.execute(prepare);
+        state.persistReleased.countDown();
+        // the commit is handled on the executor thread before the completion of the prepare was polled
+        Tuple commit = checkpointTuple(COMMIT, 1);
+        executor.execute(commit);
+        drainCompletions();
+        InOrder inOrder = Mockito.inOrder(collector);
+        inOrder.verify(collector).ack(prepare);
+        inOrder.verify(collector).ack(commit);
+    }
+
+    @Test
+    public void testFailedPersistFailsTheCheckpointTuple() {
+        state.persistError = new RuntimeException("store unavailable");
+        state.persistReleased.countDown();
+        Tuple prepare = checkpointTuple(PREPARE, 1);
+        executor.execute(prepare);
+        drainCompletions();
+        assertFalse(executor.hasPendingCompletions());
+        Mockito.verify(collector).fail(prepare);
+        Mockito.verify(collector).reportError(state.persistError);
+        Mockito.verify(collector, Mockito.never()).ack(prepare);
+    }
+}
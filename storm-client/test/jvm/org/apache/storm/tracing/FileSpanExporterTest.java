@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.tracing;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.apache.storm.Config;
+import org.apache.storm.shade.net.minidev.json.JSONValue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileSpanExporterTest {
+    private static final int PORT = 6700;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File dir;
+    private Map<String, Object> topoConf;
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> readSpans() throws IOException {
+        List<Map<String, Object>> spans = new ArrayList<>();
+        for (String line : Files.readAllLines(new File(dir, "spans-" + PORT + ".json").toPath(), StandardCharsets.UTF_8)) {
+            spans.add((Map<String, Object>) JSONValue.parse(line));
+        }
+        return spans;
+    }
+
+    private static long longValue(Map<String, Object> json, String key) {
+        return ((Number) json.get(key)).longValue();
+    }
+
+    private FileSpanExporter prepared() {
+        FileSpanExporter exporter = new FileSpanExporter();
+        exporter.prepare(topoConf, "topo-1", PORT);
+        return exporter;
+    }
+
+    @Before
+    public void setUp() {
+        // the directory is created by the exporter
+        dir = new File(tmp.getRoot(), "spans");
+        topoConf = new HashMap<>();
+        topoConf.put(Config.TOPOLOGY_TRACING_FILE_EXPORTER_DIR, dir.getAbsolutePath());
+    }
+
+    @Test
+    public void testOneLinePerSpan() throws IOException {
+        FileSpanExporter exporter = prepared();
+        Span root = new Span(0xabcL, 0x1L, 0, "spout", 1, null, -1, "default", 100, 100, 100);
+        Span child = new Span(0xabcL, 0x2L, 0x1L, "bolt", 2, "spout", 1, "default", 100, 110, 120);
+        child.setExecuteEndTimeMs(130);
+        exporter.export(root);
+        exporter.export(child);
+        exporter.close();
+
+        List<Map<String, Object>> spans = readSpans();
+        assertEquals(2, spans.size());
+        Map<String, Object> json = spans.get(0);
+        assertEquals(new HashSet<>(Arrays.asList("traceId", "spanId", "topologyId", "workerPort", "component", "task", "stream",
+                                               "emitMs", "receiveMs", "dequeueMs", "executeEndMs")),
+                     json.keySet());
+        assertEquals("abc", json.get("traceId"));
+        assertEquals("1", json.get("spanId"));
+        assertEquals("topo-1", json.get("topologyId"));
+        assertEquals(PORT, longValue(json, "workerPort"));
+        assertEquals("spout", json.get("component"));
+        assertEquals(1, longValue(json, "task"));
+        assertEquals("default", json.get("stream"));
+        assertEquals(100, longValue(json, "executeEndMs"));
+
+        json = spans.get(1);
+        assertEquals("abc", json.get("traceId"));
+        assertEquals("2", json.get("spanId"));
+        assertEquals("1", json.get("parentSpanId"));
+        assertEquals("bolt", json.get("component"));
+        assertEquals(2, longValue(json, "task"));
+        assertEquals("spout", json.get("sourceComponent"));
+        assertEquals(1, longValue(json, "sourceTask"));
+        assertEquals(100, longValue(json, "emitMs"));
+        assertEquals(110, longValue(json, "receiveMs"));
+        assertEquals(120, longValue(json, "dequeueMs"));
+        assertEquals(130, longValue(json, "executeEndMs"));
+    }
+
+    @Test
+    public void testIdsAreUnsignedHex() throws IOException {
+        FileSpanExporter exporter = prepared();
+        exporter.export(new Span(-1L, Long.MIN_VALUE, 0, "spout", 1, null, -1, "default", 0, 0, 0));
+        exporter.close();
+        Map<String, Object> json = readSpans().get(0);
+        assertEquals("ffffffffffffffff", json.get("traceId"));
+        assertEquals("8000000000000000", json.get("spanId"));
+    }
+
+    @Test
+    public void testAppendsToTheFileOfAPreviousWorker() throws IOException {
+        FileSpanExporter exporter = prepared();
+        exporter.export(new Span(1, 1, 0, "spout", 1, null, -1, "default", 0, 0, 0));
+        exporter.close();
+        // the worker is restarted on the same port
+        exporter = prepared();
+        exporter.export(new Span(2, 2, 0, "spout", 1, null, -1, "default", 0, 0, 0));
+        exporter.close();
+
+        List<Map<String, Object>> spans = readSpans();
+        assertEquals(2, spans.size());
+        assertEquals("1", spans.get(0).get("traceId"));
+        assertEquals("2", spans.get(1).get("traceId"));
+    }
+
+    @Test
+    public void testSpansAfterCloseAreDropped() throws IOException {
+        FileSpanExporter exporter = prepared();
+        exporter.export(new Span(1, 1, 0, "spout", 1, null, -1, "default", 0, 0, 0));
+        exporter.close();
+        exporter.export(new Span(2, 2, 0, "spout", 1, null, -1, "default", 0, 0, 0));
+        exporter.close();
+        assertEquals(1, readSpans().size());
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.storm.Config;
+import org.apache.storm.task.GeneralTopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.TupleImpl;
+import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.Time;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TracerTest {
+
+    private static class RecordingExporter implements ISpanExporter {
+        final List<Span> spans = new ArrayList<>();
+        boolean closed;
+
+        @Override
+        public void prepare(Map<String, Object> topoConf, String topologyId, int workerPort) {
+        }
+
+        @Override
+        public void export(Span span) {
+            spans.add(span);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private final RecordingExporter exporter = new RecordingExporter();
+    private final GeneralTopologyContext context = Mockito.mock(GeneralTopologyContext.class);
+
+    private TupleImpl tuple(String srcComponent, int srcTask) {
+        return new TupleImpl(context, new Values("word"), srcComponent, srcTask, "default");
+    }
+
+    private TupleImpl tracedTuple(Tracer tracer, TraceContext traceContext) {
+        TupleImpl tuple = tuple("spout", 1);
+        tuple.setTraceContext(traceContext);
+        tracer.beginSpan(tuple, "bolt", 2);
+        return tuple;
+    }
+
+    @Test
+    public void testIsEnabled() {
+        assertFalse(Tracer.isEnabled(Collections.emptyMap()));
+        Map<String, Object> conf = new HashMap<>();
+        conf.put(Config.TOPOLOGY_TRACING_SAMPLE_RATE, 0.0);
+        assertFalse(Tracer.isEnabled(conf));
+        assertNull(Tracer.create(conf, "topo-1", 6700));
+        conf.put(Config.TOPOLOGY_TRACING_SAMPLE_RATE, 0.01);
+        assertTrue(Tracer.isEnabled(conf));
+    }
+
+    @Test
+    public void testSampleRate() {
+        Tracer never = new Tracer(0.0, exporter);
+        for (int i = 0; i < 100; i++) {
+            assertNull(never.maybeStartTrace("spout", 1, "default"));
+        }
+        assertTrue(exporter.spans.isEmpty());
+
+        Tracer always = new Tracer(1.0, exporter);
+        for (int i = 0; i < 100; i++) {
+            assertNotNull(always.maybeStartTrace("spout", 1, "default"));
+        }
+        assertEquals(100, exporter.spans.size());
+    }
+
+    @Test
+    public void testRootSpanIsExportedWhenTheTraceStarts() {
+        try (Time.SimulatedTime t = new Time.SimulatedTime()) {
+            Time.advanceTime(1000);
+            Tracer tracer = new Tracer(1.0, exporter);
+            TraceContext traceContext = tracer.maybeStartTrace("spout", 1, "words");
+            assertEquals(1, exporter.spans.size());
+            Span root = exporter.spans.get(0);
+            assertTrue(root.isRoot());
+            assertEquals("spout", root.getComponentId());
+            assertEquals(1, root.getTaskId());
+            assertEquals("words", root.getStreamId());
+            assertEquals(1000, root.getEmitTimeMs());
+            assertEquals(root.getTraceId(), traceContext.getTraceId());
+            assertEquals(root.getSpanId(), traceContext.getParentSpanId());
+            assertEquals(1000, traceContext.getEmitTimeMs());
+        }
+    }
+
+    @Test
+    public void testSpanOfAnExecutedTuple() {
+        try (Time.SimulatedTime t = new Time.SimulatedTime()) {
+            Tracer tracer = new Tracer(1.0, exporter);
+            TraceContext rootContext = tracer.maybeStartTrace("spout", 1, "default");
+            TupleImpl tuple = tuple("spout", 1);
+            tuple.setTraceContext(rootContext);
+            Time.advanceTime(5);
+            tracer.beginSpan(tuple, "bolt", 2);
+            Span span = tuple.getTraceSpan();
+            // the span is only exported once the execute is done
+            assertEquals(1, exporter.spans.size());
+            Time.advanceTime(5);
+            tracer.endSpan(span);
+            assertEquals(2, exporter.spans.size());
+            assertSame(span, exporter.spans.get(1));
+
+            assertFalse(span.isRoot());
+            assertEquals(rootContext.getTraceId(), span.getTraceId());
+            assertEquals(rootContext.getParentSpanId(), span.getParentSpanId());
+            assertNotEquals(span.getParentSpanId(), span.getSpanId());
+            assertEquals("bolt", span.getComponentId());
+            assertEquals(2, span.getTaskId());
+            assertEquals("spout", span.getSourceComponent());
+            assertEquals(1, span.getSourceTask());
+            assertEquals("default", span.getStreamId());
+            assertEquals(0, span.getEmitTimeMs());
+            assertEquals(0, span.getReceiveTimeMs());
+            assertEquals(5, span.getDequeueTimeMs());
+            assertEquals(10, span.getExecuteEndTimeMs());
+        }
+    }
+
+    @Test
+    public void testChildContextOfTheFirstTracedAnchor() {
+        Tracer tracer = new Tracer(1.0, exporter);
+        TupleImpl untraced = tuple("spout", 1);
+        TupleImpl first = tracedTuple(tracer, new TraceContext(11, 12, 0));
+        TupleImpl second = tracedTuple(tracer, new TraceContext(21, 22, 0));
+
+        TraceContext child = tracer.childContext(Arrays.<Tuple>asList(untraced, first, second));
+        assertEquals(11, child.getTraceId());
+        // the emitted tuple is a child of the span of the anchor, not of its parent
+        assertEquals(first.getTraceSpan().getSpanId(), child.getParentSpanId());
+
+        child = tracer.childContext(Arrays.<Tuple>asList(second, first));
+        assertEquals(21, child.getTraceId());
+        assertEquals(second.getTraceSpan().getSpanId(), child.getParentSpanId());
+    }
+
+    @Test
+    public void testChildContextOfUntracedAnchors() {
+        Tracer tracer = new Tracer(1.0, exporter);
+        assertNull(tracer.childContext(null));
+        assertNull(tracer.childContext(Collections.emptyList()));
+        assertNull(tracer.childContext(Arrays.<Tuple>asList(tuple("spout", 1), tuple("spout", 2))));
+    }
+
+    @Test
+    public void testExportFailuresAreNotPropagated() {
+        Tracer tracer = new Tracer(1.0, new RecordingExporter() {
+            @Override
+            public void export(Span span) {
+                throw new IllegalStateException("exporter is down");
+            }
+        });
+        assertNotNull(tracer.maybeStartTrace("spout", 1, "default"));
+    }
+
+    @Test
+    public void testCloseClosesTheExporter() {
+        new Tracer(1.0, exporter).close();
+        assertTrue(exporter.closed);
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class AdaptiveBatchSizerTest {
+    private static final int MAX_BATCH = 100;
+    private static final long MAX_DELAY_NANOS = 500_000;
+
+    private long now = 0;
+    private double queueLoad = 0;
+    private int pending = 0;
+    private final Map<AdaptiveBatchSizer.FlushCause, Integer> flushes = new EnumMap<>(AdaptiveBatchSizer.FlushCause.class);
+
+    private AdaptiveBatchSizer sizer() {
+        return new AdaptiveBatchSizer(MAX_BATCH, MAX_DELAY_NANOS, () -> queueLoad, Collections.emptyList(), () -> now);
+    }
+
+    /**
+     * Publish like JCQueue.BatchInserter does, one element every intervalNanos.
+     */
+    private void publish(AdaptiveBatchSizer sizer, long intervalNanos, int count) {
+        for (int i = 0; i < count; i++) {
+            now += intervalNanos;
+            if (sizer.arrival(pending)) {
+                flush(sizer, AdaptiveBatchSizer.FlushCause.TIMEOUT);
+            }
+            pending++;
+            if (pending >= sizer.batchSize()) {
+                flush(sizer, AdaptiveBatchSizer.FlushCause.FULL);
+            }
+        }
+    }
+
+    private void flush(AdaptiveBatchSizer sizer, AdaptiveBatchSizer.FlushCause cause) {
+        sizer.flushed(cause);
+        flushes.merge(cause, 1, Integer::sum);
+        pending = 0;
+    }
+
+    private int flushes(AdaptiveBatchSizer.FlushCause cause) {
+        return flushes.getOrDefault(cause, 0);
+    }
+
+    @Test
+    public void testGrowsOnFullBatches() {
+        AdaptiveBatchSizer sizer = sizer();
+        assertEquals(1, sizer.batchSize());
+        // 50 arrivals per delay period, a batch of 50 fills in about the delay
+        publish(sizer, MAX_DELAY_NANOS / 50, 5_000);
+        assertEquals(50, sizer.batchSize());
+        assertEquals(0, flushes(AdaptiveBatchSizer.FlushCause.TIMEOUT));
+        assertTrue(flushes(AdaptiveBatchSizer.FlushCause.FULL) > 0);
+
+        // faster than a full batch per delay period, capped at the configured size
+        publish(sizer, MAX_DELAY_NANOS / 1_000, 20_000);
+        assertEquals(MAX_BATCH, sizer.batchSize());
+    }
+
+    @Test
+    public void testShrinksOnTimeouts() {
+        AdaptiveBatchSizer sizer = sizer();
+        publish(sizer, MAX_DELAY_NANOS / 1_000, 20_000);
+        assertEquals(MAX_BATCH, sizer.batchSize());
+
+        // 5 arrivals per delay period, large batches would not fill in time and are pushed when their oldest element is overdue
+        int fullBefore = flushes(AdaptiveBatchSizer.FlushCause.FULL);
+        publish(sizer, MAX_DELAY_NANOS / 5, 100);
+        assertTrue(flushes(AdaptiveBatchSizer.FlushCause.TIMEOUT) > 0);
+        assertEquals(fullBefore, flushes(AdaptiveBatchSizer.FlushCause.FULL));
+        assertTrue(sizer.batchSize() < MAX_BATCH);
+        publish(sizer, MAX_DELAY_NANOS / 5, 500);
+        assertEquals(5, sizer.batchSize());
+
+        // one arrival every two delay periods, no batching at all
+        publish(sizer, 2 * MAX_DELAY_NANOS, 100);
+        assertEquals(1, sizer.batchSize());
+    }
+
+    @Test
+    public void testNoElementWaitsLongerThanTheDelay() {
+        AdaptiveBatchSizer sizer = sizer();
+        publish(sizer, MAX_DELAY_NANOS / 1_000, 20_000);
+        long oldestPending = 0;
+        for (int i = 0; i < 2_000; i++) {
+            // a bursty producer, the gaps between arrivals vary from nothing to more than the delay
+            publish(sizer, (i % 7) * MAX_DELAY_NANOS / 4, 1);
+            if (pending == 1) {
+                oldestPending = now;
+            }
+            assertTrue(pending == 0 || now - oldestPending < MAX_DELAY_NANOS);
+        }
+    }
+
+    @Test
+    public void testMaxBatchWhileTheQueueIsBackedUp() {
+        AdaptiveBatchSizer sizer = sizer();
+        queueLoad = 0.6;
+        // a low rate on its own would not batch at all
+        publish(sizer, MAX_DELAY_NANOS, 10);
+        assertEquals(MAX_BATCH, sizer.batchSize());
+
+        queueLoad = 0.1;
+        publish(sizer, MAX_DELAY_NANOS, 200);
+        assertEquals(1, sizer.batchSize());
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class RotatingLongMapTest {
+    // a table created with expectedSize 0 starts at the minimum capacity
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * Find keys whose probe chain starts at the given slot of a table of the minimum capacity.
+     */
+    private static long[] keysHomedAt(RotatingLongTable table, int slot, int count) {
+        long[] keys = new long[count];
+        int found = 0;
+        for (long key = 1; found < count; key++) {
+            if (table.indexFor(key) == slot) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+
+    @Test
+    public void testExpiresOnNumBucketsRotation() {
+        for (int numBuckets = 2; numBuckets <= 5; numBuckets++) {
+            Map<Long, String> expired = new HashMap<>();
+            RotatingLongMap<String> map = new RotatingLongMap<>(numBuckets, 0, expired::put);
+            map.put(1L, "one");
+            for (int i = 1; i < numBuckets; i++) {
+                assertEquals(0, map.rotate());
+                assertEquals("one", map.get(1L));
+            }
+            assertEquals(1, map.rotate());
+            assertFalse(map.containsKey(1L));
+            assertEquals("one", expired.get(1L));
+        }
+    }
+
+    @Test
+    public void testPutMovesKeyToNewestBucket() {
+        RotatingLongMap<String> map = new RotatingLongMap<>(3, 0, null);
+        map.put(1L, "a");
+        map.rotate();
+        map.rotate();
+        map.put(1L, "b");
+        map.rotate();
+        map.rotate();
+        assertEquals("b", map.get(1L));
+        map.rotate();
+        assertNull(map.get(1L));
+    }
+
+    @Test
+    public void testProbeChainWrapsPastArrayEnd() {
+        RotatingLongMap<Long> map = new RotatingLongMap<>(3, 0, null);
+        long[] wrapping = keysHomedAt(map, MIN_CAPACITY - 1, 4);
+        long[] atZero = keysHomedAt(map, 0, 2);
+        // the chain starting at the last slot runs over slots 15, 0, 1, 2 and pushes the keys homed at 0 to 3 and 4
+        for (long key : wrapping) {
+            map.put(key, key);
+        }
+        for (long key : atZero) {
+            map.put(key, key);
+        }
+        assertEquals(6, map.size());
+
+        // backward shift across the array end has to keep every other key reachable
+        assertEquals(Long.valueOf(wrapping[0]), map.removeValue(wrapping[0]));
+        assertFalse(map.containsKey(wrapping[0]));
+        for (int i = 1; i < wrapping.length; i++) {
+            assertEquals(Long.valueOf(wrapping[i]), map.get(wrapping[i]));
+        }
+        for (long key : atZero) {
+            assertEquals(Long.valueOf(key), map.get(key));
+        }
+
+        assertEquals(Long.valueOf(atZero[0]), map.removeValue(atZero[0]));
+        assertEquals(Long.valueOf(wrapping[2]), map.removeValue(wrapping[2]));
+        assertEquals(Long.valueOf(wrapping[1]), map.get(wrapping[1]));
+        assertEquals(Long.valueOf(wrapping[3]), map.get(wrapping[3]));
+        assertEquals(Long.valueOf(atZero[1]), map.get(atZero[1]));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    public void testRotateRemovesWholeWrappedChain() {
+        List<Long> expired = new ArrayList<>();
+        RotatingLongMap<Long> map = new RotatingLongMap<>(2, 0, (key, val) -> expired.add(key));
+        long[] wrapping = keysHomedAt(map, MIN_CAPACITY - 1, 3);
+        long[] atZero = keysHomedAt(map, 0, 2);
+        map.put(wrapping[0], 0L);
+        map.put(atZero[0], 0L);
+        map.put(wrapping[1], 0L);
+        map.rotate();
+        // the newer entries are interleaved in the same chain and have to survive the sweep, shifted back to their new slots
+        map.put(wrapping[2], 1L);
+        map.put(atZero[1], 1L);
+        assertEquals(3, map.rotate());
+        assertEquals(3, expired.size());
+        assertTrue(expired.contains(wrapping[0]));
+        assertTrue(expired.contains(wrapping[1]));
+        assertTrue(expired.contains(atZero[0]));
+        assertEquals(2, map.size());
+        assertEquals(Long.valueOf(1L), map.get(wrapping[2]));
+        assertEquals(Long.valueOf(1L), map.get(atZero[1]));
+        assertEquals(2, map.rotate());
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void testGrowKeepsEntriesAndBuckets() {
+        Map<Long, Long> expired = new HashMap<>();
+        RotatingLongMap<Long> map = new RotatingLongMap<>(3, 0, expired::put);
+        for (long key = 0; key < 100; key++) {
+            map.put(key, key);
+        }
+        map.rotate();
+        for (long key = 100; key < 1000; key++) {
+            map.put(key, key);
+        }
+        assertEquals(1000, map.size());
+        for (long key = 0; key < 1000; key++) {
+            assertEquals(Long.valueOf(key), map.get(key));
+        }
+        map.rotate();
+        assertEquals(100, map.rotate());
+        assertEquals(100, expired.size());
+        for (long key = 0; key < 100; key++) {
+            assertEquals(Long.valueOf(key), expired.get(key));
+        }
+        assertEquals(900, map.size());
+    }
+
+    @Test
+    public void testCallbackMayPutDuringRotate() {
+        AtomicReference<RotatingLongMap<Integer>> holder = new AtomicReference<>();
+        List<Long> expired = new ArrayList<>();
+        RotatingLongMap<Integer> map = new RotatingLongMap<>(2, 0, (key, attempt) -> {
+            expired.add(key);
+            if (attempt < 2) {
+                // re-emit, like a spout replaying a timed out tuple from fail()
+                holder.get().put(key, attempt + 1);
+            }
+        });
+        holder.set(map);
+        for (long key = 0; key < 20; key++) {
+            map.put(key, 0);
+        }
+        int rotations = 0;
+        while (map.size() > 0) {
+            map.rotate();
+            rotations++;
+        }
+        assertEquals(6, rotations);
+        assertEquals(60, expired.size());
+    }
+
+    @Test
+    public void testMatchesRotatingMap() {
+        for (int numBuckets = 2; numBuckets <= 5; numBuckets++) {
+            Random random = new Random(numBuckets);
+            Map<Long, Integer> expectedExpired = new HashMap<>();
+            Map<Long, Integer> actualExpired = new HashMap<>();
+            RotatingMap<Long, Integer> expected = new RotatingMap<>(numBuckets, expectedExpired::put);
+            RotatingLongMap<Integer> actual = new RotatingLongMap<>(numBuckets, 0, actualExpired::put);
+            for (int op = 0; op < 50_000; op++) {
+                // a small key space keeps the table crowded, so chains collide, wrap and get shifted all the time
+                long key = random.nextInt(64) - 8;
+                int choice = random.nextInt(100);
+                if (choice < 45) {
+                    expected.put(key, op);
+                    actual.put(key, op);
+                } else if (choice < 65) {
+                    assertEquals(expected.remove(key), actual.removeValue(key));
+                } else if (choice < 90) {
+                    assertEquals(expected.get(key), actual.get(key));
+                    assertEquals(expected.containsKey(key), actual.containsKey(key));
+                } else {
+                    expectedExpired.clear();
+                    actualExpired.clear();
+                    assertEquals(expected.rotate().size(), actual.rotate());
+                    assertEquals(expectedExpired, actualExpired);
+                }
+                assertEquals(expected.size(), actual.size());
+            }
+            for (long key = -8; key < 56; key++) {
+                assertEquals(expected.get(key), actual.get(key));
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.storm.generated.NodeInfo;
+import org.apache.storm.grouping.Load;
+import org.apache.storm.messaging.IConnection;
+import org.apache.storm.messaging.TaskMessage;
+import org.apache.storm.messaging.netty.BackPressureStatus;
+import org.apache.storm.shade.io.netty.buffer.ByteBuf;
+import org.apache.storm.shade.io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+public class TransferDrainerTest {
+
+    /**
+     * Records every batch it is sent, consuming at most {@code limit} messages of each.
+     */
+    private static class RecordingConnection implements IConnection {
+        final List<List<TaskMessage>> batches = new ArrayList<>();
+        int limit = Integer.MAX_VALUE;
+
+        @Override
+        public void send(Iterator<TaskMessage> msgs) {
+            List<TaskMessage> batch = new ArrayList<>();
+            while (batch.size() < limit && msgs.hasNext()) {
+                batch.add(msgs.next());
+            }
+            batches.add(batch);
+        }
+
+        List<TaskMessage> sent() {
+            List<TaskMessage> sent = new ArrayList<>();
+            batches.forEach(sent::addAll);
+            return sent;
+        }
+
+        @Override
+        public void sendLoadMetrics(Map<Integer, Double> taskToLoad) {
+        }
+
+        @Override
+        public void sendBackPressureStatus(BackPressureStatus bpStatus) {
+        }
+
+        @Override
+        public Map<Integer, Load> getLoad(Collection<Integer> tasks) {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public int getPort() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static NodeInfo node(int port) {
+        return new NodeInfo("host", Collections.singleton((long) port));
+    }
+
+    private static TaskMessage message(int task) {
+        ByteBuf buffer = Unpooled.buffer(4);
+        buffer.writeInt(task);
+        return new TaskMessage(task, buffer);
+    }
+
+    private static boolean released(TaskMessage msg) {
+        return msg.buffer() == null;
+    }
+
+    @Test
+    public void testGroupsByDestinationInOrder() {
+        Random random = new Random(5);
+        int numNodes = 4;
+        Map<NodeInfo, IConnection> connections = new HashMap<>();
+        List<RecordingConnection> recorders = new ArrayList<>();
+        for (int i = 0; i < numNodes; i++) {
+            RecordingConnection connection = new RecordingConnection();
+            recorders.add(connection);
+            connections.put(node(i), connection);
+        }
+        // tasks 0 to 99 spread over the nodes out of order, so a node hosts tasks that are far apart
+        Map<Integer, NodeInfo> taskToNode = new HashMap<>();
+        for (int task = 0; task < 100; task++) {
+            taskToNode.put(task, node(random.nextInt(numNodes)));
+        }
+
+        TransferDrainer drainer = new TransferDrainer();
+        for (int round = 0; round < 20; round++) {
+            Map<NodeInfo, List<TaskMessage>> expected = new HashMap<>();
+            int numMessages = random.nextInt(300);
+            for (int i = 0; i < numMessages; i++) {
+                TaskMessage msg = message(random.nextInt(100));
+                drainer.add(msg);
+                expected.computeIfAbsent(taskToNode.get(msg.task()), n -> new ArrayList<>()).add(msg);
+            }
+            for (RecordingConnection connection : recorders) {
+                connection.batches.clear();
+            }
+            drainer.send(taskToNode, connections);
+            for (int i = 0; i < numNodes; i++) {
+                List<TaskMessage> messages = expected.getOrDefault(node(i), Collections.emptyList());
+                RecordingConnection connection = recorders.get(i);
+                // one batch per destination and send, in the order the messages were drained
+                assertEquals(messages.isEmpty() ? 0 : 1, connection.batches.size());
+                List<TaskMessage> sent = connection.sent();
+                assertEquals(messages.size(), sent.size());
+                for (int j = 0; j < messages.size(); j++) {
+                    assertSame(messages.get(j), sent.get(j));
+                    assertTrue(!released(sent.get(j)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReroutesWhenTheMapsAreReplaced() {
+        RecordingConnection first = new RecordingConnection();
+        RecordingConnection second = new RecordingConnection();
+        Map<NodeInfo, IConnection> connections = new HashMap<>();
+        connections.put(node(1), first);
+        connections.put(node(2), second);
+        Map<Integer, NodeInfo> taskToNode = new HashMap<>();
+        taskToNode.put(1, node(1));
+
+        TransferDrainer drainer = new TransferDrainer();
+        TaskMessage before = message(1);
+        drainer.add(before);
+        drainer.send(taskToNode, connections);
+        assertEquals(Collections.singletonList(before), first.sent());
+
+        // the worker publishes a new map when the assignment changes, the task moved and a task with a larger id was added
+        Map<Integer, NodeInfo> reassigned = new HashMap<>();
+        reassigned.put(1, node(2));
+        reassigned.put(500, node(1));
+        TaskMessage moved = message(1);
+        TaskMessage added = message(500);
+        drainer.add(moved);
+        drainer.add(added);
+        drainer.send(reassigned, connections);
+        assertEquals(Arrays.asList(before, added), first.sent());
+        assertEquals(Collections.singletonList(moved), second.sent());
+    }
+
+    @Test
+    public void testReleasesWhatIsNotSent() {
+        RecordingConnection partial = new RecordingConnection();
+        partial.limit = 2;
+        Map<NodeInfo, IConnection> connections = new HashMap<>();
+        connections.put(node(1), partial);
+        Map<Integer, NodeInfo> taskToNode = new HashMap<>();
+        taskToNode.put(1, node(1));
+        // the connection to node 2 is not up yet
+        taskToNode.put(2, node(2));
+
+        TransferDrainer drainer = new TransferDrainer();
+        List<TaskMessage> toNode1 = Arrays.asList(message(1), message(1), message(1), message(1));
+        TaskMessage toNode2 = message(2);
+        TaskMessage unknownTask = message(7);
+        TaskMessage negativeTask = message(-1);
+        toNode1.forEach(drainer::add);
+        drainer.add(toNode2);
+        drainer.add(unknownTask);
+        drainer.add(negativeTask);
+        drainer.send(taskToNode, connections);
+
+        assertEquals(toNode1.subList(0, 2), partial.sent());
+        assertTrue(!released(toNode1.get(0)) && !released(toNode1.get(1)));
+        assertTrue(released(toNode1.get(2)) && released(toNode1.get(3)));
+        assertTrue(released(toNode2));
+        assertTrue(released(unknownTask));
+        assertTrue(released(negativeTask));
+
+        // nothing is left over for the next send
+        partial.batches.clear();
+        partial.limit = Integer.MAX_VALUE;
+        TaskMessage next = message(1);
+        drainer.add(next);
+        drainer.send(taskToNode, connections);
+        assertEquals(Collections.singletonList(next), partial.sent());
+    }
+
+    @Test
+    public void testClearReleasesPendingMessages() {
+        TransferDrainer drainer = new TransferDrainer();
+        TaskMessage pending = message(1);
+        drainer.add(pending);
+        drainer.clear();
+        assertTrue(released(pending));
+
+        RecordingConnection connection = new RecordingConnection();
+        drainer.send(Collections.singletonMap(1, node(1)), Collections.singletonMap(node(1), connection));
+        assertTrue(connection.batches.isEmpty());
+    }
+}
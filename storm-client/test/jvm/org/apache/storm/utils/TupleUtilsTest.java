@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.apache.storm.shade.com.google.common.hash.Hasher;
+import org.apache.storm.shade.com.google.common.hash.Hashing;
+import org.junit.Test;
+
+public class TupleUtilsTest {
+    private static final int[] NUM_TASKS = { 1, 2, 3, 4, 5, 7, 8, 16, 31, 64, 100, 1000, 7919, 65536 };
+
+    /**
+     * A random tuple value of one of the types that fields groupings hash specially.
+     */
+    static Object randomValue(Random random) {
+        switch (random.nextInt(11)) {
+            case 0:
+                return null;
+            case 1:
+                return random.nextInt();
+            case 2:
+                return random.nextLong();
+            case 3:
+                return "key-" + random.nextInt(1000);
+            case 4:
+                return random.nextDouble();
+            case 5:
+                byte[] bytes = new byte[random.nextInt(8)];
+                random.nextBytes(bytes);
+                return bytes;
+            case 6:
+                return new int[]{ random.nextInt(), random.nextInt() };
+            case 7:
+                return new long[]{ random.nextLong() };
+            case 8:
+                return new Object[]{ random.nextInt(10), new String[]{ "a", "b" }, null };
+            case 9:
+                return Arrays.asList(random.nextInt(10), "x");
+            default:
+                return random.nextBoolean();
+        }
+    }
+
+    private static List<Object> select(List<Object> values, int[] fieldIndexes) {
+        List<Object> selected = new ArrayList<>(fieldIndexes.length);
+        for (int fieldIndex : fieldIndexes) {
+            selected.add(values.get(fieldIndex));
+        }
+        return selected;
+    }
+
+    /**
+     * Reference murmur3: MurmurHash3 x86_32 of the {@link Arrays#deepHashCode(Object[])} element hashes of the selected values.
+     */
+    static int murmur3Index(List<Object> selected, int numTasks) {
+        Hasher hasher = Hashing.murmur3_32_fixed(0).newHasher();
+        for (Object value : selected) {
+            hasher.putInt(Arrays.deepHashCode(new Object[]{ value }) - 31);
+        }
+        return Math.floorMod(hasher.hash().asInt(), numTasks);
+    }
+
+    @Test
+    public void testLegacyHashMatchesDeepHashCode() {
+        Random random = new Random(17);
+        for (int round = 0; round < 20_000; round++) {
+            List<Object> values = new ArrayList<>();
+            int numValues = 1 + random.nextInt(5);
+            for (int i = 0; i < numValues; i++) {
+                values.add(randomValue(random));
+            }
+            int[] fieldIndexes = new int[1 + random.nextInt(numValues)];
+            for (int i = 0; i < fieldIndexes.length; i++) {
+                fieldIndexes[i] = random.nextInt(numValues);
+            }
+            List<Object> selected = select(values, fieldIndexes);
+            for (int numTasks : NUM_TASKS) {
+                int expected = Math.floorMod(Arrays.deepHashCode(selected.toArray()), numTasks);
+                assertEquals(expected, TupleUtils.chooseTaskIndex(selected, numTasks));
+                assertEquals(expected, TupleUtils.chooseTaskIndex(values, fieldIndexes, false, numTasks));
+            }
+        }
+    }
+
+    @Test
+    public void testMurmur3HashMatchesReference() {
+        Random random = new Random(23);
+        for (int round = 0; round < 20_000; round++) {
+            List<Object> values = new ArrayList<>();
+            int numValues = 1 + random.nextInt(5);
+            for (int i = 0; i < numValues; i++) {
+                values.add(randomValue(random));
+            }
+            int[] fieldIndexes = new int[1 + random.nextInt(numValues)];
+            for (int i = 0; i < fieldIndexes.length; i++) {
+                fieldIndexes[i] = random.nextInt(numValues);
+            }
+            List<Object> selected = select(values, fieldIndexes);
+            for (int numTasks : NUM_TASKS) {
+                assertEquals(murmur3Index(selected, numTasks), TupleUtils.chooseTaskIndex(values, fieldIndexes, true, numTasks));
+            }
+        }
+    }
+
+    @Test
+    public void testLongKeyMatchesSingleFieldGrouping() {
+        Random random = new Random(29);
+        int[] firstField = { 0 };
+        for (int round = 0; round < 20_000; round++) {
+            long key = round < 1000 ? round - 500 : random.nextLong();
+            List<Object> values = Collections.singletonList(key);
+            for (int numTasks : NUM_TASKS) {
+                assertEquals(TupleUtils.chooseTaskIndex(values, numTasks), TupleUtils.chooseTaskIndex(key, false, numTasks));
+                assertEquals(murmur3Index(values, numTasks), TupleUtils.chooseTaskIndex(key, true, numTasks));
+                assertEquals(TupleUtils.chooseTaskIndex(values, firstField, true, numTasks), TupleUtils.chooseTaskIndex(key, true, numTasks));
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.windowing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+public class PaneWindowManagerTest {
+
+    private static final PaneAggregator<Integer, Long> SUM = new PaneAggregator<Integer, Long>() {
+        @Override
+        public Long init() {
+            return 0L;
+        }
+
+        @Override
+        public Long accumulate(Long aggregate, Integer event) {
+            return aggregate + event;
+        }
+
+        @Override
+        public Long merge(Long first, Long second) {
+            return first + second;
+        }
+    };
+
+    /**
+     * Records the activations and, for every expired event, the number of activations seen before it expired.
+     */
+    private static class Recorder implements WindowLifecycleListener<Integer> {
+        final List<Long> aggregates = new ArrayList<>();
+        final List<Long> windowEnds = new ArrayList<>();
+        final List<Integer> expired = new ArrayList<>();
+        final List<Integer> activationsAtExpiry = new ArrayList<>();
+
+        @Override
+        public void onExpiry(List<Integer> events) {
+            for (Integer event : events) {
+                expired.add(event);
+                activationsAtExpiry.add(aggregates.size());
+            }
+        }
+
+        @Override
+        public void onAggregateActivation(Object aggregate, Long startTimestamp, Long endTimestamp) {
+            aggregates.add((Long) aggregate);
+            windowEnds.add(endTimestamp);
+        }
+    }
+
+    @Test
+    public void testRejectsNonPositiveLengths() {
+        assertThrows(IllegalArgumentException.class, () -> new PaneWindowManager<>(events -> { }, SUM, true, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new PaneWindowManager<>(events -> { }, SUM, false, 10, -1));
+    }
+
+    @Test
+    public void testCountWindowsMatchBruteForce() {
+        long[][] lengthAndSlides = { { 5, 2 }, { 6, 3 }, { 4, 4 }, { 2, 5 }, { 7, 1 }, { 12, 8 } };
+        for (long[] lengthAndSlide : lengthAndSlides) {
+            long length = lengthAndSlide[0];
+            long slide = lengthAndSlide[1];
+            Recorder recorder = new Recorder();
+            PaneWindowManager<Integer, Long> manager = new PaneWindowManager<>(recorder, SUM, true, length, slide);
+            int numEvents = 100;
+            List<Long> expectedAggregates = new ArrayList<>();
+            for (int i = 0; i < numEvents; i++) {
+                // the value of an event is its index, so that the expected sums are easy to tell apart
+                manager.add(new EventImpl<>(i, 0));
+                int count = i + 1;
+                if (count % slide == 0) {
+                    long sum = 0;
+                    for (long j = Math.max(0, count - length); j < count; j++) {
+                        sum += j;
+                    }
+                    expectedAggregates.add(sum);
+                }
+            }
+            assertEquals("length " + length + " slide " + slide, expectedAggregates, recorder.aggregates);
+            assertExpiredAfterLastWindow(recorder, length, slide, numEvents);
+        }
+    }
+
+    /*
+     * Every event has to be acked exactly once, only after the last window that contains it, and as soon as no window still to come
+     * contains it.
+     */
+    private static void assertExpiredAfterLastWindow(Recorder recorder, long length, long slide, int numEvents) {
+        Set<Integer> unique = new HashSet<>(recorder.expired);
+        assertEquals(recorder.expired.size(), unique.size());
+        long lastActivated = numEvents / slide * slide;
+        for (int i = 0; i < recorder.expired.size(); i++) {
+            int event = recorder.expired.get(i);
+            // the windows end after every slide events and cover the length events before that
+            long lastWindow = 0;
+            for (long end = slide; end - length <= event; end += slide) {
+                if (event < end) {
+                    lastWindow = end / slide;
+                }
+            }
+            assertTrue("event " + event + " expired before window " + lastWindow, recorder.activationsAtExpiry.get(i) >= lastWindow);
+        }
+        for (int event = 0; event < numEvents; event++) {
+            boolean inFutureWindow = event >= lastActivated + slide - length;
+            assertEquals("event " + event, !inFutureWindow, unique.contains(event));
+        }
+    }
+
+    @Test
+    public void testTimeWindowsMatchBruteForce() {
+        long[][] lengthAndSlides = { { 10, 5 }, { 15, 10 }, { 20, 20 }, { 5, 12 }, { 30, 7 } };
+        Random random = new Random(5);
+        for (long[] lengthAndSlide : lengthAndSlides) {
+            long length = lengthAndSlide[0];
+            long slide = lengthAndSlide[1];
+            Recorder recorder = new Recorder();
+            PaneWindowManager<Integer, Long> manager = new PaneWindowManager<>(recorder, SUM, false, length, slide);
+            List<Long> timestamps = new ArrayList<>();
+            long ts = 1;
+            for (int i = 0; i < 200; i++) {
+                // gaps longer than a window leave windows without events, which must not be activated
+                ts += random.nextInt(10) == 0 ? random.nextInt(100) : random.nextInt(3);
+                timestamps.add(ts);
+                // the value of an event is its index, timestamps repeat
+                manager.add(new EventImpl<>(i, ts));
+                if (random.nextInt(20) == 0) {
+                    manager.add(new WaterMarkEvent<>(ts - 1 - random.nextInt(5)));
+                }
+            }
+            long watermark = ts;
+            manager.add(new WaterMarkEvent<>(watermark));
+
+            List<Long> expectedEnds = new ArrayList<>();
+            List<Long> expectedAggregates = new ArrayList<>();
+            for (long end = slide; end <= watermark; end += slide) {
+                long sum = 0;
+                boolean any = false;
+                for (int i = 0; i < timestamps.size(); i++) {
+                    long eventTs = timestamps.get(i);
+                    if (eventTs > end - length && eventTs <= end) {
+                        sum += i;
+                        any = true;
+                    }
+                }
+                if (any) {
+                    expectedEnds.add(end);
+                    expectedAggregates.add(sum);
+                }
+            }
+            String description = "length " + length + " slide " + slide;
+            assertEquals(description, expectedEnds, recorder.windowEnds);
+            assertEquals(description, expectedAggregates, recorder.aggregates);
+
+            // everything that no window after the watermark covers is acked, once, after its windows were activated
+            long nextEnd = (watermark / slide + 1) * slide;
+            Set<Integer> expired = new HashSet<>(recorder.expired);
+            assertEquals(description, recorder.expired.size(), expired.size());
+            for (int i = 0; i < timestamps.size(); i++) {
+                long eventTs = timestamps.get(i);
+                assertEquals(description + " ts " + eventTs, eventTs <= nextEnd - length, expired.contains(i));
+            }
+            for (int i = 0; i < recorder.expired.size(); i++) {
+                long eventTs = timestamps.get(recorder.expired.get(i));
+                int activated = recorder.activationsAtExpiry.get(i);
+                for (int window = activated; window < recorder.windowEnds.size(); window++) {
+                    long end = recorder.windowEnds.get(window);
+                    assertFalse(description + " ts " + eventTs + " acked before window " + end,
+                                eventTs > end - length && eventTs <= end);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testListenerWithoutAggregateCallback() {
+        List<Integer> expired = new ArrayList<>();
+        PaneWindowManager<Integer, Long> manager = new PaneWindowManager<>(expired::addAll, SUM, true, 2, 2);
+        for (int i = 0; i < 4; i++) {
+            manager.add(new EventImpl<>(i, 0));
+        }
+        assertEquals(4, expired.size());
+    }
+
+    @Test
+    public void testOnlyTheRetainedFormIsKeptUntilExpiry() {
+        Recorder recorder = new Recorder();
+        PaneWindowManager<Integer, Long> manager = new PaneWindowManager<>(recorder, SUM, true, 4, 2, event -> -event);
+        for (int i = 1; i <= 6; i++) {
+            manager.add(new EventImpl<>(i, 0));
+        }
+        // the aggregates are built from the events as they arrive
+        assertEquals(Arrays.asList(3L, 10L, 18L), recorder.aggregates);
+        assertEquals(Arrays.asList(-1, -2, -3, -4), recorder.expired);
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.windowing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.junit.Test;
+
+public class WindowEventBufferTest {
+    private static final int CHUNK_SIZE = WindowEventBuffer.CHUNK_SIZE;
+
+    private static List<Integer> values(Iterable<Event<Integer>> events) {
+        List<Integer> values = new ArrayList<>();
+        for (Event<Integer> event : events) {
+            values.add(event.get());
+        }
+        return values;
+    }
+
+    /**
+     * Remove the events whose value falls in [from, to) through an iterator.
+     */
+    private static void removeRange(Iterable<Event<Integer>> events, int from, int to) {
+        for (Iterator<Event<Integer>> it = events.iterator(); it.hasNext(); ) {
+            int value = it.next().get();
+            if (value >= from && value < to) {
+                it.remove();
+            }
+        }
+    }
+
+    @Test
+    public void testKeepsInsertionOrderAcrossChunks() {
+        WindowEventBuffer<Integer> buffer = new WindowEventBuffer<>();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 3 * CHUNK_SIZE + 17; i++) {
+            buffer.add(new EventImpl<>(i, 1000 - i));
+            expected.add(i);
+        }
+        assertEquals(expected.size(), buffer.size());
+        assertEquals(4, buffer.numChunks());
+        assertEquals(expected, values(buffer));
+    }
+
+    @Test
+    public void testRemoveDropsEmptyChunksAnywhere() {
+        WindowEventBuffer<Integer> buffer = new WindowEventBuffer<>();
+        for (int i = 0; i < 4 * CHUNK_SIZE; i++) {
+            buffer.add(new EventImpl<>(i, i));
+        }
+        // empty the second chunk, which is neither the head nor the tail
+        removeRange(buffer, CHUNK_SIZE, 2 * CHUNK_SIZE);
+        assertEquals(3, buffer.numChunks());
+        assertEquals(3 * CHUNK_SIZE, buffer.size());
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 4 * CHUNK_SIZE; i++) {
+            if (i < CHUNK_SIZE || i >= 2 * CHUNK_SIZE) {
+                expected.add(i);
+            }
+        }
+        assertEquals(expected, values(buffer));
+        assertEquals(2 * CHUNK_SIZE, buffer.getEarliestEventTs(CHUNK_SIZE - 1, 4 * CHUNK_SIZE));
+        assertEquals(CHUNK_SIZE, buffer.getEventCount(2 * CHUNK_SIZE - 1));
+
+        // then the head, and the tail which is kept for appending
+        removeRange(buffer, 0, CHUNK_SIZE);
+        removeRange(buffer, 3 * CHUNK_SIZE, 4 * CHUNK_SIZE);
+        assertEquals(2, buffer.numChunks());
+        assertEquals(CHUNK_SIZE, buffer.size());
+        buffer.add(new EventImpl<>(-1, 0));
+        assertEquals(CHUNK_SIZE + 1, buffer.size());
+        assertEquals(0, buffer.getEarliestEventTs(-1, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testFullChunkWithoutEventsIsDroppedOnAdd() {
+        WindowEventBuffer<Integer> buffer = new WindowEventBuffer<>();
+        for (int i = 0; i < CHUNK_SIZE + 1; i++) {
+            buffer.add(new EventImpl<>(i, i));
+        }
+        for (int i = CHUNK_SIZE + 1; i < 2 * CHUNK_SIZE; i++) {
+            buffer.add(new EventImpl<>(i, i));
+        }
+        // the second chunk is the tail while it is emptied, and only becomes a middle chunk once the next event is added
+        removeRange(buffer, CHUNK_SIZE, 2 * CHUNK_SIZE);
+        assertEquals(2, buffer.numChunks());
+        buffer.add(new EventImpl<>(-1, -1));
+        assertEquals(2, buffer.numChunks());
+        assertEquals(CHUNK_SIZE + 1, buffer.size());
+    }
+
+    @Test
+    public void testIteratorSurvivesUnlinkOfItsChunk() {
+        WindowEventBuffer<Integer> buffer = new WindowEventBuffer<>();
+        for (int i = 0; i < 3 * CHUNK_SIZE; i++) {
+            buffer.add(new EventImpl<>(i, i));
+        }
+        Iterator<Event<Integer>> reader = buffer.iterator();
+        for (int i = 0; i < CHUNK_SIZE + 10; i++) {
+            reader.next();
+        }
+        removeRange(buffer, CHUNK_SIZE, 2 * CHUNK_SIZE);
+        // the event the reader already fetched is still returned, then it carries on in the next chunk
+        assertEquals(CHUNK_SIZE + 10, (int) reader.next().get());
+        assertEquals(2 * CHUNK_SIZE, (int) reader.next().get());
+        reader.remove();
+        assertEquals(2 * CHUNK_SIZE - 1, buffer.size());
+        assertFalse(values(buffer).contains(2 * CHUNK_SIZE));
+    }
+
+    @Test
+    public void testIteratorRemoveTwiceFails() {
+        WindowEventBuffer<Integer> buffer = new WindowEventBuffer<>();
+        buffer.add(new EventImpl<>(1, 1));
+        Iterator<Event<Integer>> it = buffer.iterator();
+        it.next();
+        it.remove();
+        assertThrows(IllegalStateException.class, it::remove);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testQueriesMatchLinearScan() {
+        Random random = new Random(42);
+        WindowEventBuffer<Integer> buffer = new WindowEventBuffer<>();
+        // the window manager scans a plain queue event by event, which is what the buffer has to agree with
+        ConcurrentLinkedQueue<Event<Integer>> queue = new ConcurrentLinkedQueue<>();
+        WindowManager<Integer> linear = new WindowManager<>(events -> { }, queue);
+        int nextValue = 0;
+        long baseTs = 0;
+        for (int round = 0; round < 300; round++) {
+            int adds = random.nextInt(2 * CHUNK_SIZE);
+            for (int i = 0; i < adds; i++) {
+                // mostly increasing, with stragglers both within a chunk and reaching back across chunks
+                long ts = baseTs + random.nextInt(50) - (random.nextInt(10) == 0 ? random.nextInt(2000) : 0);
+                baseTs += random.nextInt(3);
+                Event<Integer> event = new EventImpl<>(nextValue++, ts);
+                buffer.add(event);
+                queue.add(event);
+            }
+            // remove from the head like eviction does, and at random in the middle, which leaves the chunk bounds stale
+            int evict = buffer.isEmpty() ? 0 : random.nextInt(buffer.size() / 4 + 1);
+            Iterator<Event<Integer>> it = buffer.iterator();
+            for (int i = 0; i < evict && it.hasNext(); i++) {
+                queue.remove(it.next());
+                it.remove();
+            }
+            while (it.hasNext()) {
+                Event<Integer> event = it.next();
+                if (random.nextInt(8) == 0) {
+                    queue.remove(event);
+                    it.remove();
+                }
+            }
+            assertEquals(queue.size(), buffer.size());
+            assertEquals(values(queue), values(buffer));
+            for (int query = 0; query < 20; query++) {
+                long startTs = baseTs - random.nextInt(3000);
+                long endTs = startTs + random.nextInt(3000) - 100;
+                int slidingCount = 1 + random.nextInt(CHUNK_SIZE + 10);
+                assertEquals(linear.getEarliestEventTs(startTs, endTs), buffer.getEarliestEventTs(startTs, endTs));
+                assertEquals(linear.getEventCount(endTs), buffer.getEventCount(endTs));
+                assertEquals(linear.getSlidingCountTimestamps(startTs, endTs, slidingCount),
+                             buffer.getSlidingCountTimestamps(startTs, endTs, slidingCount));
+            }
+        }
+    }
+}
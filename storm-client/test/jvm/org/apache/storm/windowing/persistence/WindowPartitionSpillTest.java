@@ -0,0 +1,245 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.windowing.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.storm.state.Serializer;
+import org.apache.storm.windowing.Event;
+import org.apache.storm.windowing.persistence.WindowState.WindowPartition;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WindowPartitionSpillTest {
+    // a partition of one event takes 8 + 4 + 12 bytes
+    private static final int PARTITION_BYTES = 24;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File dir;
+    private WindowPartitionSpill<Integer> spill;
+
+    private static class IntEvent implements Event<Integer> {
+        private final int value;
+        private final long ts;
+
+        IntEvent(int value, long ts) {
+            this.value = value;
+            this.ts = ts;
+        }
+
+        @Override
+        public long getTimestamp() {
+            return ts;
+        }
+
+        @Override
+        public Integer get() {
+            return value;
+        }
+
+        @Override
+        public boolean isWatermark() {
+            return false;
+        }
+    }
+
+    /**
+     * The partition id, the number of events and the value and timestamp of each.
+     */
+    private static class PartitionSerializer implements Serializer<WindowPartition<Integer>> {
+        @Override
+        public byte[] serialize(WindowPartition<Integer> partition) {
+            ByteBuffer buffer = ByteBuffer.allocate(12 + 12 * partition.size());
+            buffer.putLong(partition.getId());
+            buffer.putInt(partition.size());
+            for (Event<Integer> event : partition) {
+                buffer.putInt(event.get());
+                buffer.putLong(event.getTimestamp());
+            }
+            return buffer.array();
+        }
+
+        @Override
+        public WindowPartition<Integer> deserialize(byte[] b) {
+            ByteBuffer buffer = ByteBuffer.wrap(b);
+            WindowPartition<Integer> partition = new WindowPartition<>(buffer.getLong());
+            int size = buffer.getInt();
+            for (int i = 0; i < size; i++) {
+                partition.add(new IntEvent(buffer.getInt(), buffer.getLong()));
+            }
+            return partition;
+        }
+    }
+
+    private static WindowPartition<Integer> partition(long id, int... values) {
+        WindowPartition<Integer> partition = new WindowPartition<>(id);
+        for (int value : values) {
+            partition.add(new IntEvent(value, id * 100 + value));
+        }
+        return partition;
+    }
+
+    private static List<Integer> values(WindowPartition<Integer> partition) {
+        List<Integer> values = new ArrayList<>();
+        for (Event<Integer> event : partition) {
+            values.add(event.get());
+            assertEquals(partition.getId() * 100 + event.get(), event.getTimestamp());
+        }
+        return values;
+    }
+
+    private int segmentFiles() {
+        String[] files = dir.list();
+        return files == null ? 0 : files.length;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        dir = new File(tmp.getRoot(), "spill");
+        // a segment holds two partitions of one event
+        spill = new WindowPartitionSpill<>(dir, new PartitionSerializer(), 2 * PARTITION_BYTES);
+    }
+
+    @After
+    public void tearDown() {
+        spill.close();
+    }
+
+    @Test
+    public void testDeletesWhatAPreviousRunLeft() throws IOException {
+        File stale = new File(dir, "segment-0");
+        spill.close();
+        assertTrue(dir.mkdirs());
+        assertTrue(stale.createNewFile());
+        spill = new WindowPartitionSpill<>(dir, new PartitionSerializer(), 2 * PARTITION_BYTES);
+        assertFalse(stale.exists());
+        assertEquals(0, spill.getDiskBytes());
+    }
+
+    @Test
+    public void testTakeRemovesThePartition() {
+        spill.put(partition(1, 1, 2, 3));
+        spill.put(partition(2, 4));
+        assertTrue(spill.contains(1));
+        assertEquals(Arrays.asList(1, 2, 3), values(spill.take(1)));
+        assertFalse(spill.contains(1));
+        assertNull(spill.take(1));
+        assertNull(spill.take(3));
+        assertEquals(Arrays.asList(4), values(spill.take(2)));
+    }
+
+    @Test
+    public void testReadLeavesThePartition() {
+        spill.put(partition(1, 1));
+        assertEquals(Arrays.asList(1), values(spill.read(1)));
+        assertTrue(spill.contains(1));
+        assertNull(spill.read(2));
+        spill.remove(1);
+        assertFalse(spill.contains(1));
+        assertNull(spill.read(1));
+    }
+
+    @Test
+    public void testPutReplacesThePreviousCopy() {
+        spill.put(partition(1, 1));
+        spill.put(partition(1, 1, 2));
+        assertEquals(Arrays.asList(1, 2), values(spill.take(1)));
+        assertNull(spill.take(1));
+    }
+
+    @Test
+    public void testSealedSegmentsAreReadAndDeletedWhenNotLive() {
+        for (int i = 0; i < 5; i++) {
+            spill.put(partition(i, i));
+        }
+        // segments 0 and 1 are full and memory mapped, segment 2 is still written to
+        assertEquals(3, segmentFiles());
+        assertEquals(5 * PARTITION_BYTES, spill.getDiskBytes());
+        assertEquals(Arrays.asList(0), values(spill.take(0)));
+        assertEquals(Arrays.asList(3), values(spill.read(3)));
+        // segment 0 still holds partition 1
+        assertEquals(3, segmentFiles());
+        spill.remove(1);
+        assertEquals(2, segmentFiles());
+        assertEquals(3 * PARTITION_BYTES, spill.getDiskBytes());
+
+        // replacing the partitions of segment 1 leaves it without live ones
+        spill.put(partition(2, 2, 2));
+        spill.put(partition(3, 3, 3));
+        assertFalse(new File(dir, "segment-1").exists());
+        assertEquals(Arrays.asList(2, 2), values(spill.take(2)));
+        assertEquals(Arrays.asList(3, 3), values(spill.take(3)));
+        assertEquals(Arrays.asList(4), values(spill.take(4)));
+    }
+
+    @Test
+    public void testPrefetchedPartitionIsTaken() {
+        spill.put(partition(1, 1, 2));
+        spill.put(partition(2, 3));
+        spill.prefetch(1);
+        spill.prefetch(1);
+        // not in the spill, nothing to prefetch
+        spill.prefetch(3);
+        assertEquals(Arrays.asList(1, 2), values(spill.take(1)));
+        assertFalse(spill.contains(1));
+        assertNull(spill.take(1));
+        assertNull(spill.take(3));
+    }
+
+    @Test
+    public void testPrefetchOfAReplacedPartitionIsDropped() {
+        spill.put(partition(1, 1));
+        spill.prefetch(1);
+        spill.put(partition(1, 5, 6));
+        assertEquals(Arrays.asList(5, 6), values(spill.take(1)));
+
+        spill.put(partition(2, 2));
+        spill.prefetch(2);
+        spill.remove(2);
+        assertNull(spill.take(2));
+    }
+
+    @Test
+    public void testClearDeletesTheSegments() {
+        for (int i = 0; i < 5; i++) {
+            spill.put(partition(i, i));
+        }
+        spill.prefetch(4);
+        spill.clear();
+        assertEquals(0, segmentFiles());
+        assertEquals(0, spill.getDiskBytes());
+        for (int i = 0; i < 5; i++) {
+            assertFalse(spill.contains(i));
+        }
+        // the spill is still usable
+        spill.put(partition(7, 7));
+        assertEquals(Arrays.asList(7), values(spill.take(7)));
+
+        spill.close();
+        assertFalse(dir.exists());
+    }
+}
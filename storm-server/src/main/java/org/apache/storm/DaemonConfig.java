@@ -223,6 +223,33 @@ public class DaemonConfig implements Validated {
     @IsPositiveNumber
     public static final String NIMBUS_MONITOR_FREQ_SECS = "nimbus.monitor.freq.secs";
 
+    /**
+     * Whether nimbus should schedule incrementally. When enabled nimbus keeps the topology bases, topology details and assignments
+     * of the previous round in memory, invalidating them on topology submission, transitions, rebalances and ZooKeeper watch
+     * notifications, and does not invoke the scheduler on rounds where no topology has missing or dead executors. Schedulers that
+     * expect to be called on every round, such as the blacklist scheduler, should leave this disabled.
+     */
+    @IsBoolean
+    public static final String NIMBUS_SCHEDULING_INCREMENTAL = "nimbus.scheduling.incremental";
+
+    /**
+     * The maximum time in seconds nimbus trusts its in-memory scheduling model before re-reading the full cluster state, as a guard
+     * against ZooKeeper watch notifications lost across session reconnects. Only used when {@link #NIMBUS_SCHEDULING_INCREMENTAL} is
+     * enabled.
+     */
+    @IsInteger
+    @IsPositiveNumber
+    public static final String NIMBUS_SCHEDULING_INCREMENTAL_RESYNC_SECS = "nimbus.scheduling.incremental.resync.secs";
+
+    /**
+     * How long in seconds nimbus serves the executor stats it aggregated for a topology or component page before aggregating them
+     * again from the heartbeats. A change in the topology's assignment always forces a new aggregation. Pages may show stats up to
+     * this old. Defaults to 0, which aggregates on every request.
+     */
+    @IsInteger
+    @IsPositiveNumber(includeZero = true)
+    public static final String NIMBUS_PAGE_INFO_CACHE_SECS = "nimbus.page.info.cache.secs";
+
     /**
      * How often nimbus should wake the cleanup thread to clean the inbox.
      *
@@ -1035,6 +1062,17 @@ public class DaemonConfig implements Validated {
     @IsPositiveNumber
     public static final String RESOURCE_AWARE_SCHEDULER_MAX_STATE_SEARCH = "resource.aware.scheduler.constraint.max.state.search";
 
+    /**
+     * The number of threads the RAS uses to schedule topologies concurrently. With more than one thread every topology that needs
+     * scheduling is first tried in parallel against its own copy of the cluster, and the successful results are then committed in
+     * priority order. A topology whose result uses a node that an earlier commit already changed, or whose attempt failed, is
+     * rescheduled sequentially as before. The parallel attempts of a round share one {@link #SCHEDULING_TIMEOUT_SECONDS_PER_TOPOLOGY}
+     * timeout. The default is 1, which schedules all topologies sequentially.
+     */
+    @IsInteger
+    @IsPositiveNumber
+    public static final String RESOURCE_AWARE_SCHEDULER_PARALLEL_THREADS = "resource.aware.scheduler.parallel.threads";
+
     /**
      * How often nimbus's background thread to sync code for missing topologies should run.
      */
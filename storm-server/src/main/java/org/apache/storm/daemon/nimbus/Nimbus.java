@@ -274,6 +274,7 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
     private final Meter shutdownCalls;
     private final Meter processWorkerMetricsCalls;
     private final Meter mkAssignmentsErrors;
+    private final Meter skippedSchedulingRounds;
     private final Meter sendAssignmentExceptions;   // used in AssignmentDistributionService.java
 
     //Timer
@@ -314,6 +315,7 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
         state.removeStorm(topoId);
         notifySupervisorsAsKilled(state, oldAssignment, nimbus.getAssignmentsDistributer(), nimbus.getMetricsRegistry());
         nimbus.heartbeatsCache.removeTopo(topoId);
+        nimbus.pageInfoCache.removeTopo(topoId);
         nimbus.getIdToExecutors().getAndUpdate(new Dissoc<>(topoId));
         return null;
     };
@@ -420,6 +422,9 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
     private final Object schedLock = new Object();
     private final Object credUpdateLock = new Object();
     private final HeartbeatCache heartbeatsCache;
+    private final PageInfoCache pageInfoCache;
+    private final boolean incrementalScheduling;
+    private final SchedulingModel schedulingModel;
     private final AtomicBoolean heartbeatsReadyFlag;
     private final IWorkerHeartbeatsRecoveryStrategy heartbeatsRecoveryStrategy;
     @SuppressWarnings("deprecation")
@@ -529,6 +534,7 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
         this.shutdownCalls = metricsRegistry.registerMeter("nimbus:num-shutdown-calls");
         this.processWorkerMetricsCalls = metricsRegistry.registerMeter("nimbus:process-worker-metric-calls");
         this.mkAssignmentsErrors = metricsRegistry.registerMeter("nimbus:mkAssignments-Errors");
+        this.skippedSchedulingRounds = metricsRegistry.registerMeter("nimbus:num-skipped-scheduling-rounds");
         this.sendAssignmentExceptions = metricsRegistry.registerMeter(Constants.NIMBUS_SEND_ASSIGNMENT_EXCEPTIONS);
         this.fileUploadDuration = metricsRegistry.registerTimer("nimbus:files-upload-duration-ms");
         this.schedulingDuration = metricsRegistry.registerTimer("nimbus:topology-scheduling-duration-ms");
@@ -565,6 +571,11 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
         }
         this.stormClusterState = stormClusterState;
         this.heartbeatsCache = new HeartbeatCache();
+        this.pageInfoCache = new PageInfoCache(
+            TimeUnit.SECONDS.toMillis(ObjectReader.getInt(conf.get(DaemonConfig.NIMBUS_PAGE_INFO_CACHE_SECS), 0)));
+        this.incrementalScheduling = ObjectReader.getBoolean(conf.get(DaemonConfig.NIMBUS_SCHEDULING_INCREMENTAL), false);
+        this.schedulingModel = new SchedulingModel(
+            TimeUnit.SECONDS.toMillis(ObjectReader.getInt(conf.get(DaemonConfig.NIMBUS_SCHEDULING_INCREMENTAL_RESYNC_SECS), 300)));
         this.heartbeatsReadyFlag = new AtomicBoolean(false);
         this.heartbeatsRecoveryStrategy = WorkerHeartbeatsRecoveryStrategyFactory.getStrategy(conf);
         this.downloaders = fileCacheMap(conf);
@@ -1420,6 +1431,7 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
                     try {
                         boolean isLeader = isLeader();
                         if (isLeader && !wasLeader) {
+                            schedulingModel.invalidate();
                             for (String topoId : state.activeStorms()) {
                                 transition(topoId, TopologyActions.GAIN_LEADERSHIP, null);
                             }
@@ -1875,6 +1887,7 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
                 if (updates != null) {
                     clusterState.updateStorm(topoId, updates);
                 }
+                schedulingModel.invalidate();
             }
         }
     }
@@ -2238,7 +2251,8 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
                                                                     Topologies topologies, Collection<String> missingAssignmentTopologies) {
         Map<String, SupervisorDetails> ret = new HashMap<>();
         IStormClusterState state = stormClusterState;
-        Map<String, SupervisorInfo> superInfos = state.allSupervisorInfo();
+        Map<String, SupervisorInfo> superInfos =
+            state.allSupervisorInfo(incrementalScheduling ? schedulingModel.getInvalidator() : null);
         List<SupervisorDetails> superDetails = new ArrayList<>();
         for (Entry<String, SupervisorInfo> entry : superInfos.entrySet()) {
             SupervisorInfo info = entry.getValue();
@@ -2301,9 +2315,16 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
         return res.intValue();
     }
 
+    /**
+     * Run the scheduler over the given topologies.
+     *
+     * @param skipIfSettled when true and every topology has all of its executors alive and enough workers, the scheduler is not
+     *     invoked and null is returned
+     * @return the new scheduler assignments, or null if scheduling was skipped
+     */
     private Map<String, SchedulerAssignment> computeNewSchedulerAssignments(Map<String, Assignment> existingAssignments,
                                                                             Topologies topologies, Map<String, StormBase> bases,
-                                                                            String scratchTopologyId)
+                                                                            String scratchTopologyId, boolean skipIfSettled)
         throws KeyNotFoundException, AuthorizationException, InvalidTopologyException, IOException {
 
         Map<String, Set<List<Integer>>> topoToExec = computeTopologyToExecutors(bases);
@@ -2333,6 +2354,9 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
                 missingAssignmentTopologies.add(id);
             }
         }
+        if (skipIfSettled && missingAssignmentTopologies.isEmpty()) {
+            return null;
+        }
         Map<String, SupervisorDetails> supervisors =
             readAllSupervisorDetails(supervisorToDeadPorts, topologies, missingAssignmentTopologies);
         Cluster cluster = new Cluster(inimbus, resourceMetrics, supervisors, topoToSchedAssignment, topologies, conf);
@@ -2439,7 +2463,8 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
         return false;
     }
 
-    private void mkAssignments() throws Exception {
+    @VisibleForTesting
+    void mkAssignments() throws Exception {
         mkAssignments(null);
     }
 
@@ -2457,12 +2482,23 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
             // reassigned to. worst comes to worse the executor will timeout and won't assign here next time around
 
             IStormClusterState state = stormClusterState;
+            if (incrementalScheduling && scratchTopoId == null && schedulingModel.isCurrent()) {
+                // nothing was submitted, transitioned or rebalanced and no watch fired since the model was synced,
+                // so schedule from it and let computeNewSchedulerAssignments skip the round if nothing needs scheduling.
+                lockingMkAssignments(schedulingModel.getAssignments(), schedulingModel.getBases(), null,
+                                     schedulingModel.getAssignedTopologyIds(), state, schedulingModel.getTopologyDetails(), true);
+                return;
+            }
+            boolean syncModel = incrementalScheduling && scratchTopoId == null;
+            if (syncModel) {
+                schedulingModel.beginSync();
+            }
             //read all the topologies
             Map<String, StormBase> bases;
             Map<String, TopologyDetails> tds = new HashMap<>();
             synchronized (submitLock) {
                 // should promote: only fetch storm bases of topologies that need scheduling.
-                bases = state.topologyBases();
+                bases = syncModel ? readTopologyBasesWithWatch(state) : state.topologyBases();
 
                 for (Iterator<Entry<String, StormBase>> it = bases.entrySet().iterator(); it.hasNext(); ) {
                     Entry<String, StormBase> entry = it.next();
@@ -2495,22 +2531,45 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
                 }
             }
 
+            if (syncModel) {
+                schedulingModel.sync(bases, tds, existingAssignments);
+            }
+
             // make the new assignments for topologies
-            lockingMkAssignments(existingAssignments, bases, scratchTopoId, assignedTopologyIds, state, tds);
+            lockingMkAssignments(existingAssignments, bases, scratchTopoId, assignedTopologyIds, state, tds, false);
         } catch (Exception e) {
             this.mkAssignmentsErrors.mark();
             throw e;
         }
     }
 
+    /**
+     * Read the storm bases of all active topologies, leaving a watch on each of them that invalidates the scheduling model.
+     */
+    private Map<String, StormBase> readTopologyBasesWithWatch(IStormClusterState state) {
+        Map<String, StormBase> stormBases = new HashMap<>();
+        for (String topologyId : state.activeStorms()) {
+            StormBase base = state.stormBase(topologyId, schedulingModel.getInvalidator());
+            if (base != null) { //race condition with delete
+                stormBases.put(topologyId, base);
+            }
+        }
+        return stormBases;
+    }
+
     private void lockingMkAssignments(Map<String, Assignment> existingAssignments, Map<String, StormBase> bases,
                                       String scratchTopoId, List<String> assignedTopologyIds, IStormClusterState state,
-                                      Map<String, TopologyDetails> tds) throws Exception {
+                                      Map<String, TopologyDetails> tds, boolean skipIfSettled) throws Exception {
         Topologies topologies = new Topologies(tds);
 
         synchronized (schedLock) {
             Map<String, SchedulerAssignment> newSchedulerAssignments =
-                    computeNewSchedulerAssignments(existingAssignments, topologies, bases, scratchTopoId);
+                    computeNewSchedulerAssignments(existingAssignments, topologies, bases, scratchTopoId, skipIfSettled);
+            if (newSchedulerAssignments == null) {
+                LOG.debug("No topology needs scheduling, skipping scheduling round");
+                skippedSchedulingRounds.mark();
+                return;
+            }
 
             Map<String, Map<List<Long>, List<Object>>> topologyToExecutorToNodePort =
                     computeTopoToExecToNodePort(newSchedulerAssignments, assignedTopologyIds);
@@ -2638,6 +2697,9 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
                 addedSlots.put(topoId, newSlots);
             }
             inimbus.assignSlots(topologies, addedSlots);
+            if (incrementalScheduling && scratchTopoId == null) {
+                schedulingModel.updateAssignments(newAssignments);
+            }
         }
     }
 
@@ -2715,6 +2777,7 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
         base.set_component_debug(new HashMap<>());
         IStormClusterState state = stormClusterState;
         state.activateStorm(topoId, base, topoConf);
+        schedulingModel.invalidate();
         idToExecutors.getAndUpdate(new Assoc<>(topoId,
             new HashSet<>(computeExecutors(base, topoConf, stormTopology))));
         notifyTopologyActionListener(topoName, "activate");
@@ -2881,6 +2944,7 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
                 forceDeleteTopoDistDir(topoId);
                 rmTopologyKeys(topoId);
                 heartbeatsCache.removeTopo(topoId);
+                pageInfoCache.removeTopo(topoId);
                 idToExecutors.getAndUpdate(new Dissoc<>(topoId));
             }
 
@@ -3160,6 +3224,11 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
 
     private CommonTopoInfo getCommonTopoInfo(String topoId, String operation) throws NotAliveException,
             AuthorizationException, IOException, InvalidTopologyException {
+        return getCommonTopoInfo(topoId, operation, true);
+    }
+
+    private CommonTopoInfo getCommonTopoInfo(String topoId, String operation, boolean readBeats) throws NotAliveException,
+            AuthorizationException, IOException, InvalidTopologyException {
         CommonTopoInfo ret = new CommonTopoInfo();
         ret.topoConf = tryReadTopoConf(topoId, topoCache);
         ret.topoName = (String) ret.topoConf.get(Config.TOPOLOGY_NAME);
@@ -3175,16 +3244,22 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
             ret.launchTimeSecs = 0;
         }
         ret.assignment = state.assignmentInfo(topoId, null);
-        //get it from cluster state/zookeeper every time to collect the UI stats, may replace it with other StateStore later
-        ret.beats = ret.assignment != null ? StatsUtil.convertExecutorBeats(state.executorBeats(topoId,
-                                                                                                ret.assignment
-                                                                                                    .get_executor_node_port())) :
-            Collections
-            .emptyMap();
+        if (readBeats) {
+            ret.beats = readExecutorBeats(topoId, ret.assignment);
+        }
         ret.allComponents = new HashSet<>(ret.taskToComponent.values());
         return ret;
     }
     
+    private Map<List<Integer>, Map<String, Object>> readExecutorBeats(String topoId, Assignment assignment) {
+        //get it from cluster state/zookeeper every time to collect the UI stats, may replace it with other StateStore later
+        return assignment != null ? StatsUtil.convertExecutorBeats(stormClusterState.executorBeats(topoId,
+                                                                                                   assignment
+                                                                                                       .get_executor_node_port())) :
+            Collections
+            .emptyMap();
+    }
+
     @VisibleForTesting
     public boolean awaitLeadership(long timeout, TimeUnit timeUnit) throws InterruptedException {
         return leaderElector.awaitLeadership(timeout, timeUnit);
@@ -4343,56 +4418,70 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
         return topoInfo;
     }
 
+    private TopologyPageInfo aggTopologyPageInfo(String topoId, String topoName, String window, boolean includeSys,
+                                                 Assignment assignment, Map<Integer, String> taskToComp, StormTopology topology,
+                                                 StormBase base, IStormClusterState state) {
+        Map<List<Integer>, Map<String, Object>> beats = readExecutorBeats(topoId, assignment);
+        String owner = base.get_owner();
+        Map<WorkerSlot, WorkerResources> workerToResources = getWorkerResourcesForTopology(topoId);
+        List<WorkerSummary> workerSummaries = null;
+        Map<List<Long>, List<Object>> exec2NodePort = new HashMap<>();
+        if (assignment != null) {
+            Map<List<Long>, NodeInfo> execToNodeInfo = assignment.get_executor_node_port();
+            Map<String, String> nodeToHost = assignment.get_node_host();
+            for (Entry<List<Long>, NodeInfo> entry : execToNodeInfo.entrySet()) {
+                NodeInfo ni = entry.getValue();
+                List<Object> nodePort = Arrays.asList(ni.get_node(), ni.get_port_iterator().next());
+                exec2NodePort.put(entry.getKey(), nodePort);
+            }
+
+            workerSummaries = StatsUtil.aggWorkerStats(topoId,
+                                                       topoName,
+                                                       taskToComp,
+                                                       beats,
+                                                       exec2NodePort,
+                                                       nodeToHost,
+                                                       workerToResources,
+                                                       includeSys,
+                                                       true, //this is the topology page, so we know the user is authorized
+                                                       null,
+                                                       owner);
+        }
+
+        TopologyPageInfo topoPageInfo = StatsUtil.aggTopoExecsStats(topoId,
+                                                                    exec2NodePort,
+                                                                    taskToComp,
+                                                                    beats,
+                                                                    topology,
+                                                                    window,
+                                                                    includeSys,
+                                                                    state);
+        if (workerSummaries != null) {
+            topoPageInfo.set_workers(workerSummaries);
+        }
+        return topoPageInfo;
+    }
+
     @Override
     public TopologyPageInfo getTopologyPageInfo(String topoId, String window, boolean includeSys)
         throws NotAliveException, AuthorizationException, TException {
         try {
             getTopologyPageInfoCalls.mark();
-            CommonTopoInfo common = getCommonTopoInfo(topoId, "getTopologyPageInfo");
+            CommonTopoInfo common = getCommonTopoInfo(topoId, "getTopologyPageInfo", false);
             String topoName = common.topoName;
             IStormClusterState state = stormClusterState;
             Assignment assignment = common.assignment;
-            Map<List<Integer>, Map<String, Object>> beats = common.beats;
             Map<Integer, String> taskToComp = common.taskToComponent;
             StormTopology topology = common.topology;
             StormBase base = common.base;
             if (base == null) {
                 throw new WrappedNotAliveException(topoId);
             }
-            String owner = base.get_owner();
-            Map<WorkerSlot, WorkerResources> workerToResources = getWorkerResourcesForTopology(topoId);
-            List<WorkerSummary> workerSummaries = null;
-            Map<List<Long>, List<Object>> exec2NodePort = new HashMap<>();
-            if (assignment != null) {
-                Map<List<Long>, NodeInfo> execToNodeInfo = assignment.get_executor_node_port();
-                Map<String, String> nodeToHost = assignment.get_node_host();
-                for (Entry<List<Long>, NodeInfo> entry : execToNodeInfo.entrySet()) {
-                    NodeInfo ni = entry.getValue();
-                    List<Object> nodePort = Arrays.asList(ni.get_node(), ni.get_port_iterator().next());
-                    exec2NodePort.put(entry.getKey(), nodePort);
-                }
-
-                workerSummaries = StatsUtil.aggWorkerStats(topoId,
-                                                           topoName,
-                                                           taskToComp,
-                                                           beats,
-                                                           exec2NodePort,
-                                                           nodeToHost,
-                                                           workerToResources,
-                                                           includeSys,
-                                                           true, //this is the topology page, so we know the user is authorized
-                                                           null,
-                                                           owner);
-            }
-
-            TopologyPageInfo topoPageInfo = StatsUtil.aggTopoExecsStats(topoId,
-                                                                        exec2NodePort,
-                                                                        taskToComp,
-                                                                        beats,
-                                                                        topology,
-                                                                        window,
-                                                                        includeSys,
-                                                                        state);
+            TopologyPageInfo topoPageInfo = pageInfoCache.getTopologyPageInfo(topoId, window, includeSys, assignment);
+            if (topoPageInfo == null) {
+                topoPageInfo = aggTopologyPageInfo(topoId, topoName, window, includeSys, assignment, taskToComp, topology, base, state);
+                pageInfoCache.putTopologyPageInfo(topoId, window, includeSys, assignment, topoPageInfo);
+            }
 
             if (topology.is_set_storm_version()) {
                 topoPageInfo.set_storm_version(topology.get_storm_version());
@@ -4404,9 +4493,6 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
             addSpoutAggStats(topoPageInfo, topology, topoConf);
             addBoltAggStats(topoPageInfo, topology, topoConf, includeSys);
 
-            if (workerSummaries != null) {
-                topoPageInfo.set_workers(workerSummaries);
-            }
             if (base.is_set_owner()) {
                 topoPageInfo.set_owner(base.get_owner());
             }
@@ -4660,7 +4746,7 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
         throws NotAliveException, AuthorizationException, TException {
         try {
             getComponentPageInfoCalls.mark();
-            CommonTopoInfo info = getCommonTopoInfo(topoId, "getComponentPageInfo");
+            CommonTopoInfo info = getCommonTopoInfo(topoId, "getComponentPageInfo", false);
             if (info.base == null) {
                 throw new WrappedNotAliveException(topoId);
             }
@@ -4685,8 +4771,13 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
                 nodeToHost = Collections.emptyMap();
             }
 
-            ComponentPageInfo compPageInfo = StatsUtil.aggCompExecsStats(exec2HostPort, info.taskToComponent, info.beats, window,
-                                                                         includeSys, topoId, topology, componentId);
+            ComponentPageInfo compPageInfo = pageInfoCache.getComponentPageInfo(topoId, componentId, window, includeSys, assignment);
+            if (compPageInfo == null) {
+                Map<List<Integer>, Map<String, Object>> beats = readExecutorBeats(topoId, assignment);
+                compPageInfo = StatsUtil.aggCompExecsStats(exec2HostPort, info.taskToComponent, beats, window,
+                                                           includeSys, topoId, topology, componentId);
+                pageInfoCache.putComponentPageInfo(topoId, componentId, window, includeSys, assignment, compPageInfo);
+            }
             if (compPageInfo.get_component_type() == ComponentType.SPOUT) {
                 NormalizedResourceRequest spoutResources = ResourceUtils.getSpoutResources(topology, topoConf, componentId);
                 if (spoutResources == null) {
@@ -5135,7 +5226,9 @@ public class Nimbus implements Iface, Shutdownable, DaemonCommon {
             if (actionNotifier != null) {
                 actionNotifier.cleanup();
             }
-            zkClient.close();
+            if (zkClient != null) {
+                zkClient.close();
+            }
             if (metricsStore != null) {
                 metricsStore.close();
             }
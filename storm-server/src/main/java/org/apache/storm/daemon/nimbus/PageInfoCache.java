@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.storm.daemon.nimbus;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import org.apache.storm.generated.Assignment;
+import org.apache.storm.generated.ComponentPageInfo;
+import org.apache.storm.generated.NodeInfo;
+import org.apache.storm.generated.TopologyPageInfo;
+import org.apache.storm.utils.Time;
+
+/**
+ * Holds the executor stats aggregated for the topology and component pages of the UI, so that dashboards polling the same page
+ * do not re-read and re-aggregate every executor heartbeat on each request.
+ *
+ * <p>An entry is served until it is older than the configured maximum age or the assignment of its topology changes.  Callers
+ * get their own copy of the cached page info and are free to modify it.
+ */
+public class PageInfoCache {
+    private final long maxAgeMs;
+    //[topology id, component id (null for the topology page), window, include sys] -> aggregated page info
+    private final ConcurrentHashMap<List<Object>, CachedPageInfo<?>> cache;
+
+    private static class CachedPageInfo<T> {
+        private final Map<List<Long>, NodeInfo> executorNodePort;
+        private final long createdMs;
+        private final T pageInfo;
+
+        CachedPageInfo(Assignment assignment, T pageInfo) {
+            this.executorNodePort = executorNodePort(assignment);
+            this.createdMs = Time.currentTimeMillis();
+            this.pageInfo = pageInfo;
+        }
+
+        boolean isExpired(long maxAgeMs) {
+            return Time.currentTimeMillis() - createdMs >= maxAgeMs;
+        }
+
+        boolean isValidFor(Assignment assignment, long maxAgeMs) {
+            return !isExpired(maxAgeMs) && Objects.equals(executorNodePort, executorNodePort(assignment));
+        }
+
+        private static Map<List<Long>, NodeInfo> executorNodePort(Assignment assignment) {
+            return assignment == null ? null : assignment.get_executor_node_port();
+        }
+    }
+
+    /**
+     * Create an empty cache.
+     * @param maxAgeMs how long an aggregated page info may be served, 0 or less disables caching.
+     */
+    public PageInfoCache(long maxAgeMs) {
+        this.maxAgeMs = maxAgeMs;
+        this.cache = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get the cached aggregate stats for a topology page.
+     * @param topoId the id of the topology.
+     * @param window the stats window requested.
+     * @param includeSys whether system components are included.
+     * @param assignment the current assignment of the topology.
+     * @return a copy of the cached page info, or null if there is no valid entry.
+     */
+    public TopologyPageInfo getTopologyPageInfo(String topoId, String window, boolean includeSys, Assignment assignment) {
+        return get(Arrays.asList(topoId, null, window, includeSys), assignment, TopologyPageInfo::new);
+    }
+
+    /**
+     * Cache the aggregate stats for a topology page.
+     * @param topoId the id of the topology.
+     * @param window the stats window requested.
+     * @param includeSys whether system components are included.
+     * @param assignment the assignment the stats were aggregated for.
+     * @param pageInfo the aggregated page info, it is copied so the caller may keep modifying it.
+     */
+    public void putTopologyPageInfo(String topoId, String window, boolean includeSys, Assignment assignment,
+                                    TopologyPageInfo pageInfo) {
+        put(Arrays.asList(topoId, null, window, includeSys), assignment, pageInfo, TopologyPageInfo::new);
+    }
+
+    /**
+     * Get the cached aggregate stats for a component page.
+     * @param topoId the id of the topology.
+     * @param componentId the id of the component.
+     * @param window the stats window requested.
+     * @param includeSys whether system components are included.
+     * @param assignment the current assignment of the topology.
+     * @return a copy of the cached page info, or null if there is no valid entry.
+     */
+    public ComponentPageInfo getComponentPageInfo(String topoId, String componentId, String window, boolean includeSys,
+                                                  Assignment assignment) {
+        return get(Arrays.asList(topoId, componentId, window, includeSys), assignment, ComponentPageInfo::new);
+    }
+
+    /**
+     * Cache the aggregate stats for a component page.
+     * @param topoId the id of the topology.
+     * @param componentId the id of the component.
+     * @param window the stats window requested.
+     * @param includeSys whether system components are included.
+     * @param assignment the assignment the stats were aggregated for.
+     * @param pageInfo the aggregated page info, it is copied so the caller may keep modifying it.
+     */
+    public void putComponentPageInfo(String topoId, String componentId, String window, boolean includeSys, Assignment assignment,
+                                     ComponentPageInfo pageInfo) {
+        put(Arrays.asList(topoId, componentId, window, includeSys), assignment, pageInfo, ComponentPageInfo::new);
+    }
+
+    /**
+     * Remove all cached pages of a specific topology.
+     * @param topoId the id of the topology to remove.
+     */
+    public void removeTopo(String topoId) {
+        cache.keySet().removeIf((key) -> topoId.equals(key.get(0)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(List<Object> key, Assignment assignment, UnaryOperator<T> copy) {
+        if (maxAgeMs <= 0) {
+            return null;
+        }
+        CachedPageInfo<T> cached = (CachedPageInfo<T>) cache.get(key);
+        if (cached == null || !cached.isValidFor(assignment, maxAgeMs)) {
+            return null;
+        }
+        return copy.apply(cached.pageInfo);
+    }
+
+    private <T> void put(List<Object> key, Assignment assignment, T pageInfo, UnaryOperator<T> copy) {
+        if (maxAgeMs <= 0) {
+            return;
+        }
+        // drop whatever expired so pages nobody asks for anymore do not pile up
+        cache.values().removeIf((cached) -> cached.isExpired(maxAgeMs));
+        cache.put(key, new CachedPageInfo<>(assignment, copy.apply(pageInfo)));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.storm.daemon.nimbus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.storm.generated.Assignment;
+import org.apache.storm.generated.StormBase;
+import org.apache.storm.scheduler.TopologyDetails;
+import org.apache.storm.utils.Time;
+
+/**
+ * In-memory view of the topology bases, topology details and assignments that nimbus scheduled from in its last round. It is used by
+ * incremental scheduling to avoid re-reading the whole cluster state on every round. The model is invalidated whenever a topology
+ * is submitted, transitioned or rebalanced, when one of the ZooKeeper watches it registers fires, or when it grows older than the
+ * configured resync interval; nimbus then falls back to a full read and re-syncs the model from it.
+ */
+public class SchedulingModel {
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final Runnable invalidator = this::invalidate;
+    private final long resyncMs;
+    private long syncTimeMs;
+    private Map<String, StormBase> bases;
+    private Map<String, TopologyDetails> topologyDetails;
+    private Map<String, Assignment> assignments;
+
+    public SchedulingModel(long resyncMs) {
+        this.resyncMs = resyncMs;
+    }
+
+    /**
+     * Mark the model as stale so that the next round does a full read of the cluster state.
+     */
+    public void invalidate() {
+        dirty.set(true);
+    }
+
+    /**
+     * Get a callback suitable for registering as a ZooKeeper watch that invalidates this model.
+     */
+    public Runnable getInvalidator() {
+        return invalidator;
+    }
+
+    /**
+     * Check whether the model can be scheduled from without re-reading the cluster state.
+     */
+    public synchronized boolean isCurrent() {
+        return !dirty.get() && bases != null && Time.currentTimeMillis() - syncTimeMs < resyncMs;
+    }
+
+    /**
+     * Start a full read of the cluster state. Any invalidation that arrives after this call, while the read is still in progress, is
+     * preserved so that the model read concurrently with it is not trusted.
+     */
+    public void beginSync() {
+        dirty.set(false);
+    }
+
+    /**
+     * Replace the model with the result of a full read.
+     */
+    public synchronized void sync(Map<String, StormBase> bases, Map<String, TopologyDetails> topologyDetails,
+                                  Map<String, Assignment> assignments) {
+        this.bases = new HashMap<>(bases);
+        this.topologyDetails = new HashMap<>(topologyDetails);
+        this.assignments = new HashMap<>(assignments);
+        syncTimeMs = Time.currentTimeMillis();
+    }
+
+    /**
+     * Record the assignments written by a scheduling round.
+     */
+    public synchronized void updateAssignments(Map<String, Assignment> newAssignments) {
+        if (assignments != null) {
+            assignments.putAll(newAssignments);
+        }
+    }
+
+    public synchronized Map<String, StormBase> getBases() {
+        return new HashMap<>(bases);
+    }
+
+    public synchronized Map<String, TopologyDetails> getTopologyDetails() {
+        return new HashMap<>(topologyDetails);
+    }
+
+    public synchronized Map<String, Assignment> getAssignments() {
+        return new HashMap<>(assignments);
+    }
+
+    public synchronized List<String> getAssignedTopologyIds() {
+        return new ArrayList<>(assignments.keySet());
+    }
+}
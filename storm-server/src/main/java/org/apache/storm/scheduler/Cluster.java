@@ -96,6 +96,15 @@ public class Cluster implements ISchedulingState {
     private double minWorkerCpu = 0.0;
     private final Map<String, Boolean> topoSharedOffHeapMemoryNodeFlag = new HashMap<>();
     private final Map<String, Map<String, Map<String, Collection<ExecutorDetails>>>> topoIdToNodeIdToSlotIdToExecutors = new HashMap<>();
+    /**
+     * Topologies whose assignment and entry in topoIdToNodeIdToSlotIdToExecutors this cluster may modify in place. A copy of a
+     * cluster shares everything else with its source, and both sides copy a topology or node the first time they modify it.
+     */
+    private final Set<String> ownedTopologies = new HashSet<>();
+    /**
+     * Nodes whose entries in the per node caches this cluster may modify in place, see {@link #ownedTopologies}.
+     */
+    private final Set<String> ownedNodes = new HashSet<>();
 
     private static <K, V> Map<K, V> makeMap(String key) {
         return new HashMap<>();
@@ -117,14 +126,19 @@ public class Cluster implements ISchedulingState {
     }
 
     /**
-     * Copy constructor.
+     * Copy constructor. The assignments and the caches derived from them are shared with src and only copied per topology or per
+     * node when either cluster modifies them, so the copy does not grow with the size of the cluster's assignments.
+     *
+     * <p>This modifies src: it gives up ownership of all of its topologies and nodes, so its next change to any of them copies the
+     * shared state first instead of changing it in place. The assignments of src are not changed. Do not copy a cluster that is
+     * being modified by another thread at the same time.
      */
     public Cluster(Cluster src) {
         this(
             src.inimbus,
             src.resourceMetrics,
             src.supervisors,
-            src.assignments,
+            Collections.emptyMap(),
             src.topologies,
             new HashMap<>(src.conf),
             src.status,
@@ -134,6 +148,15 @@ public class Cluster implements ISchedulingState {
             src.totalCpuResource,
             src.totalMemoryResource,
             src.totalGenericResources);
+        assignments.putAll(src.assignments);
+        nodeToScheduledResourcesCache.putAll(src.nodeToScheduledResourcesCache);
+        nodeToScheduledOffHeapNodeMemoryCache.putAll(src.nodeToScheduledOffHeapNodeMemoryCache);
+        nodeToUsedSlotsCache.putAll(src.nodeToUsedSlotsCache);
+        topoIdToNodeIdToSlotIdToExecutors.putAll(src.topoIdToNodeIdToSlotIdToExecutors);
+        topoSharedOffHeapMemoryNodeFlag.putAll(src.topoSharedOffHeapMemoryNodeFlag);
+        // Everything is shared now, so src has to copy before its next modification as well.
+        src.ownedTopologies.clear();
+        src.ownedNodes.clear();
     }
 
     /**
@@ -678,6 +701,7 @@ public class Cluster implements ISchedulingState {
                 "slot: [" + slot.getNodeId() + ", " + slot.getPort() + "] is already occupied.");
         }
 
+        makeTopologyWritable(topologyId);
         Collection<ExecutorDetails> executorDetails =
                 topoIdToNodeIdToSlotIdToExecutors
                         .computeIfAbsent(topologyId, Cluster::makeMap)
@@ -790,7 +814,9 @@ public class Cluster implements ISchedulingState {
         }
 
         Set<ExecutorDetails> executorsOnNode = new HashSet<>();
-        topoIdToNodeIdToSlotIdToExecutors.computeIfAbsent(td.getId(), Cluster::makeMap).computeIfAbsent(nodeId, Cluster::makeMap)
+        // read only, the maps may be shared with other clusters
+        topoIdToNodeIdToSlotIdToExecutors.getOrDefault(td.getId(), Collections.emptyMap())
+                .getOrDefault(nodeId, Collections.emptyMap())
                 .forEach((k, v) -> executorsOnNode.addAll(v));
 
         if (extra != null) {
@@ -812,10 +838,12 @@ public class Cluster implements ISchedulingState {
     public void freeSlot(WorkerSlot slot) {
         // remove the slot from the existing assignments
         final String nodeId = slot.getNodeId();
-        for (SchedulerAssignmentImpl assignment : assignments.values()) {
-            if (assignment.isSlotOccupied(slot)) {
-                final String topologyId = assignment.getTopologyId();
+        for (SchedulerAssignmentImpl shared : assignments.values()) {
+            if (shared.isSlotOccupied(slot)) {
+                final String topologyId = shared.getTopologyId();
                 assertValidTopologyForModification(topologyId);
+                // only replaces the value of an existing key, which does not disturb the iteration
+                SchedulerAssignmentImpl assignment = makeTopologyWritable(topologyId);
                 assignment.unassignBySlot(slot);
                 topoIdToNodeIdToSlotIdToExecutors.computeIfAbsent(topologyId, Cluster::makeMap).computeIfAbsent(nodeId, Cluster::makeMap)
                         .computeIfAbsent(slot.getId(), Cluster::makeSet)
@@ -823,6 +851,7 @@ public class Cluster implements ISchedulingState {
                 TopologyDetails td = topologies.getById(topologyId);
                 assignment.setTotalSharedOffHeapNodeMemory(
                     nodeId, calculateSharedOffHeapNodeMemory(nodeId, td));
+                makeNodeWritable(nodeId);
                 nodeToScheduledResourcesCache.computeIfAbsent(nodeId, Cluster::makeMap).put(slot, new NormalizedResourceRequest());
                 nodeToUsedSlotsCache.computeIfAbsent(nodeId, Cluster::makeSet).remove(slot);
             }
@@ -912,9 +941,11 @@ public class Cluster implements ISchedulingState {
             assertValidTopologyForModification(assignment.getTopologyId());
         }
         assignments.clear();
+        ownedTopologies.clear();
         totalResourcesPerNodeCache.clear();
-        nodeToScheduledResourcesCache.values().forEach(Map::clear);
-        nodeToUsedSlotsCache.values().forEach(Set::clear);
+        nodeToScheduledResourcesCache.replaceAll((nodeId, slots) -> new HashMap<>());
+        nodeToUsedSlotsCache.replaceAll((nodeId, slots) -> new HashSet<>());
+        ownedNodes.clear();
         for (SchedulerAssignment assignment : newAssignments.values()) {
             assign(assignment, ignoreSingleExceptions);
         }
@@ -1106,6 +1137,7 @@ public class Cluster implements ISchedulingState {
     private void updateCachesForWorkerSlot(WorkerSlot workerSlot, WorkerResources workerResources, String topologyId,
                                            Double sharedOffHeapNodeMemory) {
         String nodeId = workerSlot.getNodeId();
+        makeNodeWritable(nodeId);
         NormalizedResourceRequest normalizedResourceRequest = new NormalizedResourceRequest();
         normalizedResourceRequest.add(workerResources);
         nodeToScheduledResourcesCache.computeIfAbsent(nodeId, Cluster::makeMap).put(workerSlot, normalizedResourceRequest);
@@ -1165,7 +1197,8 @@ public class Cluster implements ISchedulingState {
     }
 
     /**
-     * Update the assignments and status from the other cluster.
+     * Update the assignments and status from the other cluster. When other is a copy of this cluster it still shares every
+     * assignment it did not modify, so only the topologies whose assignment differs are replaced.
      *
      * @param other the cluster to get the assignments and status from
      */
@@ -1173,10 +1206,123 @@ public class Cluster implements ISchedulingState {
         for (SchedulerAssignment assignment : other.getAssignments().values()) {
             assertValidTopologyForModification(assignment.getTopologyId());
         }
-        setAssignments(other.getAssignments(), false);
+        Set<String> changed = new HashSet<>();
+        for (Entry<String, SchedulerAssignmentImpl> entry : other.assignments.entrySet()) {
+            if (assignments.get(entry.getKey()) != entry.getValue()) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String topologyId : assignments.keySet()) {
+            if (!other.assignments.containsKey(topologyId)) {
+                changed.add(topologyId);
+            }
+        }
+        // remove everything first, a changed topology may have moved into a slot another one gave up
+        for (String topologyId : changed) {
+            removeAssignment(topologyId);
+        }
+        for (String topologyId : changed) {
+            SchedulerAssignmentImpl assignment = other.assignments.get(topologyId);
+            if (assignment != null) {
+                assign(assignment, false);
+            }
+        }
         setStatusMap(other.getStatusMap());
     }
 
+    /**
+     * Update the assignment of a single topology from the other cluster. Unlike {@link #updateFrom(Cluster)} the other topologies
+     * and the status map are left alone, so other may be a copy of an older state of this cluster, e.g. one that other topologies
+     * were scheduled into since it was made. The slots the topology uses in other must be free in this cluster.
+     *
+     * @param other the cluster to get the assignment from
+     * @param topologyId the topology to update
+     * @throws RuntimeException if a slot the topology uses in other is used by another topology here. This cluster is left as it was.
+     */
+    public void updateFrom(Cluster other, String topologyId) {
+        SchedulerAssignmentImpl previous = assignments.get(topologyId);
+        SchedulerAssignmentImpl assignment = other.assignments.get(topologyId);
+        if (assignment == previous) {
+            return;
+        }
+        removeAssignment(topologyId);
+        if (assignment == null) {
+            return;
+        }
+        try {
+            assign(assignment, false);
+        } catch (RuntimeException e) {
+            removeAssignment(topologyId);
+            if (previous != null) {
+                assign(previous, false);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Drop the assignment of a topology and everything cached about it.
+     */
+    private void removeAssignment(String topologyId) {
+        assertValidTopologyForModification(topologyId);
+        SchedulerAssignmentImpl assignment = assignments.remove(topologyId);
+        topoIdToNodeIdToSlotIdToExecutors.remove(topologyId);
+        ownedTopologies.remove(topologyId);
+        if (assignment == null) {
+            return;
+        }
+        for (WorkerSlot slot : assignment.getSlots()) {
+            String nodeId = slot.getNodeId();
+            makeNodeWritable(nodeId);
+            nodeToScheduledResourcesCache.computeIfAbsent(nodeId, Cluster::makeMap).put(slot, new NormalizedResourceRequest());
+            nodeToScheduledOffHeapNodeMemoryCache.computeIfAbsent(nodeId, Cluster::makeMap).remove(topologyId);
+            nodeToUsedSlotsCache.computeIfAbsent(nodeId, Cluster::makeSet).remove(slot);
+            totalResourcesPerNodeCache.remove(nodeId);
+        }
+    }
+
+    /**
+     * Make sure the assignment and executor layout of a topology are not shared with any other cluster before modifying them.
+     *
+     * @return the assignment of the topology, or null if it has none yet
+     */
+    private SchedulerAssignmentImpl makeTopologyWritable(String topologyId) {
+        SchedulerAssignmentImpl assignment = assignments.get(topologyId);
+        if (ownedTopologies.add(topologyId)) {
+            if (assignment != null) {
+                assignment = new SchedulerAssignmentImpl(assignment);
+                assignments.put(topologyId, assignment);
+            }
+            Map<String, Map<String, Collection<ExecutorDetails>>> nodeToSlots = topoIdToNodeIdToSlotIdToExecutors.get(topologyId);
+            if (nodeToSlots != null) {
+                Map<String, Map<String, Collection<ExecutorDetails>>> copy = new HashMap<>();
+                for (Entry<String, Map<String, Collection<ExecutorDetails>>> nodeEntry : nodeToSlots.entrySet()) {
+                    Map<String, Collection<ExecutorDetails>> slots = new HashMap<>();
+                    for (Entry<String, Collection<ExecutorDetails>> slotEntry : nodeEntry.getValue().entrySet()) {
+                        slots.put(slotEntry.getKey(), new HashSet<>(slotEntry.getValue()));
+                    }
+                    copy.put(nodeEntry.getKey(), slots);
+                }
+                topoIdToNodeIdToSlotIdToExecutors.put(topologyId, copy);
+            }
+        }
+        return assignment;
+    }
+
+    /**
+     * Make sure the per node caches of a node are not shared with any other cluster before modifying them.
+     */
+    private void makeNodeWritable(String nodeId) {
+        if (ownedNodes.add(nodeId)) {
+            Map<WorkerSlot, NormalizedResourceRequest> scheduled = nodeToScheduledResourcesCache.get(nodeId);
+            nodeToScheduledResourcesCache.put(nodeId, scheduled == null ? new HashMap<>() : new HashMap<>(scheduled));
+            Map<String, Double> offHeap = nodeToScheduledOffHeapNodeMemoryCache.get(nodeId);
+            nodeToScheduledOffHeapNodeMemoryCache.put(nodeId, offHeap == null ? new HashMap<>() : new HashMap<>(offHeap));
+            Set<WorkerSlot> usedSlots = nodeToUsedSlotsCache.get(nodeId);
+            nodeToUsedSlotsCache.put(nodeId, usedSlots == null ? new HashSet<>() : new HashSet<>(usedSlots));
+        }
+    }
+
     public double getMinWorkerCpu() {
         return minWorkerCpu;
     }
@@ -21,6 +21,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -60,6 +61,8 @@ public class ResourceAwareScheduler implements IScheduler {
     private int maxSchedulingAttempts;
     private int schedulingTimeoutSeconds;
     private ExecutorService backgroundScheduling;
+    private ExecutorService parallelScheduling;
+    private int parallelThreads;
     private Map<String, Set<String>> evictedTopologiesMap;   // topoId : toposEvicted
     private Meter schedulingTimeoutMeter;
     private Meter internalErrorMeter;
@@ -93,6 +96,10 @@ public class ResourceAwareScheduler implements IScheduler {
         schedulingTimeoutSeconds = ObjectReader.getInt(
                 conf.get(DaemonConfig.SCHEDULING_TIMEOUT_SECONDS_PER_TOPOLOGY), 60);
         backgroundScheduling = Executors.newFixedThreadPool(1);
+        parallelThreads = ObjectReader.getInt(conf.get(DaemonConfig.RESOURCE_AWARE_SCHEDULER_PARALLEL_THREADS), 1);
+        if (parallelThreads > 1) {
+            parallelScheduling = Executors.newFixedThreadPool(parallelThreads);
+        }
         evictedTopologiesMap = new HashMap<>();
 
         schedulerConfigCache = new SchedulerConfigCache<>(conf, this::loadConfig);
@@ -103,6 +110,9 @@ public class ResourceAwareScheduler implements IScheduler {
     public void cleanup() {
         LOG.info("Cleanup ResourceAwareScheduler scheduler");
         backgroundScheduling.shutdown();
+        if (parallelScheduling != null) {
+            parallelScheduling.shutdown();
+        }
     }
 
     @Override
@@ -123,16 +133,143 @@ public class ResourceAwareScheduler implements IScheduler {
         // clear tmpEvictedTopologiesMap at the beginning of each round of scheduling
         // move it to evictedTopologiesMap at the end of this round of scheduling
         Map<String, Set<String>> tmpEvictedTopologiesMap = new HashMap<>();
+        if (parallelScheduling != null) {
+            scheduleInParallel(cluster, userMap, orderedTopologies, tmpEvictedTopologiesMap);
+        } else {
+            for (TopologyDetails td : orderedTopologies) {
+                if (!cluster.needsSchedulingRas(td)) {
+                    //cluster forgets about its previous status, so if it is scheduled just leave it.
+                    cluster.setStatusIfAbsent(td.getId(), "Fully Scheduled");
+                } else {
+                    User submitter = userMap.get(td.getTopologySubmitter());
+                    scheduleTopology(td, cluster, submitter, orderedTopologies, tmpEvictedTopologiesMap);
+                }
+            }
+        }
+        evictedTopologiesMap = tmpEvictedTopologiesMap;
+    }
+
+    /**
+     * Schedule every topology that needs it concurrently against its own copy of the cluster, then commit the results in priority
+     * order. A result is only committed if none of the nodes it uses were changed by an earlier commit in this round; anything else
+     * (a conflict, a failure, or a topology that needs evictions) goes through {@link #scheduleTopology} sequentially. The attempts run
+     * at the same time, so they share a single timeout.
+     */
+    private void scheduleInParallel(Cluster cluster, Map<String, User> userMap, List<TopologyDetails> orderedTopologies,
+                                    Map<String, Set<String>> tmpEvictedTopologiesMap) {
+        Map<String, SpeculativeScheduling> speculative = new HashMap<>();
         for (TopologyDetails td : orderedTopologies) {
+            if (cluster.needsSchedulingRas(td)) {
+                SpeculativeScheduling attempt = startSpeculativeScheduling(td, cluster);
+                if (attempt != null) {
+                    speculative.put(td.getId(), attempt);
+                }
+            }
+        }
+
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(schedulingTimeoutSeconds);
+        Set<String> changedNodes = new HashSet<>();
+        boolean evicted = false;
+        boolean cancelled = false;
+        for (TopologyDetails td : orderedTopologies) {
+            SpeculativeScheduling attempt = speculative.remove(td.getId());
             if (!cluster.needsSchedulingRas(td)) {
+                if (attempt != null) {
+                    cancelled |= attempt.future.cancel(true);
+                }
                 //cluster forgets about its previous status, so if it is scheduled just leave it.
                 cluster.setStatusIfAbsent(td.getId(), "Fully Scheduled");
-            } else {
-                User submitter = userMap.get(td.getTopologySubmitter());
-                scheduleTopology(td, cluster, submitter, orderedTopologies, tmpEvictedTopologiesMap);
+                continue;
             }
+            // once a topology has been evicted the assignments the remaining attempts started from are no longer accurate
+            if (attempt != null && !evicted && commitSpeculativeScheduling(attempt, td, cluster, changedNodes, deadlineNanos)) {
+                continue;
+            }
+            if (attempt != null) {
+                cancelled |= attempt.future.cancel(true);
+            }
+            User submitter = userMap.get(td.getTopologySubmitter());
+            scheduleTopology(td, cluster, submitter, orderedTopologies, tmpEvictedTopologiesMap);
+            changedNodes.addAll(getAssignedNodes(cluster, td.getId()));
+            evicted |= tmpEvictedTopologiesMap.containsKey(td.getId());
         }
-        evictedTopologiesMap = tmpEvictedTopologiesMap;
+        if (cancelled) {
+            // a strategy that does not check for interrupts keeps running after it was cancelled, do not let it hold up the next rounds
+            parallelScheduling.shutdownNow();
+            parallelScheduling = Executors.newFixedThreadPool(parallelThreads);
+        }
+    }
+
+    private SpeculativeScheduling startSpeculativeScheduling(TopologyDetails td, Cluster cluster) {
+        Cluster workingState = new Cluster(cluster);
+        if (!new TopologySchedulingResources(workingState, td).canSchedule()) {
+            // needs evictions, which depend on the outcome of higher priority topologies
+            return null;
+        }
+        IStrategy rasStrategy;
+        try {
+            rasStrategy = newStrategy(td);
+        } catch (RuntimeException e) {
+            // reported when the topology is scheduled sequentially
+            return null;
+        }
+        SingleTopologyCluster toSchedule = new SingleTopologyCluster(workingState, td.getId());
+        return new SpeculativeScheduling(toSchedule, parallelScheduling.submit(() -> rasStrategy.schedule(toSchedule, td)));
+    }
+
+    private boolean commitSpeculativeScheduling(SpeculativeScheduling attempt, TopologyDetails td, Cluster cluster,
+                                                Set<String> changedNodes, long deadlineNanos) {
+        SchedulingResult result;
+        try {
+            result = attempt.future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            LOG.debug("Parallel scheduling of {} did not complete, scheduling it sequentially", td.getId(), e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        if (result == null || !result.isSuccess()) {
+            return false;
+        }
+        SchedulerAssignment assignment = attempt.toSchedule.getAssignmentById(td.getId());
+        Set<String> nodes = getAssignedNodes(attempt.toSchedule, td.getId());
+        if (assignment == null || !Collections.disjoint(nodes, changedNodes)) {
+            LOG.debug("Parallel scheduling of {} conflicts with an earlier topology, scheduling it sequentially", td.getId());
+            return false;
+        }
+        try {
+            // not cluster.updateFrom(toSchedule) as in scheduleTopology, the copy predates the commits made earlier in this round
+            // and would undo them
+            cluster.updateFrom(attempt.toSchedule, td.getId());
+        } catch (RuntimeException e) {
+            LOG.debug("Could not commit parallel scheduling of {}, scheduling it sequentially", td.getId(), e);
+            return false;
+        }
+        changedNodes.addAll(nodes);
+        cluster.setStatus(td.getId(), "Running - " + result.getMessage());
+        return true;
+    }
+
+    private static Set<String> getAssignedNodes(Cluster cluster, String topologyId) {
+        SchedulerAssignment assignment = cluster.getAssignmentById(topologyId);
+        if (assignment == null) {
+            return Collections.emptySet();
+        }
+        return assignment.getSlots().stream().map(WorkerSlot::getNodeId).collect(Collectors.toSet());
+    }
+
+    private IStrategy newStrategy(TopologyDetails td) {
+        String strategy = (String) td.getConf().get(Config.TOPOLOGY_SCHEDULER_STRATEGY);
+        if (strategy.startsWith("backtype.storm")) {
+            // Storm support to launch workers of older version.
+            // If the config of TOPOLOGY_SCHEDULER_STRATEGY comes from the older version, replace the package name.
+            strategy = strategy.replace("backtype.storm", "org.apache.storm");
+            LOG.debug("Replaced backtype.storm with org.apache.storm for Config.TOPOLOGY_SCHEDULER_STRATEGY");
+        }
+        IStrategy rasStrategy = ReflectionUtils.newSchedulerStrategyInstance(strategy, conf);
+        rasStrategy.prepare(conf);
+        return rasStrategy;
     }
 
     private void scheduleTopology(TopologyDetails td, Cluster cluster, final User topologySubmitter,
@@ -143,15 +280,7 @@ public class ResourceAwareScheduler implements IScheduler {
         IStrategy rasStrategy = null;
         String strategyConf = (String) td.getConf().get(Config.TOPOLOGY_SCHEDULER_STRATEGY);
         try {
-            String strategy = (String) td.getConf().get(Config.TOPOLOGY_SCHEDULER_STRATEGY);
-            if (strategy.startsWith("backtype.storm")) {
-                // Storm support to launch workers of older version.
-                // If the config of TOPOLOGY_SCHEDULER_STRATEGY comes from the older version, replace the package name.
-                strategy = strategy.replace("backtype.storm", "org.apache.storm");
-                LOG.debug("Replaced backtype.storm with org.apache.storm for Config.TOPOLOGY_SCHEDULER_STRATEGY");
-            }
-            rasStrategy = ReflectionUtils.newSchedulerStrategyInstance(strategy, conf);
-            rasStrategy.prepare(conf);
+            rasStrategy = newStrategy(td);
         } catch (DisallowedStrategyException e) {
             markFailedTopology(topologySubmitter, cluster, td,
                                "Unsuccessful in scheduling - " + e.getAttemptedClass()
@@ -280,6 +409,19 @@ public class ResourceAwareScheduler implements IScheduler {
     }
 
 
+    /*
+     * A scheduling attempt running on the parallel scheduling pool against a private copy of the cluster.
+     */
+    private static class SpeculativeScheduling {
+        final SingleTopologyCluster toSchedule;
+        final Future<SchedulingResult> future;
+
+        SpeculativeScheduling(SingleTopologyCluster toSchedule, Future<SchedulingResult> future) {
+            this.toSchedule = toSchedule;
+            this.future = future;
+        }
+    }
+
     /*
      * Class for tracking resources for scheduling a topology.
      *
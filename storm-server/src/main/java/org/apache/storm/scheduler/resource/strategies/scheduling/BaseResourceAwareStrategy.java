@@ -438,6 +438,8 @@ public abstract class BaseResourceAwareStrategy implements IStrategy {
         for (int i = 0; i < maxExecCnt ; i++) {
             progressIdxForExec[i] = -1;
         }
+        // tracks available resources of the nodes in sortedNodesIter, rebuilt whenever the nodes are re-sorted
+        NodeFitIndex nodeFitIndex = null;
         LOG.debug("scheduleExecutorsOnNodes: will assign {} executors for topo {}, sortNodesForEachExecutor={}",
                 maxExecCnt, topoName, sortNodesForEachExecutor);
 
@@ -478,9 +480,13 @@ public abstract class BaseResourceAwareStrategy implements IStrategy {
                 progressIdx = -1;
                 nodeSorter.prepare(exec);
                 sortedNodesIter = nodeSorter.sortAllNodes();
+                nodeFitIndex = null;
+            }
+            if (nodeFitIndex == null) {
+                nodeFitIndex = new NodeFitIndex(sortedNodesIter, nodes, cluster.getMinWorkerCpu());
             }
 
-            for (String nodeId : sortedNodesIter) {
+            for (String nodeId : nodeFitIndex.candidates(exec, topologyDetails)) {
                 RasNode node = nodes.getNodeById(nodeId);
                 if (!node.couldEverFit(exec, topologyDetails)) {
                     continue;
@@ -507,6 +513,7 @@ public abstract class BaseResourceAwareStrategy implements IStrategy {
                         // This exec with some of its bounded ackers have all been successfully assigned
                         searcherState.getExecsWithBoundAckers().add(exec);
                     }
+                    nodeFitIndex.update(nodeId);
 
                     if (searcherState.areAllExecsScheduled()) {
                         //Everything is scheduled correctly, so no need to search any more.
@@ -528,6 +535,7 @@ public abstract class BaseResourceAwareStrategy implements IStrategy {
                 }
             }
             sortedNodesIter = null;
+            nodeFitIndex = null;
             // if here, then the executor was not assigned, backtrack;
             LOG.debug("scheduleExecutorsOnNodes: Failed to schedule execId={}, comp={} at loopCnt={}, topo={}",
                     execIndex, comp, loopCnt, topoName);
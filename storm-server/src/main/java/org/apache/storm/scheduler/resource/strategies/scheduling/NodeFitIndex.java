@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.storm.scheduler.resource.strategies.scheduling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.apache.storm.scheduler.ExecutorDetails;
+import org.apache.storm.scheduler.TopologyDetails;
+import org.apache.storm.scheduler.resource.RasNode;
+import org.apache.storm.scheduler.resource.RasNodes;
+import org.apache.storm.scheduler.resource.normalization.NormalizedResourceOffer;
+import org.apache.storm.scheduler.resource.normalization.NormalizedResourceRequest;
+
+/**
+ * Index over a sorted node ordering that finds the next node with enough available CPU and memory
+ * for an executor without walking every node in between.
+ *
+ * <p>
+ * The order of the underlying node iterable is preserved: nodes are pulled from it lazily, only as
+ * far as a lookup needs, and kept in a segment tree holding the maximum available CPU and memory of
+ * each range. {@link #candidates(ExecutorDetails, TopologyDetails)} yields, in sorted order, only the
+ * nodes that pass the CPU and memory part of {@link RasNode#couldEverFit(ExecutorDetails, TopologyDetails)},
+ * so callers must still apply the full check. Whenever resources on a node change the caller must
+ * call {@link #update(String)} for that node.
+ * </p>
+ */
+public class NodeFitIndex {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Iterator<String> sortedNodes;
+    private final RasNodes nodes;
+    private final double minWorkerCpu;
+    // node ids in sorted order, as far as they have been pulled from sortedNodes
+    private final List<String> nodeIds = new ArrayList<>();
+    // the same node may be returned more than once by a sorter (e.g. both favored and greylisted)
+    private final Map<String, List<Integer>> nodeIdToPositions = new HashMap<>();
+    private int capacity;
+    private double[] maxCpu;
+    private double[] maxMem;
+
+    public NodeFitIndex(Iterable<String> sortedNodes, RasNodes nodes, double minWorkerCpu) {
+        this.sortedNodes = sortedNodes.iterator();
+        this.nodes = nodes;
+        this.minWorkerCpu = minWorkerCpu;
+        resize(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Get the nodes, in sorted order, whose available CPU and memory could hold the executor.
+     *
+     * @param exec the executor to be scheduled.
+     * @param td the topology the executor belongs to.
+     * @return an iterable of node ids, a superset of the nodes on which the executor could ever fit.
+     */
+    public Iterable<String> candidates(ExecutorDetails exec, TopologyDetails td) {
+        NormalizedResourceRequest requestedResources = td.getTotalResources(exec);
+        // Same thresholds as NormalizedResourceOffer#couldFit
+        double cpuNeeded = minWorkerCpu < 0.001
+            ? requestedResources.getTotalCpu()
+            : Math.max(requestedResources.getTotalCpu() - minWorkerCpu, 0.0);
+        double memNeeded = requestedResources.getTotalMemoryMb();
+        return () -> new Iterator<String>() {
+            private int from = 0;
+            private int next = -1;
+
+            @Override
+            public boolean hasNext() {
+                // resolved only on demand so that lazy sorting happens at the same point as a plain scan
+                if (next < 0) {
+                    next = firstFitFrom(from, cpuNeeded, memNeeded);
+                }
+                return next >= 0;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String ret = nodeIds.get(next);
+                from = next + 1;
+                next = -1;
+                return ret;
+            }
+        };
+    }
+
+    /**
+     * Refresh the available resources recorded for a node after something was assigned to or freed from it.
+     *
+     * @param nodeId the id of the node whose resources changed.
+     */
+    public void update(String nodeId) {
+        List<Integer> positions = nodeIdToPositions.get(nodeId);
+        if (positions == null) {
+            return;
+        }
+        RasNode node = nodes.getNodeById(nodeId);
+        for (int pos : positions) {
+            setLeaf(pos, node);
+        }
+    }
+
+    private int firstFitFrom(int from, double cpuNeeded, double memNeeded) {
+        int found = firstFit(1, 0, capacity - 1, from, cpuNeeded, memNeeded);
+        if (found >= 0) {
+            return found;
+        }
+        while (sortedNodes.hasNext()) {
+            int pos = append(sortedNodes.next());
+            if (pos >= from && maxCpu[capacity + pos] >= cpuNeeded && maxMem[capacity + pos] >= memNeeded) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private int firstFit(int treeIdx, int lo, int hi, int from, double cpuNeeded, double memNeeded) {
+        if (hi < from || lo >= nodeIds.size() || maxCpu[treeIdx] < cpuNeeded || maxMem[treeIdx] < memNeeded) {
+            return -1;
+        }
+        if (lo == hi) {
+            return lo;
+        }
+        int mid = (lo + hi) >>> 1;
+        int found = firstFit(2 * treeIdx, lo, mid, from, cpuNeeded, memNeeded);
+        return found >= 0 ? found : firstFit(2 * treeIdx + 1, mid + 1, hi, from, cpuNeeded, memNeeded);
+    }
+
+    private int append(String nodeId) {
+        int pos = nodeIds.size();
+        if (pos == capacity) {
+            resize(capacity * 2);
+        }
+        nodeIds.add(nodeId);
+        nodeIdToPositions.computeIfAbsent(nodeId, (k) -> new ArrayList<>()).add(pos);
+        setLeaf(pos, nodes.getNodeById(nodeId));
+        return pos;
+    }
+
+    private void setLeaf(int pos, RasNode node) {
+        int idx = capacity + pos;
+        if (node == null) {
+            // never prune unknown nodes, leave it to the caller to deal with them
+            maxCpu[idx] = Double.POSITIVE_INFINITY;
+            maxMem[idx] = Double.POSITIVE_INFINITY;
+        } else if (!node.isAlive()) {
+            maxCpu[idx] = Double.NEGATIVE_INFINITY;
+            maxMem[idx] = Double.NEGATIVE_INFINITY;
+        } else {
+            NormalizedResourceOffer avail = node.getTotalAvailableResources();
+            maxCpu[idx] = avail.getTotalCpu();
+            maxMem[idx] = avail.getTotalMemoryMb();
+        }
+        for (idx >>>= 1; idx > 0; idx >>>= 1) {
+            maxCpu[idx] = Math.max(maxCpu[2 * idx], maxCpu[2 * idx + 1]);
+            maxMem[idx] = Math.max(maxMem[2 * idx], maxMem[2 * idx + 1]);
+        }
+    }
+
+    private void resize(int newCapacity) {
+        double[] newMaxCpu = new double[2 * newCapacity];
+        double[] newMaxMem = new double[2 * newCapacity];
+        Arrays.fill(newMaxCpu, Double.NEGATIVE_INFINITY);
+        Arrays.fill(newMaxMem, Double.NEGATIVE_INFINITY);
+        if (maxCpu != null) {
+            System.arraycopy(maxCpu, capacity, newMaxCpu, newCapacity, capacity);
+            System.arraycopy(maxMem, capacity, newMaxMem, newCapacity, capacity);
+        }
+        for (int idx = newCapacity - 1; idx > 0; idx--) {
+            newMaxCpu[idx] = Math.max(newMaxCpu[2 * idx], newMaxCpu[2 * idx + 1]);
+            newMaxMem[idx] = Math.max(newMaxMem[2 * idx], newMaxMem[2 * idx + 1]);
+        }
+        capacity = newCapacity;
+        maxCpu = newMaxCpu;
+        maxMem = newMaxMem;
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.daemon.nimbus;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.storm.Config;
+import org.apache.storm.DaemonConfig;
+import org.apache.storm.blobstore.BlobStore;
+import org.apache.storm.cluster.IStormClusterState;
+import org.apache.storm.generated.StormBase;
+import org.apache.storm.generated.TopologyStatus;
+import org.apache.storm.metric.StormMetricsRegistry;
+import org.apache.storm.nimbus.ILeaderElector;
+import org.apache.storm.nimbus.NimbusInfo;
+import org.apache.storm.scheduler.INimbus;
+import org.apache.storm.security.auth.IGroupMappingServiceProvider;
+import org.apache.storm.utils.Time;
+import org.apache.storm.utils.Utils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+/**
+ * Runs scheduling rounds of a nimbus in incremental mode against a mocked cluster state without topologies, counting the full reads
+ * of the cluster state and the skipped rounds.
+ */
+public class NimbusIncrementalSchedulingTest {
+    private static final int RESYNC_SECS = 60;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Time.SimulatedTime time;
+    private IStormClusterState state;
+    private StormMetricsRegistry metricsRegistry;
+    private Nimbus nimbus;
+
+    private Nimbus makeNimbus(boolean incremental) throws Exception {
+        Map<String, Object> conf = new HashMap<>(Utils.readDefaultConfig());
+        // no zookeeper client and no metrics store, everything nimbus reads comes from the mocks
+        conf.remove(Config.STORM_ZOOKEEPER_SERVERS);
+        conf.remove(DaemonConfig.STORM_METRIC_STORE_CLASS);
+        conf.put(Config.STORM_LOCAL_DIR, tmp.getRoot().getAbsolutePath());
+        conf.put(DaemonConfig.NIMBUS_SCHEDULING_INCREMENTAL, incremental);
+        conf.put(DaemonConfig.NIMBUS_SCHEDULING_INCREMENTAL_RESYNC_SECS, RESYNC_SECS);
+
+        ILeaderElector leaderElector = Mockito.mock(ILeaderElector.class);
+        Mockito.when(leaderElector.isLeader()).thenReturn(true);
+        return new Nimbus(conf, Mockito.mock(INimbus.class), state, new NimbusInfo("localhost", 6627, true),
+                          Mockito.mock(BlobStore.class), Mockito.mock(TopoCache.class), leaderElector,
+                          Mockito.mock(IGroupMappingServiceProvider.class), metricsRegistry);
+    }
+
+    private long skippedRounds() {
+        return metricsRegistry.registerMeter("nimbus:num-skipped-scheduling-rounds").getCount();
+    }
+
+    private void verifyFullReads(int count) {
+        Mockito.verify(state, Mockito.times(count)).assignments(null);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        time = new Time.SimulatedTime();
+        state = Mockito.mock(IStormClusterState.class);
+        Mockito.when(state.isAssignmentsBackendSynchronized()).thenReturn(true);
+        metricsRegistry = new StormMetricsRegistry();
+        nimbus = makeNimbus(true);
+    }
+
+    @After
+    public void tearDown() {
+        nimbus.shutdown();
+        time.close();
+    }
+
+    @Test
+    public void testSettledRoundsAreSkipped() throws Exception {
+        nimbus.mkAssignments();
+        verifyFullReads(1);
+        assertEquals(0, skippedRounds());
+
+        nimbus.mkAssignments();
+        nimbus.mkAssignments();
+        // nothing changed and no topology needs scheduling, the scheduler is not called
+        verifyFullReads(1);
+        assertEquals(2, skippedRounds());
+    }
+
+    @Test
+    public void testWithoutIncrementalModeEveryRoundReadsTheClusterState() throws Exception {
+        nimbus.shutdown();
+        nimbus = makeNimbus(false);
+        nimbus.mkAssignments();
+        nimbus.mkAssignments();
+        verifyFullReads(2);
+        assertEquals(0, skippedRounds());
+        Mockito.verify(state, Mockito.never()).allSupervisorInfo(Mockito.any(Runnable.class));
+    }
+
+    @Test
+    public void testSupervisorWatchInvalidates() throws Exception {
+        nimbus.mkAssignments();
+        ArgumentCaptor<Runnable> watch = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(state).allSupervisorInfo(watch.capture());
+
+        watch.getValue().run();
+        nimbus.mkAssignments();
+        verifyFullReads(2);
+        assertEquals(0, skippedRounds());
+        nimbus.mkAssignments();
+        assertEquals(1, skippedRounds());
+    }
+
+    @Test
+    public void testTransitionInvalidates() throws Exception {
+        StormBase base = new StormBase();
+        base.set_name("topo");
+        base.set_status(TopologyStatus.ACTIVE);
+        Mockito.when(state.getTopoId("topo")).thenReturn(Optional.of("topo-1"));
+        Mockito.when(state.stormBase(Mockito.eq("topo-1"), Mockito.any())).thenReturn(base);
+
+        nimbus.mkAssignments();
+        nimbus.mkAssignments();
+        assertEquals(1, skippedRounds());
+
+        nimbus.deactivate("topo");
+        Mockito.verify(state).updateStorm(Mockito.eq("topo-1"), Mockito.any(StormBase.class));
+        nimbus.mkAssignments();
+        verifyFullReads(2);
+        assertEquals(1, skippedRounds());
+    }
+
+    @Test
+    public void testResyncInterval() throws Exception {
+        nimbus.mkAssignments();
+        Time.advanceTimeSecs(RESYNC_SECS - 1);
+        nimbus.mkAssignments();
+        verifyFullReads(1);
+        Time.advanceTimeSecs(1);
+        // no watch fired, but the model is too old to be trusted
+        nimbus.mkAssignments();
+        verifyFullReads(2);
+        assertEquals(1, skippedRounds());
+    }
+}
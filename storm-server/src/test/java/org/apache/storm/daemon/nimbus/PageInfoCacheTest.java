@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.daemon.nimbus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.storm.generated.Assignment;
+import org.apache.storm.generated.ComponentAggregateStats;
+import org.apache.storm.generated.ComponentPageInfo;
+import org.apache.storm.generated.ComponentType;
+import org.apache.storm.generated.NodeInfo;
+import org.apache.storm.generated.TopologyPageInfo;
+import org.apache.storm.utils.Time;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PageInfoCacheTest {
+    private static final long MAX_AGE_MS = 10_000;
+    private static final String WINDOW = ":all-time";
+
+    private Time.SimulatedTime time;
+    private PageInfoCache cache;
+
+    private static Assignment assignment(String node, long port) {
+        Assignment assignment = new Assignment("/tmp");
+        assignment.put_to_executor_node_port(Arrays.asList(1L, 1L), new NodeInfo(node, Collections.singleton(port)));
+        return assignment;
+    }
+
+    private static TopologyPageInfo topologyPage(String topoId) {
+        TopologyPageInfo pageInfo = new TopologyPageInfo(topoId);
+        pageInfo.set_name(topoId + "-name");
+        ComponentAggregateStats stats = new ComponentAggregateStats();
+        stats.set_type(ComponentType.SPOUT);
+        pageInfo.put_to_id_to_spout_agg_stats("spout", stats);
+        return pageInfo;
+    }
+
+    private static ComponentPageInfo componentPage(String componentId) {
+        ComponentPageInfo pageInfo = new ComponentPageInfo(componentId, ComponentType.BOLT);
+        pageInfo.set_num_executors(2);
+        return pageInfo;
+    }
+
+    @Before
+    public void setUp() {
+        time = new Time.SimulatedTime();
+        cache = new PageInfoCache(MAX_AGE_MS);
+    }
+
+    @After
+    public void tearDown() {
+        time.close();
+    }
+
+    @Test
+    public void testDisabled() {
+        cache = new PageInfoCache(0);
+        Assignment assignment = assignment("n1", 6700);
+        cache.putTopologyPageInfo("topo-1", WINDOW, false, assignment, topologyPage("topo-1"));
+        cache.putComponentPageInfo("topo-1", "bolt", WINDOW, false, assignment, componentPage("bolt"));
+        assertNull(cache.getTopologyPageInfo("topo-1", WINDOW, false, assignment));
+        assertNull(cache.getComponentPageInfo("topo-1", "bolt", WINDOW, false, assignment));
+    }
+
+    @Test
+    public void testExpiry() {
+        Assignment assignment = assignment("n1", 6700);
+        cache.putTopologyPageInfo("topo-1", WINDOW, false, assignment, topologyPage("topo-1"));
+        cache.putComponentPageInfo("topo-1", "bolt", WINDOW, false, assignment, componentPage("bolt"));
+        Time.advanceTime(MAX_AGE_MS - 1);
+        assertEquals(topologyPage("topo-1"), cache.getTopologyPageInfo("topo-1", WINDOW, false, assignment));
+        assertEquals(componentPage("bolt"), cache.getComponentPageInfo("topo-1", "bolt", WINDOW, false, assignment));
+        Time.advanceTime(1);
+        assertNull(cache.getTopologyPageInfo("topo-1", WINDOW, false, assignment));
+        assertNull(cache.getComponentPageInfo("topo-1", "bolt", WINDOW, false, assignment));
+
+        // a new entry starts its own max age
+        cache.putTopologyPageInfo("topo-1", WINDOW, false, assignment, topologyPage("topo-1"));
+        Time.advanceTime(MAX_AGE_MS - 1);
+        assertNotNull(cache.getTopologyPageInfo("topo-1", WINDOW, false, assignment));
+    }
+
+    @Test
+    public void testAssignmentChangeInvalidates() {
+        cache.putTopologyPageInfo("topo-1", WINDOW, false, assignment("n1", 6700), topologyPage("topo-1"));
+        cache.putComponentPageInfo("topo-1", "bolt", WINDOW, false, assignment("n1", 6700), componentPage("bolt"));
+        // an equal assignment read again from the cluster state is not a change
+        assertNotNull(cache.getTopologyPageInfo("topo-1", WINDOW, false, assignment("n1", 6700)));
+        assertNotNull(cache.getComponentPageInfo("topo-1", "bolt", WINDOW, false, assignment("n1", 6700)));
+
+        assertNull(cache.getTopologyPageInfo("topo-1", WINDOW, false, assignment("n1", 6701)));
+        assertNull(cache.getTopologyPageInfo("topo-1", WINDOW, false, assignment("n2", 6700)));
+        assertNull(cache.getTopologyPageInfo("topo-1", WINDOW, false, null));
+        assertNull(cache.getComponentPageInfo("topo-1", "bolt", WINDOW, false, assignment("n2", 6700)));
+
+        // only the executor placement matters, not the rest of the assignment
+        Assignment sameExecutors = assignment("n1", 6700);
+        sameExecutors.set_master_code_dir("/other");
+        assertNotNull(cache.getTopologyPageInfo("topo-1", WINDOW, false, sameExecutors));
+    }
+
+    @Test
+    public void testPagesAreCachedSeparately() {
+        Assignment assignment = assignment("n1", 6700);
+        cache.putTopologyPageInfo("topo-1", WINDOW, false, assignment, topologyPage("topo-1"));
+        cache.putComponentPageInfo("topo-1", "bolt", WINDOW, false, assignment, componentPage("bolt"));
+        assertNull(cache.getTopologyPageInfo("topo-1", "600", false, assignment));
+        assertNull(cache.getTopologyPageInfo("topo-1", WINDOW, true, assignment));
+        assertNull(cache.getTopologyPageInfo("topo-2", WINDOW, false, assignment));
+        assertNull(cache.getComponentPageInfo("topo-1", "spout", WINDOW, false, assignment));
+        assertNull(cache.getComponentPageInfo("topo-1", "bolt", "600", false, assignment));
+        assertEquals(componentPage("bolt"), cache.getComponentPageInfo("topo-1", "bolt", WINDOW, false, assignment));
+    }
+
+    @Test
+    public void testRemoveTopo() {
+        Assignment assignment = assignment("n1", 6700);
+        cache.putTopologyPageInfo("topo-1", WINDOW, false, assignment, topologyPage("topo-1"));
+        cache.putTopologyPageInfo("topo-1", WINDOW, true, assignment, topologyPage("topo-1"));
+        cache.putComponentPageInfo("topo-1", "bolt", WINDOW, false, assignment, componentPage("bolt"));
+        cache.putTopologyPageInfo("topo-2", WINDOW, false, assignment, topologyPage("topo-2"));
+        cache.putComponentPageInfo("topo-2", "bolt", WINDOW, false, assignment, componentPage("bolt"));
+
+        cache.removeTopo("topo-1");
+        assertNull(cache.getTopologyPageInfo("topo-1", WINDOW, false, assignment));
+        assertNull(cache.getTopologyPageInfo("topo-1", WINDOW, true, assignment));
+        assertNull(cache.getComponentPageInfo("topo-1", "bolt", WINDOW, false, assignment));
+        assertEquals(topologyPage("topo-2"), cache.getTopologyPageInfo("topo-2", WINDOW, false, assignment));
+        assertEquals(componentPage("bolt"), cache.getComponentPageInfo("topo-2", "bolt", WINDOW, false, assignment));
+        // removing a topology without cached pages is a no-op
+        cache.removeTopo("topo-3");
+    }
+
+    @Test
+    public void testCallersGetTheirOwnCopies() {
+        Assignment assignment = assignment("n1", 6700);
+        TopologyPageInfo put = topologyPage("topo-1");
+        cache.putTopologyPageInfo("topo-1", WINDOW, false, assignment, put);
+        // the page nimbus keeps filling in after putting it
+        put.set_name("changed");
+        put.get_id_to_spout_agg_stats().get("spout").set_type(ComponentType.BOLT);
+
+        TopologyPageInfo first = cache.getTopologyPageInfo("topo-1", WINDOW, false, assignment);
+        assertEquals(topologyPage("topo-1"), first);
+        // a caller modifying what it got, e.g. to fill in the parts that are not cached
+        first.set_name("changed");
+        first.get_id_to_spout_agg_stats().get("spout").set_type(ComponentType.BOLT);
+        first.put_to_id_to_bolt_agg_stats("bolt", new ComponentAggregateStats());
+
+        TopologyPageInfo second = cache.getTopologyPageInfo("topo-1", WINDOW, false, assignment);
+        assertNotSame(first, second);
+        assertEquals(topologyPage("topo-1"), second);
+
+        ComponentPageInfo component = componentPage("bolt");
+        cache.putComponentPageInfo("topo-1", "bolt", WINDOW, false, assignment, component);
+        component.set_num_executors(3);
+        cache.getComponentPageInfo("topo-1", "bolt", WINDOW, false, assignment).set_num_executors(4);
+        assertEquals(componentPage("bolt"), cache.getComponentPageInfo("topo-1", "bolt", WINDOW, false, assignment));
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.daemon.nimbus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.storm.generated.Assignment;
+import org.apache.storm.generated.StormBase;
+import org.apache.storm.generated.TopologyStatus;
+import org.apache.storm.scheduler.TopologyDetails;
+import org.apache.storm.utils.Time;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SchedulingModelTest {
+    private static final long RESYNC_MS = 60_000;
+
+    private Time.SimulatedTime time;
+    private SchedulingModel model;
+
+    private static Map<String, StormBase> bases(String... ids) {
+        Map<String, StormBase> bases = new HashMap<>();
+        for (String id : ids) {
+            StormBase base = new StormBase();
+            base.set_name(id);
+            base.set_status(TopologyStatus.ACTIVE);
+            bases.put(id, base);
+        }
+        return bases;
+    }
+
+    private static Assignment assignment(String node) {
+        Assignment assignment = new Assignment("/tmp");
+        assignment.set_node_host(Collections.singletonMap(node, node + ".example.com"));
+        return assignment;
+    }
+
+    private void fullRead(String... ids) {
+        model.beginSync();
+        model.sync(bases(ids), Collections.<String, TopologyDetails>emptyMap(), Collections.singletonMap(ids[0], assignment("n1")));
+    }
+
+    @Before
+    public void setUp() {
+        time = new Time.SimulatedTime();
+        model = new SchedulingModel(RESYNC_MS);
+    }
+
+    @After
+    public void tearDown() {
+        time.close();
+    }
+
+    @Test
+    public void testNotCurrentUntilSynced() {
+        assertFalse(model.isCurrent());
+        // nothing was read yet, so clearing the dirty flag alone is not enough
+        model.beginSync();
+        assertFalse(model.isCurrent());
+        fullRead("topo-1");
+        assertTrue(model.isCurrent());
+        assertEquals(Collections.singleton("topo-1"), model.getBases().keySet());
+        assertEquals(Collections.singletonList("topo-1"), model.getAssignedTopologyIds());
+    }
+
+    @Test
+    public void testInvalidate() {
+        fullRead("topo-1");
+        model.invalidate();
+        assertFalse(model.isCurrent());
+        fullRead("topo-1");
+        assertTrue(model.isCurrent());
+    }
+
+    @Test
+    public void testWatchInvalidates() {
+        fullRead("topo-1");
+        Runnable watch = model.getInvalidator();
+        // the same callback is handed to every watch
+        assertSame(watch, model.getInvalidator());
+        watch.run();
+        assertFalse(model.isCurrent());
+    }
+
+    @Test
+    public void testResyncInterval() {
+        fullRead("topo-1");
+        Time.advanceTime(RESYNC_MS - 1);
+        assertTrue(model.isCurrent());
+        Time.advanceTime(1);
+        // watches can be lost across session reconnects, an old model is not trusted even if nothing invalidated it
+        assertFalse(model.isCurrent());
+        fullRead("topo-1");
+        assertTrue(model.isCurrent());
+    }
+
+    @Test
+    public void testInvalidationDuringTheReadIsKept() {
+        fullRead("topo-1");
+        model.invalidate();
+        model.beginSync();
+        // a watch fires while the cluster state is read, the read may have missed the change
+        model.getInvalidator().run();
+        model.sync(bases("topo-1", "topo-2"), Collections.<String, TopologyDetails>emptyMap(), Collections.<String, Assignment>emptyMap());
+        assertFalse(model.isCurrent());
+        // the next round reads again and can trust what it read
+        fullRead("topo-1", "topo-2");
+        assertTrue(model.isCurrent());
+    }
+
+    @Test
+    public void testUpdateAssignments() {
+        // assignments written before the first sync are dropped, the sync reads them anyway
+        model.updateAssignments(Collections.singletonMap("topo-1", assignment("n1")));
+        fullRead("topo-1", "topo-2");
+        model.updateAssignments(Collections.singletonMap("topo-2", assignment("n2")));
+        Map<String, Assignment> assignments = model.getAssignments();
+        assertEquals(assignment("n1"), assignments.get("topo-1"));
+        assertEquals(assignment("n2"), assignments.get("topo-2"));
+        // writing an assignment does not invalidate the model
+        assertTrue(model.isCurrent());
+    }
+
+    @Test
+    public void testGettersReturnCopies() {
+        fullRead("topo-1");
+        model.getBases().clear();
+        model.getAssignments().clear();
+        model.getTopologyDetails().put("topo-2", null);
+        assertEquals(Collections.singleton("topo-1"), model.getBases().keySet());
+        assertEquals(Collections.singleton("topo-1"), model.getAssignments().keySet());
+        assertTrue(model.getTopologyDetails().isEmpty());
+    }
+}
@@ -0,0 +1,236 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import org.apache.storm.Config;
+import org.apache.storm.generated.StormTopology;
+import org.apache.storm.metric.StormMetricsRegistry;
+import org.apache.storm.scheduler.resource.normalization.NormalizedResources;
+import org.apache.storm.scheduler.resource.normalization.ResourceMetrics;
+import org.apache.storm.testing.TestWordSpout;
+import org.apache.storm.topology.TopologyBuilder;
+import org.apache.storm.utils.Utils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ClusterTest {
+    private static final int NUM_SUPERVISORS = 2;
+    private static final int NUM_EXECUTORS = 2;
+
+    private Map<String, Object> conf;
+    private Cluster cluster;
+
+    private TopologyDetails topology(String id) {
+        TopologyBuilder builder = new TopologyBuilder();
+        builder.setSpout("spout", new TestWordSpout(), NUM_EXECUTORS);
+        StormTopology topology = builder.createTopology();
+        Map<ExecutorDetails, String> executors = new HashMap<>();
+        for (int task = 0; task < NUM_EXECUTORS; task++) {
+            executors.put(new ExecutorDetails(task, task), "spout");
+        }
+        Map<String, Object> topoConf = new HashMap<>(conf);
+        topoConf.put(Config.TOPOLOGY_NAME, id);
+        return new TopologyDetails(id, topoConf, topology, 1, executors, 0, "user");
+    }
+
+    private static Map<String, SupervisorDetails> supervisors() {
+        Map<String, Double> resources = new HashMap<>();
+        resources.put(Config.SUPERVISOR_CPU_CAPACITY, 400.0);
+        resources.put(Config.SUPERVISOR_MEMORY_CAPACITY_MB, 4000.0);
+        Map<String, SupervisorDetails> supervisors = new HashMap<>();
+        for (int i = 0; i < NUM_SUPERVISORS; i++) {
+            String id = "sup-" + i;
+            supervisors.put(id, new SupervisorDetails(id, "host-" + i, null, Arrays.asList(6700, 6701),
+                                                      NormalizedResources.RESOURCE_NAME_NORMALIZER.normalizedResourceMap(resources)));
+        }
+        return supervisors;
+    }
+
+    private void assign(Cluster cluster, String topologyId, String node, int port) {
+        cluster.assign(new WorkerSlot(node, port), topologyId, cluster.getTopologies().getById(topologyId).getExecutors());
+    }
+
+    private static Collection<WorkerSlot> slots(Cluster cluster, String topologyId) {
+        return new HashSet<>(cluster.getUsedSlotsByTopologyId(topologyId));
+    }
+
+    @Before
+    public void setUp() {
+        conf = Utils.readDefaultConfig();
+        Topologies topologies = new Topologies(topology("topo-1"), topology("topo-2"));
+        cluster = new Cluster(Mockito.mock(INimbus.class), new ResourceMetrics(new StormMetricsRegistry()), supervisors(),
+                              new HashMap<>(), topologies, conf);
+    }
+
+    @Test
+    public void testUpdateOneTopologyFromAnOlderCopy() {
+        Cluster copy = new Cluster(cluster);
+        // committed to the cluster after the copy was made
+        assign(cluster, "topo-1", "sup-0", 6700);
+        SchedulerAssignment first = cluster.getAssignmentById("topo-1");
+        assign(copy, "topo-2", "sup-1", 6700);
+        copy.setStatus("topo-2", "scheduled in the copy");
+
+        cluster.updateFrom(copy, "topo-2");
+        // updateFrom(copy) would drop topo-1, the copy does not know about it
+        assertSame(first, cluster.getAssignmentById("topo-1"));
+        assertEquals(Collections.singleton(new WorkerSlot("sup-1", 6700)), slots(cluster, "topo-2"));
+        assertEquals(2, cluster.getUsedSlots().size());
+        assertEquals(Collections.singleton(6700), cluster.getUsedPorts(cluster.getSupervisorById("sup-0")));
+        assertEquals(Collections.singleton(6700), cluster.getUsedPorts(cluster.getSupervisorById("sup-1")));
+        assertNull(cluster.getStatus("topo-2"));
+    }
+
+    @Test
+    public void testConflictingUpdateLeavesTheClusterAsItWas() {
+        assign(cluster, "topo-2", "sup-1", 6701);
+        Cluster copy = new Cluster(cluster);
+        assign(cluster, "topo-1", "sup-0", 6700);
+        SchedulerAssignment first = cluster.getAssignmentById("topo-1");
+        double scheduledCpu = cluster.getScheduledCpuForNode("sup-0");
+        // the copy moves topo-2 into the slot topo-1 took in the meantime
+        copy.unassign("topo-2");
+        assign(copy, "topo-2", "sup-0", 6700);
+
+        assertThrows(RuntimeException.class, () -> cluster.updateFrom(copy, "topo-2"));
+        assertSame(first, cluster.getAssignmentById("topo-1"));
+        assertEquals(Collections.singleton(new WorkerSlot("sup-0", 6700)), slots(cluster, "topo-1"));
+        assertEquals(Collections.singleton(new WorkerSlot("sup-1", 6701)), slots(cluster, "topo-2"));
+        assertEquals(2, cluster.getUsedSlots().size());
+        assertEquals(scheduledCpu, cluster.getScheduledCpuForNode("sup-0"), 0.0);
+        assertEquals(Collections.singleton(6701), cluster.getUsedPorts(cluster.getSupervisorById("sup-1")));
+        assertEquals(Collections.singleton(new WorkerSlot("sup-0", 6700)), slots(copy, "topo-2"));
+    }
+
+    @Test
+    public void testUpdateUnassignedTopology() {
+        assign(cluster, "topo-1", "sup-0", 6700);
+        Cluster copy = new Cluster(cluster);
+        copy.unassign("topo-1");
+
+        cluster.updateFrom(copy, "topo-1");
+        assertEquals(Collections.emptySet(), slots(cluster, "topo-1"));
+        assertEquals(Collections.emptySet(), cluster.getUsedPorts(cluster.getSupervisorById("sup-0")));
+        assertEquals(0.0, cluster.getScheduledCpuForNode("sup-0"), 0.0);
+    }
+
+    @Test
+    public void testChangingTheCopyLeavesTheSourceAlone() {
+        assign(cluster, "topo-1", "sup-0", 6700);
+        SchedulerAssignment first = cluster.getAssignmentById("topo-1");
+        Map<ExecutorDetails, WorkerSlot> executorToSlot = new HashMap<>(first.getExecutorToSlot());
+        double scheduledCpu = cluster.getScheduledCpuForNode("sup-0");
+
+        Cluster copy = new Cluster(cluster);
+        copy.freeSlot(new WorkerSlot("sup-0", 6700));
+        assign(copy, "topo-1", "sup-0", 6701);
+        assign(copy, "topo-2", "sup-1", 6700);
+        copy.setStatus("topo-1", "changed in the copy");
+
+        assertSame(first, cluster.getAssignmentById("topo-1"));
+        assertEquals(executorToSlot, first.getExecutorToSlot());
+        assertNull(cluster.getAssignmentById("topo-2"));
+        assertEquals(Collections.singleton(6700), cluster.getUsedPorts(cluster.getSupervisorById("sup-0")));
+        assertEquals(Collections.emptySet(), cluster.getUsedPorts(cluster.getSupervisorById("sup-1")));
+        assertEquals(scheduledCpu, cluster.getScheduledCpuForNode("sup-0"), 0.0);
+        assertEquals(0.0, cluster.getScheduledCpuForNode("sup-1"), 0.0);
+        assertNull(cluster.getStatus("topo-1"));
+
+        assertEquals(Collections.singleton(new WorkerSlot("sup-0", 6701)), slots(copy, "topo-1"));
+        assertEquals(Collections.singleton(6701), copy.getUsedPorts(copy.getSupervisorById("sup-0")));
+    }
+
+    @Test
+    public void testChangingTheSourceLeavesTheCopyAlone() {
+        assign(cluster, "topo-1", "sup-0", 6700);
+        Cluster copy = new Cluster(cluster);
+        SchedulerAssignment first = copy.getAssignmentById("topo-1");
+        Map<ExecutorDetails, WorkerSlot> executorToSlot = new HashMap<>(first.getExecutorToSlot());
+        double scheduledCpu = copy.getScheduledCpuForNode("sup-0");
+
+        // the source owned topo-1 and sup-0 before it was copied, it has to copy them now
+        cluster.freeSlot(new WorkerSlot("sup-0", 6700));
+        assign(cluster, "topo-1", "sup-0", 6701);
+        assign(cluster, "topo-2", "sup-1", 6700);
+
+        assertSame(first, copy.getAssignmentById("topo-1"));
+        assertEquals(executorToSlot, first.getExecutorToSlot());
+        assertNull(copy.getAssignmentById("topo-2"));
+        assertEquals(Collections.singleton(6700), copy.getUsedPorts(copy.getSupervisorById("sup-0")));
+        assertEquals(Collections.emptySet(), copy.getUsedPorts(copy.getSupervisorById("sup-1")));
+        assertEquals(scheduledCpu, copy.getScheduledCpuForNode("sup-0"), 0.0);
+
+        assertEquals(Collections.singleton(new WorkerSlot("sup-0", 6701)), slots(cluster, "topo-1"));
+        assertEquals(Collections.singleton(6701), cluster.getUsedPorts(cluster.getSupervisorById("sup-0")));
+    }
+
+    @Test
+    public void testCopiesOfCopiesAreIndependent() {
+        assign(cluster, "topo-1", "sup-0", 6700);
+        Cluster copy = new Cluster(cluster);
+        Cluster copyOfCopy = new Cluster(copy);
+        copy.unassign("topo-1");
+        assign(copyOfCopy, "topo-2", "sup-0", 6701);
+
+        assertEquals(Collections.singleton(new WorkerSlot("sup-0", 6700)), slots(cluster, "topo-1"));
+        assertNull(cluster.getAssignmentById("topo-2"));
+        assertEquals(Collections.emptySet(), slots(copy, "topo-1"));
+        assertNull(copy.getAssignmentById("topo-2"));
+        assertEquals(Collections.singleton(new WorkerSlot("sup-0", 6700)), slots(copyOfCopy, "topo-1"));
+        assertEquals(new HashSet<>(Arrays.asList(6700, 6701)), copyOfCopy.getUsedPorts(copyOfCopy.getSupervisorById("sup-0")));
+    }
+
+    @Test
+    public void testUpdateFromReplacesOnlyChangedTopologies() {
+        assign(cluster, "topo-1", "sup-0", 6700);
+        assign(cluster, "topo-2", "sup-1", 6700);
+        SchedulerAssignment first = cluster.getAssignmentById("topo-1");
+        SchedulerAssignment second = cluster.getAssignmentById("topo-2");
+        Cluster copy = new Cluster(cluster);
+        copy.unassign("topo-2");
+        assign(copy, "topo-2", "sup-1", 6701);
+        copy.setStatus("topo-2", "moved");
+
+        cluster.updateFrom(copy);
+        // topo-1 was not touched by the copy, it is still the same object in both clusters
+        assertSame(first, cluster.getAssignmentById("topo-1"));
+        assertSame(first, copy.getAssignmentById("topo-1"));
+        assertNotSame(second, cluster.getAssignmentById("topo-2"));
+        assertEquals(copy.getAssignmentById("topo-2").getExecutorToSlot(), cluster.getAssignmentById("topo-2").getExecutorToSlot());
+        assertEquals(Collections.singleton(new WorkerSlot("sup-1", 6701)), slots(cluster, "topo-2"));
+        assertEquals(Collections.singleton(6701), cluster.getUsedPorts(cluster.getSupervisorById("sup-1")));
+        assertEquals("moved", cluster.getStatus("topo-2"));
+    }
+
+    @Test
+    public void testUpdateFromAnUnchangedCopyKeepsEverything() {
+        assign(cluster, "topo-1", "sup-0", 6700);
+        SchedulerAssignment first = cluster.getAssignmentById("topo-1");
+        cluster.updateFrom(new Cluster(cluster));
+        assertSame(first, cluster.getAssignmentById("topo-1"));
+        assertEquals(Collections.singleton(6700), cluster.getUsedPorts(cluster.getSupervisorById("sup-0")));
+    }
+}
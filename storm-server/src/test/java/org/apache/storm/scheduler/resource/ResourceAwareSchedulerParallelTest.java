@@ -0,0 +1,255 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.scheduler.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.storm.Config;
+import org.apache.storm.DaemonConfig;
+import org.apache.storm.generated.Bolt;
+import org.apache.storm.generated.SpoutSpec;
+import org.apache.storm.generated.StormTopology;
+import org.apache.storm.metric.StormMetricsRegistry;
+import org.apache.storm.scheduler.Cluster;
+import org.apache.storm.scheduler.ExecutorDetails;
+import org.apache.storm.scheduler.INimbus;
+import org.apache.storm.scheduler.IScheduler;
+import org.apache.storm.scheduler.SchedulerAssignment;
+import org.apache.storm.scheduler.SupervisorDetails;
+import org.apache.storm.scheduler.Topologies;
+import org.apache.storm.scheduler.TopologyDetails;
+import org.apache.storm.scheduler.WorkerSlot;
+import org.apache.storm.scheduler.resource.normalization.NormalizedResources;
+import org.apache.storm.scheduler.resource.normalization.ResourceMetrics;
+import org.apache.storm.scheduler.resource.strategies.scheduling.IStrategy;
+import org.apache.storm.testing.TestWordCounter;
+import org.apache.storm.testing.TestWordSpout;
+import org.apache.storm.topology.TopologyBuilder;
+import org.apache.storm.utils.Utils;
+import org.junit.Test;
+
+public class ResourceAwareSchedulerParallelTest {
+    private static final int NUM_SUPERVISORS = 8;
+
+    private static class TestNimbus implements INimbus {
+        @Override
+        public void prepare(Map<String, Object> topoConf, String schedulerLocalDir) {
+        }
+
+        @Override
+        public Collection<WorkerSlot> allSlotsAvailableForScheduling(Collection<SupervisorDetails> existingSupervisors,
+                                                                     Topologies topologies, Set<String> topologiesMissingAssignments) {
+            return null;
+        }
+
+        @Override
+        public void assignSlots(Topologies topologies, Map<String, Collection<WorkerSlot>> newSlotsByTopologyId) {
+        }
+
+        @Override
+        public String getHostName(Map<String, SupervisorDetails> existingSupervisors, String nodeId) {
+            return existingSupervisors.get(nodeId).getHost();
+        }
+
+        @Override
+        public IScheduler getForcedScheduler() {
+            return null;
+        }
+    }
+
+    private static Map<String, Object> clusterConf(int parallelThreads) {
+        Map<String, Object> conf = Utils.readDefaultConfig();
+        conf.put(Config.TOPOLOGY_COMPONENT_CPU_PCORE_PERCENT, 50.0);
+        conf.put(Config.TOPOLOGY_COMPONENT_RESOURCES_ONHEAP_MEMORY_MB, 100.0);
+        conf.put(Config.TOPOLOGY_COMPONENT_RESOURCES_OFFHEAP_MEMORY_MB, 0.0);
+        conf.put(DaemonConfig.RESOURCE_AWARE_SCHEDULER_PARALLEL_THREADS, parallelThreads);
+        return conf;
+    }
+
+    private static Map<String, SupervisorDetails> supervisors() {
+        Map<String, Double> resources = new HashMap<>();
+        resources.put(Config.SUPERVISOR_CPU_CAPACITY, 100.0);
+        resources.put(Config.SUPERVISOR_MEMORY_CAPACITY_MB, 1000.0);
+        Map<String, SupervisorDetails> supervisors = new HashMap<>();
+        for (int i = 0; i < NUM_SUPERVISORS; i++) {
+            String id = "sup-" + i;
+            supervisors.put(id, new SupervisorDetails(id, "host-" + i, null, Arrays.asList(6700, 6701, 6702, 6703),
+                                                      NormalizedResources.RESOURCE_NAME_NORMALIZER.normalizedResourceMap(resources)));
+        }
+        return supervisors;
+    }
+
+    /**
+     * Puts all executors of a topology into the first free slot of the node from {@link #NODE}, counting the calls per topology.
+     */
+    public static class PinnedStrategy implements IStrategy {
+        static final String NODE = "test.pinned.node";
+        static final Map<String, AtomicInteger> CALLS = new ConcurrentHashMap<>();
+
+        @Override
+        public void prepare(Map<String, Object> config) {
+        }
+
+        @Override
+        public SchedulingResult schedule(Cluster cluster, TopologyDetails td) {
+            CALLS.computeIfAbsent(td.getId(), id -> new AtomicInteger()).incrementAndGet();
+            String node = (String) td.getConf().get(NODE);
+            List<WorkerSlot> slots = cluster.getAvailableSlots(cluster.getSupervisorById(node));
+            if (slots.isEmpty()) {
+                return SchedulingResult.failure(SchedulingStatus.FAIL_NOT_ENOUGH_RESOURCES, "no free slot on " + node);
+            }
+            slots.sort(Comparator.comparingInt(WorkerSlot::getPort));
+            cluster.assign(slots.get(0), td.getId(), td.getExecutors());
+            return SchedulingResult.success("pinned to " + slots.get(0));
+        }
+    }
+
+    private static TopologyDetails topology(Map<String, Object> clusterConf, String id, int priority) {
+        return topology(clusterConf, id, priority, Collections.emptyMap());
+    }
+
+    private static TopologyDetails pinnedTopology(Map<String, Object> clusterConf, String id, int priority, String node) {
+        Map<String, Object> topoConf = new HashMap<>();
+        topoConf.put(Config.TOPOLOGY_SCHEDULER_STRATEGY, PinnedStrategy.class.getName());
+        topoConf.put(PinnedStrategy.NODE, node);
+        return topology(clusterConf, id, priority, topoConf);
+    }
+
+    private static TopologyDetails topology(Map<String, Object> clusterConf, String id, int priority, Map<String, Object> topoConf) {
+        TopologyBuilder builder = new TopologyBuilder();
+        builder.setSpout("spout", new TestWordSpout(), 2);
+        builder.setBolt("bolt", new TestWordCounter(), 2).shuffleGrouping("spout");
+        StormTopology topology = builder.createTopology();
+
+        Map<ExecutorDetails, String> executors = new HashMap<>();
+        int task = 0;
+        for (Map.Entry<String, SpoutSpec> spout : topology.get_spouts().entrySet()) {
+            for (int i = 0; i < spout.getValue().get_common().get_parallelism_hint(); i++, task++) {
+                executors.put(new ExecutorDetails(task, task), spout.getKey());
+            }
+        }
+        for (Map.Entry<String, Bolt> bolt : topology.get_bolts().entrySet()) {
+            for (int i = 0; i < bolt.getValue().get_common().get_parallelism_hint(); i++, task++) {
+                executors.put(new ExecutorDetails(task, task), bolt.getKey());
+            }
+        }
+        Map<String, Object> conf = new HashMap<>(clusterConf);
+        conf.put(Config.TOPOLOGY_NAME, id);
+        conf.put(Config.TOPOLOGY_PRIORITY, priority);
+        conf.put(Config.TOPOLOGY_SUBMITTER_USER, "user");
+        conf.putAll(topoConf);
+        return new TopologyDetails(id, conf, topology, 2, executors, 0, "user");
+    }
+
+    private static Cluster schedule(int parallelThreads, String... topologyIds) {
+        Map<String, Object> conf = clusterConf(parallelThreads);
+        List<TopologyDetails> topologies = new ArrayList<>();
+        for (int i = 0; i < topologyIds.length; i++) {
+            topologies.add(topology(conf, topologyIds[i], 10 + i));
+        }
+        return schedule(conf, topologies);
+    }
+
+    private static Cluster schedule(Map<String, Object> conf, List<TopologyDetails> topologies) {
+        StormMetricsRegistry metricsRegistry = new StormMetricsRegistry();
+        Cluster cluster = new Cluster(new TestNimbus(), new ResourceMetrics(metricsRegistry), supervisors(), new HashMap<>(),
+                                      new Topologies(topologies.toArray(new TopologyDetails[0])), conf);
+        ResourceAwareScheduler scheduler = new ResourceAwareScheduler();
+        scheduler.prepare(conf, metricsRegistry);
+        try {
+            scheduler.schedule(cluster.getTopologies(), cluster);
+        } finally {
+            scheduler.cleanup();
+        }
+        return cluster;
+    }
+
+    private static Set<String> nodes(Cluster cluster, String topologyId) {
+        Set<String> nodes = new HashSet<>();
+        for (WorkerSlot slot : cluster.getAssignmentById(topologyId).getSlots()) {
+            nodes.add(slot.getNodeId());
+        }
+        return nodes;
+    }
+
+    @Test
+    public void testConflictingTopologiesMatchSequentialScheduling() {
+        String[] ids = { "topo-1", "topo-2", "topo-3" };
+        // scheduled alone against the same cluster, the topologies pick the same nodes, so the parallel attempts all conflict
+        Set<String> aloneNodes = nodes(schedule(1, ids[0]), ids[0]);
+        for (String id : ids) {
+            assertEquals(aloneNodes, nodes(schedule(1, id), id));
+        }
+
+        Cluster sequential = schedule(1, ids);
+        Cluster parallel = schedule(4, ids);
+        for (String id : ids) {
+            SchedulerAssignment expected = sequential.getAssignmentById(id);
+            SchedulerAssignment actual = parallel.getAssignmentById(id);
+            assertNotNull(id, expected);
+            assertNotNull(id, actual);
+            assertEquals(id, expected.getExecutorToSlot(), actual.getExecutorToSlot());
+            // the status messages carry the scheduling time, only the outcome has to match
+            assertTrue(id, sequential.getStatusMap().get(id).startsWith("Running"));
+            assertTrue(id, parallel.getStatusMap().get(id).startsWith("Running"));
+        }
+    }
+
+    @Test
+    public void testConflictingAttemptIsRescheduledSequentially() {
+        PinnedStrategy.CALLS.clear();
+        Map<String, Object> conf = clusterConf(4);
+        // both attempts start from the same cluster and take the first slot of sup-0
+        Cluster cluster = schedule(conf, Arrays.asList(pinnedTopology(conf, "topo-1", 10, "sup-0"),
+                                                       pinnedTopology(conf, "topo-2", 11, "sup-0")));
+        assertEquals(1, PinnedStrategy.CALLS.get("topo-1").get());
+        // the attempt of topo-2 conflicts with the commit of topo-1 and is run again against the updated cluster
+        assertEquals(2, PinnedStrategy.CALLS.get("topo-2").get());
+        WorkerSlot first = cluster.getAssignmentById("topo-1").getSlots().iterator().next();
+        WorkerSlot second = cluster.getAssignmentById("topo-2").getSlots().iterator().next();
+        assertEquals(new WorkerSlot("sup-0", 6700), first);
+        assertEquals(new WorkerSlot("sup-0", 6701), second);
+        assertEquals(2, cluster.getUsedSlots().size());
+        assertTrue(cluster.getStatusMap().get("topo-1").startsWith("Running - pinned"));
+        assertTrue(cluster.getStatusMap().get("topo-2").startsWith("Running - pinned"));
+    }
+
+    @Test
+    public void testDisjointAttemptsAreCommitted() {
+        PinnedStrategy.CALLS.clear();
+        Map<String, Object> conf = clusterConf(4);
+        Cluster cluster = schedule(conf, Arrays.asList(pinnedTopology(conf, "topo-1", 10, "sup-0"),
+                                                       pinnedTopology(conf, "topo-2", 11, "sup-1"),
+                                                       pinnedTopology(conf, "topo-3", 12, "sup-2")));
+        for (int i = 0; i < 3; i++) {
+            String id = "topo-" + (i + 1);
+            assertEquals(id, 1, PinnedStrategy.CALLS.get(id).get());
+            assertEquals(id, Collections.singleton("sup-" + i), nodes(cluster, id));
+            assertEquals(id, 4, cluster.getAssignmentById(id).getExecutors().size());
+        }
+    }
+}
@@ -0,0 +1,320 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.  The ASF licenses this file to you under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package org.apache.storm.scheduler.resource.strategies.scheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.storm.Config;
+import org.apache.storm.DaemonConfig;
+import org.apache.storm.generated.StormTopology;
+import org.apache.storm.metric.StormMetricsRegistry;
+import org.apache.storm.scheduler.Cluster;
+import org.apache.storm.scheduler.ExecutorDetails;
+import org.apache.storm.scheduler.INimbus;
+import org.apache.storm.scheduler.SupervisorDetails;
+import org.apache.storm.scheduler.Topologies;
+import org.apache.storm.scheduler.TopologyDetails;
+import org.apache.storm.scheduler.WorkerSlot;
+import org.apache.storm.scheduler.resource.RasNode;
+import org.apache.storm.scheduler.resource.RasNodes;
+import org.apache.storm.scheduler.resource.normalization.NormalizedResources;
+import org.apache.storm.scheduler.resource.normalization.ResourceMetrics;
+import org.apache.storm.testing.TestWordSpout;
+import org.apache.storm.topology.TopologyBuilder;
+import org.apache.storm.utils.Utils;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Checks {@link NodeFitIndex#candidates} against a linear scan with {@link RasNode#couldEverFit}. The test topology asks for no
+ * generic resources, so the CPU and memory check of the index and couldEverFit must agree exactly on known nodes.
+ */
+public class NodeFitIndexTest {
+    private static final int NUM_EXECUTORS = 64;
+    private static final double EXEC_CPU = 100.0;
+    private static final double EXEC_MEM = 500.0;
+
+    private Cluster cluster;
+    private RasNodes nodes;
+    private TopologyDetails td;
+    private ExecutorDetails exec;
+    // executor 0 is the one looked up, the others are assigned to use up resources
+    private int nextTask = 1;
+
+    /**
+     * Make a cluster with one supervisor per capacity, named sup-0, sup-1, ...
+     */
+    private void makeCluster(double minWorkerCpu, double[]... cpuAndMem) {
+        Map<String, Object> conf = Utils.readDefaultConfig();
+        conf.put(Config.TOPOLOGY_COMPONENT_CPU_PCORE_PERCENT, EXEC_CPU);
+        conf.put(Config.TOPOLOGY_COMPONENT_RESOURCES_ONHEAP_MEMORY_MB, EXEC_MEM);
+        conf.put(Config.TOPOLOGY_COMPONENT_RESOURCES_OFFHEAP_MEMORY_MB, 0.0);
+        conf.put(DaemonConfig.STORM_WORKER_MIN_CPU_PCORE_PERCENT, minWorkerCpu);
+
+        Map<String, SupervisorDetails> supervisors = new HashMap<>();
+        for (int i = 0; i < cpuAndMem.length; i++) {
+            Map<String, Double> resources = new HashMap<>();
+            resources.put(Config.SUPERVISOR_CPU_CAPACITY, cpuAndMem[i][0]);
+            resources.put(Config.SUPERVISOR_MEMORY_CAPACITY_MB, cpuAndMem[i][1]);
+            String id = "sup-" + i;
+            supervisors.put(id, new SupervisorDetails(id, "host-" + i, null, Arrays.asList(6700, 6701, 6702, 6703),
+                                                      NormalizedResources.RESOURCE_NAME_NORMALIZER.normalizedResourceMap(resources)));
+        }
+
+        TopologyBuilder builder = new TopologyBuilder();
+        builder.setSpout("spout", new TestWordSpout(), NUM_EXECUTORS);
+        StormTopology topology = builder.createTopology();
+        Map<ExecutorDetails, String> executors = new HashMap<>();
+        for (int task = 0; task < NUM_EXECUTORS; task++) {
+            executors.put(new ExecutorDetails(task, task), "spout");
+        }
+        Map<String, Object> topoConf = new HashMap<>(conf);
+        topoConf.put(Config.TOPOLOGY_NAME, "topo");
+        td = new TopologyDetails("topo-1", topoConf, topology, NUM_EXECUTORS, executors, 0, "user");
+        exec = new ExecutorDetails(0, 0);
+
+        INimbus inimbus = Mockito.mock(INimbus.class);
+        Mockito.when(inimbus.getHostName(Mockito.any(), Mockito.anyString()))
+            .thenAnswer(invocation -> invocation.<Map<String, SupervisorDetails>>getArgument(0).get(invocation.getArgument(1)).getHost());
+        cluster = new Cluster(inimbus, new ResourceMetrics(new StormMetricsRegistry()), supervisors, new HashMap<>(),
+                              new Topologies(td), conf);
+    }
+
+    private void makeNodes() {
+        nodes = new RasNodes(cluster);
+    }
+
+    private List<String> linearScan(List<String> sorted) {
+        List<String> ret = new ArrayList<>();
+        for (String nodeId : sorted) {
+            RasNode node = nodes.getNodeById(nodeId);
+            if (node == null || node.couldEverFit(exec, td)) {
+                ret.add(nodeId);
+            }
+        }
+        return ret;
+    }
+
+    private static List<String> toList(Iterable<String> candidates) {
+        List<String> ret = new ArrayList<>();
+        candidates.forEach(ret::add);
+        return ret;
+    }
+
+    private void assertMatchesLinearScan(NodeFitIndex index, List<String> sorted) {
+        assertEquals(linearScan(sorted), toList(index.candidates(exec, td)));
+    }
+
+    /**
+     * Use up the resources of the node for one executor.
+     */
+    private void assignOne(String nodeId) {
+        ExecutorDetails assigned = new ExecutorDetails(nextTask, nextTask);
+        nextTask++;
+        nodes.getNodeById(nodeId).assign(null, td, Collections.singletonList(assigned));
+    }
+
+    private static List<String> ids(int... ids) {
+        List<String> ret = new ArrayList<>();
+        for (int id : ids) {
+            ret.add("sup-" + id);
+        }
+        return ret;
+    }
+
+    @Test
+    public void testCandidatesMatchLinearScan() {
+        makeCluster(0.0,
+                    new double[]{50.0, 4000.0}, new double[]{400.0, 400.0}, new double[]{100.0, 500.0}, new double[]{99.0, 4000.0},
+                    new double[]{400.0, 499.0}, new double[]{200.0, 1000.0}, new double[]{0.0, 0.0});
+        makeNodes();
+        List<String> sorted = ids(6, 5, 4, 3, 2, 1, 0);
+        NodeFitIndex index = new NodeFitIndex(sorted, nodes, cluster.getMinWorkerCpu());
+        // exactly enough cpu and memory is a fit
+        assertEquals(ids(5, 2), toList(index.candidates(exec, td)));
+        assertMatchesLinearScan(index, sorted);
+        // every call starts over from the first node
+        assertMatchesLinearScan(index, sorted);
+    }
+
+    @Test
+    public void testMinWorkerCpuLowersTheCpuNeeded() {
+        makeCluster(60.0, new double[]{30.0, 4000.0}, new double[]{40.0, 4000.0}, new double[]{40.0, 100.0});
+        makeNodes();
+        List<String> sorted = ids(0, 1, 2);
+        NodeFitIndex index = new NodeFitIndex(sorted, nodes, cluster.getMinWorkerCpu());
+        assertEquals(ids(1), toList(index.candidates(exec, td)));
+        assertMatchesLinearScan(index, sorted);
+    }
+
+    @Test
+    public void testCandidatesAfterUpdate() {
+        makeCluster(0.0, new double[]{150.0, 4000.0}, new double[]{400.0, 4000.0}, new double[]{150.0, 4000.0});
+        makeNodes();
+        List<String> sorted = ids(0, 1, 2);
+        NodeFitIndex index = new NodeFitIndex(sorted, nodes, cluster.getMinWorkerCpu());
+        assertEquals(sorted, toList(index.candidates(exec, td)));
+
+        assignOne("sup-0");
+        index.update("sup-0");
+        assertEquals(ids(1, 2), toList(index.candidates(exec, td)));
+        assertMatchesLinearScan(index, sorted);
+
+        // an update in the middle of an iteration is seen by the rest of it
+        Iterator<String> candidates = index.candidates(exec, td).iterator();
+        assertEquals("sup-1", candidates.next());
+        assignOne("sup-2");
+        index.update("sup-2");
+        assertFalse(candidates.hasNext());
+
+        WorkerSlot slot = cluster.getUsedSlotsByTopologyId(td.getId()).stream()
+                                 .filter(s -> s.getNodeId().equals("sup-0")).findFirst().get();
+        nodes.getNodeById("sup-0").free(slot);
+        index.update("sup-0");
+        assertEquals(ids(0, 1), toList(index.candidates(exec, td)));
+        assertMatchesLinearScan(index, sorted);
+    }
+
+    @Test
+    public void testUpdateIsNeededToSeeAChange() {
+        makeCluster(0.0, new double[]{150.0, 4000.0}, new double[]{400.0, 4000.0});
+        makeNodes();
+        NodeFitIndex index = new NodeFitIndex(ids(0, 1), nodes, cluster.getMinWorkerCpu());
+        toList(index.candidates(exec, td));
+        assignOne("sup-0");
+        // the index only knows what it was told, callers still apply the full check
+        assertEquals(ids(0, 1), toList(index.candidates(exec, td)));
+        index.update("sup-0");
+        assertEquals(ids(1), toList(index.candidates(exec, td)));
+    }
+
+    @Test
+    public void testResize() {
+        Random random = new Random(42);
+        // several times the initial capacity of the tree
+        double[][] capacities = new double[300][];
+        for (int i = 0; i < capacities.length; i++) {
+            capacities[i] = new double[]{random.nextInt(5) * 50.0, random.nextInt(5) * 250.0};
+        }
+        makeCluster(0.0, capacities);
+        makeNodes();
+        List<String> sorted = new ArrayList<>();
+        for (int i = 0; i < capacities.length; i++) {
+            sorted.add("sup-" + i);
+        }
+        Collections.shuffle(sorted, random);
+        NodeFitIndex index = new NodeFitIndex(sorted, nodes, cluster.getMinWorkerCpu());
+
+        // pull only part of the nodes, then change nodes on both sides of what was pulled
+        Iterator<String> candidates = index.candidates(exec, td).iterator();
+        for (int i = 0; i < 3; i++) {
+            candidates.next();
+        }
+        List<String> expected = linearScan(sorted);
+        String early = expected.get(0);
+        String late = expected.get(expected.size() - 1);
+        for (String nodeId : Arrays.asList(early, late)) {
+            while (nodes.getNodeById(nodeId).couldEverFit(exec, td)) {
+                assignOne(nodeId);
+            }
+            index.update(nodeId);
+        }
+        assertFalse(linearScan(sorted).contains(early));
+        assertFalse(linearScan(sorted).contains(late));
+        assertMatchesLinearScan(index, sorted);
+
+        for (int round = 0; round < 20; round++) {
+            String nodeId = sorted.get(random.nextInt(sorted.size()));
+            RasNode node = nodes.getNodeById(nodeId);
+            if (node.couldEverFit(exec, td) && !node.getFreeSlots().isEmpty()) {
+                assignOne(nodeId);
+            } else if (!node.getUsedSlots().isEmpty()) {
+                node.free(node.getUsedSlots().iterator().next());
+            }
+            index.update(nodeId);
+            assertMatchesLinearScan(index, sorted);
+        }
+    }
+
+    @Test
+    public void testDuplicateNodeIds() {
+        makeCluster(0.0, new double[]{150.0, 4000.0}, new double[]{400.0, 4000.0}, new double[]{0.0, 0.0});
+        makeNodes();
+        // a sorter may return a node more than once, every occurrence is a candidate
+        List<String> sorted = ids(0, 2, 1, 0, 2, 0);
+        NodeFitIndex index = new NodeFitIndex(sorted, nodes, cluster.getMinWorkerCpu());
+        assertEquals(ids(0, 1, 0, 0), toList(index.candidates(exec, td)));
+
+        assignOne("sup-0");
+        index.update("sup-0");
+        assertEquals(ids(1), toList(index.candidates(exec, td)));
+        assertMatchesLinearScan(index, sorted);
+    }
+
+    @Test
+    public void testDeadAndUnknownNodes() {
+        makeCluster(0.0, new double[]{400.0, 4000.0}, new double[]{400.0, 4000.0}, new double[]{0.0, 0.0});
+        cluster.blacklistHost("host-1");
+        makeNodes();
+        assertFalse(nodes.getNodeById("sup-1").isAlive());
+        List<String> sorted = Arrays.asList("sup-1", "unknown-0", "sup-2", "sup-0", "unknown-1");
+        NodeFitIndex index = new NodeFitIndex(sorted, nodes, cluster.getMinWorkerCpu());
+        // dead nodes never fit, unknown nodes are left to the caller
+        assertEquals(Arrays.asList("unknown-0", "sup-0", "unknown-1"), toList(index.candidates(exec, td)));
+        assertMatchesLinearScan(index, sorted);
+
+        index.update("sup-1");
+        index.update("unknown-0");
+        index.update("not-sorted");
+        assertMatchesLinearScan(index, sorted);
+    }
+
+    @Test
+    public void testNodesArePulledLazily() {
+        makeCluster(0.0, new double[]{0.0, 0.0}, new double[]{400.0, 4000.0}, new double[]{400.0, 4000.0});
+        makeNodes();
+        List<String> pulled = new ArrayList<>();
+        Iterator<String> sup = ids(0, 1, 2).iterator();
+        Iterable<String> sorted = () -> new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return sup.hasNext();
+            }
+
+            @Override
+            public String next() {
+                String ret = sup.next();
+                pulled.add(ret);
+                return ret;
+            }
+        };
+        NodeFitIndex index = new NodeFitIndex(sorted, nodes, cluster.getMinWorkerCpu());
+        Iterator<String> candidates = index.candidates(exec, td).iterator();
+        assertTrue(pulled.isEmpty());
+        assertEquals("sup-1", candidates.next());
+        assertEquals(ids(0, 1), pulled);
+        assertEquals("sup-2", candidates.next());
+        assertFalse(candidates.hasNext());
+        assertEquals(ids(0, 1, 2), pulled);
+    }
+}